@@ -0,0 +1,100 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Port;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.AndGate;
+import com.ra4king.circuitsim.simulator.components.gates.OrGate;
+import com.ra4king.circuitsim.simulator.components.gates.XorGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.components.wiring.Splitter;
+
+/**
+ * Settling a gate-level ripple-carry adder after new random operands, the way graders exercise student adders.
+ *
+ * @author Roi Atalla
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdderBenchmark {
+	@Param({ "8", "32" })
+	public int width;
+	
+	@Param({ "false", "true" })
+	public boolean levelized;
+	
+	private final SplittableRandom random = new SplittableRandom(42);
+	
+	private Simulator simulator;
+	private CircuitState state;
+	private Port portA;
+	private Port portB;
+	private Port portOut;
+	
+	@Setup
+	public void setup() {
+		simulator = new Simulator();
+		simulator.setLevelizedEvaluation(levelized);
+		Circuit circuit = new Circuit("Ripple-carry adder", simulator);
+		
+		Pin a = circuit.addComponent(new Pin("A", width, true));
+		Pin b = circuit.addComponent(new Pin("B", width, true));
+		Pin out = circuit.addComponent(new Pin("Out", width, false));
+		Pin carryIn = circuit.addComponent(new Pin("Cin", 1, true));
+		Splitter splitA = circuit.addComponent(new Splitter("", width, width));
+		Splitter splitB = circuit.addComponent(new Splitter("", width, width));
+		Splitter splitOut = circuit.addComponent(new Splitter("", width, width));
+		splitA.getPort(splitA.PORT_JOINED).linkPort(a.getPort(Pin.PORT));
+		splitB.getPort(splitB.PORT_JOINED).linkPort(b.getPort(Pin.PORT));
+		splitOut.getPort(splitOut.PORT_JOINED).linkPort(out.getPort(Pin.PORT));
+		
+		Port carry = carryIn.getPort(Pin.PORT);
+		for (int i = 0; i < width; i++) {
+			XorGate halfSum = circuit.addComponent(new XorGate("", 1, 2));
+			XorGate sum = circuit.addComponent(new XorGate("", 1, 2));
+			AndGate generate = circuit.addComponent(new AndGate("", 1, 2));
+			AndGate propagate = circuit.addComponent(new AndGate("", 1, 2));
+			OrGate carryOut = circuit.addComponent(new OrGate("", 1, 2));
+			
+			splitA.getPort(i).linkPort(halfSum.getPort(0)).linkPort(generate.getPort(0));
+			splitB.getPort(i).linkPort(halfSum.getPort(1)).linkPort(generate.getPort(1));
+			halfSum.getOutPort().linkPort(sum.getPort(0)).linkPort(propagate.getPort(0));
+			carry.linkPort(sum.getPort(1)).linkPort(propagate.getPort(1));
+			sum.getOutPort().linkPort(splitOut.getPort(i));
+			generate.getOutPort().linkPort(carryOut.getPort(0));
+			propagate.getOutPort().linkPort(carryOut.getPort(1));
+			carry = carryOut.getOutPort();
+		}
+		
+		state = circuit.getTopLevelState();
+		state.pushValue(carryIn.getPort(Pin.PORT), WireValue.of(0, 1));
+		simulator.stepAll();
+		
+		portA = a.getPort(Pin.PORT);
+		portB = b.getPort(Pin.PORT);
+		portOut = out.getPort(Pin.PORT);
+	}
+	
+	@Benchmark
+	public WireValue stepAll() {
+		state.pushValue(portA, WireValue.of(random.nextLong(), width));
+		state.pushValue(portB, WireValue.of(random.nextLong(), width));
+		simulator.stepAll();
+		return state.getLastReceived(portOut);
+	}
+}
@@ -0,0 +1,53 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.file.CircuitLoader;
+
+/**
+ * A single clock tick of an example circuit, until the Simulator settles. The examples directory is given by the
+ * circuitsim.examples system property, which the jmh task sets.
+ *
+ * @author Roi Atalla
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClockBenchmark {
+	@Param({ "CPU.sim" })
+	public String file;
+	
+	private Simulator simulator;
+	
+	@Setup
+	public void setup() throws IOException {
+		File examples = new File(System.getProperty("circuitsim.examples", "examples"));
+		simulator = new CircuitLoader().load(new File(examples, file)).getSimulator();
+		simulator.stepAll();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		Clock.dispose(simulator);
+	}
+	
+	@Benchmark
+	public void tickToSettle() {
+		Clock.tick(simulator);
+		simulator.stepAll();
+	}
+}
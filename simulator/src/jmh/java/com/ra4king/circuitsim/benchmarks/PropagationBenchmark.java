@@ -0,0 +1,63 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Port;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * A new value pushed through a single Link: one input Pin driving the other participants, all output Pins.
+ *
+ * @author Roi Atalla
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PropagationBenchmark {
+	@Param({ "2", "8", "64" })
+	public int participants;
+	
+	@Param({ "1", "32" })
+	public int bitSize;
+	
+	private Simulator simulator;
+	private CircuitState state;
+	private Port driver;
+	private WireValue[] values;
+	private int next;
+	
+	@Setup
+	public void setup() {
+		simulator = new Simulator();
+		Circuit circuit = new Circuit("Propagation", simulator);
+		Pin input = circuit.addComponent(new Pin("In", bitSize, true));
+		for (int i = 1; i < participants; i++) {
+			Pin output = circuit.addComponent(new Pin("Out" + i, bitSize, false));
+			input.getPort(Pin.PORT).linkPort(output.getPort(Pin.PORT));
+		}
+		simulator.stepAll();
+		
+		state = circuit.getTopLevelState();
+		driver = input.getPort(Pin.PORT);
+		values = new WireValue[] { WireValue.of(0, bitSize), WireValue.of(-1, bitSize) };
+	}
+	
+	@Benchmark
+	public void propagate() {
+		state.pushValue(driver, values[next ^= 1]);
+		simulator.stepAll();
+	}
+}
@@ -0,0 +1,188 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock.RunInfo;
+import com.ra4king.circuitsim.simulator.file.CircuitLoader;
+import com.ra4king.circuitsim.simulator.file.LoadedCircuits;
+
+/**
+ * The end-to-end speed of the simulator on the bundled example CPUs: each is loaded headless, warmed up, then run for
+ * a fixed number of clock cycles as fast as possible. Unlike the JMH benchmarks, this measures whole programs, so it
+ * tracks the real-world speed of the simulator over releases.
+ * <p>
+ * Usage: {@code ThroughputBenchmark <examples directory> <report.json> [cycles]}, or {@code gradle
+ * :simulator:throughput}. The report is JSON, and a summary is printed as it runs.
+ *
+ * @author Roi Atalla
+ */
+public class ThroughputBenchmark {
+	private static final List<String> EXAMPLES = List.of("CPU.sim", "Single-Cycle CPU.sim", "Pipelined-CPU.sim");
+	private static final int LOADS = 5;
+	
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: ThroughputBenchmark <examples directory> <report.json> [cycles]");
+			System.exit(1);
+		}
+		
+		File examples = new File(args[0]);
+		File reportFile = new File(args[1]);
+		long cycles = args.length == 3 ? Long.parseLong(args[2]) : 2000;
+		
+		Report report = new Report(cycles);
+		for (String example : EXAMPLES) {
+			Result result = run(new File(examples, example), cycles);
+			report.results.add(result);
+			System.out.println(result);
+		}
+		
+		File parent = reportFile.getAbsoluteFile().getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Cannot create " + parent);
+		}
+		try (Writer writer = new FileWriter(reportFile)) {
+			GSON.toJson(report, writer);
+		}
+		System.out.println("Report written to " + reportFile);
+	}
+	
+	private static Result run(File file, long cycles) {
+		Result result = new Result(file.getName());
+		CircuitLoader loader = new CircuitLoader();
+		
+		Simulator simulator = null;
+		try {
+			// The median of a few loads, the first of which also loads classes
+			double[] loadMillis = new double[LOADS];
+			for (int i = 0; i < LOADS; i++) {
+				if (simulator != null) {
+					Clock.dispose(simulator);
+				}
+				
+				long start = System.nanoTime();
+				LoadedCircuits circuits = loader.load(file);
+				loadMillis[i] = (System.nanoTime() - start) / 1e6;
+				
+				simulator = circuits.getSimulator();
+				result.circuits = circuits.getCircuits().size();
+			}
+			Arrays.sort(loadMillis);
+			result.loadMillis = loadMillis[LOADS / 2];
+			
+			simulator.stepAll();
+			Clock.runCycles(simulator, cycles);
+			
+			System.gc();
+			List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+					pool.resetPeakUsage();
+					heapPools.add(pool);
+				}
+			}
+			
+			long events = simulator.getPropagatedLinkCount();
+			long allocated = getAllocatedBytes();
+			RunInfo run = Clock.runCycles(simulator, cycles);
+			allocated = getAllocatedBytes() - allocated;
+			events = simulator.getPropagatedLinkCount() - events;
+			
+			double seconds = run.getNanos() / 1e9;
+			result.cycles = run.getCycles();
+			result.seconds = seconds;
+			result.cyclesPerSecond = run.getCyclesPerSecond();
+			result.events = events;
+			result.eventsPerSecond = seconds == 0 ? 0 : events / seconds;
+			result.allocatedBytesPerSecond = seconds == 0 || allocated < 0 ? -1 : allocated / seconds;
+			result.allocatedBytesPerCycle = run.getCycles() == 0 || allocated < 0 ? -1 : allocated / run.getCycles();
+			result.peakHeapBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+		} catch (IOException | RuntimeException exc) {
+			result.error = exc.toString();
+		} finally {
+			if (simulator != null) {
+				Clock.dispose(simulator);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @return The bytes allocated by this thread so far, or -1 if the JVM does not count them.
+	 */
+	private static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+			if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+	
+	private static class Report {
+		private final String date = Instant.now().toString();
+		private final String javaVersion = System.getProperty("java.version");
+		private final String vm = System.getProperty("java.vm.name");
+		private final int processors = Runtime.getRuntime().availableProcessors();
+		private final long cycles;
+		private final List<Result> results = new ArrayList<>();
+		
+		Report(long cycles) {
+			this.cycles = cycles;
+		}
+	}
+	
+	private static class Result {
+		private final String file;
+		private int circuits;
+		private double loadMillis;
+		private long cycles;
+		private double seconds;
+		private double cyclesPerSecond;
+		private long events;
+		private double eventsPerSecond;
+		private double allocatedBytesPerSecond;
+		private long allocatedBytesPerCycle;
+		private long peakHeapBytes;
+		private String error;
+		
+		Result(String file) {
+			this.file = file;
+		}
+		
+		@Override
+		public String toString() {
+			if (error != null) {
+				return String.format("%-22s failed: %s", file, error);
+			}
+			
+			return String.format("%-22s load %8.2f ms, %10.0f cycles/s, %12.0f events/s, %8.1f MB/s allocated, " +
+			                     "%6.1f MB peak heap",
+			                     file,
+			                     loadMillis,
+			                     cyclesPerSecond,
+			                     eventsPerSecond,
+			                     allocatedBytesPerSecond / 1e6,
+			                     peakHeapBytes / 1e6);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ra4king.circuitsim.simulator.WireValue;
+
+/**
+ * The WireValue operations done for every participant of every Link that changes.
+ *
+ * @author Roi Atalla
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WireValueBenchmark {
+	@Param({ "1", "32", "64" })
+	public int bitSize;
+	
+	private WireValue driven;
+	private WireValue floating;
+	private WireValue same;
+	private long value;
+	
+	@Setup
+	public void setup() {
+		value = 0x5A5A5A5A5A5A5A5AL;
+		driven = WireValue.of(value, bitSize);
+		same = WireValue.of(value, bitSize);
+		
+		// Every other bit is driven, the rest floating
+		floating = new WireValue(bitSize);
+		for (int i = 0; i < bitSize; i += 2) {
+			floating.setBit(i, driven.getBit(i));
+		}
+	}
+	
+	@Benchmark
+	public WireValue of() {
+		return WireValue.of(value, bitSize);
+	}
+	
+	@Benchmark
+	public WireValue merge() {
+		return new WireValue(floating).merge(driven);
+	}
+	
+	@Benchmark
+	public boolean equalsSame() {
+		return driven.equals(same);
+	}
+	
+	@Benchmark
+	public boolean equalsFloating() {
+		return driven.equals(floating);
+	}
+}
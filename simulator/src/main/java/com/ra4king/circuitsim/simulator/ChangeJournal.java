@@ -0,0 +1,313 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded journal of the changes made to CircuitStates during the last ticks, so they can be undone in reverse, see
+ * {@link Simulator#setJournalCapacity(int)}.
+ * <p>
+ * Entries are encoded into a ring of longs, with a parallel ring of Objects for Component properties, so recording
+ * allocates nothing once the rings are large enough. Every entry is laid out as:
+ * <ul>
+ * <li>a header of its kind, the index of its CircuitState and its Link ID, or 0</li>
+ * <li>the revision of the state's Netlist, then a count or index</li>
+ * <li>the payload</li>
+ * <li>the length of the entry, so the journal can be walked backwards</li>
+ * </ul>
+ * A Link is recorded once per tick, the first time its Ports are about to change, with the values of all its
+ * participants. Undoing the tick copies those values back. When there are more ticks than the capacity, the entries
+ * of the oldest tick are dropped.
+ *
+ * @author Roi Atalla
+ */
+class ChangeJournal {
+	private static final long KIND_LINK = 1L << 62;
+	private static final long KIND_PROPERTY = 2L << 62;
+	private static final long KIND_ELEMENT = 3L << 62;
+	private static final long KIND_MASK = 3L << 62;
+	private static final long QUEUED = 1L << 61;
+	
+	// Marks a property that was absent
+	private static final Object ABSENT = new Object();
+	
+	// Epochs are unique across journals, so a CircuitState never mistakes a stale mark for a recorded Link
+	private static final AtomicLong epochs = new AtomicLong();
+	
+	private final int capacity;
+	
+	private long[] data = new long[1024];
+	private long dataStart;
+	private long dataEnd;
+	
+	private Object[] objects = new Object[64];
+	private long objectStart;
+	private long objectEnd;
+	
+	// The positions in data and objects where each retained tick starts, by tick number
+	private final long[] tickData;
+	private final long[] tickObjects;
+	private final int tickMask;
+	
+	// Ticks after oldestTick, up to tick, can be undone
+	private long tick;
+	private long oldestTick;
+	
+	// Changes every time a tick begins or is undone, so CircuitStates can tell whether a Link was already recorded
+	private long epoch = epochs.incrementAndGet();
+	
+	private final List<CircuitState> states = new ArrayList<>();
+	private final Map<CircuitState, Integer> stateIndices = new IdentityHashMap<>();
+	
+	private long[] scratch = new long[64];
+	
+	ChangeJournal(int capacity) {
+		this.capacity = capacity;
+		
+		int ticks = Integer.highestOneBit(capacity + 1) << 1;
+		tickData = new long[ticks];
+		tickObjects = new long[ticks];
+		tickMask = ticks - 1;
+	}
+	
+	int getCapacity() {
+		return capacity;
+	}
+	
+	long getTick() {
+		return tick;
+	}
+	
+	long getOldestTick() {
+		return oldestTick;
+	}
+	
+	long getEpoch() {
+		return epoch;
+	}
+	
+	/**
+	 * Starts a new tick. The entries recorded from now on are undone together.
+	 */
+	void beginTick() {
+		tick++;
+		epoch = epochs.incrementAndGet();
+		tickData[(int)(tick & tickMask)] = dataEnd;
+		tickObjects[(int)(tick & tickMask)] = objectEnd;
+		
+		if (tick - oldestTick > capacity) {
+			oldestTick++;
+		}
+		
+		// Entries recorded before the first tick that can be undone are never needed
+		long newObjectStart = tickObjects[(int)((oldestTick + 1) & tickMask)];
+		for (long i = objectStart; i < newObjectStart; i++) {
+			objects[(int)(i & (objects.length - 1))] = null;
+		}
+		objectStart = newObjectStart;
+		dataStart = tickData[(int)((oldestTick + 1) & tickMask)];
+	}
+	
+	/**
+	 * Records the values of every participant of the Link, before they change.
+	 */
+	void recordLink(CircuitState state, int linkId, boolean queued, int revision, long[] values, int valueCount) {
+		int length = valueCount + 3;
+		ensureData(length);
+		
+		writeData(KIND_LINK | (queued ? QUEUED : 0) | ((long)getStateIndex(state) << 32) | linkId);
+		writeData(((long)revision << 32) | valueCount);
+		for (int i = 0; i < valueCount; i++) {
+			writeData(values[i]);
+		}
+		writeData(length);
+	}
+	
+	/**
+	 * Records the property of the Component, before it is replaced or removed.
+	 */
+	void recordProperty(CircuitState state, int revision, Component component, Object property, boolean present) {
+		ensureData(3);
+		ensureObjects(2);
+		
+		writeData(KIND_PROPERTY | ((long)getStateIndex(state) << 32));
+		writeData((long)revision << 32);
+		writeData(3);
+		writeObject(component);
+		writeObject(present ? property : ABSENT);
+	}
+	
+	/**
+	 * Records an element of the int[] property of the Component, before it is modified in place.
+	 */
+	void recordElement(CircuitState state, int revision, Component component, int index, int value) {
+		ensureData(4);
+		ensureObjects(1);
+		
+		writeData(KIND_ELEMENT | ((long)getStateIndex(state) << 32));
+		writeData(((long)revision << 32) | index);
+		writeData(value);
+		writeData(4);
+		writeObject(component);
+	}
+	
+	/**
+	 * Undoes the entries of the current tick, newest first, and moves back to the previous tick.
+	 *
+	 * @return false if there is no tick left to undo.
+	 * @throws IllegalStateException if a Circuit was modified during the tick, in which case the journal is cleared.
+	 */
+	boolean undoTick() {
+		if (tick == oldestTick) {
+			return false;
+		}
+		
+		long start = tickData[(int)(tick & tickMask)];
+		
+		// Nothing is undone if any entry is stale
+		for (long position = dataEnd; position > start; position -= readData(position - 1)) {
+			long entry = position - readData(position - 1);
+			CircuitState state = states.get((int)((readData(entry) >>> 32) & 0x1fffffff));
+			int revision = (int)(readData(entry + 1) >>> 32);
+			if (state.getCircuit().containsState(state) && revision != state.getCircuit().getNetlist().getRevision()) {
+				clear();
+				throw new IllegalStateException("The circuit " + state.getCircuit().getName() + " changed since.");
+			}
+		}
+		
+		long objectPosition = objectEnd;
+		for (long position = dataEnd; position > start; ) {
+			long entry = position - readData(position - 1);
+			position = entry;
+			
+			long header = readData(entry);
+			long second = readData(entry + 1);
+			CircuitState state = states.get((int)((header >>> 32) & 0x1fffffff));
+			boolean removed = !state.getCircuit().containsState(state);
+			
+			if ((header & KIND_MASK) == KIND_LINK) {
+				int count = (int)second;
+				if (scratch.length < count) {
+					scratch = new long[Math.max(count, scratch.length * 2)];
+				}
+				for (int i = 0; i < count; i++) {
+					scratch[i] = readData(entry + 2 + i);
+				}
+				if (!removed) {
+					state.undoLink((int)header, (header & QUEUED) != 0, scratch);
+				}
+			} else if ((header & KIND_MASK) == KIND_PROPERTY) {
+				Object property = readObject(--objectPosition);
+				Component component = (Component)readObject(--objectPosition);
+				if (!removed) {
+					if (property == ABSENT) {
+						state.removeComponentProperty(component);
+					} else {
+						state.putComponentProperty(component, property);
+					}
+				}
+			} else {
+				Component component = (Component)readObject(--objectPosition);
+				if (!removed) {
+					state.setComponentPropertyElement(component, (int)second, (int)readData(entry + 2));
+				}
+			}
+		}
+		
+		for (long i = objectPosition; i < objectEnd; i++) {
+			objects[(int)(i & (objects.length - 1))] = null;
+		}
+		objectEnd = objectPosition;
+		dataEnd = start;
+		
+		tick--;
+		epoch = epochs.incrementAndGet();
+		return true;
+	}
+	
+	/**
+	 * Drops every entry and forgets every CircuitState, keeping the current tick number.
+	 */
+	void clear() {
+		Arrays.fill(objects, null);
+		dataStart = dataEnd = 0;
+		objectStart = objectEnd = 0;
+		oldestTick = tick;
+		tickData[(int)(tick & tickMask)] = 0;
+		tickObjects[(int)(tick & tickMask)] = 0;
+		tickData[(int)((tick + 1) & tickMask)] = 0;
+		tickObjects[(int)((tick + 1) & tickMask)] = 0;
+		states.clear();
+		stateIndices.clear();
+		epoch = epochs.incrementAndGet();
+	}
+	
+	private int getStateIndex(CircuitState state) {
+		Integer index = stateIndices.get(state);
+		if (index == null) {
+			index = states.size();
+			states.add(state);
+			stateIndices.put(state, index);
+		}
+		return index;
+	}
+	
+	private long readData(long position) {
+		return data[(int)(position & (data.length - 1))];
+	}
+	
+	private void writeData(long value) {
+		data[(int)(dataEnd & (data.length - 1))] = value;
+		dataEnd++;
+	}
+	
+	private Object readObject(long position) {
+		return objects[(int)(position & (objects.length - 1))];
+	}
+	
+	private void writeObject(Object value) {
+		objects[(int)(objectEnd & (objects.length - 1))] = value;
+		objectEnd++;
+	}
+	
+	/**
+	 * Grows the ring of longs, keeping positions valid, until it fits the given number of longs more.
+	 */
+	private void ensureData(int length) {
+		if (dataEnd - dataStart + length <= data.length) {
+			return;
+		}
+		
+		int newLength = data.length;
+		while (dataEnd - dataStart + length > newLength) {
+			newLength *= 2;
+		}
+		
+		long[] newData = new long[newLength];
+		for (long i = dataStart; i < dataEnd; i++) {
+			newData[(int)(i & (newLength - 1))] = data[(int)(i & (data.length - 1))];
+		}
+		data = newData;
+	}
+	
+	private void ensureObjects(int length) {
+		if (objectEnd - objectStart + length <= objects.length) {
+			return;
+		}
+		
+		int newLength = objects.length;
+		while (objectEnd - objectStart + length > newLength) {
+			newLength *= 2;
+		}
+		
+		Object[] newObjects = new Object[newLength];
+		for (long i = objectStart; i < objectEnd; i++) {
+			newObjects[(int)(i & (newLength - 1))] = objects[(int)(i & (objects.length - 1))];
+		}
+		objects = newObjects;
+	}
+}
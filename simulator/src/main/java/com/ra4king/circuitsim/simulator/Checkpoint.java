@@ -0,0 +1,53 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.Map;
+
+/**
+ * The complete simulation state of a CircuitState and of all the states of its Subcircuits, nested, as captured by
+ * {@link CircuitState#checkpoint()}. A Checkpoint is immutable and may be restored any number of times, see
+ * {@link CircuitState#restore(Checkpoint)}.
+ * <p>
+ * Component properties are captured by reference. Immutable properties, such as the values of Registers, are shared
+ * with the CircuitState until it replaces them. Properties modified in place, such as the contents of RAMs, must be
+ * written through {@link CircuitState#getComponentPropertyForWrite} so they are copied on the first write instead.
+ *
+ * @author Roi Atalla
+ */
+public class Checkpoint {
+	private final CircuitState state;
+	private final int revision;
+	final long[] portValues;
+	final boolean[] linkQueued;
+	final Map<Component, Object> componentProperties;
+	
+	// The Checkpoints of the nested states, keyed by the Component holding each state as its property
+	final Map<Component, Checkpoint> children;
+	
+	Checkpoint(CircuitState state,
+	           int revision,
+	           long[] portValues,
+	           boolean[] linkQueued,
+	           Map<Component, Object> componentProperties,
+	           Map<Component, Checkpoint> children) {
+		this.state = state;
+		this.revision = revision;
+		this.portValues = portValues;
+		this.linkQueued = linkQueued;
+		this.componentProperties = componentProperties;
+		this.children = children;
+	}
+	
+	/**
+	 * @return The CircuitState this Checkpoint was captured from.
+	 */
+	public CircuitState getState() {
+		return state;
+	}
+	
+	/**
+	 * @return The revision of the Netlist at the time of capture, see Netlist.getRevision.
+	 */
+	int getRevision() {
+		return revision;
+	}
+}
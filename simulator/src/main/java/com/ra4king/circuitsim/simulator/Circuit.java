@@ -15,6 +15,7 @@ public class Circuit {
 	private final Simulator simulator;
 	
 	private final Set<Component> components;
+	private final Netlist netlist;
 	private final Set<CircuitState> states;
 	private final CircuitState topLevelState;
 	
@@ -32,6 +33,7 @@ public class Circuit {
 		simulator.addCircuit(this);
 		
 		components = new HashSet<>();
+		netlist = new Netlist(this);
 		states = new HashSet<>();
 		
 		topLevelState = new CircuitState(this);
@@ -66,6 +68,7 @@ public class Circuit {
 			
 			component.setCircuit(this);
 			components.add(component);
+			netlist.addComponent(component);
 			states.forEach(state -> {
 				try {
 					component.init(state, state.getComponentProperty(component));
@@ -112,6 +115,7 @@ public class Circuit {
 					}
 				}
 			});
+			netlist.removeComponent(oldComponent);
 			oldComponent.setCircuit(null);
 			
 			listeners.forEach(listener -> listener.circuitChanged(this, oldComponent, false));
@@ -122,6 +126,7 @@ public class Circuit {
 			
 			newComponent.setCircuit(this);
 			components.add(newComponent);
+			netlist.addComponent(newComponent);
 			states.forEach(state -> {
 				try {
 					newComponent.init(state, state.getComponentProperty(oldComponent));
@@ -166,6 +171,7 @@ public class Circuit {
 					}
 				}
 			});
+			netlist.removeComponent(component);
 			component.setCircuit(null);
 			
 			listeners.forEach(listener -> listener.circuitChanged(this, component, false));
@@ -193,6 +199,15 @@ public class Circuit {
 		return simulator;
 	}
 	
+	/**
+	 * Returns the Netlist of this Circuit, which assigns dense IDs to all Ports and Links of its Components.
+	 *
+	 * @return The Netlist.
+	 */
+	public Netlist getNetlist() {
+		return netlist;
+	}
+	
 	/**
 	 * Returns the top-level state of this Circuit. Each Circuit has a top-level state.
 	 *
@@ -0,0 +1,1167 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.ra4king.circuitsim.simulator.CombinationalComponent.Evaluator;
+import com.ra4king.circuitsim.simulator.Port.Link;
+
+public class CircuitState {
+	// Each Port has PORT_STRIDE longs in portValues, starting at its Netlist ID * PORT_STRIDE.
+	// Each value is stored as a pair of (value bits, defined bits), see WireValue.
+	private static final int PORT_STRIDE = 6;
+	private static final int LAST_PUSHED = 0;
+	private static final int LAST_PROPAGATED = 2;
+	private static final int LAST_RECEIVED = 4;
+	
+	// Each Link counts, for every bit, how many of its participants propagate a 0 and how many propagate a 1, in
+	// driverCounts by Netlist ID: the 0s first, then the 1s at bitSize + bit. The Link has LINK_STRIDE longs in
+	// linkValues, starting at its Netlist ID * LINK_STRIDE, holding the masks of the bits driven to 0 or 1 by at least
+	// one participant, then by exactly one. The counts are valid only if the Link is in driversCounted.
+	private static final int LINK_STRIDE = 4;
+	private static final int DRIVEN = 0;
+	private static final int DRIVEN_ONCE = 2;
+	
+	private Circuit circuit;
+	private Netlist netlist;
+	private Map<Component, Object> componentProperties;
+	private long[] portValues;
+	private long[] linkValues;
+	private int[][] driverCounts;
+	private boolean[] driversCounted;
+	
+	// Whether each Link is currently in the Simulator's queue for this state
+	private boolean[] linkQueued;
+	
+	// The levelized Components waiting to be evaluated at the end of the current step, by topological order, and the
+	// index of the input Port that last changed for each
+	private Levelization levelization;
+	private final BitSet dirtyComponents = new BitSet();
+	private int[] dirtyPortIndices = new int[0];
+	private boolean evaluationScheduled;
+	
+	// Scratch space for the Evaluators of levelized Components, see Simulator.setCompiledEvaluation
+	private long[] evaluatorInputs = new long[0];
+	private long[] evaluatorOutputs = new long[0];
+	
+	// How many Links of this state are being propagated, see relayValue
+	private int propagationDepth;
+	
+	// The Checkpoint this state was last captured into or restored from, along with the Links whose Ports changed
+	// and the Components whose property was replaced since, so restoring it only touches those
+	private Checkpoint base;
+	private boolean[] linkChanged = new boolean[0];
+	private int[] changedLinks = new int[16];
+	private int changedLinkCount;
+	private final Set<Component> changedComponents = new HashSet<>();
+	
+	// The epoch of the Simulator's ChangeJournal in which each Link was last recorded, see trackChange
+	private long[] linkJournalEpochs = new long[0];
+	private long[] journalValues = new long[0];
+	
+	private final boolean readOnly;
+	
+	/**
+	 * Create a new CircuitState based on the given Circuit. It is added to the Circuit's list of states.
+	 *
+	 * @param circuit The Circuit which this CircuitState represents.
+	 */
+	public CircuitState(Circuit circuit) {
+		if (circuit == null) {
+			throw new NullPointerException("Circuit cannot be null.");
+		}
+		
+		this.readOnly = false;
+		
+		circuit.getSimulator().runSync(() -> {
+			this.circuit = circuit;
+			this.netlist = circuit.getNetlist();
+			this.componentProperties = new HashMap<>();
+			this.portValues = new long[0];
+			this.linkValues = new long[0];
+			this.driverCounts = new int[0][];
+			this.driversCounted = new boolean[0];
+			this.linkQueued = new boolean[0];
+			circuit.addState(this);
+		});
+	}
+	
+	/**
+	 * Clones the CircuitState for read-only usage. It is NOT added to the Circuit's list of states.
+	 *
+	 * @param state The CircuitState to clone.
+	 */
+	public CircuitState(CircuitState state) {
+		this.readOnly = true;
+		
+		state.circuit.getSimulator().runSync(() -> {
+			this.circuit = state.circuit;
+			this.netlist = state.netlist;
+			this.componentProperties = new HashMap<>(state.componentProperties);
+			this.portValues = state.portValues.clone();
+			this.linkValues = state.linkValues.clone();
+			// The masks stay valid, and a read-only state never updates them, so the counts are not needed
+			this.driverCounts = new int[state.driverCounts.length][];
+			this.driversCounted = state.driversCounted.clone();
+			this.linkQueued = new boolean[state.linkQueued.length];
+		});
+	}
+	
+	public Circuit getCircuit() {
+		return circuit;
+	}
+	
+	public Object getComponentProperty(Component component) {
+		return componentProperties.get(component);
+	}
+	
+	public void putComponentProperty(Component component, Object property) {
+		trackPropertyChange(component);
+		componentProperties.put(component, property);
+	}
+	
+	public Object removeComponentProperty(Component component) {
+		trackPropertyChange(component);
+		return componentProperties.remove(component);
+	}
+	
+	private void trackPropertyChange(Component component) {
+		if (base != null) {
+			changedComponents.add(component);
+		}
+		
+		ChangeJournal journal = circuit.getSimulator().getJournal();
+		if (journal != null) {
+			journal.recordProperty(this,
+			                       netlist.getRevision(),
+			                       component,
+			                       componentProperties.get(component),
+			                       componentProperties.containsKey(component));
+		}
+	}
+	
+	/**
+	 * Get the property of the Component in order to modify it in place. If it is still shared with the last
+	 * Checkpoint, it is first replaced by a copy so the Checkpoint is left untouched.
+	 *
+	 * @param component The Component whose property is returned.
+	 * @param copier    Copies the property.
+	 * @return The property, owned by this state only.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getComponentPropertyForWrite(Component component, UnaryOperator<T> copier) {
+		T property = (T)componentProperties.get(component);
+		if (base != null && property != null && !changedComponents.contains(component) &&
+		    base.componentProperties.get(component) == property) {
+			property = copier.apply(property);
+			putComponentProperty(component, property);
+		}
+		return property;
+	}
+	
+	/**
+	 * Sets an element of the int[] property of the Component in place, such as a word of memory. The property is
+	 * copied first if it is still shared with the last Checkpoint, and the old element is journaled.
+	 *
+	 * @param component The Component whose property is modified.
+	 * @param index     The index of the element.
+	 * @param value     The new value of the element.
+	 */
+	public void setComponentPropertyElement(Component component, int index, int value) {
+		int[] property = getComponentPropertyForWrite(component, int[]::clone);
+		
+		ChangeJournal journal = circuit.getSimulator().getJournal();
+		if (journal != null) {
+			journal.recordElement(this, netlist.getRevision(), component, index, property[index]);
+		}
+		
+		property[index] = value;
+	}
+	
+	/**
+	 * Get the current true value on the Link, which is the merging of all pushed values.
+	 *
+	 * @param link The Link for which the value is returned.
+	 * @return The value of the Link.
+	 */
+	public WireValue getMergedValue(Link link) {
+		int linkId = getLinkId(link);
+		checkShortCircuit(link, linkId);
+		
+		int index = linkId * LINK_STRIDE + DRIVEN;
+		long ones = linkValues[index + 1];
+		return new WireValue(link.getBitSize(), ones, linkValues[index] | ones);
+	}
+	
+	/**
+	 * Get the last value received by this Port.
+	 *
+	 * @param port The Port for which the last received value is returned.
+	 * @return The last received value of the Port.
+	 */
+	public WireValue getLastReceived(Port port) {
+		return getPortValue(port, LAST_RECEIVED);
+	}
+	
+	/**
+	 * Get the last value pushed by this Port.
+	 *
+	 * @param port The Port for which the last pushed value is returned.
+	 * @return The last pushed value of the Port.
+	 */
+	public WireValue getLastPushed(Port port) {
+		return getPortValue(port, LAST_PUSHED);
+	}
+	
+	public boolean isShortCircuited(Link link) {
+		int linkId = getLinkId(link);
+		countDrivers(link, linkId);
+		
+		int index = linkId * LINK_STRIDE + DRIVEN;
+		return (linkValues[index] & linkValues[index + 1]) != 0;
+	}
+	
+	/**
+	 * Resets this CircuitState, clearing all pushed and received values.
+	 * Each Component's {@code uninit(this)} then {@code init(this, null)} methods are called.
+	 */
+	public void reset() {
+		Arrays.fill(portValues, 0);
+		Arrays.fill(driversCounted, false);
+		
+		// Nothing tracks what was cleared, so the last Checkpoint can only be restored in full, and the journal is
+		// dropped
+		base = null;
+		clearChanges();
+		circuit.getSimulator().clearJournal();
+		
+		circuit.getComponents().forEach(c -> {
+			try {
+				c.uninit(this);
+				c.init(this, null);
+			} catch (Exception exc) {
+				// ignore
+			}
+		});
+	}
+	
+	private WireValue getPortValue(Port port, int offset) {
+		int index = getPortId(port) * PORT_STRIDE + offset;
+		return new WireValue(port.getLink().getBitSize(), portValues[index], portValues[index + 1]);
+	}
+	
+	private int getPortId(Port port) {
+		if (!netlist.containsPort(port)) {
+			checkLink(port.getLink());
+			throw new IllegalArgumentException("Port not from this circuit.");
+		}
+		
+		ensureCapacity();
+		return port.getId();
+	}
+	
+	private int getLinkId(Link link) {
+		if (!netlist.containsLink(link)) {
+			checkLink(link);
+			throw new IllegalArgumentException("Link not from this circuit.");
+		}
+		
+		ensureCapacity();
+		return link.getId();
+	}
+	
+	/**
+	 * Grows the value arrays to fit every Port and Link ID the Netlist may currently hand out.
+	 */
+	private void ensureCapacity() {
+		int portCapacity = netlist.getPortCapacity() * PORT_STRIDE;
+		if (portValues.length < portCapacity) {
+			portValues = Arrays.copyOf(portValues, portCapacity);
+		}
+		
+		int linkCapacity = netlist.getLinkCapacity();
+		if (driversCounted.length < linkCapacity) {
+			linkValues = Arrays.copyOf(linkValues, linkCapacity * LINK_STRIDE);
+			driverCounts = Arrays.copyOf(driverCounts, linkCapacity);
+			driversCounted = Arrays.copyOf(driversCounted, linkCapacity);
+			linkQueued = Arrays.copyOf(linkQueued, linkCapacity);
+			linkChanged = Arrays.copyOf(linkChanged, linkCapacity);
+			linkJournalEpochs = Arrays.copyOf(linkJournalEpochs, linkCapacity);
+		}
+	}
+	
+	/**
+	 * Records that values of the Link's Ports or its queued mark are about to change, if there is a Checkpoint to
+	 * restore them from, and journals their current values the first time in a tick if the Simulator is journaling.
+	 */
+	private void trackChange(int linkId) {
+		if (base != null && !linkChanged[linkId]) {
+			linkChanged[linkId] = true;
+			if (changedLinkCount == changedLinks.length) {
+				changedLinks = Arrays.copyOf(changedLinks, changedLinkCount * 2);
+			}
+			changedLinks[changedLinkCount++] = linkId;
+		}
+		
+		ChangeJournal journal = circuit.getSimulator().getJournal();
+		if (journal != null && linkJournalEpochs[linkId] != journal.getEpoch()) {
+			linkJournalEpochs[linkId] = journal.getEpoch();
+			
+			Port[] participants = netlist.getParticipants(linkId);
+			int count = netlist.getParticipantCount(linkId);
+			if (journalValues.length < count * PORT_STRIDE) {
+				journalValues = new long[count * PORT_STRIDE * 2];
+			}
+			for (int i = 0; i < count; i++) {
+				System.arraycopy(portValues,
+				                 participants[i].getId() * PORT_STRIDE,
+				                 journalValues,
+				                 i * PORT_STRIDE,
+				                 PORT_STRIDE);
+			}
+			
+			journal.recordLink(this,
+			                   linkId,
+			                   linkQueued[linkId],
+			                   netlist.getRevision(),
+			                   journalValues,
+			                   count * PORT_STRIDE);
+		}
+	}
+	
+	/**
+	 * Copies back the values journaled for every participant of the Link, in participant order, and its queued mark.
+	 */
+	void undoLink(int linkId, boolean queued, long[] values) {
+		ensureCapacity();
+		trackChange(linkId);
+		
+		Port[] participants = netlist.getParticipants(linkId);
+		for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+			System.arraycopy(values, i * PORT_STRIDE, portValues, participants[i].getId() * PORT_STRIDE, PORT_STRIDE);
+		}
+		
+		driversCounted[linkId] = false;
+		linkQueued[linkId] = false;
+		if (queued) {
+			circuit.getSimulator().valueChanged(this, netlist.getLink(linkId));
+		}
+	}
+	
+	private void clearChanges() {
+		for (int i = 0; i < changedLinkCount; i++) {
+			linkChanged[changedLinks[i]] = false;
+		}
+		changedLinkCount = 0;
+		changedComponents.clear();
+	}
+	
+	/**
+	 * Captures the complete simulation state of this CircuitState and, recursively, of the states of its
+	 * Subcircuits: every value pushed and received, the Links waiting to be propagated, and every Component property
+	 * such as memory contents.
+	 * <p>
+	 * Capturing copies the value arrays once. From then on this state tracks what changes, so restoring the
+	 * Checkpoint takes time proportional to what changed since it was captured or last restored. Pending events of
+	 * the timed Simulator and the state of the Clocks are not part of a Checkpoint.
+	 *
+	 * @return The Checkpoint, which stays valid until the Circuit or one of its Subcircuits is modified.
+	 */
+	public Checkpoint checkpoint() {
+		if (readOnly) {
+			throw new IllegalStateException("This CircuitState is read-only");
+		}
+		
+		Checkpoint[] checkpoint = new Checkpoint[1];
+		circuit.getSimulator().runSync(() -> {
+			ensureCapacity();
+			
+			Map<Component, Checkpoint> children = new HashMap<>();
+			componentProperties.forEach((component, property) -> {
+				if (property instanceof CircuitState) {
+					children.put(component, ((CircuitState)property).checkpoint());
+				}
+			});
+			
+			checkpoint[0] = new Checkpoint(this,
+			                               netlist.getRevision(),
+			                               portValues.clone(),
+			                               linkQueued.clone(),
+			                               new HashMap<>(componentProperties),
+			                               children);
+			
+			clearChanges();
+			base = checkpoint[0];
+		});
+		return checkpoint[0];
+	}
+	
+	/**
+	 * Restores this CircuitState and the states of its Subcircuits to the given Checkpoint. Links that were waiting
+	 * to be propagated are queued again, and Links queued since are dropped. Components are not notified.
+	 * <p>
+	 * Restoring the Checkpoint this state was last captured into or restored from only touches the Links and the
+	 * Component properties that changed since. Restoring any other Checkpoint of this state copies everything.
+	 *
+	 * @param checkpoint A Checkpoint captured from this state.
+	 * @throws IllegalStateException if the Circuit or one of its Subcircuits was modified since the capture.
+	 */
+	public void restore(Checkpoint checkpoint) {
+		if (checkpoint.getState() != this) {
+			throw new IllegalArgumentException("Checkpoint not from this state.");
+		}
+		
+		circuit.getSimulator().runSync(() -> {
+			checkRestorable(checkpoint);
+			ensureCapacity();
+			
+			// Restoring is not journaled, so the journal cannot go back past it
+			circuit.getSimulator().clearJournal();
+			
+			if (checkpoint == base) {
+				for (int i = 0; i < changedLinkCount; i++) {
+					restoreLink(checkpoint, changedLinks[i]);
+				}
+				for (Component component : changedComponents) {
+					restoreProperty(checkpoint, component);
+				}
+			} else {
+				for (int linkId = 0; linkId < checkpoint.linkQueued.length; linkId++) {
+					if (netlist.getLink(linkId) != null) {
+						restoreLink(checkpoint, linkId);
+					}
+				}
+				
+				Set<Component> components = new HashSet<>(componentProperties.keySet());
+				components.addAll(checkpoint.componentProperties.keySet());
+				for (Component component : components) {
+					restoreProperty(checkpoint, component);
+				}
+			}
+			
+			clearChanges();
+			base = checkpoint;
+			
+			for (Entry<Component, Checkpoint> child : checkpoint.children.entrySet()) {
+				((CircuitState)componentProperties.get(child.getKey())).restore(child.getValue());
+			}
+		});
+	}
+	
+	/**
+	 * Verifies, before anything is restored, that the IDs captured by the Checkpoint and the nested states it
+	 * refers to are still those of this state.
+	 */
+	private void checkRestorable(Checkpoint checkpoint) {
+		if (checkpoint.getRevision() != netlist.getRevision()) {
+			throw new IllegalStateException("The circuit " + circuit.getName() + " changed since the checkpoint.");
+		}
+		
+		for (Entry<Component, Checkpoint> child : checkpoint.children.entrySet()) {
+			if (componentProperties.get(child.getKey()) != child.getValue().getState()) {
+				throw new IllegalStateException(
+					"The state of " + child.getKey().getName() + " was replaced since the checkpoint.");
+			}
+			child.getValue().getState().checkRestorable(child.getValue());
+		}
+	}
+	
+	private void restoreLink(Checkpoint checkpoint, int linkId) {
+		Port[] participants = netlist.getParticipants(linkId);
+		for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+			int index = participants[i].getId() * PORT_STRIDE;
+			System.arraycopy(checkpoint.portValues, index, portValues, index, PORT_STRIDE);
+		}
+		
+		// The masks are recounted from the restored propagated values
+		driversCounted[linkId] = false;
+		
+		// A stale entry left in the Simulator's queue is skipped once its mark is cleared
+		linkQueued[linkId] = false;
+		if (checkpoint.linkQueued[linkId]) {
+			circuit.getSimulator().valueChanged(this, netlist.getLink(linkId));
+		}
+	}
+	
+	private void restoreProperty(Checkpoint checkpoint, Component component) {
+		if (checkpoint.componentProperties.containsKey(component)) {
+			componentProperties.put(component, checkpoint.componentProperties.get(component));
+		} else {
+			componentProperties.remove(component);
+		}
+	}
+	
+	private void checkLink(Link link) {
+		if (link.getCircuit() == null) {
+			throw new IllegalArgumentException("Link has no circuit!");
+		}
+		
+		if (link.getCircuit() != circuit) {
+			throw new IllegalArgumentException("Link not from this circuit.");
+		}
+	}
+	
+	/**
+	 * Called by the Netlist when the Port ID is freed, so that it may be reused with no stale values.
+	 */
+	void clearPort(int portId) {
+		int index = portId * PORT_STRIDE;
+		if (index < portValues.length) {
+			Arrays.fill(portValues, index, index + PORT_STRIDE, 0);
+		}
+	}
+	
+	/**
+	 * Called by the Netlist when the Link ID is freed, so that it may be reused with no stale values.
+	 */
+	void clearLink(int linkId) {
+		if (linkId < driversCounted.length) {
+			driversCounted[linkId] = false;
+			linkQueued[linkId] = false;
+		}
+	}
+	
+	/**
+	 * Marks the Link as queued for propagation in this state.
+	 *
+	 * @return false if the Link was already queued or is not part of this state's Circuit.
+	 */
+	boolean markQueued(Link link) {
+		if (!netlist.containsLink(link)) {
+			return false;
+		}
+		
+		int linkId = getLinkId(link);
+		if (linkQueued[linkId]) {
+			return false;
+		}
+		
+		trackChange(linkId);
+		linkQueued[linkId] = true;
+		return true;
+	}
+	
+	boolean isQueued(Link link) {
+		return netlist.containsLink(link) && linkQueued[getLinkId(link)];
+	}
+	
+	/**
+	 * @return A hash of the values pushed by every Port of the Link, which are the values the next propagation of the
+	 * Link will see.
+	 */
+	long hashPushedValues(Link link) {
+		int linkId = getLinkId(link);
+		
+		long hash = 0;
+		Port[] participants = netlist.getParticipants(linkId);
+		for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+			int index = participants[i].getId() * PORT_STRIDE + LAST_PUSHED;
+			hash = (hash * 31L + portValues[index]) * 31L + portValues[index + 1];
+		}
+		return hash;
+	}
+	
+	/**
+	 * Clears the queued mark of the Link in this state.
+	 *
+	 * @return true if the Link was queued.
+	 */
+	boolean unmarkQueued(Link link) {
+		if (!netlist.containsLink(link)) {
+			return false;
+		}
+		
+		int linkId = getLinkId(link);
+		boolean queued = linkQueued[linkId];
+		if (queued) {
+			trackChange(linkId);
+		}
+		linkQueued[linkId] = false;
+		return queued;
+	}
+	
+	void link(Link link1, Link link2) {
+		circuit.getSimulator().runSync(() -> {
+			int linkId1 = getLinkId(link1);
+			int linkId2 = getLinkId(link2);
+			if (linkId1 == linkId2) {
+				return;
+			}
+			
+			resetPropagated(linkId1);
+			resetPropagated(linkId2);
+			
+			circuit.getSimulator().linkRemoved(this, link2);
+			circuit.getSimulator().valueChanged(this, link1);
+		});
+	}
+	
+	private void resetPropagated(int linkId) {
+		driversCounted[linkId] = false;
+		
+		Port[] participants = netlist.getParticipants(linkId);
+		for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+			int index = participants[i].getId() * PORT_STRIDE + LAST_PROPAGATED;
+			portValues[index] = 0;
+			portValues[index + 1] = 0;
+		}
+	}
+	
+	/**
+	 * Called after the Port has been moved out of the Link into its own new Link.
+	 */
+	void unlink(Link link, Port port) {
+		circuit.getSimulator().runSync(() -> {
+			int index = getPortId(port) * PORT_STRIDE;
+			
+			// The port keeps pushing its value into its new Link
+			portValues[index + LAST_PROPAGATED] = portValues[index + LAST_PUSHED];
+			portValues[index + LAST_PROPAGATED + 1] = portValues[index + LAST_PUSHED + 1];
+			driversCounted[getLinkId(port.getLink())] = false;
+			
+			RuntimeException exception = null;
+			
+			if (portValues[index + LAST_RECEIVED] != 0 || portValues[index + LAST_RECEIVED + 1] != 0) {
+				portValues[index + LAST_RECEIVED] = 0;
+				portValues[index + LAST_RECEIVED + 1] = 0;
+				try {
+					port.getComponent().valueChanged(this, new WireValue(link.getBitSize()), port.getPortIndex());
+				} catch (RuntimeException exc) {
+					exception = exc;
+				}
+			}
+			
+			if (netlist.containsLink(link)) {
+				driversCounted[getLinkId(link)] = false;
+				circuit.getSimulator().valueChanged(this, link);
+			} else {
+				circuit.getSimulator().linkRemoved(this, link);
+			}
+			
+			if (exception != null) {
+				throw exception;
+			}
+		});
+	}
+	
+	void propagateSignal(Link link) {
+		int linkId = getLinkId(link);
+		trackChange(linkId);
+		countDrivers(link, linkId);
+		
+		Port[] participants = netlist.getParticipants(linkId);
+		int count = netlist.getParticipantCount(linkId);
+		for (int i = 0; i < count; i++) {
+			int index = participants[i].getId() * PORT_STRIDE;
+			
+			long pushedValue = portValues[index + LAST_PUSHED];
+			long pushedDefined = portValues[index + LAST_PUSHED + 1];
+			if (portValues[index + LAST_PROPAGATED] != pushedValue ||
+			    portValues[index + LAST_PROPAGATED + 1] != pushedDefined) {
+				changeDriver(linkId,
+				             portValues[index + LAST_PROPAGATED],
+				             portValues[index + LAST_PROPAGATED + 1],
+				             pushedValue,
+				             pushedDefined);
+				portValues[index + LAST_PROPAGATED] = pushedValue;
+				portValues[index + LAST_PROPAGATED + 1] = pushedDefined;
+			}
+		}
+		
+		propagationDepth++;
+		try {
+			propagate(link, linkId);
+		} finally {
+			propagationDepth--;
+		}
+	}
+	
+	private void propagate(Link link, int linkId) {
+		Simulator simulator = circuit.getSimulator();
+		Levelization levelization =
+			simulator.isLevelizedEvaluation() || simulator.isCompiledEvaluation() ? getLevelization() : null;
+		
+		Port[] participants = netlist.getParticipants(linkId);
+		int count = netlist.getParticipantCount(linkId);
+		int bitSize = link.getBitSize();
+		
+		// Only allocated if any participant receives a new value
+		WireValue[] toNotify = null;
+		
+		ShortCircuitException shortCircuit = null;
+		
+		int linkIndex = linkId * LINK_STRIDE;
+		long zeros = linkValues[linkIndex + DRIVEN];
+		long ones = linkValues[linkIndex + DRIVEN + 1];
+		long zerosOnce = linkValues[linkIndex + DRIVEN_ONCE];
+		long onesOnce = linkValues[linkIndex + DRIVEN_ONCE + 1];
+		
+		for (int i = 0; i < count; i++) {
+			// The merge of the values propagated by every other participant: the bits driven by anyone but this
+			// participant alone
+			int index = participants[i].getId() * PORT_STRIDE + LAST_PROPAGATED;
+			long ownDefined = portValues[index + 1];
+			long ownOnes = portValues[index];
+			long otherZeros = zeros & ~(ownDefined & ~ownOnes & zerosOnce);
+			long otherOnes = ones & ~(ownOnes & onesOnce);
+			
+			if ((otherZeros & otherOnes) != 0) {
+				if (shortCircuit == null) {
+					shortCircuit = findShortCircuit(link, linkId, participants[i]);
+				}
+				continue;
+			}
+			
+			long value = otherOnes;
+			long defined = otherZeros | otherOnes;
+			
+			index = participants[i].getId() * PORT_STRIDE + LAST_RECEIVED;
+			if (portValues[index] != value || portValues[index + 1] != defined) {
+				portValues[index] = value;
+				portValues[index + 1] = defined;
+				
+				if (toNotify == null) {
+					toNotify = new WireValue[count];
+				}
+				toNotify[i] = new WireValue(bitSize, value, defined);
+			}
+		}
+		
+		RuntimeException exception = null;
+		
+		if (toNotify != null) {
+			Profiler profiler = simulator.getProfiler();
+			int notified = 0;
+			for (int i = 0; i < count; i++) {
+				if (toNotify[i] == null) {
+					continue;
+				}
+				
+				Port participantPort = participants[i];
+				
+				// Levelized Components ignore their outputs, and are evaluated once all their inputs have settled
+				if (levelization != null) {
+					if (levelization.isOutputPort(participantPort)) {
+						continue;
+					}
+					int order = levelization.getInputOrder(participantPort);
+					if (order >= 0) {
+						markDirty(order, participantPort.getPortIndex());
+						continue;
+					}
+				}
+				
+				notified++;
+				Component component = participantPort.getComponent();
+				long start = profiler == null ? 0 : profiler.enter();
+				try {
+					component.valueChanged(this, toNotify[i], participantPort.getPortIndex());
+				} catch (ShortCircuitException exc) {
+					shortCircuit = exc;
+				} catch (RuntimeException exc) {
+					exc.printStackTrace();
+					
+					if (exception == null) { // grab the first one
+						exception = exc;
+					}
+				} finally {
+					if (profiler != null) {
+						profiler.exit(this, component, start);
+					}
+				}
+			}
+			
+			if (notified > 0) {
+				simulator.componentsEvaluated(notified);
+			}
+		}
+		
+		// Component error is more important than a short circuit
+		if (exception != null) {
+			throw exception;
+		}
+		
+		if (shortCircuit != null) {
+			throw shortCircuit;
+		}
+		
+		checkShortCircuit(link, linkId);
+	}
+	
+	private Levelization getLevelization() {
+		Levelization current = netlist.getLevelization();
+		if (current != levelization) {
+			// Nothing is dirty in between steps, which is the only time the Netlist may change
+			levelization = current;
+			dirtyComponents.clear();
+			dirtyPortIndices = new int[current.getComponentCount()];
+			evaluatorInputs = new long[current.getMaxPortCount() * 2];
+			evaluatorOutputs = new long[current.getMaxPortCount() * 2];
+		}
+		
+		return current;
+	}
+	
+	private void markDirty(int order, int portIndex) {
+		dirtyComponents.set(order);
+		dirtyPortIndices[order] = portIndex;
+		
+		if (!evaluationScheduled) {
+			evaluationScheduled = true;
+			circuit.getSimulator().evaluationNeeded(this);
+		}
+	}
+	
+	/**
+	 * Evaluates the dirty levelized Components in topological order. Their outputs on internal Links are propagated
+	 * right away, which may mark later Components dirty, so every Component is evaluated at most once.
+	 */
+	void evaluateDirty() {
+		ensureCapacity();
+		
+		// Evaluators push their outputs directly, which would skip propagation delays
+		boolean compiled = circuit.getSimulator().isCompiledEvaluation() && !circuit.getSimulator().isTimed();
+		
+		RuntimeException exception = null;
+		
+		Profiler profiler = circuit.getSimulator().getProfiler();
+		int evaluated = 0;
+		
+		for (int order = dirtyComponents.nextSetBit(0); order >= 0; order = dirtyComponents.nextSetBit(order + 1)) {
+			dirtyComponents.clear(order);
+			evaluated++;
+			
+			Component component = levelization.getComponent(order);
+			long start = profiler == null ? 0 : profiler.enter();
+			try {
+				Evaluator evaluator = compiled ? levelization.getEvaluator(order) : null;
+				if (evaluator != null) {
+					evaluate(order, evaluator);
+					continue;
+				}
+				
+				int portIndex = dirtyPortIndices[order];
+				component.valueChanged(this, getLastReceived(component.getPort(portIndex)), portIndex);
+				
+				for (int i = 0; i < component.getNumPorts(); i++) {
+					Port port = component.getPort(i);
+					Link link = port.getLink();
+					if (levelization.isOutputPort(port) && levelization.isInternal(link) && unmarkQueued(link)) {
+						propagateSignal(link);
+					}
+				}
+			} catch (RuntimeException exc) {
+				exc.printStackTrace();
+				
+				if (exception == null) { // grab the first one
+					exception = exc;
+				}
+			} finally {
+				if (profiler != null) {
+					profiler.exit(this, component, start);
+				}
+			}
+		}
+		
+		// Components marked dirty during the sweep come later in topological order and were already evaluated
+		evaluationScheduled = false;
+		circuit.getSimulator().componentsEvaluated(evaluated);
+		
+		if (exception != null) {
+			throw exception;
+		}
+	}
+	
+	/**
+	 * Runs the Evaluator of the levelized Component directly on the received values of its inputs. Its outputs on
+	 * internal Links are handed to their readers right away, other outputs are queued like any pushed value.
+	 */
+	private void evaluate(int order, Evaluator evaluator) {
+		Port[] inputs = levelization.getInputPorts(order);
+		for (int i = 0; i < inputs.length; i++) {
+			int index = inputs[i].getId() * PORT_STRIDE + LAST_RECEIVED;
+			evaluatorInputs[2 * i] = portValues[index];
+			evaluatorInputs[2 * i + 1] = portValues[index + 1];
+		}
+		
+		evaluator.evaluate(evaluatorInputs, evaluatorOutputs);
+		
+		Port[] outputs = levelization.getOutputPorts(order);
+		for (int i = 0; i < outputs.length; i++) {
+			Port port = outputs[i];
+			Link link = port.getLink();
+			
+			long defined = evaluatorOutputs[2 * i + 1] & WireValue.mask(link.getBitSize());
+			long value = evaluatorOutputs[2 * i] & defined;
+			
+			int index = port.getId() * PORT_STRIDE + LAST_PUSHED;
+			if (portValues[index] == value && portValues[index + 1] == defined) {
+				continue;
+			}
+			
+			trackChange(link.getId());
+			portValues[index] = value;
+			portValues[index + 1] = defined;
+			
+			if (levelization.isInternal(link)) {
+				propagateInternal(link, port, value, defined);
+			} else {
+				circuit.getSimulator().valueChanged(this, link);
+			}
+		}
+	}
+	
+	/**
+	 * Propagates the value pushed by the only driver of an internal Link. Every other participant is an input of a
+	 * levelized Component, which pushes nothing, so it receives exactly that value.
+	 */
+	private void propagateInternal(Link link, Port driver, long value, long defined) {
+		int linkId = link.getId();
+		trackChange(linkId);
+		int index = driver.getId() * PORT_STRIDE + LAST_PROPAGATED;
+		changeDriver(linkId, portValues[index], portValues[index + 1], value, defined);
+		portValues[index] = value;
+		portValues[index + 1] = defined;
+		
+		Port[] participants = netlist.getParticipants(linkId);
+		for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+			Port participant = participants[i];
+			if (participant == driver) {
+				continue;
+			}
+			
+			int received = participant.getId() * PORT_STRIDE + LAST_RECEIVED;
+			if (portValues[received] != value || portValues[received + 1] != defined) {
+				portValues[received] = value;
+				portValues[received + 1] = defined;
+				markDirty(levelization.getInputOrder(participant), participant.getPortIndex());
+			}
+		}
+	}
+	
+	/**
+	 * Counts the values propagated by every participant of the Link, unless they are already counted.
+	 */
+	private void countDrivers(Link link, int linkId) {
+		if (driversCounted[linkId]) {
+			return;
+		}
+		
+		int bitSize = link.getBitSize();
+		int[] counts = driverCounts[linkId];
+		if (counts == null || counts.length != bitSize * 2) {
+			driverCounts[linkId] = new int[bitSize * 2];
+		} else {
+			Arrays.fill(counts, 0);
+		}
+		Arrays.fill(linkValues, linkId * LINK_STRIDE, (linkId + 1) * LINK_STRIDE, 0);
+		driversCounted[linkId] = true;
+		
+		Port[] participants = netlist.getParticipants(linkId);
+		for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+			int index = participants[i].getId() * PORT_STRIDE + LAST_PROPAGATED;
+			changeDriver(linkId, 0, 0, portValues[index], portValues[index + 1]);
+		}
+	}
+	
+	/**
+	 * Updates the counts of the Link for a participant that propagated the old value and now propagates the new
+	 * value, which only touches the bits that changed.
+	 */
+	private void changeDriver(int linkId, long oldValue, long oldDefined, long newValue, long newDefined) {
+		if (!driversCounted[linkId]) {
+			return;
+		}
+		
+		long oldZeros = oldDefined & ~oldValue;
+		long newZeros = newDefined & ~newValue;
+		countBits(linkId, 0, oldZeros & ~newZeros, -1);
+		countBits(linkId, 0, newZeros & ~oldZeros, 1);
+		countBits(linkId, 1, oldValue & ~newValue, -1);
+		countBits(linkId, 1, newValue & ~oldValue, 1);
+	}
+	
+	/**
+	 * Adds delta to the counts of participants driving the given bits to the bit value, and updates the masks.
+	 */
+	private void countBits(int linkId, int bitValue, long bits, int delta) {
+		int[] counts = driverCounts[linkId];
+		int offset = bitValue * counts.length / 2;
+		int driven = linkId * LINK_STRIDE + DRIVEN + bitValue;
+		int drivenOnce = linkId * LINK_STRIDE + DRIVEN_ONCE + bitValue;
+		
+		while (bits != 0) {
+			int bit = Long.numberOfTrailingZeros(bits);
+			long mask = 1L << bit;
+			bits &= ~mask;
+			
+			int count = counts[offset + bit] += delta;
+			linkValues[driven] = count > 0 ? linkValues[driven] | mask : linkValues[driven] & ~mask;
+			linkValues[drivenOnce] = count == 1 ? linkValues[drivenOnce] | mask : linkValues[drivenOnce] & ~mask;
+		}
+	}
+	
+	/**
+	 * @throws ShortCircuitException If participants of the Link propagate conflicting values.
+	 */
+	private void checkShortCircuit(Link link, int linkId) {
+		countDrivers(link, linkId);
+		
+		int index = linkId * LINK_STRIDE + DRIVEN;
+		if ((linkValues[index] & linkValues[index + 1]) != 0) {
+			throw findShortCircuit(link, linkId, null);
+		}
+	}
+	
+	/**
+	 * Merges the values propagated by every participant of the Link except the excluded Port until two of them
+	 * conflict. This is only called once the counts found a short circuit.
+	 *
+	 * @return The exception describing the conflicting values.
+	 */
+	private ShortCircuitException findShortCircuit(Link link, int linkId, Port excluded) {
+		int bitSize = link.getBitSize();
+		
+		long value = 0;
+		long defined = 0;
+		
+		Port[] participants = netlist.getParticipants(linkId);
+		for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+			if (participants[i] == excluded) {
+				continue;
+			}
+			
+			int index = participants[i].getId() * PORT_STRIDE + LAST_PROPAGATED;
+			long otherValue = portValues[index];
+			long otherDefined = portValues[index + 1];
+			if (((value ^ otherValue) & defined & otherDefined) != 0) {
+				return new ShortCircuitException(new WireValue(bitSize, value, defined),
+				                                 new WireValue(bitSize, otherValue, otherDefined));
+			}
+			
+			value |= otherValue;
+			defined |= otherDefined;
+		}
+		
+		throw new IllegalStateException("Driver counts of the Link are out of sync.");
+	}
+	
+	/**
+	 * Push a new value from the specified Port. The Simulator instance attached to the Circuit is notified.
+	 * An IllegalStateException is thrown if this CircuitState is read-only.
+	 *
+	 * @param port  The Port pushing the value.
+	 * @param value The value being pushed.
+	 */
+	public void pushValue(Port port, WireValue value) {
+		if (readOnly) {
+			throw new IllegalStateException("This CircuitState is read-only");
+		}
+		
+		// Pushes into other states while stepping in parallel, such as Subcircuit pins, wait for the step to end
+		if (circuit.getSimulator().isForeignState(this)) {
+			WireValue copy = new WireValue(value);
+			circuit.getSimulator().defer(() -> pushValue(port, copy));
+			return;
+		}
+		
+		circuit.getSimulator().runSync(() -> {
+			int index = getPortId(port) * PORT_STRIDE + LAST_PUSHED;
+			
+			if (value.getBitSize() != port.getLink().getBitSize()) {
+				throw new IllegalArgumentException(
+					"Cannot set wire of different size bits. Wanted: " + port.getLink().getBitSize() + ", Found: " +
+					value.getBitSize());
+			}
+			
+			// In timed mode, the value reaches the Link after the propagation delay of the Component
+			if (circuit.getSimulator().scheduleValue(this, port, value)) {
+				return;
+			}
+			
+			if (portValues[index] != value.getValueBits() || portValues[index + 1] != value.getDefinedBits()) {
+				trackChange(port.getLink().getId());
+				portValues[index] = value.getValueBits();
+				portValues[index + 1] = value.getDefinedBits();
+				circuit.getSimulator().valueChanged(this, port);
+			}
+		});
+	}
+	
+	/**
+	 * Pushes a value scheduled by the timed Simulator once its propagation delay has elapsed, unless this state or the
+	 * Port has been removed since.
+	 */
+	void applyScheduledValue(Port port, long value, long defined) {
+		if (!circuit.containsState(this) || port.getLink() == null || !netlist.containsPort(port)) {
+			return;
+		}
+		
+		int index = getPortId(port) * PORT_STRIDE + LAST_PUSHED;
+		if (portValues[index] != value || portValues[index + 1] != defined) {
+			trackChange(port.getLink().getId());
+			portValues[index] = value;
+			portValues[index + 1] = defined;
+			circuit.getSimulator().valueChanged(this, port);
+		}
+	}
+	
+	/**
+	 * Push a new value from the specified Port on behalf of a Subcircuit, which relays values between the Ports of
+	 * a Subcircuit and the Pins of its CircuitState.
+	 * <p>
+	 * When the Simulator flattens Subcircuits and is stepping, the Port's Link is propagated right away instead of
+	 * being queued, unless this state is already propagating. Otherwise this is the same as pushValue.
+	 *
+	 * @param port  The Port pushing the value.
+	 * @param value The value being pushed.
+	 */
+	public void relayValue(Port port, WireValue value) {
+		Simulator simulator = circuit.getSimulator();
+		if (readOnly || !simulator.isFlattenSubcircuits() || simulator.isTimed() || !simulator.isStepping() ||
+		    propagationDepth > 0 || simulator.isForeignState(this) ||
+		    value.getBitSize() != port.getLink().getBitSize()) {
+			pushValue(port, value);
+			return;
+		}
+		
+		simulator.runSync(() -> {
+			int index = getPortId(port) * PORT_STRIDE + LAST_PUSHED;
+			if (portValues[index] == value.getValueBits() && portValues[index + 1] == value.getDefinedBits()) {
+				return;
+			}
+			
+			trackChange(port.getLink().getId());
+			portValues[index] = value.getValueBits();
+			portValues[index + 1] = value.getDefinedBits();
+			
+			Link link = port.getLink();
+			try {
+				propagateSignal(link);
+			} catch (ShortCircuitException exc) {
+				// Reported once the Link is propagated again from the queue, like any other short circuit
+				simulator.valueChanged(this, link);
+			}
+		});
+	}
+	
+	void ensureUnlinked(Component component, boolean removeLinks) {
+		for (int i = 0; i < component.getNumPorts(); i++) {
+			Port port = component.getPort(i);
+			Link link = port.getLink();
+			if (link != null && netlist.containsLink(link) && netlist.getParticipantCount(link.getId()) > 1) {
+				throw new RuntimeException("Must unlink port before removing it.");
+			}
+			
+			if (removeLinks) {
+				circuit.getSimulator().linkRemoved(this, link);
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.ra4king.circuitsim.simulator;
+
+/**
+ * Implemented by Components whose outputs are a pure function of the values currently received on their inputs.
+ * <p>
+ * Such a Component must recompute and push all of its outputs whenever valueChanged is called for any of its input
+ * ports, reading every input from the CircuitState, must never push a value on an input port, and must not depend on
+ * which input changed or on how many times it was called. This lets the Simulator evaluate it only once all of its
+ * inputs have settled, see {@link Levelization}.
+ *
+ * @author Roi Atalla
+ */
+public interface CombinationalComponent {
+	/**
+	 * @param portIndex The index of one of this Component's ports.
+	 * @return true if the port is an output, which this Component drives, false if it is an input, which it only reads.
+	 */
+	boolean isOutputPort(int portIndex);
+	
+	/**
+	 * Generates an Evaluator specialized for this Component's current configuration, used when the Simulator has
+	 * compiled evaluation enabled. It must compute the exact same outputs as valueChanged.
+	 *
+	 * @return The Evaluator, or null to always be evaluated through valueChanged, which is the default.
+	 */
+	default Evaluator compile() {
+		return null;
+	}
+	
+	/**
+	 * Computes the outputs of a CombinationalComponent from its inputs, each given as the pair of packed masks
+	 * described in {@link WireValue}: value bits at index 2 * i and defined bits at index 2 * i + 1.
+	 */
+	@FunctionalInterface
+	interface Evaluator {
+		/**
+		 * @param inputs  The values received by the input ports, in port order.
+		 * @param outputs Receives the values to push on every output port, in port order. Bits at or above the bit
+		 *                size of a port are ignored.
+		 */
+		void evaluate(long[] inputs, long[] outputs);
+	}
+}
@@ -7,6 +7,7 @@ public abstract class Component {
 	private Circuit circuit;
 	private final Port[] ports;
 	private String name;
+	private int propagationDelay = -1;
 	
 	protected Component(String name, int[] portBits) {
 		this.name = name;
@@ -33,6 +34,24 @@ public abstract class Component {
 		return name;
 	}
 	
+	/**
+	 * Sets the delay between this Component receiving a value and the values it pushes in response reaching their
+	 * Links, when the Simulator is timed. A negative delay uses the Simulator's delay for this type of Component.
+	 *
+	 * @param propagationDelay The delay in units of simulated time.
+	 */
+	public void setPropagationDelay(int propagationDelay) {
+		this.propagationDelay = propagationDelay;
+	}
+	
+	/**
+	 * @return The propagation delay of this Component, or a negative value if it uses the Simulator's delay for its
+	 * type.
+	 */
+	public int getPropagationDelay() {
+		return propagationDelay;
+	}
+	
 	public Port getPort(int portIndex) {
 		return ports[portIndex];
 	}
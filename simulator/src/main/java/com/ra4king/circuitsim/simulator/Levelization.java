@@ -0,0 +1,306 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import com.ra4king.circuitsim.simulator.CombinationalComponent.Evaluator;
+import com.ra4king.circuitsim.simulator.Port.Link;
+
+/**
+ * The feedback-free combinational regions of a Netlist, compiled so that their Components are evaluated exactly once
+ * per step instead of once per input change.
+ * <p>
+ * A {@link CombinationalComponent} is levelized if it is not part of, nor sits between, feedback loops through other
+ * CombinationalComponents. A Link is internal if it is driven by exactly one output of a levelized Component and is
+ * otherwise only read by inputs of levelized Components, so it can never short circuit nor be tri-stated. Levelized
+ * Components are sorted so every Component comes after the drivers of its internal input Links.
+ * <p>
+ * With levelized evaluation enabled, see {@link Simulator#setLevelizedEvaluation(boolean)}, a change on an input of a
+ * levelized Component only marks it dirty while propagating. At the end of the step, the CircuitState evaluates its
+ * dirty Components in topological order and propagates their internal output Links right away, so each Component
+ * sees all of its inputs settled. Everything else, including feedback, tri-state buses, transistors and Subcircuits,
+ * still goes through the event-driven queue.
+ * <p>
+ * The {@link Evaluator} of every levelized Component that provides one is generated here too, along with its input
+ * and output Ports, for compiled evaluation.
+ *
+ * @author Roi Atalla
+ */
+class Levelization {
+	private static final int NOT_LEVELIZED = -1;
+	
+	private final Component[] components;
+	private final int[] inputOrder;
+	private final boolean[] outputPortIds;
+	private final boolean[] internalLinks;
+	
+	// By topological order
+	private final Evaluator[] evaluators;
+	private final Port[][] inputPorts;
+	private final Port[][] outputPorts;
+	private final int maxPortCount;
+	
+	Levelization(Netlist netlist) {
+		int portCapacity = netlist.getPortCapacity();
+		int linkCapacity = netlist.getLinkCapacity();
+		
+		// Candidates are numbered in order of their first Port ID so that the result is deterministic
+		Map<Component, Integer> candidateIds = new IdentityHashMap<>();
+		List<Component> candidates = new ArrayList<>();
+		for (int portId = 0; portId < portCapacity; portId++) {
+			Port port = netlist.getPort(portId);
+			if (port != null && port.getComponent() instanceof CombinationalComponent &&
+			    !candidateIds.containsKey(port.getComponent())) {
+				candidateIds.put(port.getComponent(), candidates.size());
+				candidates.add(port.getComponent());
+			}
+		}
+		
+		int candidateCount = candidates.size();
+		
+		// Find the Links with a single candidate driver that are only read by candidates
+		int[] linkDrivers = new int[linkCapacity];
+		Arrays.fill(linkDrivers, NOT_LEVELIZED);
+		for (int linkId = 0; linkId < linkCapacity; linkId++) {
+			if (netlist.getLink(linkId) != null) {
+				linkDrivers[linkId] = findDriver(netlist, linkId, candidateIds);
+			}
+		}
+		
+		boolean[] candidateLinks = new boolean[linkCapacity];
+		for (int linkId = 0; linkId < linkCapacity; linkId++) {
+			candidateLinks[linkId] = linkDrivers[linkId] != NOT_LEVELIZED;
+		}
+		
+		boolean[] allCandidates = new boolean[candidateCount];
+		Arrays.fill(allCandidates, true);
+		
+		// Only the candidates both fed by feedback and feeding feedback remain after peeling from both ends, which
+		// includes every feedback loop. Everything else is acyclic.
+		boolean[] levelized = peel(netlist, candidateLinks, linkDrivers, candidateIds, allCandidates, null, true);
+		boolean[] notFeedingFeedback =
+			peel(netlist, candidateLinks, linkDrivers, candidateIds, allCandidates, null, false);
+		for (int i = 0; i < candidateCount; i++) {
+			levelized[i] |= notFeedingFeedback[i];
+		}
+		
+		internalLinks = new boolean[linkCapacity];
+		for (int linkId = 0; linkId < linkCapacity; linkId++) {
+			if (linkDrivers[linkId] == NOT_LEVELIZED || !levelized[linkDrivers[linkId]]) {
+				continue;
+			}
+			
+			boolean internal = true;
+			Port[] participants = netlist.getParticipants(linkId);
+			for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+				internal &= levelized[candidateIds.get(participants[i].getComponent())];
+			}
+			internalLinks[linkId] = internal;
+		}
+		
+		// Sort the levelized Components along the internal Links
+		List<Integer> order = new ArrayList<>();
+		peel(netlist, internalLinks, linkDrivers, candidateIds, levelized, order, true);
+		
+		components = new Component[order.size()];
+		inputOrder = new int[portCapacity];
+		outputPortIds = new boolean[portCapacity];
+		evaluators = new Evaluator[components.length];
+		inputPorts = new Port[components.length][];
+		outputPorts = new Port[components.length][];
+		Arrays.fill(inputOrder, NOT_LEVELIZED);
+		int maxPortCount = 0;
+		for (int i = 0; i < components.length; i++) {
+			Component component = candidates.get(order.get(i));
+			components[i] = component;
+			evaluators[i] = ((CombinationalComponent)component).compile();
+			maxPortCount = Math.max(maxPortCount, component.getNumPorts());
+			
+			List<Port> inputs = new ArrayList<>();
+			List<Port> outputs = new ArrayList<>();
+			for (int portIndex = 0; portIndex < component.getNumPorts(); portIndex++) {
+				Port port = component.getPort(portIndex);
+				if (((CombinationalComponent)component).isOutputPort(portIndex)) {
+					outputPortIds[port.getId()] = true;
+					outputs.add(port);
+				} else {
+					inputOrder[port.getId()] = i;
+					inputs.add(port);
+				}
+			}
+			inputPorts[i] = inputs.toArray(new Port[0]);
+			outputPorts[i] = outputs.toArray(new Port[0]);
+		}
+		this.maxPortCount = maxPortCount;
+	}
+	
+	/**
+	 * @return The candidate ID of the Link's only driver if it only connects candidates, NOT_LEVELIZED otherwise.
+	 */
+	private static int findDriver(Netlist netlist, int linkId, Map<Component, Integer> candidateIds) {
+		int driver = NOT_LEVELIZED;
+		
+		Port[] participants = netlist.getParticipants(linkId);
+		for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+			Component component = participants[i].getComponent();
+			if (!candidateIds.containsKey(component)) {
+				return NOT_LEVELIZED;
+			}
+			
+			if (((CombinationalComponent)component).isOutputPort(participants[i].getPortIndex())) {
+				if (driver != NOT_LEVELIZED) {
+					return NOT_LEVELIZED;
+				}
+				driver = candidateIds.get(component);
+			}
+		}
+		
+		return driver;
+	}
+	
+	/**
+	 * Kahn's algorithm over the given Links between the included candidates: repeatedly removes the candidates with no
+	 * remaining inputs, or with no remaining outputs if not forward. Candidates in feedback loops, and those fed by them
+	 * (or feeding them if not forward), are never removed.
+	 *
+	 * @param order If not null, receives the removed candidates in topological order.
+	 * @return Which candidates were removed.
+	 */
+	private static boolean[] peel(Netlist netlist,
+	                              boolean[] links,
+	                              int[] linkDrivers,
+	                              Map<Component, Integer> candidateIds,
+	                              boolean[] included,
+	                              List<Integer> order,
+	                              boolean forward) {
+		int candidateCount = included.length;
+		boolean[] removed = new boolean[candidateCount];
+		
+		// Edges from driver to reader, or reader to driver if not forward
+		List<List<Integer>> edges = new ArrayList<>(candidateCount);
+		int[] degrees = new int[candidateCount];
+		for (int i = 0; i < candidateCount; i++) {
+			edges.add(new ArrayList<>());
+		}
+		
+		for (int linkId = 0; linkId < links.length; linkId++) {
+			if (!links[linkId]) {
+				continue;
+			}
+			
+			int driver = linkDrivers[linkId];
+			Port[] participants = netlist.getParticipants(linkId);
+			for (int i = 0; i < netlist.getParticipantCount(linkId); i++) {
+				Component component = participants[i].getComponent();
+				int reader = candidateIds.get(component);
+				if (((CombinationalComponent)component).isOutputPort(participants[i].getPortIndex()) ||
+				    !included[reader] || !included[driver]) {
+					continue;
+				}
+				
+				int from = forward ? driver : reader;
+				int to = forward ? reader : driver;
+				edges.get(from).add(to);
+				degrees[to]++;
+			}
+		}
+		
+		Queue<Integer> ready = new ArrayDeque<>();
+		for (int i = 0; i < candidateCount; i++) {
+			if (included[i] && degrees[i] == 0) {
+				ready.add(i);
+			}
+		}
+		
+		while (!ready.isEmpty()) {
+			int candidate = ready.poll();
+			removed[candidate] = true;
+			if (order != null) {
+				order.add(candidate);
+			}
+			
+			for (int next : edges.get(candidate)) {
+				if (--degrees[next] == 0) {
+					ready.add(next);
+				}
+			}
+		}
+		
+		return removed;
+	}
+	
+	/**
+	 * @return The number of levelized Components.
+	 */
+	int getComponentCount() {
+		return components.length;
+	}
+	
+	/**
+	 * @param order The position of the Component in topological order.
+	 */
+	Component getComponent(int order) {
+		return components[order];
+	}
+	
+	/**
+	 * @param order The position of the Component in topological order.
+	 * @return The Evaluator generated by the Component, or null if it has none.
+	 */
+	Evaluator getEvaluator(int order) {
+		return evaluators[order];
+	}
+	
+	/**
+	 * @param order The position of the Component in topological order.
+	 * @return The input Ports of the Component, in port order.
+	 */
+	Port[] getInputPorts(int order) {
+		return inputPorts[order];
+	}
+	
+	/**
+	 * @param order The position of the Component in topological order.
+	 * @return The output Ports of the Component, in port order.
+	 */
+	Port[] getOutputPorts(int order) {
+		return outputPorts[order];
+	}
+	
+	/**
+	 * @return The largest number of Ports of any levelized Component.
+	 */
+	int getMaxPortCount() {
+		return maxPortCount;
+	}
+	
+	/**
+	 * @return The position in topological order of the Component this Port is an input of, or -1 if it is not an
+	 * input of a levelized Component.
+	 */
+	int getInputOrder(Port port) {
+		int portId = port.getId();
+		return portId < inputOrder.length ? inputOrder[portId] : NOT_LEVELIZED;
+	}
+	
+	/**
+	 * @return true if the Port is an output of a levelized Component.
+	 */
+	boolean isOutputPort(Port port) {
+		int portId = port.getId();
+		return portId < outputPortIds.length && outputPortIds[portId];
+	}
+	
+	/**
+	 * @return true if the Link is driven by a single levelized Component and only read by levelized Components.
+	 */
+	boolean isInternal(Link link) {
+		int linkId = link.getId();
+		return linkId < internalLinks.length && internalLinks[linkId];
+	}
+}
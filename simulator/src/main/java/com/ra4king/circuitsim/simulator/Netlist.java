@@ -0,0 +1,289 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.ra4king.circuitsim.simulator.Port.Link;
+
+/**
+ * The compiled connectivity of a Circuit. Every Port of every Component in the Circuit and every Link between them
+ * is given a dense integer ID, so that CircuitStates can keep their values in flat arrays indexed by those IDs instead
+ * of in maps.
+ * <p>
+ * IDs are stable for as long as the Port or Link is part of the Circuit. The Netlist is updated incrementally as
+ * Components are added/removed and Ports are linked/unlinked, and freed IDs are reused so the ID space stays dense.
+ *
+ * @author Roi Atalla
+ */
+public class Netlist {
+	private static final Port[] NO_PORTS = new Port[0];
+	
+	private final Circuit circuit;
+	
+	private final BitSet usedPortIds = new BitSet();
+	private Port[] ports = new Port[16];
+	
+	private final BitSet usedLinkIds = new BitSet();
+	private Link[] links = new Link[16];
+	private Port[][] linkParticipants = new Port[16][];
+	private int[] linkParticipantCounts = new int[16];
+	
+	// Lazily compiled, possibly by several parallel propagation threads sharing this Netlist through Subcircuits
+	private volatile Levelization levelization;
+	
+	// Incremented on every change, so Checkpoints can tell whether the IDs they captured are still valid
+	private int revision;
+	
+	Netlist(Circuit circuit) {
+		this.circuit = circuit;
+	}
+	
+	public Circuit getCircuit() {
+		return circuit;
+	}
+	
+	/**
+	 * @return An exclusive upper bound on all Port IDs currently in use. Arrays of this length may be indexed by any
+	 * Port ID.
+	 */
+	public int getPortCapacity() {
+		return ports.length;
+	}
+	
+	/**
+	 * @return An exclusive upper bound on all Link IDs currently in use. Arrays of this length may be indexed by any
+	 * Link ID.
+	 */
+	public int getLinkCapacity() {
+		return links.length;
+	}
+	
+	public int getPortCount() {
+		return usedPortIds.cardinality();
+	}
+	
+	public int getLinkCount() {
+		return usedLinkIds.cardinality();
+	}
+	
+	/**
+	 * Get the Port with the given ID.
+	 *
+	 * @param id The Port ID.
+	 * @return The Port, or null if the ID is not in use.
+	 */
+	public Port getPort(int id) {
+		return id >= 0 && id < ports.length ? ports[id] : null;
+	}
+	
+	/**
+	 * Get the Link with the given ID.
+	 *
+	 * @param id The Link ID.
+	 * @return The Link, or null if the ID is not in use.
+	 */
+	public Link getLink(int id) {
+		return id >= 0 && id < links.length ? links[id] : null;
+	}
+	
+	public boolean containsPort(Port port) {
+		return getPort(port.getId()) == port;
+	}
+	
+	public boolean containsLink(Link link) {
+		return getLink(link.getId()) == link;
+	}
+	
+	/**
+	 * Get the Ports of this Circuit that participate in the Link with the given ID. The returned array is shared and
+	 * must not be modified, only the first {@code getParticipantCount(linkId)} elements are valid.
+	 *
+	 * @param linkId The Link ID.
+	 * @return The participating Ports.
+	 */
+	Port[] getParticipants(int linkId) {
+		return linkParticipants[linkId];
+	}
+	
+	public int getParticipantCount(int linkId) {
+		return linkParticipantCounts[linkId];
+	}
+	
+	public Port getParticipant(int linkId, int index) {
+		if (index >= linkParticipantCounts[linkId]) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		
+		return linkParticipants[linkId][index];
+	}
+	
+	/**
+	 * Get the feedback-free combinational regions of this Netlist, compiled on first use after any change.
+	 */
+	Levelization getLevelization() {
+		Levelization current = levelization;
+		if (current == null) {
+			synchronized (this) {
+				current = levelization;
+				if (current == null) {
+					levelization = current = new Levelization(this);
+				}
+			}
+		}
+		
+		return current;
+	}
+	
+	/**
+	 * @return A number that changes whenever Ports or Links are added, removed, or moved between Links.
+	 */
+	int getRevision() {
+		return revision;
+	}
+	
+	void addComponent(Component component) {
+		levelization = null;
+		revision++;
+		
+		for (int i = 0; i < component.getNumPorts(); i++) {
+			Port port = component.getPort(i);
+			
+			int portId = usedPortIds.nextClearBit(0);
+			usedPortIds.set(portId);
+			if (portId >= ports.length) {
+				ports = Arrays.copyOf(ports, ports.length * 2);
+			}
+			ports[portId] = port;
+			port.setId(portId);
+			
+			Link link = port.getLink();
+			if (!containsLink(link)) {
+				addLink(link);
+			}
+			addParticipant(link.getId(), port);
+		}
+	}
+	
+	void removeComponent(Component component) {
+		levelization = null;
+		revision++;
+		
+		for (int i = 0; i < component.getNumPorts(); i++) {
+			Port port = component.getPort(i);
+			if (!containsPort(port)) {
+				continue;
+			}
+			
+			Link link = port.getLink();
+			if (containsLink(link)) {
+				removeParticipant(link, port);
+			}
+			
+			int portId = port.getId();
+			circuit.forEachState(state -> state.clearPort(portId));
+			
+			ports[portId] = null;
+			usedPortIds.clear(portId);
+			port.setId(-1);
+		}
+	}
+	
+	/**
+	 * Moves all participants of {@code other} into {@code link}, and frees the ID of {@code other}.
+	 */
+	void linksMerged(Link link, Link other) {
+		levelization = null;
+		revision++;
+		
+		if (link == other || !containsLink(other)) {
+			return;
+		}
+		
+		int otherId = other.getId();
+		Port[] otherParticipants = linkParticipants[otherId];
+		for (int i = 0; i < linkParticipantCounts[otherId]; i++) {
+			addParticipant(link.getId(), otherParticipants[i]);
+		}
+		
+		linkParticipantCounts[otherId] = 0;
+		removeLink(other);
+	}
+	
+	/**
+	 * Moves the port from {@code link} into its own new Link, which has already been set as {@code port.getLink()}.
+	 */
+	void portUnlinked(Link link, Port port) {
+		levelization = null;
+		revision++;
+		
+		if (containsLink(link)) {
+			removeParticipant(link, port);
+		}
+		
+		Link newLink = port.getLink();
+		if (!containsLink(newLink)) {
+			addLink(newLink);
+		}
+		addParticipant(newLink.getId(), port);
+	}
+	
+	private void addLink(Link link) {
+		int linkId = usedLinkIds.nextClearBit(0);
+		usedLinkIds.set(linkId);
+		if (linkId >= links.length) {
+			int newLength = links.length * 2;
+			links = Arrays.copyOf(links, newLength);
+			linkParticipants = Arrays.copyOf(linkParticipants, newLength);
+			linkParticipantCounts = Arrays.copyOf(linkParticipantCounts, newLength);
+		}
+		
+		links[linkId] = link;
+		linkParticipants[linkId] = NO_PORTS;
+		linkParticipantCounts[linkId] = 0;
+		link.setId(linkId);
+		link.setCircuit(circuit);
+	}
+	
+	private void removeLink(Link link) {
+		int linkId = link.getId();
+		circuit.forEachState(state -> state.clearLink(linkId));
+		
+		links[linkId] = null;
+		linkParticipants[linkId] = null;
+		usedLinkIds.clear(linkId);
+		link.setId(-1);
+		link.setCircuit(null);
+	}
+	
+	private void addParticipant(int linkId, Port port) {
+		Port[] participants = linkParticipants[linkId];
+		int count = linkParticipantCounts[linkId];
+		if (count == participants.length) {
+			participants = linkParticipants[linkId] = Arrays.copyOf(participants, Math.max(4, count * 2));
+		}
+		
+		participants[count] = port;
+		linkParticipantCounts[linkId] = count + 1;
+	}
+	
+	private void removeParticipant(Link link, Port port) {
+		int linkId = link.getId();
+		Port[] participants = linkParticipants[linkId];
+		int count = linkParticipantCounts[linkId];
+		
+		for (int i = 0; i < count; i++) {
+			if (participants[i] == port) {
+				// Shift down instead of swapping with the last participant to keep notification order deterministic
+				System.arraycopy(participants, i + 1, participants, i, count - i - 1);
+				participants[--count] = null;
+				break;
+			}
+		}
+		
+		linkParticipantCounts[linkId] = count;
+		
+		if (count == 0) {
+			removeLink(link);
+		}
+	}
+}
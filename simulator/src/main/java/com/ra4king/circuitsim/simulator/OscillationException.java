@@ -0,0 +1,33 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.ra4king.circuitsim.simulator.Port.Link;
+
+/**
+ * @author Roi Atalla
+ */
+public class OscillationException extends SimulationException {
+	private final List<Link> links;
+	
+	public OscillationException() {
+		this(Collections.emptyList());
+	}
+	
+	/**
+	 * @param links The Links that were still being propagated when the oscillation was detected.
+	 */
+	public OscillationException(Collection<Link> links) {
+		super("Oscillation apparent");
+		this.links = List.copyOf(links);
+	}
+	
+	/**
+	 * @return The Links that participate in the oscillation, in the order they were propagated.
+	 */
+	public List<Link> getLinks() {
+		return links;
+	}
+}
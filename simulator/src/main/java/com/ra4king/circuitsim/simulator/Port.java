@@ -1,7 +1,6 @@
 package com.ra4king.circuitsim.simulator;
 
 import java.util.HashSet;
-import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -11,6 +10,7 @@ public class Port {
 	private final Component component;
 	private final int portIndex;
 	private Link link;
+	private int id = -1;
 	
 	public Port(Component component, int portIndex, int bitSize) {
 		this.component = component;
@@ -32,6 +32,17 @@ public class Port {
 		return link;
 	}
 	
+	/**
+	 * @return The ID of this Port in its Circuit's Netlist, or -1 if its Component is not in a Circuit.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	void setId(int id) {
+		this.id = id;
+	}
+	
 	public Port linkPort(Port port) {
 		link.linkPort(port);
 		return this;
@@ -50,6 +61,8 @@ public class Port {
 	public static class Link {
 		private final Set<Port> participants;
 		private final int bitSize;
+		private Circuit circuit;
+		private int id = -1;
 		
 		public Link(int bitSize) {
 			this.participants = new HashSet<>();
@@ -57,12 +70,22 @@ public class Port {
 		}
 		
 		public Circuit getCircuit() {
-			return participants
-				.stream()
-				.map(port -> port.component.getCircuit())
-				.filter(Objects::nonNull)
-				.findFirst()
-				.orElse(null);
+			return circuit;
+		}
+		
+		void setCircuit(Circuit circuit) {
+			this.circuit = circuit;
+		}
+		
+		/**
+		 * @return The ID of this Link in its Circuit's Netlist, or -1 if none of its participants are in a Circuit.
+		 */
+		public int getId() {
+			return id;
+		}
+		
+		void setId(int id) {
+			this.id = id;
 		}
 		
 		public int getBitSize() {
@@ -96,15 +119,18 @@ public class Port {
 				throw new IllegalArgumentException("Links have different bit sizes.");
 			}
 			
-			circuit.forEachState(state -> state.link(this, port.getLink()));
+			Link other = port.getLink();
+			circuit.forEachState(state -> state.link(this, other));
 			
-			Set<Port> portParticipants = port.getLink().participants;
+			Set<Port> portParticipants = other.participants;
 			participants.addAll(portParticipants);
 			
 			for (Port p : portParticipants) {
 				p.link = this;
 			}
 			
+			circuit.getNetlist().linksMerged(this, other);
+			
 			return this;
 		}
 		
@@ -124,6 +150,7 @@ public class Port {
 			link.participants.add(port);
 			port.link = link;
 			
+			circuit.getNetlist().portUnlinked(this, port);
 			circuit.forEachState(state -> state.unlink(this, port));
 			
 			return this;
@@ -0,0 +1,321 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+
+/**
+ * Counts how many times every Component is notified of a new value, or evaluated if levelized, and how long it takes,
+ * both per Component class and per instance. Instances are named by their path through the Subcircuits of the
+ * top-level states, such as {@code CPU/ALU/Adder_2}.
+ * <p>
+ * The time of a Component includes the Components evaluated from within it, such as the contents of a Subcircuit
+ * when Subcircuits are flattened, while its self time does not. Nothing is recorded unless started, and the
+ * Simulator does not propagate steps in parallel while a Profiler is running.
+ *
+ * @author Roi Atalla
+ */
+public final class Profiler {
+	private final Simulator simulator;
+	
+	private final Map<Class<?>, Counter> byType = new HashMap<>();
+	private final Map<CircuitState, Map<Component, Counter>> byInstance = new IdentityHashMap<>();
+	
+	// The time spent in the Components evaluated from within each Component currently being evaluated
+	private long[] nestedNanos = new long[16];
+	private int depth;
+	
+	public Profiler(Simulator simulator) {
+		this.simulator = simulator;
+	}
+	
+	public Simulator getSimulator() {
+		return simulator;
+	}
+	
+	/**
+	 * Starts recording every Component evaluation of the Simulator, replacing any other running Profiler.
+	 */
+	public void start() {
+		simulator.setProfiler(this);
+	}
+	
+	public void stop() {
+		simulator.runSync(() -> {
+			if (simulator.getProfiler() == this) {
+				simulator.setProfiler(null);
+			}
+		});
+	}
+	
+	public boolean isRunning() {
+		return simulator.getProfiler() == this;
+	}
+	
+	/**
+	 * Drops everything recorded so far.
+	 */
+	public void reset() {
+		simulator.runSync(() -> {
+			byType.clear();
+			byInstance.clear();
+		});
+	}
+	
+	/**
+	 * Called by the CircuitState right before evaluating a Component.
+	 *
+	 * @return The start time to pass to {@link #exit(CircuitState, Component, long)}.
+	 */
+	long enter() {
+		if (depth == nestedNanos.length) {
+			nestedNanos = Arrays.copyOf(nestedNanos, depth * 2);
+		}
+		nestedNanos[depth++] = 0;
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Called by the CircuitState right after evaluating a Component, even if it threw.
+	 */
+	void exit(CircuitState state, Component component, long start) {
+		long nanos = System.nanoTime() - start;
+		long selfNanos = nanos - nestedNanos[--depth];
+		if (depth > 0) {
+			nestedNanos[depth - 1] += nanos;
+		}
+		
+		byType.computeIfAbsent(component.getClass(), type -> new Counter()).add(nanos, selfNanos);
+		byInstance.computeIfAbsent(state, s -> new IdentityHashMap<>())
+		          .computeIfAbsent(component, c -> new Counter())
+		          .add(nanos, selfNanos);
+	}
+	
+	/**
+	 * @return The Component classes evaluated so far, hottest first by self time.
+	 */
+	public List<ProfileEntry> getByType() {
+		List<ProfileEntry> entries = new ArrayList<>();
+		simulator.runSync(() -> byType.forEach((type, counter) -> entries.add(counter.toEntry(getTypeName(type)))));
+		entries.sort(ProfileEntry.HOTTEST_FIRST);
+		return entries;
+	}
+	
+	/**
+	 * @return The Component instances evaluated so far, hottest first by self time. Instances of states that are no
+	 * longer reachable from a top-level state are named after their circuit.
+	 */
+	public List<ProfileEntry> getByInstance() {
+		List<ProfileEntry> entries = new ArrayList<>();
+		simulator.runSync(() -> {
+			Map<CircuitState, Map<Component, String>> names = nameInstances();
+			byInstance.forEach((state, counters) -> {
+				Map<Component, String> stateNames = names.get(state);
+				counters.forEach((component, counter) -> {
+					String name = stateNames == null ? null : stateNames.get(component);
+					if (name == null) {
+						name = "(removed) " + state.getCircuit().getName() + "/" + getInstanceName(component);
+					}
+					entries.add(counter.toEntry(name));
+				});
+			});
+		});
+		entries.sort(ProfileEntry.HOTTEST_FIRST);
+		return entries;
+	}
+	
+	/**
+	 * Writes both reports as a table, at most limit rows each.
+	 */
+	public void writeText(Appendable out, int limit) throws IOException {
+		List<ProfileEntry> byType = getByType();
+		List<ProfileEntry> byInstance = getByInstance();
+		
+		long totalSelfNanos = byType.stream().mapToLong(ProfileEntry::getSelfNanos).sum();
+		
+		out.append("Hot component types:\n");
+		writeTable(out, byType, totalSelfNanos, limit);
+		out.append("\nHot component instances:\n");
+		writeTable(out, byInstance, totalSelfNanos, limit);
+	}
+	
+	private static void writeTable(Appendable out, List<ProfileEntry> entries, long totalSelfNanos, int limit)
+		throws IOException {
+		out.append(String.format("%12s %12s %12s %7s  %s%n", "Calls", "Total ms", "Self ms", "Self %", "Name"));
+		for (ProfileEntry entry : entries.subList(0, Math.min(limit, entries.size()))) {
+			out.append(String.format("%12d %12.3f %12.3f %6.1f%%  %s%n",
+			                         entry.getCalls(),
+			                         entry.getNanos() / 1e6,
+			                         entry.getSelfNanos() / 1e6,
+			                         totalSelfNanos == 0 ? 0.0 : 100.0 * entry.getSelfNanos() / totalSelfNanos,
+			                         entry.getName()));
+		}
+		if (entries.size() > limit) {
+			out.append(String.format("... %d more%n", entries.size() - limit));
+		}
+	}
+	
+	/**
+	 * Writes both reports as a JSON object with the arrays "types" and "instances" of {name, calls, nanos,
+	 * selfNanos}.
+	 */
+	public void writeJson(Writer out) throws IOException {
+		List<ProfileEntry> byType = getByType();
+		List<ProfileEntry> byInstance = getByInstance();
+		
+		JsonWriter writer = new JsonWriter(out);
+		writer.setIndent("  ");
+		writer.setHtmlSafe(false);
+		writer.beginObject();
+		writer.name("types");
+		writeJsonArray(writer, byType);
+		writer.name("instances");
+		writeJsonArray(writer, byInstance);
+		writer.endObject();
+		writer.flush();
+	}
+	
+	private static void writeJsonArray(JsonWriter writer, List<ProfileEntry> entries) throws IOException {
+		writer.beginArray();
+		for (ProfileEntry entry : entries) {
+			writer.beginObject();
+			writer.name("name").value(entry.getName());
+			writer.name("calls").value(entry.getCalls());
+			writer.name("nanos").value(entry.getNanos());
+			writer.name("selfNanos").value(entry.getSelfNanos());
+			writer.endObject();
+		}
+		writer.endArray();
+	}
+	
+	/**
+	 * Names every Component of the top-level states and of their Subcircuits by its path. Like the scopes of the
+	 * WaveformRecorder, instances sharing a name in the same state are numbered.
+	 */
+	private Map<CircuitState, Map<Component, String>> nameInstances() {
+		Map<CircuitState, Map<Component, String>> names = new IdentityHashMap<>();
+		
+		List<Circuit> circuits = new ArrayList<>(simulator.getCircuits());
+		circuits.sort(Comparator.comparing(Circuit::getName));
+		for (Circuit circuit : circuits) {
+			nameInstances(circuit.getName(), circuit.getTopLevelState(), names);
+		}
+		
+		return names;
+	}
+	
+	private static void nameInstances(String path,
+	                                  CircuitState state,
+	                                  Map<CircuitState, Map<Component, String>> names) {
+		if (names.containsKey(state)) {
+			return;
+		}
+		
+		Map<Component, String> stateNames = new IdentityHashMap<>();
+		names.put(state, stateNames);
+		
+		List<Component> components = new ArrayList<>(state.getCircuit().getComponents());
+		components.sort(Comparator.comparing(Component::getName));
+		
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		for (Component component : components) {
+			String name = getInstanceName(component);
+			int count = counts.merge(name, 1, Integer::sum);
+			if (count > 1) {
+				name += "_" + count;
+			}
+			
+			String instancePath = path + "/" + name;
+			stateNames.put(component, instancePath);
+			
+			if (component instanceof Subcircuit) {
+				nameInstances(instancePath, ((Subcircuit)component).getSubcircuitState(state), names);
+			}
+		}
+	}
+	
+	private static String getInstanceName(Component component) {
+		if (component instanceof Subcircuit) {
+			return component.getName().isEmpty() ? ((Subcircuit)component).getSubcircuit().getName()
+			                                     : component.getName();
+		}
+		
+		String type = getTypeName(component.getClass());
+		return component.getName().isEmpty() ? type : type + " " + component.getName();
+	}
+	
+	private static String getTypeName(Class<?> type) {
+		// Anonymous classes have no simple name
+		return type.getSimpleName().isEmpty() ? type.getName() : type.getSimpleName();
+	}
+	
+	private static class Counter {
+		private long calls;
+		private long nanos;
+		private long selfNanos;
+		
+		void add(long nanos, long selfNanos) {
+			this.calls++;
+			this.nanos += nanos;
+			this.selfNanos += selfNanos;
+		}
+		
+		ProfileEntry toEntry(String name) {
+			return new ProfileEntry(name, calls, nanos, selfNanos);
+		}
+	}
+	
+	/**
+	 * The calls and time recorded for a Component class or instance.
+	 */
+	public static final class ProfileEntry {
+		static final Comparator<ProfileEntry> HOTTEST_FIRST =
+			Comparator.comparingLong(ProfileEntry::getSelfNanos).reversed().thenComparing(ProfileEntry::getName);
+		
+		private final String name;
+		private final long calls;
+		private final long nanos;
+		private final long selfNanos;
+		
+		ProfileEntry(String name, long calls, long nanos, long selfNanos) {
+			this.name = name;
+			this.calls = calls;
+			this.nanos = nanos;
+			this.selfNanos = selfNanos;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public long getCalls() {
+			return calls;
+		}
+		
+		/**
+		 * @return The time spent evaluating, including the Components evaluated from within.
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+		
+		public long getSelfNanos() {
+			return selfNanos;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%s: %d calls, %.3f ms (%.3f ms self)", name, calls, nanos / 1e6, selfNanos / 1e6);
+		}
+	}
+}
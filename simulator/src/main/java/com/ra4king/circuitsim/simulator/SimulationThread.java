@@ -0,0 +1,266 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * An optional execution mode for a Simulator where a single dedicated thread owns all simulation state.
+ * <p>
+ * Other threads submit commands, such as pin pushes or structural edits, through a lock-free queue and return
+ * immediately. The simulation thread drains the queue in batches, holding the Simulator lock once per batch instead of
+ * once per command, steps the simulation until it settles, and then publishes read-only snapshots of the watched
+ * CircuitStates. Readers such as the GUI read the latest snapshot without touching the lock, so their latency does not
+ * depend on the simulation load.
+ * <p>
+ * While running, {@link Simulator#submit(Runnable)} and the Clock route through this thread.
+ *
+ * @author Roi Atalla
+ */
+public class SimulationThread {
+	private static final int MAX_BATCH_SIZE = 1024;
+	
+	private final Simulator simulator;
+	private final Consumer<RuntimeException> exceptionHandler;
+	
+	private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+	private final AtomicLong submittedCount = new AtomicLong();
+	private volatile long processedCount;
+	
+	// Only accessed from the simulation thread
+	private final Set<CircuitState> watchedStates = new LinkedHashSet<>();
+	
+	private volatile Map<CircuitState, Snapshot> snapshots = Collections.emptyMap();
+	private volatile long generation;
+	private volatile RuntimeException lastException;
+	
+	private volatile Thread thread;
+	private volatile boolean running;
+	
+	/**
+	 * @param simulator        The Simulator this thread will own.
+	 * @param exceptionHandler Called on the simulation thread with every exception thrown by a command or while
+	 *                         stepping, may be null.
+	 */
+	public SimulationThread(Simulator simulator, Consumer<RuntimeException> exceptionHandler) {
+		this.simulator = simulator;
+		this.exceptionHandler = exceptionHandler;
+	}
+	
+	public Simulator getSimulator() {
+		return simulator;
+	}
+	
+	/**
+	 * Starts the simulation thread and makes it the owner of the Simulator.
+	 */
+	public synchronized void start() {
+		if (running) {
+			throw new IllegalStateException("Simulation thread already running.");
+		}
+		
+		running = true;
+		
+		Thread thread = new Thread(this::run);
+		thread.setName("Simulation thread");
+		thread.setDaemon(true);
+		this.thread = thread;
+		
+		simulator.setSimulationThread(this);
+		thread.start();
+	}
+	
+	/**
+	 * Stops the simulation thread after it has processed all commands submitted so far, and waits for it to die.
+	 */
+	public void stop() {
+		Thread thread;
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			
+			running = false;
+			thread = this.thread;
+			simulator.setSimulationThread(null);
+		}
+		
+		LockSupport.unpark(thread);
+		if (Thread.currentThread() != thread) {
+			try {
+				thread.join();
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	public boolean isRunning() {
+		return running;
+	}
+	
+	public boolean isSimulationThread() {
+		return Thread.currentThread() == thread;
+	}
+	
+	/**
+	 * Queues the command to be run on the simulation thread. This is lock-free and never blocks.
+	 *
+	 * @param command The command to run.
+	 */
+	public void submit(Runnable command) {
+		submittedCount.incrementAndGet();
+		commands.add(command);
+		
+		Thread thread = this.thread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+	
+	/**
+	 * Queues a push of the value into the Port. The value is copied, so the caller may keep modifying it.
+	 */
+	public void pushValue(CircuitState state, Port port, WireValue value) {
+		WireValue copy = new WireValue(value);
+		submit(() -> state.pushValue(port, copy));
+	}
+	
+	/**
+	 * Requests that read-only snapshots of the CircuitState be published after every batch.
+	 */
+	public void watch(CircuitState state) {
+		submit(() -> watchedStates.add(state));
+	}
+	
+	public void unwatch(CircuitState state) {
+		submit(() -> watchedStates.remove(state));
+	}
+	
+	/**
+	 * Get the latest published snapshot of the watched CircuitState. Its circuit must not be edited concurrently,
+	 * which holds for edits made on the calling thread or submitted to this one.
+	 *
+	 * @param state The watched CircuitState.
+	 * @return A read-only copy of the state, or null if it is not watched, no snapshot has been published yet, or the
+	 * circuit was edited since the latest snapshot.
+	 */
+	public CircuitState getSnapshot(CircuitState state) {
+		Snapshot snapshot = snapshots.get(state);
+		if (snapshot == null || snapshot.revision != state.getCircuit().getNetlist().getRevision()) {
+			return null;
+		}
+		
+		return snapshot.state;
+	}
+	
+	/**
+	 * @return The number of snapshots published so far.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * @return The last exception thrown by a command or while stepping, or null.
+	 */
+	public RuntimeException getLastException() {
+		return lastException;
+	}
+	
+	/**
+	 * Blocks until all commands submitted before this call have been processed and a snapshot has been published.
+	 */
+	public void awaitProcessed() throws InterruptedException {
+		if (isSimulationThread()) {
+			throw new IllegalStateException("Cannot wait on the simulation thread.");
+		}
+		
+		long target = submittedCount.get();
+		synchronized (this) {
+			while (processedCount < target && running) {
+				wait();
+			}
+		}
+	}
+	
+	private void run() {
+		while (running || !commands.isEmpty()) {
+			if (commands.isEmpty()) {
+				LockSupport.park(this);
+				continue;
+			}
+			
+			simulator.runSync(this::processBatch);
+			
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+		
+		synchronized (this) {
+			thread = null;
+			notifyAll();
+		}
+	}
+	
+	private void processBatch() {
+		int count = 0;
+		Runnable command;
+		while (count < MAX_BATCH_SIZE && (command = commands.poll()) != null) {
+			count++;
+			try {
+				command.run();
+			} catch (RuntimeException exc) {
+				handleException(exc);
+			}
+		}
+		
+		try {
+			simulator.stepAll();
+		} catch (RuntimeException exc) {
+			handleException(exc);
+		}
+		
+		publishSnapshots();
+		processedCount += count;
+	}
+	
+	private void publishSnapshots() {
+		Map<CircuitState, Snapshot> snapshots = new IdentityHashMap<>();
+		for (CircuitState state : watchedStates) {
+			if (state.getCircuit().containsState(state)) {
+				int revision = state.getCircuit().getNetlist().getRevision();
+				snapshots.put(state, new Snapshot(new CircuitState(state), revision));
+			}
+		}
+		
+		this.snapshots = snapshots;
+		generation++;
+	}
+	
+	private void handleException(RuntimeException exc) {
+		lastException = exc;
+		if (exceptionHandler != null) {
+			exceptionHandler.accept(exc);
+		}
+	}
+	
+	private static class Snapshot {
+		private final CircuitState state;
+		
+		// The revision of the Netlist the values were copied from, which indexes them
+		private final int revision;
+		
+		Snapshot(CircuitState state, int revision) {
+			this.state = state;
+			this.revision = revision;
+		}
+	}
+}
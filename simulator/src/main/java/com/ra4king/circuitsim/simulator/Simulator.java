@@ -0,0 +1,1387 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.ra4king.circuitsim.simulator.Port.Link;
+import com.ra4king.circuitsim.simulator.jfr.ClockTickEvent;
+import com.ra4king.circuitsim.simulator.jfr.SettleEvent;
+
+/**
+ * @author Roi Atalla
+ */
+public class Simulator {
+	private final Set<Circuit> circuits;
+	private final LinkQueue linksToUpdate;
+	private final Set<Map.Entry<CircuitState, Link>> lastShortCircuitedLinks;
+	
+	// Oscillation detection in stepAll: the fingerprints of the last rounds, as a ring buffer
+	private long[] roundHistory;
+	private int roundHistoryCount;
+	private int oscillationThreshold = 10;
+	private long oscillationTimeoutNanos;
+	private boolean fingerprintRounds;
+	private long lastRoundFingerprint;
+	
+	// Metrics, only written while holding the lock except for the adders, see getMetrics
+	private volatile long propagatedLinks;
+	private volatile long stepCount;
+	private volatile long settleCount;
+	private volatile int maxSettleSteps;
+	private volatile int queueHighWaterMark;
+	private volatile long shortCircuitRetries;
+	private volatile long tickCount;
+	private volatile long tickSettleNanos;
+	private volatile long lastTickSettleNanos;
+	private final LongAdder componentEvaluations = new LongAdder();
+	private final LongAdder lockWaitNanos = new LongAdder();
+	private boolean tickStarted;
+	
+	// Create a Lock with a fair policy
+	private final ReentrantLock lock = new ReentrantLock(true);
+	
+	private volatile SimulationThread simulationThread;
+	
+	// Parallel stepping of independent CircuitStates, see setParallelism
+	private static final int PARALLEL_THRESHOLD = 64;
+	private static final ThreadLocal<StateGroup> currentGroup = new ThreadLocal<>();
+	private int parallelism = 1;
+	private ForkJoinPool pool;
+	private volatile boolean parallelStepping;
+	private final List<StateGroup> stateGroups = new ArrayList<>();
+	private final Map<CircuitState, StateGroup> stateGroupsByState = new IdentityHashMap<>();
+	
+	// CircuitStates with levelized Components to evaluate at the end of the current step
+	private final List<CircuitState> statesToEvaluate = new ArrayList<>();
+	private boolean levelizedEvaluation;
+	private boolean compiledEvaluation;
+	
+	private boolean flattenSubcircuits;
+	
+	// Timed simulation, see setTimed
+	private boolean timed;
+	private long time;
+	private int defaultPropagationDelay = 1;
+	private final Map<Class<? extends Component>, Integer> propagationDelays = new HashMap<>();
+	private final Map<Class<?>, Integer> resolvedPropagationDelays = new HashMap<>();
+	private final TimingWheel timingWheel = new TimingWheel();
+	
+	// Reverse execution, see setJournalCapacity
+	private ChangeJournal journal;
+	
+	// Profiling of Component evaluations, see Profiler
+	private volatile Profiler profiler;
+	
+	// The JFR event of the clock tick being settled, only if enabled
+	private ClockTickEvent tickEvent;
+	
+	private final List<SettleListener> settleListeners = new CopyOnWriteArrayList<>();
+	
+	public Simulator() {
+		circuits = new HashSet<>();
+		linksToUpdate = new LinkQueue();
+		lastShortCircuitedLinks = new HashSet<>();
+		roundHistory = new long[1024];
+	}
+	
+	/**
+	 * Get the ReentrantLock instance
+	 *
+	 * @return The ReentrantLock instance used for synchronization
+	 */
+	public Lock getLock() {
+		return lock;
+	}
+	
+	/**
+	 * Sets the number of threads used to propagate independent CircuitStates in parallel. The default of 1 propagates
+	 * everything on the calling thread.
+	 * <p>
+	 * With a parallelism above 1, every step that has enough links queued groups them by CircuitState and propagates
+	 * the groups concurrently. A group only modifies its own CircuitState: pushes into other states, such as the pins
+	 * of a Subcircuit, are deferred to the end of the step and applied in group order, and links queued by a group are
+	 * appended in group order. The results are therefore deterministic and do not depend on the number of threads.
+	 * Steps are propagated on the calling thread while journaling or profiling.
+	 *
+	 * @param parallelism The number of threads, must be positive.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive, found " + parallelism);
+		}
+		
+		runSync(() -> {
+			if (pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+			
+			this.parallelism = parallelism;
+			if (parallelism > 1) {
+				pool = new ForkJoinPool(parallelism);
+			}
+		});
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Enables or disables levelized evaluation, which is disabled by default.
+	 * <p>
+	 * When enabled, the Components of feedback-free combinational regions are evaluated once per step in topological
+	 * order, after all their inputs have settled, instead of once per input change. A region then settles in a single
+	 * step, so signals that would reach a latch through paths of different lengths arrive together: circuits that rely
+	 * on such races, like gates driving cross-coupled latches, may oscillate where they otherwise settle.
+	 *
+	 * @param levelizedEvaluation Whether to use levelized evaluation.
+	 */
+	public void setLevelizedEvaluation(boolean levelizedEvaluation) {
+		runSync(() -> this.levelizedEvaluation = levelizedEvaluation);
+	}
+	
+	public boolean isLevelizedEvaluation() {
+		return levelizedEvaluation;
+	}
+	
+	/**
+	 * Enables or disables compiled evaluation, which is disabled by default.
+	 * <p>
+	 * When enabled, levelized Components that provide a {@link CombinationalComponent.Evaluator} are evaluated
+	 * directly on the primitive values of the CircuitState, and their outputs on internal Links are handed to the
+	 * readers without allocating WireValues nor going through the queue. Components without an Evaluator fall back to
+	 * valueChanged. The resulting values are the same either way. Compiled evaluation implies levelized evaluation,
+	 * see {@link #setLevelizedEvaluation(boolean)}.
+	 *
+	 * @param compiledEvaluation Whether to use compiled evaluation.
+	 */
+	public void setCompiledEvaluation(boolean compiledEvaluation) {
+		runSync(() -> this.compiledEvaluation = compiledEvaluation);
+	}
+	
+	public boolean isCompiledEvaluation() {
+		return compiledEvaluation;
+	}
+	
+	/**
+	 * Enables or disables flattening of Subcircuits, which is disabled by default.
+	 * <p>
+	 * Without flattening, a value crossing a Subcircuit boundary is pushed on the Pin or Subcircuit port on the other
+	 * side and queued, so it takes one more step and one more queued Link per level of nesting. With flattening, the
+	 * Link on the other side is propagated right away in the same step, as if both Links were a single net. Every
+	 * Subcircuit still has its own CircuitState, so values are read the same way either way.
+	 * <p>
+	 * A CircuitState that is already propagating, or that belongs to another group during a parallel step, is never
+	 * re-entered: values crossing into it are queued as usual.
+	 *
+	 * @param flattenSubcircuits Whether to flatten Subcircuits.
+	 */
+	public void setFlattenSubcircuits(boolean flattenSubcircuits) {
+		runSync(() -> this.flattenSubcircuits = flattenSubcircuits);
+	}
+	
+	public boolean isFlattenSubcircuits() {
+		return flattenSubcircuits;
+	}
+	
+	/**
+	 * Enables or disables the timed mode, which is disabled by default.
+	 * <p>
+	 * The Simulator is otherwise zero-delay: a step propagates every queued Link, and the values pushed in response are
+	 * propagated by the next step, with no notion of time. In timed mode, a value pushed by a Component with a
+	 * propagation delay is scheduled to reach its Link that many units of simulated time later. This is a transport
+	 * delay, so pulses shorter than the delay still go through, which shows glitches and critical paths. stepAll() then
+	 * only settles the current time, while advanceTime() moves to the next scheduled values.
+	 * <p>
+	 * Values never bypass their delay in timed mode: compiled evaluation, flattening of Subcircuits and parallel steps
+	 * are not used. When the timed mode is disabled, the pending values are pushed right away, in time order.
+	 *
+	 * @param timed Whether to simulate propagation delays.
+	 */
+	public void setTimed(boolean timed) {
+		runSync(() -> {
+			if (this.timed && !timed) {
+				this.timed = false;
+				while (timingWheel.advance(Long.MAX_VALUE) >= 0) {
+					timingWheel.fire(CircuitState::applyScheduledValue);
+				}
+				timingWheel.clear();
+				time = 0;
+			}
+			
+			this.timed = timed;
+		});
+	}
+	
+	public boolean isTimed() {
+		return timed;
+	}
+	
+	/**
+	 * Sets the propagation delay of Components whose type has no delay set, which is 1 by default.
+	 *
+	 * @param delay The delay in units of simulated time, must not be negative.
+	 */
+	public void setDefaultPropagationDelay(int delay) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Propagation delay cannot be negative, found " + delay);
+		}
+		
+		runSync(() -> {
+			defaultPropagationDelay = delay;
+			resolvedPropagationDelays.clear();
+		});
+	}
+	
+	public int getDefaultPropagationDelay() {
+		return defaultPropagationDelay;
+	}
+	
+	/**
+	 * Sets the propagation delay of a type of Component, and its subtypes without a delay of their own. Components
+	 * with their own delay, see {@link Component#setPropagationDelay(int)}, are not affected.
+	 *
+	 * @param type  The type of Component.
+	 * @param delay The delay in units of simulated time, or a negative value to remove the delay of the type.
+	 */
+	public void setPropagationDelay(Class<? extends Component> type, int delay) {
+		runSync(() -> {
+			if (delay < 0) {
+				propagationDelays.remove(type);
+			} else {
+				propagationDelays.put(type, delay);
+			}
+			resolvedPropagationDelays.clear();
+		});
+	}
+	
+	/**
+	 * @return The delay of the Component itself if set, otherwise the delay of its closest type that has one,
+	 * otherwise the default propagation delay.
+	 */
+	public int getPropagationDelay(Component component) {
+		if (component.getPropagationDelay() >= 0) {
+			return component.getPropagationDelay();
+		}
+		
+		Integer delay = resolvedPropagationDelays.get(component.getClass());
+		if (delay == null) {
+			delay = defaultPropagationDelay;
+			for (Class<?> type = component.getClass(); type != Component.class; type = type.getSuperclass()) {
+				if (propagationDelays.containsKey(type)) {
+					delay = propagationDelays.get(type);
+					break;
+				}
+			}
+			resolvedPropagationDelays.put(component.getClass(), delay);
+		}
+		
+		return delay;
+	}
+	
+	/**
+	 * @return The current simulated time, which only moves in timed mode.
+	 */
+	public long getTime() {
+		return time;
+	}
+	
+	/**
+	 * @return The number of Link updates propagated by every step so far, the events counted when measuring the
+	 * throughput of the Simulator.
+	 */
+	public long getPropagatedLinkCount() {
+		return propagatedLinks;
+	}
+	
+	/**
+	 * @return A snapshot of the counters of the Simulator since it was created or the last resetMetrics(). It is read
+	 * without locking, so it may be a step behind while the Simulator is running.
+	 */
+	public SimulatorMetrics getMetrics() {
+		return new SimulatorMetrics(stepCount,
+		                            settleCount,
+		                            maxSettleSteps,
+		                            propagatedLinks,
+		                            componentEvaluations.sum(),
+		                            queueHighWaterMark,
+		                            shortCircuitRetries,
+		                            lockWaitNanos.sum(),
+		                            tickCount,
+		                            tickSettleNanos,
+		                            lastTickSettleNanos);
+	}
+	
+	public void resetMetrics() {
+		runSync(() -> {
+			propagatedLinks = 0;
+			stepCount = 0;
+			settleCount = 0;
+			maxSettleSteps = 0;
+			queueHighWaterMark = linksToUpdate.size();
+			shortCircuitRetries = 0;
+			tickCount = 0;
+			tickSettleNanos = 0;
+			lastTickSettleNanos = 0;
+			componentEvaluations.reset();
+			lockWaitNanos.reset();
+		});
+	}
+	
+	/**
+	 * Counts the Components notified of new values by a CircuitState, or evaluated by it.
+	 */
+	void componentsEvaluated(int count) {
+		componentEvaluations.add(count);
+	}
+	
+	void setProfiler(Profiler profiler) {
+		runSync(() -> this.profiler = profiler);
+	}
+	
+	/**
+	 * @return The running Profiler, or null if none, in which case nothing is recorded.
+	 */
+	Profiler getProfiler() {
+		return profiler;
+	}
+	
+	/**
+	 * @return The number of pushed values waiting for their propagation delay in timed mode.
+	 */
+	public int getPendingEventCount() {
+		return timingWheel.size();
+	}
+	
+	/**
+	 * In timed mode, moves to the time of the next scheduled values, pushes them and settles that time with stepAll().
+	 *
+	 * @return The new simulated time, or -1 if nothing is scheduled.
+	 */
+	public long advanceTime() {
+		long[] result = new long[1];
+		runSync(() -> result[0] = advanceTime(Long.MAX_VALUE) ? time : -1);
+		return result[0];
+	}
+	
+	/**
+	 * In timed mode, settles every scheduled value up to and including the given time, then moves to that time.
+	 *
+	 * @param time The time to move to, must not be before the current time.
+	 */
+	public void advanceTimeTo(long time) {
+		runSync(() -> {
+			if (time < this.time) {
+				throw new IllegalArgumentException("Cannot go back in time to " + time + " from " + this.time);
+			}
+			
+			while (advanceTime(time)) {
+				// keep going
+			}
+			this.time = time;
+		});
+	}
+	
+	/**
+	 * Settles the current time, then fires the values scheduled at the earliest time up to the limit.
+	 *
+	 * @return false if nothing is scheduled up to the limit.
+	 */
+	private boolean advanceTime(long limit) {
+		stepAll();
+		
+		long next = timingWheel.advance(limit);
+		if (next < 0) {
+			return false;
+		}
+		
+		time = next;
+		timingWheel.fire(CircuitState::applyScheduledValue);
+		stepAll();
+		return true;
+	}
+	
+	/**
+	 * Enables or disables the journal of changes, which is disabled by default.
+	 * <p>
+	 * While enabled, the old values of every Link and the old Component properties are recorded the first time they
+	 * change in each tick, so whole ticks can be undone with {@link #stepBack()}. Ticks are started with
+	 * {@link #beginTick()}, which the Clock does before every tick, and only the given number of most recent ticks
+	 * are kept. Changing the capacity drops the journal. Steps are not propagated in parallel while journaling.
+	 *
+	 * @param ticks The number of ticks that can be undone, or 0 to disable the journal.
+	 */
+	public void setJournalCapacity(int ticks) {
+		if (ticks < 0) {
+			throw new IllegalArgumentException("Journal capacity cannot be negative, found " + ticks);
+		}
+		
+		runSync(() -> journal = ticks == 0 ? null : new ChangeJournal(ticks));
+	}
+	
+	public int getJournalCapacity() {
+		ChangeJournal journal = this.journal;
+		return journal == null ? 0 : journal.getCapacity();
+	}
+	
+	/**
+	 * @return The journal if enabled, otherwise null.
+	 */
+	ChangeJournal getJournal() {
+		return journal;
+	}
+	
+	/**
+	 * Drops every journaled tick, after changes that cannot be journaled such as a reset.
+	 */
+	void clearJournal() {
+		if (journal != null) {
+			journal.clear();
+		}
+	}
+	
+	/**
+	 * Starts a new tick in the journal, if enabled. Changes made from now on are undone together by stepBack().
+	 */
+	public void beginTick() {
+		runSync(() -> {
+			tickStarted = true;
+			
+			ClockTickEvent event = new ClockTickEvent();
+			if (event.isEnabled()) {
+				event.begin();
+				tickEvent = event;
+			}
+			
+			if (journal != null) {
+				journal.beginTick();
+			}
+		});
+	}
+	
+	/**
+	 * @return The number of ticks started since the journal was enabled, minus the ticks undone.
+	 */
+	public long getTick() {
+		ChangeJournal journal = this.journal;
+		return journal == null ? 0 : journal.getTick();
+	}
+	
+	/**
+	 * @return The earliest tick that can be stepped back to.
+	 */
+	public long getOldestTick() {
+		ChangeJournal journal = this.journal;
+		return journal == null ? 0 : journal.getOldestTick();
+	}
+	
+	/**
+	 * Undoes every change of the current tick, newest first, which brings all CircuitStates back to how they were
+	 * when the tick started. Links that were queued then are queued again. Components are not notified.
+	 *
+	 * @return false if the journal is disabled or has no tick left to undo.
+	 * @throws IllegalStateException if a Circuit was modified during the tick, in which case the journal is dropped.
+	 */
+	public boolean stepBack() {
+		AtomicBoolean result = new AtomicBoolean();
+		runSync(() -> {
+			ChangeJournal journal = this.journal;
+			if (journal == null) {
+				return;
+			}
+			
+			// Undoing is not journaled
+			this.journal = null;
+			try {
+				result.set(journal.undoTick());
+			} finally {
+				this.journal = journal;
+			}
+		});
+		return result.get();
+	}
+	
+	/**
+	 * Steps back until the given tick, see {@link #stepBack()}.
+	 *
+	 * @param tick The tick to go back to, between {@link #getOldestTick()} and {@link #getTick()}.
+	 */
+	public void stepBackTo(long tick) {
+		runSync(() -> {
+			if (tick < getOldestTick() || tick > getTick()) {
+				throw new IllegalArgumentException(
+					"Tick " + tick + " is not between " + getOldestTick() + " and " + getTick());
+			}
+			
+			while (getTick() > tick) {
+				stepBack();
+			}
+		});
+	}
+	
+	/**
+	 * In timed mode, schedules the value pushed by the Port to reach its Link after the propagation delay of its
+	 * Component.
+	 *
+	 * @return false if the value is not delayed, and must be pushed right away.
+	 */
+	boolean scheduleValue(CircuitState state, Port port, WireValue value) {
+		if (!timed) {
+			return false;
+		}
+		
+		int delay = getPropagationDelay(port.getComponent());
+		if (delay == 0) {
+			return false;
+		}
+		
+		timingWheel.schedule(time + delay, state, port, value.getValueBits(), value.getDefinedBits());
+		return true;
+	}
+	
+	/**
+	 * @return true while a step is propagating.
+	 */
+	boolean isStepping() {
+		return stepping.get();
+	}
+	
+	/**
+	 * During a parallel step, components may only modify the CircuitState being propagated by the current thread.
+	 *
+	 * @return true if modifications of the state must be deferred to the end of the step with {@link #defer}.
+	 */
+	boolean isForeignState(CircuitState state) {
+		if (!parallelStepping) {
+			return false;
+		}
+		
+		StateGroup group = currentGroup.get();
+		return group != null && group.state != state;
+	}
+	
+	/**
+	 * Defers the action to the end of the current parallel step, where deferred actions run in group order.
+	 */
+	void defer(Runnable action) {
+		currentGroup.get().deferred.add(action);
+	}
+	
+	/**
+	 * Called by a CircuitState the first time one of its levelized Components is marked dirty during a step.
+	 */
+	void evaluationNeeded(CircuitState state) {
+		if (parallelStepping) {
+			StateGroup group = currentGroup.get();
+			if (group != null) {
+				group.evaluationNeeded = true;
+				return;
+			}
+		}
+		
+		statesToEvaluate.add(state);
+	}
+	
+	/**
+	 * @return The running SimulationThread that owns this Simulator, or null if none.
+	 */
+	public SimulationThread getSimulationThread() {
+		return simulationThread;
+	}
+	
+	void setSimulationThread(SimulationThread simulationThread) {
+		this.simulationThread = simulationThread;
+	}
+	
+	/**
+	 * Runs the command on the SimulationThread if one is running, without waiting for it. Otherwise the command is run
+	 * synchronously with the Simulator, like runSync.
+	 *
+	 * @param command The command to run.
+	 */
+	public void submit(Runnable command) {
+		SimulationThread simulationThread = this.simulationThread;
+		if (simulationThread != null) {
+			simulationThread.submit(command);
+		} else {
+			runSync(command);
+		}
+	}
+	
+	/**
+	 * Sets how many rounds of stepAll() may repeat a previously seen round before an OscillationException is thrown.
+	 * A round is a single step, and it is identified by a fingerprint of the links it propagates and their values.
+	 *
+	 * @param threshold The number of repeated rounds, must be positive.
+	 */
+	public void setOscillationThreshold(int threshold) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("Oscillation threshold must be positive, found " + threshold);
+		}
+		
+		runSync(() -> oscillationThreshold = threshold);
+	}
+	
+	public int getOscillationThreshold() {
+		return oscillationThreshold;
+	}
+	
+	/**
+	 * Sets how many of the most recent rounds of stepAll() are remembered to detect repeated rounds. Oscillations with
+	 * a longer period are only caught by the timeout.
+	 *
+	 * @param window The number of rounds, must be positive.
+	 */
+	public void setOscillationWindow(int window) {
+		if (window <= 0) {
+			throw new IllegalArgumentException("Oscillation window must be positive, found " + window);
+		}
+		
+		runSync(() -> {
+			roundHistory = new long[window];
+			roundHistoryCount = 0;
+		});
+	}
+	
+	public int getOscillationWindow() {
+		return roundHistory.length;
+	}
+	
+	/**
+	 * Sets the longest time a single stepAll() may run before it is considered to be oscillating.
+	 *
+	 * @param timeout The timeout, or 0 to disable it, which is the default.
+	 * @param unit    The unit of the timeout.
+	 */
+	public void setOscillationTimeout(long timeout, TimeUnit unit) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Oscillation timeout cannot be negative, found " + timeout);
+		}
+		
+		runSync(() -> oscillationTimeoutNanos = unit.toNanos(timeout));
+	}
+	
+	public long getOscillationTimeout(TimeUnit unit) {
+		return unit.convert(oscillationTimeoutNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Allows execution of code that is synchronized with the Simulator
+	 * <p>
+	 * Similar to but more efficient than <code>synchronized(simulator) { runnable.run(); }</code>
+	 *
+	 * @param runnable The block of code to run synchronously
+	 */
+	public void runSync(Runnable runnable) {
+		// The workers of a parallel step act on behalf of the thread holding the lock
+		if (parallelStepping && currentGroup.get() != null) {
+			runnable.run();
+			return;
+		}
+		
+		lock();
+		
+		try {
+			runnable.run();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Acquires the lock, adding the time spent waiting for another thread to the metrics.
+	 */
+	private void lock() {
+		if (lock.isLocked() && !lock.isHeldByCurrentThread()) {
+			long start = System.nanoTime();
+			lock.lock();
+			lockWaitNanos.add(System.nanoTime() - start);
+		} else {
+			lock.lock();
+		}
+	}
+	
+	/**
+	 * Returns a snapshot of the queue of links waiting to be propagated, in the order they will be processed.
+	 *
+	 * @return A new collection of (state, link) pairs.
+	 */
+	public Collection<Map.Entry<CircuitState, Link>> getLinksToUpdate() {
+		Set<Map.Entry<CircuitState, Link>> links = new LinkedHashSet<>();
+		for (int i = 0; i < linksToUpdate.size(); i++) {
+			CircuitState state = linksToUpdate.getState(i);
+			Link link = linksToUpdate.getLink(i);
+			if (link != null && state.isQueued(link)) {
+				links.add(Map.entry(state, link));
+			}
+		}
+		return links;
+	}
+	
+	public boolean hasLinksToUpdate() {
+		AtomicBoolean tmp = new AtomicBoolean();
+		runSync(() -> tmp.set(!linksToUpdate.isEmpty()));
+		return tmp.get();
+	}
+	
+	/**
+	 * Clears all circuits and queue of un-propagated links.
+	 */
+	public void clear() {
+		runSync(() -> {
+			circuits.clear();
+			for (int i = 0; i < linksToUpdate.size(); i++) {
+				Link link = linksToUpdate.getLink(i);
+				if (link != null && link.getCircuit() != null) {
+					linksToUpdate.getState(i).unmarkQueued(link);
+				}
+			}
+			linksToUpdate.clear();
+			lastShortCircuitedLinks.clear();
+			roundHistoryCount = 0;
+			timingWheel.clear();
+			time = 0;
+			clearJournal();
+		});
+	}
+	
+	/**
+	 * Resets all CircuitStates of all attached Circuits.
+	 */
+	public void reset() {
+		runSync(() -> {
+			timingWheel.clear();
+			time = 0;
+			circuits.forEach(circuit -> circuit.forEachState(CircuitState::reset));
+		});
+	}
+	
+	public Set<Circuit> getCircuits() {
+		return circuits;
+	}
+	
+	/**
+	 * Add the Circuit to this Simulator.
+	 *
+	 * @param circuit The Circuit to be added.
+	 */
+	public void addCircuit(Circuit circuit) {
+		runSync(() -> circuits.add(circuit));
+	}
+	
+	/**
+	 * Remove the Circuit from this Simulator.
+	 *
+	 * @param circuit The Circuit to be removed.
+	 */
+	public void removeCircuit(Circuit circuit) {
+		runSync(() -> circuits.remove(circuit));
+	}
+	
+	/**
+	 * Notify the Simulator the specified port has pushed a new value.
+	 *
+	 * @param state The CircuitState in which the Port has pushed the new value.
+	 * @param port  The Port that pushed the new value.
+	 */
+	public void valueChanged(CircuitState state, Port port) {
+		valueChanged(state, port.getLink());
+	}
+	
+	/**
+	 * Notify the Simulator the specified Link has received new values.
+	 *
+	 * @param state The CircuitState in which the Link has received new values.
+	 * @param link  The Link that has received new values.
+	 */
+	public void valueChanged(CircuitState state, Link link) {
+		if (parallelStepping) {
+			StateGroup group = currentGroup.get();
+			if (group != null) {
+				if (group.state != state) {
+					group.deferred.add(() -> valueChanged(state, link));
+				} else if (state.markQueued(link)) {
+					group.queued.add(state, link);
+				}
+				return;
+			}
+		}
+		
+		lock();
+		try {
+			if (state.markQueued(link)) {
+				linksToUpdate.add(state, link);
+				if (linksToUpdate.size() > queueHighWaterMark) {
+					queueHighWaterMark = linksToUpdate.size();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes the Link from the processing queue of the given CircuitState. The queue entry itself is dropped at the
+	 * start of the next step.
+	 */
+	void linkRemoved(CircuitState state, Link link) {
+		runSync(() -> state.unmarkQueued(link));
+	}
+	
+	private final AtomicBoolean stepping = new AtomicBoolean(false);
+	
+	/**
+	 * Perform only a single propagation step. This is thread-safe.
+	 */
+	public void step() {
+		runSync(() -> {
+			if (stepping.get()) {
+				return;
+			}
+			
+			try {
+				stepping.set(true);
+				
+				// Only the links queued so far are processed in this step, any links queued while propagating are
+				// processed in the next step. Unmark them all first so that they may be queued again.
+				int count = linksToUpdate.size();
+				int propagated = count;
+				long fingerprint = count;
+				for (int i = 0; i < count; i++) {
+					CircuitState state = linksToUpdate.getState(i);
+					Link link = linksToUpdate.getLink(i);
+					// Removed links and duplicates left behind by linkRemoved are dropped
+					if (link.getCircuit() == null || !state.unmarkQueued(link)) {
+						linksToUpdate.drop(i);
+						propagated--;
+					} else if (fingerprintRounds) {
+						long hash = System.identityHashCode(state) * 31L + link.getId();
+						hash = hash * 31L + state.hashPushedValues(link);
+						fingerprint = mix(fingerprint * 31L + hash);
+					}
+				}
+				lastRoundFingerprint = fingerprint;
+				propagatedLinks += propagated;
+				stepCount++;
+				
+				RuntimeException lastException = null;
+				
+				try {
+					if (parallelism > 1 && !timed && journal == null && profiler == null &&
+					    count >= PARALLEL_THRESHOLD &&
+					    groupByState(count) > 1) {
+						lastException = propagateParallel();
+					} else {
+						for (int i = 0; i < count; i++) {
+							CircuitState state = linksToUpdate.getState(i);
+							Link link = linksToUpdate.getLink(i);
+							
+							// The Link or CircuitState may have been removed
+							if (link == null || link.getCircuit() == null || !state.getCircuit().containsState(state)) {
+								continue;
+							}
+							
+							try {
+								state.propagateSignal(link);
+							} catch (ShortCircuitException exc) {
+								lastShortCircuitedLinks.add(Map.entry(state, link));
+								shortCircuitRetries++;
+							} catch (RuntimeException exc) {
+								exc.printStackTrace();
+								lastException = exc;
+							}
+						}
+					}
+					
+					for (int i = 0; i < statesToEvaluate.size(); i++) {
+						try {
+							statesToEvaluate.get(i).evaluateDirty();
+						} catch (RuntimeException exc) {
+							lastException = exc;
+						}
+					}
+				} finally {
+					statesToEvaluate.clear();
+					linksToUpdate.removeFirst(count);
+				}
+				
+				if (lastException != null) {
+					throw lastException;
+				}
+				
+				// Only throw the ShortCircuitException if there's no more links to update, which means that links have
+				// reached a steady state
+				if (!lastShortCircuitedLinks.isEmpty() && linksToUpdate.isEmpty()) {
+					for (Map.Entry<CircuitState, Link> pair : lastShortCircuitedLinks) {
+						// Check if the link is still valid and if there's a short circuit
+						if (pair.getValue().getCircuit() != null && pair.getKey().isShortCircuited(pair.getValue())) {
+							// Cause a ShortCircuitException to be thrown
+							pair.getKey().getMergedValue(pair.getValue());
+						}
+					}
+					
+					// No exception was thrown, so there's no more short circuits
+					lastShortCircuitedLinks.clear();
+				}
+			} finally {
+				stepping.set(false);
+			}
+		});
+	}
+	
+	/**
+	 * Splits the first count entries of the queue into one group per CircuitState, in order of first appearance.
+	 *
+	 * @return The number of groups.
+	 */
+	private int groupByState(int count) {
+		stateGroupsByState.clear();
+		int groupCount = 0;
+		
+		for (int i = 0; i < count; i++) {
+			CircuitState state = linksToUpdate.getState(i);
+			Link link = linksToUpdate.getLink(i);
+			if (link == null) {
+				continue;
+			}
+			
+			StateGroup group = stateGroupsByState.get(state);
+			if (group == null) {
+				if (groupCount == stateGroups.size()) {
+					stateGroups.add(new StateGroup());
+				}
+				
+				group = stateGroups.get(groupCount++);
+				group.clear();
+				group.state = state;
+				stateGroupsByState.put(state, group);
+			}
+			
+			group.links.add(link);
+		}
+		
+		return groupCount;
+	}
+	
+	/**
+	 * Propagates the groups created by groupByState concurrently, then merges their results in group order.
+	 *
+	 * @return The last exception thrown while propagating, or null.
+	 */
+	private RuntimeException propagateParallel() {
+		int groupCount = stateGroupsByState.size();
+		
+		parallelStepping = true;
+		try {
+			pool.invoke(new PropagateTask(stateGroups, 0, groupCount));
+		} finally {
+			parallelStepping = false;
+		}
+		
+		RuntimeException lastException = null;
+		for (int i = 0; i < groupCount; i++) {
+			StateGroup group = stateGroups.get(i);
+			
+			for (int j = 0; j < group.queued.size(); j++) {
+				linksToUpdate.add(group.state, group.queued.getLink(j));
+			}
+			
+			for (Link link : group.shortCircuitedLinks) {
+				lastShortCircuitedLinks.add(Map.entry(group.state, link));
+			}
+			shortCircuitRetries += group.shortCircuitedLinks.size();
+			
+			if (group.lastException != null) {
+				lastException = group.lastException;
+			}
+		}
+		
+		if (linksToUpdate.size() > queueHighWaterMark) {
+			queueHighWaterMark = linksToUpdate.size();
+		}
+		
+		for (int i = 0; i < groupCount; i++) {
+			StateGroup group = stateGroups.get(i);
+			for (Runnable action : group.deferred) {
+				try {
+					action.run();
+				} catch (ShortCircuitException exc) {
+					// reported again once the pushed value is propagated
+				} catch (RuntimeException exc) {
+					exc.printStackTrace();
+					lastException = exc;
+				}
+			}
+			
+			group.clear();
+		}
+		
+		stateGroupsByState.clear();
+		
+		return lastException;
+	}
+	
+	/**
+	 * The links of a single CircuitState propagated in one step, and everything they produced.
+	 */
+	private static class StateGroup {
+		private CircuitState state;
+		private final List<Link> links = new ArrayList<>();
+		private final LinkQueue queued = new LinkQueue();
+		private final List<Runnable> deferred = new ArrayList<>();
+		private final List<Link> shortCircuitedLinks = new ArrayList<>();
+		private RuntimeException lastException;
+		private boolean evaluationNeeded;
+		
+		void propagate() {
+			// The CircuitState may have been removed
+			if (!state.getCircuit().containsState(state)) {
+				return;
+			}
+			
+			currentGroup.set(this);
+			try {
+				for (Link link : links) {
+					// The Link may have been removed
+					if (link.getCircuit() == null) {
+						continue;
+					}
+					
+					try {
+						state.propagateSignal(link);
+					} catch (ShortCircuitException exc) {
+						shortCircuitedLinks.add(link);
+					} catch (RuntimeException exc) {
+						exc.printStackTrace();
+						lastException = exc;
+					}
+				}
+				
+				if (evaluationNeeded) {
+					evaluationNeeded = false;
+					try {
+						state.evaluateDirty();
+					} catch (RuntimeException exc) {
+						lastException = exc;
+					}
+				}
+			} finally {
+				currentGroup.remove();
+			}
+		}
+		
+		void clear() {
+			state = null;
+			links.clear();
+			queued.clear();
+			deferred.clear();
+			shortCircuitedLinks.clear();
+			lastException = null;
+			evaluationNeeded = false;
+		}
+	}
+	
+	private static class PropagateTask extends RecursiveAction {
+		private static final int GROUPS_PER_TASK = 4;
+		
+		private final List<StateGroup> groups;
+		private final int from;
+		private final int to;
+		
+		PropagateTask(List<StateGroup> groups, int from, int to) {
+			this.groups = groups;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= GROUPS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					groups.get(i).propagate();
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new PropagateTask(groups, from, mid), new PropagateTask(groups, mid, to));
+			}
+		}
+	}
+	
+	/**
+	 * Continuously steps the simulation until no more propagation is needed. This is thread-safe.
+	 * <p>
+	 * Throws an OscillationException if more rounds than the oscillation threshold repeat a round seen within the
+	 * oscillation window, or if the oscillation timeout elapses.
+	 */
+	public void stepAll() {
+		runSync(() -> {
+			if (stepping.get()) {
+				return;
+			}
+			
+			roundHistoryCount = 0;
+			
+			// Only the settling of a clock tick is timed
+			boolean tick = tickStarted;
+			tickStarted = false;
+			
+			long startTime = oscillationTimeoutNanos > 0 || tick ? System.nanoTime() : 0;
+			int repeatCount = 0;
+			int steps = 0;
+			Set<Link> oscillatingLinks = null;
+			
+			RuntimeException lastException = null;
+			ShortCircuitException lastShortCircuit = null;
+			
+			SettleEvent settleEvent = new SettleEvent();
+			settleEvent.begin();
+			long linksBefore = propagatedLinks;
+			
+			boolean stepped = !linksToUpdate.isEmpty();
+			try {
+				while (!linksToUpdate.isEmpty()) {
+					if (oscillationTimeoutNanos > 0 && System.nanoTime() - startTime > oscillationTimeoutNanos) {
+						throw new OscillationException(getPendingLinks(oscillatingLinks));
+					}
+					
+					try {
+						fingerprintRounds = true;
+						steps++;
+						step();
+					} catch (ShortCircuitException exc) {
+						// ignore until all updates are done
+						lastShortCircuit = exc;
+					} catch (RuntimeException exc) {
+						// ignore until all updates are done
+						lastException = exc;
+					} finally {
+						fingerprintRounds = false;
+					}
+					
+					if (roundSeen(lastRoundFingerprint)) {
+						// Keep track of the links that are part of the cycle, only once it looks like one
+						oscillatingLinks = getPendingLinks(oscillatingLinks);
+						
+						// since short circuits are retried, it looks like they're oscillating
+						if (++repeatCount == oscillationThreshold) {
+							throw new OscillationException(oscillatingLinks);
+						}
+					}
+				}
+			} finally {
+				settleEvent.end();
+				if (stepped && settleEvent.shouldCommit()) {
+					settleEvent.rounds = steps;
+					settleEvent.linksPropagated = propagatedLinks - linksBefore;
+					settleEvent.clockTick = tick;
+					settleEvent.settled = linksToUpdate.isEmpty() && lastException == null && lastShortCircuit == null;
+					settleEvent.commit();
+				}
+				
+				ClockTickEvent tickEvent = this.tickEvent;
+				if (tick && tickEvent != null) {
+					this.tickEvent = null;
+					tickEvent.end();
+					if (tickEvent.shouldCommit()) {
+						tickEvent.tick = tickCount;
+						tickEvent.rounds = steps;
+						tickEvent.linksPropagated = propagatedLinks - linksBefore;
+						tickEvent.commit();
+					}
+				}
+			}
+			
+			if (stepped) {
+				settleCount++;
+				if (steps > maxSettleSteps) {
+					maxSettleSteps = steps;
+				}
+			}
+			if (tick) {
+				lastTickSettleNanos = System.nanoTime() - startTime;
+				tickSettleNanos += lastTickSettleNanos;
+				tickCount++;
+			}
+			
+			if (stepped) {
+				for (SettleListener listener : settleListeners) {
+					listener.settled(this);
+				}
+			}
+			
+			if (lastException != null) {
+				throw lastException;
+			}
+			if (lastShortCircuit != null) {
+				throw lastShortCircuit;
+			}
+		});
+	}
+	
+	/**
+	 * Adds a listener notified at the end of every stepAll() that propagated anything, once the Circuits settled and
+	 * before any exception of the propagation is rethrown. Listeners are called while holding the lock.
+	 */
+	public void addSettleListener(SettleListener listener) {
+		settleListeners.add(listener);
+	}
+	
+	public void removeSettleListener(SettleListener listener) {
+		settleListeners.remove(listener);
+	}
+	
+	public interface SettleListener {
+		void settled(Simulator simulator);
+	}
+	
+	/**
+	 * Checks whether the fingerprint is in the round history, then adds it, evicting the oldest round if full.
+	 */
+	private boolean roundSeen(long fingerprint) {
+		int window = roundHistory.length;
+		int size = Math.min(roundHistoryCount, window);
+		
+		boolean seen = false;
+		for (int i = 0; i < size; i++) {
+			if (roundHistory[i] == fingerprint) {
+				seen = true;
+				break;
+			}
+		}
+		
+		roundHistory[roundHistoryCount % window] = fingerprint;
+		roundHistoryCount++;
+		if (roundHistoryCount == 2 * window) {
+			roundHistoryCount = window;
+		}
+		
+		return seen;
+	}
+	
+	private Set<Link> getPendingLinks(Set<Link> links) {
+		if (links == null) {
+			links = new LinkedHashSet<>();
+		}
+		
+		for (int i = 0; i < linksToUpdate.size(); i++) {
+			CircuitState state = linksToUpdate.getState(i);
+			Link link = linksToUpdate.getLink(i);
+			if (link != null && state.isQueued(link)) {
+				links.add(link);
+			}
+		}
+		
+		return links;
+	}
+	
+	/**
+	 * Finalizer of the 64-bit MurmurHash3, spreads the bits of the rolling round fingerprint.
+	 */
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+	
+	/**
+	 * A FIFO ring buffer of (state, link) pairs. Deduplication is done by the CircuitStates, which keep a queued mark
+	 * for each of their Links, so adding and removing entries never hashes nor allocates.
+	 */
+	private static class LinkQueue {
+		private CircuitState[] states = new CircuitState[64];
+		private Link[] links = new Link[64];
+		private int head;
+		private int size;
+		
+		int size() {
+			return size;
+		}
+		
+		boolean isEmpty() {
+			return size == 0;
+		}
+		
+		void add(CircuitState state, Link link) {
+			if (size == links.length) {
+				grow();
+			}
+			
+			int index = (head + size) & (links.length - 1);
+			states[index] = state;
+			links[index] = link;
+			size++;
+		}
+		
+		/**
+		 * @param i The index relative to the front of the queue.
+		 */
+		CircuitState getState(int i) {
+			return states[(head + i) & (links.length - 1)];
+		}
+		
+		/**
+		 * @param i The index relative to the front of the queue.
+		 * @return The link, or null if the entry was dropped.
+		 */
+		Link getLink(int i) {
+			return links[(head + i) & (links.length - 1)];
+		}
+		
+		/**
+		 * Clears the entry in place, it remains counted in size() until removed from the front.
+		 */
+		void drop(int i) {
+			int index = (head + i) & (links.length - 1);
+			states[index] = null;
+			links[index] = null;
+		}
+		
+		void removeFirst(int count) {
+			for (int i = 0; i < count; i++) {
+				drop(i);
+			}
+			
+			head = (head + count) & (links.length - 1);
+			size -= count;
+		}
+		
+		void clear() {
+			Arrays.fill(states, null);
+			Arrays.fill(links, null);
+			head = size = 0;
+		}
+		
+		private void grow() {
+			CircuitState[] newStates = new CircuitState[states.length * 2];
+			Link[] newLinks = new Link[links.length * 2];
+			for (int i = 0; i < size; i++) {
+				newStates[i] = getState(i);
+				newLinks[i] = getLink(i);
+			}
+			
+			states = newStates;
+			links = newLinks;
+			head = 0;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package com.ra4king.circuitsim.simulator;
+
+/**
+ * A snapshot of the counters of a Simulator, see {@link Simulator#getMetrics()}. The counters only ever grow until
+ * reset, so the difference of two snapshots, see {@link #since}, gives the activity in between, such as over the last
+ * second. A design that settles in many steps, short circuits repeatedly or keeps the GUI waiting on the lock shows
+ * up here well before it becomes an OscillationException.
+ *
+ * @author Roi Atalla
+ */
+public final class SimulatorMetrics {
+	private final long steps;
+	private final long settles;
+	private final int maxStepsPerSettle;
+	private final long propagatedLinks;
+	private final long componentEvaluations;
+	private final int queueHighWaterMark;
+	private final long shortCircuitRetries;
+	private final long lockWaitNanos;
+	private final long ticks;
+	private final long tickSettleNanos;
+	private final long lastTickSettleNanos;
+	
+	SimulatorMetrics(long steps,
+	                 long settles,
+	                 int maxStepsPerSettle,
+	                 long propagatedLinks,
+	                 long componentEvaluations,
+	                 int queueHighWaterMark,
+	                 long shortCircuitRetries,
+	                 long lockWaitNanos,
+	                 long ticks,
+	                 long tickSettleNanos,
+	                 long lastTickSettleNanos) {
+		this.steps = steps;
+		this.settles = settles;
+		this.maxStepsPerSettle = maxStepsPerSettle;
+		this.propagatedLinks = propagatedLinks;
+		this.componentEvaluations = componentEvaluations;
+		this.queueHighWaterMark = queueHighWaterMark;
+		this.shortCircuitRetries = shortCircuitRetries;
+		this.lockWaitNanos = lockWaitNanos;
+		this.ticks = ticks;
+		this.tickSettleNanos = tickSettleNanos;
+		this.lastTickSettleNanos = lastTickSettleNanos;
+	}
+	
+	/**
+	 * @return The counters accumulated since the earlier snapshot of the same Simulator. The maximums and the last
+	 * tick are those of this snapshot.
+	 */
+	public SimulatorMetrics since(SimulatorMetrics earlier) {
+		return new SimulatorMetrics(steps - earlier.steps,
+		                            settles - earlier.settles,
+		                            maxStepsPerSettle,
+		                            propagatedLinks - earlier.propagatedLinks,
+		                            componentEvaluations - earlier.componentEvaluations,
+		                            queueHighWaterMark,
+		                            shortCircuitRetries - earlier.shortCircuitRetries,
+		                            lockWaitNanos - earlier.lockWaitNanos,
+		                            ticks - earlier.ticks,
+		                            tickSettleNanos - earlier.tickSettleNanos,
+		                            lastTickSettleNanos);
+	}
+	
+	/**
+	 * @return The number of propagation steps, whether by stepAll() or step().
+	 */
+	public long getSteps() {
+		return steps;
+	}
+	
+	/**
+	 * @return The number of stepAll() calls that propagated anything.
+	 */
+	public long getSettles() {
+		return settles;
+	}
+	
+	public double getStepsPerSettle() {
+		return settles == 0 ? 0 : (double)steps / settles;
+	}
+	
+	/**
+	 * @return The most steps a single stepAll() took to settle.
+	 */
+	public int getMaxStepsPerSettle() {
+		return maxStepsPerSettle;
+	}
+	
+	/**
+	 * @return The number of Link updates propagated, see {@link Simulator#getPropagatedLinkCount()}.
+	 */
+	public long getPropagatedLinks() {
+		return propagatedLinks;
+	}
+	
+	/**
+	 * @return The number of times a Component was notified of a new value, or evaluated if levelized.
+	 */
+	public long getComponentEvaluations() {
+		return componentEvaluations;
+	}
+	
+	/**
+	 * @return The most Links that were ever waiting to be propagated at once.
+	 */
+	public int getQueueHighWaterMark() {
+		return queueHighWaterMark;
+	}
+	
+	/**
+	 * @return The number of Links found short circuited while propagating, which are propagated again until the
+	 * Simulator settles.
+	 */
+	public long getShortCircuitRetries() {
+		return shortCircuitRetries;
+	}
+	
+	/**
+	 * @return The total time threads spent waiting for the lock of the Simulator while another thread held it.
+	 */
+	public long getLockWaitNanos() {
+		return lockWaitNanos;
+	}
+	
+	/**
+	 * @return The number of clock ticks settled.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * @return The total time spent settling after clock ticks.
+	 */
+	public long getTickSettleNanos() {
+		return tickSettleNanos;
+	}
+	
+	public long getAverageTickSettleNanos() {
+		return ticks == 0 ? 0 : tickSettleNanos / ticks;
+	}
+	
+	/**
+	 * @return The time spent settling after the last clock tick.
+	 */
+	public long getLastTickSettleNanos() {
+		return lastTickSettleNanos;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%d settles, %.1f steps/settle (max %d), %d links, %d evaluations, queue max %d, " +
+		                     "%d short circuit retries, %.3f ms lock wait, %d ticks settled in %.3f ms on average",
+		                     settles,
+		                     getStepsPerSettle(),
+		                     maxStepsPerSettle,
+		                     propagatedLinks,
+		                     componentEvaluations,
+		                     queueHighWaterMark,
+		                     shortCircuitRetries,
+		                     lockWaitNanos / 1e6,
+		                     ticks,
+		                     getAverageTickSettleNanos() / 1e6);
+	}
+}
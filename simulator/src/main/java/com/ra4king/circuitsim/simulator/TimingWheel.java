@@ -0,0 +1,250 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.Arrays;
+
+/**
+ * A hierarchical timing wheel of values pushed by Ports, keyed by simulated time, for the timed mode of the Simulator.
+ * <p>
+ * Times are split into LEVELS digits of SLOT_BITS bits each. An event lives in the level of the highest digit in which
+ * its time differs from the current time, in the slot of that digit, so scheduling is constant time no matter how far
+ * ahead the event is. Advancing to a slot of a higher level cascades its events down into the lower levels. Events are
+ * kept in pooled arrays, and each slot is a FIFO list so events due at the same time fire in scheduling order.
+ *
+ * @author Roi Atalla
+ */
+class TimingWheel {
+	private static final int SLOT_BITS = 8;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int LEVELS = Long.SIZE / SLOT_BITS;
+	private static final int NONE = -1;
+	
+	/**
+	 * Receives the events due at the current time.
+	 */
+	interface EventConsumer {
+		void accept(CircuitState state, Port port, long value, long defined);
+	}
+	
+	private long now;
+	private int size;
+	
+	// The head and tail event of every slot, by level * SLOTS + slot
+	private final int[] heads = new int[LEVELS * SLOTS];
+	private final int[] tails = new int[LEVELS * SLOTS];
+	
+	// Which slots are not empty, SLOTS bits per level
+	private final long[] occupied = new long[LEVELS * SLOTS / Long.SIZE];
+	
+	// The pool of events, linked through next, either in a slot or in the free list
+	private CircuitState[] states = new CircuitState[64];
+	private Port[] ports = new Port[64];
+	private long[] values = new long[64];
+	private long[] defineds = new long[64];
+	private long[] times = new long[64];
+	private int[] next = new int[64];
+	private int free = NONE;
+	private int allocated;
+	
+	TimingWheel() {
+		Arrays.fill(heads, NONE);
+		Arrays.fill(tails, NONE);
+	}
+	
+	/**
+	 * @return The time of the last events fired, or the time the wheel advanced to.
+	 */
+	long getTime() {
+		return now;
+	}
+	
+	/**
+	 * @return The number of pending events.
+	 */
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Schedules the value pushed by the Port to be applied at the given time, which may not be before the current time.
+	 */
+	void schedule(long time, CircuitState state, Port port, long value, long defined) {
+		if (time < now) {
+			throw new IllegalArgumentException("Cannot schedule an event in the past.");
+		}
+		
+		int event = allocate();
+		states[event] = state;
+		ports[event] = port;
+		values[event] = value;
+		defineds[event] = defined;
+		times[event] = time;
+		insert(event);
+		size++;
+	}
+	
+	/**
+	 * Moves the current time to the earliest pending event, unless it is after the limit.
+	 *
+	 * @return The time of the earliest event, or -1 if there is none up to the limit.
+	 */
+	long advance(long limit) {
+		while (size > 0) {
+			int slot = findSlot(0, (int)(now & (SLOTS - 1)));
+			if (slot != NONE) {
+				long time = (now & ~(long)(SLOTS - 1)) | slot;
+				if (time > limit) {
+					return -1;
+				}
+				
+				now = time;
+				return time;
+			}
+			
+			// The earliest events are in the first slot after the current digit, in the lowest level that has one
+			int level = 1;
+			for (; level < LEVELS; level++) {
+				int shift = level * SLOT_BITS;
+				slot = findSlot(level, (int)((now >>> shift) & (SLOTS - 1)) + 1);
+				if (slot != NONE) {
+					break;
+				}
+			}
+			
+			if (level == LEVELS) {
+				throw new IllegalStateException("Pending events were not found in the wheel.");
+			}
+			
+			int shift = level * SLOT_BITS;
+			long high = shift + SLOT_BITS == Long.SIZE ? 0 : now >>> (shift + SLOT_BITS) << (shift + SLOT_BITS);
+			long start = high | ((long)slot << shift);
+			if (start > limit) {
+				return -1;
+			}
+			
+			now = start;
+			cascade(level, slot);
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Removes the events due at the current time and hands them to the consumer in scheduling order. Events scheduled
+	 * by the consumer are due later and are not fired.
+	 */
+	void fire(EventConsumer consumer) {
+		int index = (int)(now & (SLOTS - 1));
+		int event = detach(index);
+		
+		while (event != NONE) {
+			int following = next[event];
+			CircuitState state = states[event];
+			Port port = ports[event];
+			long value = values[event];
+			long defined = defineds[event];
+			release(event);
+			size--;
+			
+			consumer.accept(state, port, value, defined);
+			event = following;
+		}
+	}
+	
+	/**
+	 * Removes all pending events and rewinds the time to 0.
+	 */
+	void clear() {
+		Arrays.fill(heads, NONE);
+		Arrays.fill(tails, NONE);
+		Arrays.fill(occupied, 0);
+		Arrays.fill(states, null);
+		Arrays.fill(ports, null);
+		free = NONE;
+		allocated = 0;
+		size = 0;
+		now = 0;
+	}
+	
+	private void insert(int event) {
+		long time = times[event];
+		int level = time == now ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(time ^ now)) / SLOT_BITS;
+		int index = level * SLOTS + (int)((time >>> (level * SLOT_BITS)) & (SLOTS - 1));
+		
+		next[event] = NONE;
+		if (heads[index] == NONE) {
+			heads[index] = event;
+			occupied[index / Long.SIZE] |= 1L << index;
+		} else {
+			next[tails[index]] = event;
+		}
+		tails[index] = event;
+	}
+	
+	/**
+	 * Moves the events of the slot into the lower levels, relative to the new current time, keeping their order.
+	 */
+	private void cascade(int level, int slot) {
+		int event = detach(level * SLOTS + slot);
+		while (event != NONE) {
+			int following = next[event];
+			insert(event);
+			event = following;
+		}
+	}
+	
+	/**
+	 * Empties the slot.
+	 *
+	 * @return The first event that was in the slot, or NONE.
+	 */
+	private int detach(int index) {
+		int head = heads[index];
+		heads[index] = NONE;
+		tails[index] = NONE;
+		occupied[index / Long.SIZE] &= ~(1L << index);
+		return head;
+	}
+	
+	/**
+	 * @return The first non-empty slot of the level at or after the given slot, or NONE.
+	 */
+	private int findSlot(int level, int from) {
+		for (int slot = from; slot < SLOTS; ) {
+			int index = level * SLOTS + slot;
+			long bits = occupied[index / Long.SIZE] >>> (index % Long.SIZE);
+			if (bits != 0) {
+				return slot + Long.numberOfTrailingZeros(bits);
+			}
+			slot += Long.SIZE - index % Long.SIZE;
+		}
+		
+		return NONE;
+	}
+	
+	private int allocate() {
+		if (free != NONE) {
+			int event = free;
+			free = next[event];
+			return event;
+		}
+		
+		if (allocated == states.length) {
+			int capacity = allocated * 2;
+			states = Arrays.copyOf(states, capacity);
+			ports = Arrays.copyOf(ports, capacity);
+			values = Arrays.copyOf(values, capacity);
+			defineds = Arrays.copyOf(defineds, capacity);
+			times = Arrays.copyOf(times, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		
+		return allocated++;
+	}
+	
+	private void release(int event) {
+		states[event] = null;
+		ports[event] = null;
+		next[event] = free;
+		free = event;
+	}
+}
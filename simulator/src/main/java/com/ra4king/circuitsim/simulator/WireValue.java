@@ -0,0 +1,273 @@
+package com.ra4king.circuitsim.simulator;
+
+import java.util.Objects;
+
+/**
+ * A value on a wire of up to {@link #MAX_BIT_SIZE} bits.
+ * <p>
+ * The bits are packed into two masks: {@code defined} has a 1 for every bit that is either ONE or ZERO and a 0 for
+ * every bit that is X, and {@code value} has a 1 for every bit that is ONE. Bits that are X always have a 0 in
+ * {@code value}, and bits at or above the bit size are always 0 in both masks, so two values are equal exactly when
+ * both masks are equal.
+ *
+ * @author Roi Atalla
+ */
+public class WireValue {
+	public enum State {
+		ONE('1'), ZERO('0'), X('x');
+		
+		public final char repr;
+		
+		State(char c) {
+			repr = c;
+		}
+		
+		public State negate() {
+			return this == X ? X : this == ONE ? ZERO : ONE;
+		}
+	}
+	
+	public static final int MAX_BIT_SIZE = Long.SIZE;
+	
+	private int bitSize;
+	private long value;
+	private long defined;
+	
+	public WireValue(int bitSize) {
+		this(bitSize, State.X);
+	}
+	
+	public WireValue(int bitSize, State state) {
+		this.bitSize = checkBitSize(bitSize);
+		setAllBits(state);
+	}
+	
+	public WireValue(State... states) {
+		this.bitSize = checkBitSize(states.length);
+		for (int i = 0; i < states.length; i++) {
+			setBit(i, states[i]);
+		}
+	}
+	
+	public WireValue(WireValue value) {
+		this.bitSize = value.bitSize;
+		this.value = value.value;
+		this.defined = value.defined;
+	}
+	
+	/**
+	 * Creates a value directly from its packed masks, see {@link #getValueBits()} and {@link #getDefinedBits()}.
+	 */
+	WireValue(int bitSize, long value, long defined) {
+		this.bitSize = checkBitSize(bitSize);
+		this.defined = defined & mask(bitSize);
+		this.value = value & this.defined;
+	}
+	
+	public WireValue(WireValue value, int newSize) {
+		this.bitSize = checkBitSize(newSize);
+		
+		// Any bits added beyond the old size are ZERO
+		this.value = value.value & mask(newSize);
+		this.defined = (value.defined | ~mask(value.bitSize)) & mask(newSize);
+	}
+	
+	private static int checkBitSize(int bitSize) {
+		if (bitSize < 0 || bitSize > MAX_BIT_SIZE) {
+			throw new IllegalArgumentException("Bit size must be between 0 and " + MAX_BIT_SIZE + ", found " + bitSize);
+		}
+		
+		return bitSize;
+	}
+	
+	/**
+	 * @return A mask with the lowest {@code bitSize} bits set.
+	 */
+	static long mask(int bitSize) {
+		return bitSize == Long.SIZE ? -1L : (1L << bitSize) - 1;
+	}
+	
+	public WireValue merge(WireValue value) {
+		if (value.getBitSize() != this.getBitSize()) {
+			throw new IllegalArgumentException(
+				"Different size wires detected: wanted " + this.getBitSize() + ", found " + value.getBitSize());
+		}
+		
+		if (conflicts(value)) {
+			throw new ShortCircuitException(this, value);
+		}
+		
+		this.value |= value.value;
+		this.defined |= value.defined;
+		
+		return this;
+	}
+	
+	/**
+	 * Checks whether merging this value with the given value would cause a short circuit, without throwing.
+	 *
+	 * @param value The value to check against, must be the same bit size.
+	 * @return true if some bit is ONE in one value and ZERO in the other.
+	 */
+	public boolean conflicts(WireValue value) {
+		return ((this.value ^ value.value) & this.defined & value.defined) != 0;
+	}
+	
+	public static WireValue of(long value, int bitSize) {
+		return new WireValue(bitSize).set(value);
+	}
+	
+	public void setAllBits(State state) {
+		long mask = mask(bitSize);
+		value = state == State.ONE ? mask : 0;
+		defined = state == State.X ? 0 : mask;
+	}
+	
+	public int getBitSize() {
+		return bitSize;
+	}
+	
+	public void setBitSize(int bitSize) {
+		checkBitSize(bitSize);
+		
+		this.bitSize = bitSize;
+		value &= mask(bitSize);
+		defined &= mask(bitSize);
+	}
+	
+	public State getBit(int index) {
+		long bit = 1L << Objects.checkIndex(index, bitSize);
+		if ((defined & bit) == 0) {
+			return State.X;
+		}
+		
+		return (value & bit) == 0 ? State.ZERO : State.ONE;
+	}
+	
+	public void setBit(int index, State state) {
+		long bit = 1L << Objects.checkIndex(index, bitSize);
+		switch (state) {
+			case ONE:
+				value |= bit;
+				defined |= bit;
+				break;
+			case ZERO:
+				value &= ~bit;
+				defined |= bit;
+				break;
+			case X:
+				value &= ~bit;
+				defined &= ~bit;
+				break;
+		}
+	}
+	
+	public WireValue set(WireValue other) {
+		if (other.getBitSize() != getBitSize()) {
+			throw new IllegalArgumentException(
+				"Cannot set wire of different size bits. Wanted: " + bitSize + ", Found: " + other.bitSize);
+		}
+		
+		value = other.value;
+		defined = other.defined;
+		return this;
+	}
+	
+	public WireValue set(long value) {
+		long mask = mask(bitSize);
+		this.value = value & mask;
+		this.defined = mask;
+		return this;
+	}
+	
+	public WireValue slice(int offset, int length) {
+		if (offset <= 0 || offset + length > bitSize) {
+			throw new IllegalArgumentException("Incorrect offset and length: " + offset + ", " + length);
+		}
+		
+		WireValue slice = new WireValue(length);
+		slice.value = (value >>> offset) & mask(length);
+		slice.defined = (defined >>> offset) & mask(length);
+		return slice;
+	}
+	
+	public boolean isValidValue() {
+		return bitSize != 0 && defined == mask(bitSize);
+	}
+	
+	public int getValue() {
+		if (defined != mask(bitSize)) {
+			throw new IllegalStateException("Invalid value");
+		}
+		
+		return (int)value;
+	}
+	
+	/**
+	 * @return A mask with a 1 for every bit that is ONE. Bits that are X are 0.
+	 */
+	public long getValueBits() {
+		return value;
+	}
+	
+	/**
+	 * @return A mask with a 1 for every bit that is not X.
+	 */
+	public long getDefinedBits() {
+		return defined;
+	}
+	
+	/**
+	 * Converts the value held on this wire to a hex string.
+	 *
+	 * @return a lowercase hex string if all bits are defined, otherwise
+	 * getBitSize() 'x's
+	 */
+	public String toHexString() {
+		int hexDigits = 1 + (getBitSize() - 1) / 4;
+		if (isValidValue()) {
+			return String.format("%0" + hexDigits + "x", getValue());
+		} else {
+			return "x".repeat(Math.max(0, hexDigits));
+		}
+	}
+	
+	/**
+	 * Converts the value held on this wire to a decimal string.
+	 *
+	 * @return a decimal string if all bits are defined, otherwise
+	 * getBitSize() 'x's
+	 */
+	public String toDecString() {
+		int decDigits = (int)Math.ceil(getBitSize() / 3.322);
+		if (isValidValue()) {
+			return String.format("%0" + decDigits + "d", getValue());
+		} else {
+			return "x".repeat(Math.max(0, decDigits));
+		}
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (other instanceof WireValue) {
+			WireValue value = (WireValue)other;
+			return value.bitSize == this.bitSize && value.value == this.value && value.defined == this.defined;
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(bitSize, value, defined);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = this.getBitSize() - 1; i >= 0; i--) {
+			builder.append(this.getBit(i).repr);
+		}
+		return builder.toString();
+	}
+}
@@ -28,6 +28,7 @@ public class Subcircuit extends Component {
 	
 	private Subcircuit(String name, Circuit subcircuit, List<Pin> pins) {
 		super(name, setupPortBits(pins));
+		setPropagationDelay(0);
 		
 		this.subcircuit = subcircuit;
 		this.pins = pins;
@@ -91,7 +92,7 @@ public class Subcircuit extends Component {
 			if (!pin.isInput()) {
 				Port port = getPort(i);
 				
-				PinChangeListener listener = (p, state, value) -> circuitState.pushValue(port, value);
+				PinChangeListener listener = (p, state, value) -> circuitState.relayValue(port, value);
 				pin.addChangeListener(subcircuitState, listener);
 				
 				listeners.put(pin, listener);
@@ -144,7 +145,7 @@ public class Subcircuit extends Component {
 		Pin pin = pins.get(portIndex);
 		// Sometimes we get updates for pins that were just removed
 		if (pin.isInput() && pin.getCircuit() != null) {
-			subcircuitState.pushValue(pin.getPort(0), value);
+			subcircuitState.relayValue(pin.getPort(0), value);
 		}
 	}
 }
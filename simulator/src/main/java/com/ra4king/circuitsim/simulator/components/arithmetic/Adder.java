@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.simulator.components.arithmetic;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.WireValue;
 import com.ra4king.circuitsim.simulator.WireValue.State;
@@ -8,7 +9,7 @@ import com.ra4king.circuitsim.simulator.WireValue.State;
 /**
  * @author Roi Atalla
  */
-public class Adder extends Component {
+public class Adder extends Component implements CombinationalComponent {
 	public static final int PORT_A = 0;
 	public static final int PORT_B = 1;
 	public static final int PORT_CARRY_IN = 2;
@@ -26,6 +27,34 @@ public class Adder extends Component {
 		return bitSize;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == PORT_OUT || portIndex == PORT_CARRY_OUT;
+	}
+	
+	@Override
+	public Evaluator compile() {
+		long mask = bitSize == Long.SIZE ? -1L : (1L << bitSize) - 1;
+		
+		return (inputs, outputs) -> {
+			if (inputs[2 * PORT_A + 1] == mask && inputs[2 * PORT_B + 1] == mask) {
+				long a = inputs[2 * PORT_A];
+				long b = inputs[2 * PORT_B];
+				long sum = a + b + (inputs[2 * PORT_CARRY_IN] & 1);
+				
+				// The carry into each bit, shifted past the top bit
+				long carries = (a & b) | ((a | b) & ~sum);
+				
+				outputs[0] = sum;
+				outputs[1] = mask;
+				outputs[2] = carries >>> (bitSize - 1);
+				outputs[3] = 1;
+			} else {
+				outputs[0] = outputs[1] = outputs[2] = outputs[3] = 0;
+			}
+		};
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		if (portIndex == PORT_OUT || portIndex == PORT_CARRY_OUT) {
@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.simulator.components.arithmetic;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.WireValue;
 import com.ra4king.circuitsim.simulator.WireValue.State;
@@ -8,7 +9,7 @@ import com.ra4king.circuitsim.simulator.WireValue.State;
 /**
  * @author Roi Atalla
  */
-public class BitExtender extends Component {
+public class BitExtender extends Component implements CombinationalComponent {
 	public static final int PORT_IN = 0;
 	public static final int PORT_OUT = 1;
 	
@@ -40,6 +41,31 @@ public class BitExtender extends Component {
 		return extensionType;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == PORT_OUT;
+	}
+	
+	@Override
+	public Evaluator compile() {
+		long inputMask = inputBitSize == Long.SIZE ? -1L : (1L << inputBitSize) - 1;
+		long extensionMask = ~inputMask;
+		long signBit = 1L << (inputBitSize - 1);
+		
+		return (inputs, outputs) -> {
+			long value = inputs[0];
+			long defined = inputs[1] | extensionMask;
+			
+			if (extensionType == ExtensionType.ONE ||
+			    (extensionType == ExtensionType.SIGN && (value & defined & signBit) != 0)) {
+				value |= extensionMask;
+			}
+			
+			outputs[0] = value;
+			outputs[1] = defined;
+		};
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		if (portIndex == PORT_IN) {
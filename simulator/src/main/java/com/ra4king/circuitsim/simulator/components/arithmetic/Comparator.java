@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.simulator.components.arithmetic;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.WireValue;
 import com.ra4king.circuitsim.simulator.WireValue.State;
@@ -8,7 +9,7 @@ import com.ra4king.circuitsim.simulator.WireValue.State;
 /**
  * @author Roi Atalla
  */
-public class Comparator extends Component {
+public class Comparator extends Component implements CombinationalComponent {
 	public static final int PORT_A = 0;
 	public static final int PORT_B = 1;
 	public static final int PORT_LT = 2;
@@ -25,6 +26,11 @@ public class Comparator extends Component {
 		this.useSignedCompare = useSignedCompare;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == PORT_LT || portIndex == PORT_EQ || portIndex == PORT_GT;
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		WireValue inputA = state.getLastReceived(getPort(PORT_A));
@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.simulator.components.arithmetic;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.Utils;
 import com.ra4king.circuitsim.simulator.WireValue;
@@ -8,7 +9,7 @@ import com.ra4king.circuitsim.simulator.WireValue;
 /**
  * @author Roi Atalla
  */
-public class Divider extends Component {
+public class Divider extends Component implements CombinationalComponent {
 	public static final int PORT_DIVIDEND = 0;
 	public static final int PORT_DIVISOR = 1;
 	public static final int PORT_QUOTIENT = 2;
@@ -25,6 +26,11 @@ public class Divider extends Component {
 		return bitSize;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == PORT_QUOTIENT || portIndex == PORT_REMAINDER;
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		if (portIndex == PORT_QUOTIENT || portIndex == PORT_REMAINDER) {
@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.simulator.components.arithmetic;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.Utils;
 import com.ra4king.circuitsim.simulator.WireValue;
@@ -8,7 +9,7 @@ import com.ra4king.circuitsim.simulator.WireValue;
 /**
  * @author Roi Atalla
  */
-public class Multiplier extends Component {
+public class Multiplier extends Component implements CombinationalComponent {
 	public static final int PORT_A = 0;
 	public static final int PORT_B = 1;
 	public static final int PORT_CARRY_IN = 2;
@@ -26,6 +27,11 @@ public class Multiplier extends Component {
 		return bitSize;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == PORT_OUT_LOWER || portIndex == PORT_OUT_UPPER;
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		if (portIndex == PORT_OUT_LOWER || portIndex == PORT_OUT_UPPER) {
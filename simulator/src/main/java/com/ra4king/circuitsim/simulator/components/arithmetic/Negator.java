@@ -1,13 +1,14 @@
 package com.ra4king.circuitsim.simulator.components.arithmetic;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.WireValue;
 
 /**
  * @author Roi Atalla
  */
-public class Negator extends Component {
+public class Negator extends Component implements CombinationalComponent {
 	public static final int PORT_IN = 0;
 	public static final int PORT_OUT = 1;
 	
@@ -19,6 +20,26 @@ public class Negator extends Component {
 		xValue = new WireValue(bitSize);
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == PORT_OUT;
+	}
+	
+	@Override
+	public Evaluator compile() {
+		int bitSize = xValue.getBitSize();
+		long mask = bitSize == Long.SIZE ? -1L : (1L << bitSize) - 1;
+		
+		return (inputs, outputs) -> {
+			if (inputs[1] == mask) {
+				outputs[0] = -(int)inputs[0];
+				outputs[1] = mask;
+			} else {
+				outputs[0] = outputs[1] = 0;
+			}
+		};
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		if (portIndex == PORT_OUT) {
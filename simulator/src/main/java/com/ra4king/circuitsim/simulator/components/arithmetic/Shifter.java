@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.simulator.components.arithmetic;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.WireValue;
 import com.ra4king.circuitsim.simulator.WireValue.State;
@@ -8,7 +9,7 @@ import com.ra4king.circuitsim.simulator.WireValue.State;
 /**
  * @author Roi Atalla
  */
-public class Shifter extends Component {
+public class Shifter extends Component implements CombinationalComponent {
 	public static final int PORT_IN = 0;
 	public static final int PORT_SHIFT = 1;
 	public static final int PORT_OUT = 2;
@@ -31,6 +32,11 @@ public class Shifter extends Component {
 		return Math.max(1, (int)Math.ceil(Math.log(bitSize) / Math.log(2)));
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == PORT_OUT;
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		if (portIndex == PORT_OUT) {
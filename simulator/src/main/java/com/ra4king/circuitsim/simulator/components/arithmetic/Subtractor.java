@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.simulator.components.arithmetic;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.WireValue;
 import com.ra4king.circuitsim.simulator.WireValue.State;
@@ -8,7 +9,7 @@ import com.ra4king.circuitsim.simulator.WireValue.State;
 /**
  * @author Roi Atalla
  */
-public class Subtractor extends Component {
+public class Subtractor extends Component implements CombinationalComponent {
 	public static final int PORT_A = 0;
 	public static final int PORT_B = 1;
 	public static final int PORT_CARRY_IN = 2;
@@ -26,6 +27,31 @@ public class Subtractor extends Component {
 		return bitSize;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == PORT_OUT || portIndex == PORT_CARRY_OUT;
+	}
+	
+	@Override
+	public Evaluator compile() {
+		long mask = bitSize == Long.SIZE ? -1L : (1L << bitSize) - 1;
+		
+		return (inputs, outputs) -> {
+			if (inputs[2 * PORT_A + 1] == mask && inputs[2 * PORT_B + 1] == mask) {
+				int a = (int)inputs[2 * PORT_A];
+				int b = (int)inputs[2 * PORT_B];
+				int difference = a - b - (int)(inputs[2 * PORT_CARRY_IN] & 1);
+				
+				outputs[0] = difference;
+				outputs[1] = -1L;
+				outputs[2] = difference < 0 ? 1 : 0;
+				outputs[3] = 1;
+			} else {
+				outputs[0] = outputs[1] = outputs[2] = outputs[3] = 0;
+			}
+		};
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		if (portIndex == PORT_OUT || portIndex == PORT_CARRY_OUT) {
@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.simulator.components.gates;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.Port;
 import com.ra4king.circuitsim.simulator.Utils;
@@ -10,7 +11,7 @@ import com.ra4king.circuitsim.simulator.WireValue.State;
 /**
  * @author Roi Atalla
  */
-public abstract class Gate extends Component {
+public abstract class Gate extends Component implements CombinationalComponent {
 	private final int bitSize;
 	private final int numInputs;
 	private final boolean[] negateInputs;
@@ -57,6 +58,11 @@ public abstract class Gate extends Component {
 		return negateOutput;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == numInputs;
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		if (portIndex == numInputs) {
@@ -93,7 +99,63 @@ public abstract class Gate extends Component {
 		state.pushValue(getOutPort(), result);
 	}
 	
+	@Override
+	public Evaluator compile() {
+		BitwiseOperation operation = getBitwiseOperation();
+		if (operation == null && numInputs > 1) {
+			return null;
+		}
+		
+		long mask = bitSize == Long.SIZE ? -1L : (1L << bitSize) - 1;
+		long[] negateMasks = new long[numInputs];
+		for (int i = 0; i < numInputs; i++) {
+			negateMasks[i] = negateInputs[i] ? -1L : 0L;
+		}
+		
+		return (inputs, outputs) -> {
+			long accDefined = inputs[1];
+			long accValue = (inputs[0] ^ negateMasks[0]) & accDefined;
+			long allX = ~accDefined;
+			
+			for (int i = 1; i < numInputs; i++) {
+				long defined = inputs[2 * i + 1];
+				long value = (inputs[2 * i] ^ negateMasks[i]) & defined;
+				
+				accValue = operation.operate(accValue, accDefined, value, defined);
+				accDefined = -1L; // operate never returns X
+				allX &= ~defined;
+			}
+			
+			if (negateOutput) {
+				accValue = ~accValue & accDefined;
+			}
+			
+			// Bits that are X on every input are X
+			long defined = accDefined & ~allX & mask;
+			outputs[0] = accValue & defined;
+			outputs[1] = defined;
+		};
+	}
+	
 	protected State operate(State acc, State bit) {
 		return null;
 	}
+	
+	/**
+	 * @return The equivalent of operate on every bit at once, or null if there is none, in which case this Gate is
+	 * always evaluated through valueChanged.
+	 */
+	public BitwiseOperation getBitwiseOperation() {
+		return null;
+	}
+	
+	/**
+	 * Applies operate to every bit of the accumulated value and of the next input, given as packed masks as described
+	 * in {@link WireValue}. X bits have a 0 in their value mask. Each bit of the result only depends on the same bit
+	 * of the arguments.
+	 */
+	@FunctionalInterface
+	public interface BitwiseOperation {
+		long operate(long accValue, long accDefined, long value, long defined);
+	}
 }
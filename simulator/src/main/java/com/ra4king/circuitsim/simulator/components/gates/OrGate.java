@@ -26,4 +26,9 @@ public class OrGate extends Gate {
 	protected State operate(State acc, State bit) {
 		return acc == State.ONE || bit == State.ONE ? State.ONE : State.ZERO;
 	}
+	
+	@Override
+	public BitwiseOperation getBitwiseOperation() {
+		return (accValue, accDefined, value, defined) -> accValue | value;
+	}
 }
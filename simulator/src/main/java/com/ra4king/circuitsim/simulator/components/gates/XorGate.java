@@ -26,4 +26,9 @@ public class XorGate extends Gate {
 	protected State operate(State acc, State bit) {
 		return acc != State.X && bit != State.X && acc != bit ? State.ONE : State.ZERO;
 	}
+	
+	@Override
+	public BitwiseOperation getBitwiseOperation() {
+		return (accValue, accDefined, value, defined) -> (accValue ^ value) & accDefined & defined;
+	}
 }
@@ -76,7 +76,7 @@ public class RAM extends Component {
 	}
 	
 	public void store(CircuitState state, int address, int data) {
-		getMemoryContents(state)[address] = data;
+		state.setComponentPropertyElement(this, address, data);
 		
 		boolean enabled = state.getLastReceived(getPort(PORT_ENABLE)).getBit(0) != State.ZERO;
 		boolean load = state.getLastReceived(getPort(PORT_LOAD)).getBit(0) != State.ZERO;
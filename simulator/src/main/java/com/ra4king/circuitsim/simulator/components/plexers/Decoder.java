@@ -3,6 +3,7 @@ package com.ra4king.circuitsim.simulator.components.plexers;
 import java.util.Arrays;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.Port;
 import com.ra4king.circuitsim.simulator.WireValue;
@@ -10,7 +11,7 @@ import com.ra4king.circuitsim.simulator.WireValue;
 /**
  * @author Roi Atalla
  */
-public class Decoder extends Component {
+public class Decoder extends Component implements CombinationalComponent {
 	private final int numSelectBits;
 	private final int numOutputs;
 	
@@ -44,6 +45,25 @@ public class Decoder extends Component {
 		return bitSizes;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex < numOutputs;
+	}
+	
+	@Override
+	public Evaluator compile() {
+		long selectMask = (1L << numSelectBits) - 1;
+		
+		return (inputs, outputs) -> {
+			boolean valid = inputs[1] == selectMask;
+			long selected = inputs[0];
+			for (int i = 0; i < numOutputs; i++) {
+				outputs[2 * i] = valid && i == selected ? 1 : 0;
+				outputs[2 * i + 1] = valid ? 1 : 0;
+			}
+		};
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
 		Port selectorPort = getSelectorPort();
@@ -3,6 +3,7 @@ package com.ra4king.circuitsim.simulator.components.plexers;
 import java.util.Arrays;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.Port;
 import com.ra4king.circuitsim.simulator.WireValue;
@@ -10,7 +11,7 @@ import com.ra4king.circuitsim.simulator.WireValue;
 /**
  * @author Roi Atalla
  */
-public class Demultiplexer extends Component {
+public class Demultiplexer extends Component implements CombinationalComponent {
 	private final int bitSize;
 	private final int numSelectBits;
 	private final int numOutputs;
@@ -55,28 +56,31 @@ public class Demultiplexer extends Component {
 		return bitSizes;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex < numOutputs;
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
-		Port selectorPort = getSelectorPort();
+		if (isOutputPort(portIndex)) {
+			return;
+		}
 		
-		if (getPort(portIndex) == selectorPort) {
-			if (!value.isValidValue()) {
-				for (int i = 0; i < numOutputs; i++) {
-					state.pushValue(getOutputPort(i), new WireValue(getBitSize()));
-				}
-			} else {
-				int selectedPort = value.getValue();
-				for (int i = 0; i < numOutputs; i++) {
-					if (i == selectedPort) {
-						state.pushValue(getOutputPort(i), state.getLastReceived(getInputPort()));
-					} else {
-						state.pushValue(getOutputPort(i), WireValue.of(0, getBitSize()));
-					}
+		WireValue select = state.getLastReceived(getSelectorPort());
+		if (!select.isValidValue()) {
+			for (int i = 0; i < numOutputs; i++) {
+				state.pushValue(getOutputPort(i), new WireValue(getBitSize()));
+			}
+		} else {
+			int selectedPort = select.getValue();
+			for (int i = 0; i < numOutputs; i++) {
+				if (i == selectedPort) {
+					state.pushValue(getOutputPort(i), state.getLastReceived(getInputPort()));
+				} else {
+					state.pushValue(getOutputPort(i), WireValue.of(0, getBitSize()));
 				}
 			}
-		} else if (getPort(portIndex) == getInputPort() && state.getLastReceived(selectorPort).isValidValue()) {
-			int selectedPort = state.getLastReceived(selectorPort).getValue();
-			state.pushValue(getOutputPort(selectedPort), value);
 		}
 	}
 }
@@ -3,6 +3,7 @@ package com.ra4king.circuitsim.simulator.components.plexers;
 import java.util.Arrays;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.Port;
 import com.ra4king.circuitsim.simulator.WireValue;
@@ -10,7 +11,7 @@ import com.ra4king.circuitsim.simulator.WireValue;
 /**
  * @author Roi Atalla
  */
-public class Multiplexer extends Component {
+public class Multiplexer extends Component implements CombinationalComponent {
 	private final int bitSize;
 	private final int numSelectBits;
 	private final int numInputs;
@@ -56,24 +57,37 @@ public class Multiplexer extends Component {
 	}
 	
 	@Override
-	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
-		Port selectorPort = getSelectorPort();
-		WireValue currentSelect = state.getLastReceived(selectorPort);
+	public boolean isOutputPort(int portIndex) {
+		return portIndex == getNumPorts() - 1;
+	}
+	
+	@Override
+	public Evaluator compile() {
+		long selectMask = (1L << numSelectBits) - 1;
 		
-		if (getPort(portIndex) == selectorPort) {
-			if (!value.isValidValue() || !state.getLastReceived(getPort(value.getValue())).isValidValue()) {
-				state.pushValue(getOutPort(), new WireValue(getBitSize()));
-			} else {
-				state.pushValue(getOutPort(), state.getLastReceived(getPort(value.getValue())));
-			}
-		} else if (portIndex < getNumPorts() - 2) {
-			if (currentSelect.isValidValue()) {
-				if (currentSelect.getValue() == portIndex) {
-					state.pushValue(getOutPort(), value);
-				}
+		return (inputs, outputs) -> {
+			if (inputs[2 * numInputs + 1] == selectMask) {
+				int selected = (int)inputs[2 * numInputs];
+				outputs[0] = inputs[2 * selected];
+				outputs[1] = inputs[2 * selected + 1];
 			} else {
-				state.pushValue(getOutPort(), new WireValue(getBitSize()));
+				outputs[0] = outputs[1] = 0;
 			}
+		};
+	}
+	
+	@Override
+	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
+		if (isOutputPort(portIndex)) {
+			return;
+		}
+		
+		// The selected input goes through as it is, an undefined selector gives an undefined output
+		WireValue select = state.getLastReceived(getSelectorPort());
+		if (select.isValidValue()) {
+			state.pushValue(getOutPort(), state.getLastReceived(getInputPort(select.getValue())));
+		} else {
+			state.pushValue(getOutPort(), new WireValue(getBitSize()));
 		}
 	}
 }
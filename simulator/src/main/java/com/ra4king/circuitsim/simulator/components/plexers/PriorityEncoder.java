@@ -3,6 +3,7 @@ package com.ra4king.circuitsim.simulator.components.plexers;
 import java.util.Arrays;
 
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CombinationalComponent;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.Port;
 import com.ra4king.circuitsim.simulator.WireValue;
@@ -11,14 +12,12 @@ import com.ra4king.circuitsim.simulator.WireValue.State;
 /**
  * @author Elliott Childre
  */
-public class PriorityEncoder extends Component {
+public class PriorityEncoder extends Component implements CombinationalComponent {
 	private final int numSelectBits;
-	private boolean isEnabled;
 	
 	public PriorityEncoder(String name, int numSelectBits) {
 		super(name, createBitSizeArray(numSelectBits));
 		this.numSelectBits = numSelectBits;
-		this.isEnabled = false;
 	}
 	
 	private static int[] createBitSizeArray(int numSelectBits) {
@@ -32,15 +31,20 @@ public class PriorityEncoder extends Component {
 		return portBits;
 	}
 	
+	@Override
+	public boolean isOutputPort(int portIndex) {
+		return portIndex > 1 << numSelectBits;
+	}
+	
 	@Override
 	public void valueChanged(CircuitState state, WireValue value, int portIndex) {
-		Port out = getOutputPort();
-		// if enabled IN changes
-		if (portIndex == 1 << numSelectBits) {
-			this.isEnabled = value.getBit(0) == State.ONE;
+		if (isOutputPort(portIndex)) {
+			return;
 		}
-		// The only other input Port are the indexed inputs
-		if (!this.isEnabled) {
+		
+		Port out = getOutputPort();
+		// The enable is read from the state, since the same Component is shared by every CircuitState
+		if (state.getLastReceived(getEnabledInPort()).getBit(0) != State.ONE) {
 			state.pushValue(getEnabledOutPort(), new WireValue(1, State.ZERO));
 			state.pushValue(out, new WireValue(out.getLink().getBitSize(), State.X));
 			state.pushValue(getGroupSignalPort(), new WireValue(1, State.ZERO));
@@ -51,8 +55,7 @@ public class PriorityEncoder extends Component {
 		int highest = -1;
 		int ports = 1 << numSelectBits;
 		for (int i = 0; i < ports; i++) {
-			if (state.getLastReceived(getPort(i)).getBit(0) == State.ONE ||
-			    (i == portIndex && value.getBit(0) == State.ONE)) {
+			if (state.getLastReceived(getPort(i)).getBit(0) == State.ONE) {
 				highest = i;
 			}
 		}
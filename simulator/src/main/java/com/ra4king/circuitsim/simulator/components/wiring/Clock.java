@@ -0,0 +1,843 @@
+package com.ra4king.circuitsim.simulator.components.wiring;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Port;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.Utils;
+import com.ra4king.circuitsim.simulator.WireValue;
+
+/**
+ * @author Roi Atalla
+ */
+public class Clock extends Component {
+	public static class EnabledInfo {
+		private final boolean enabled;
+		private final int hertz;
+		
+		public EnabledInfo(boolean enabled, int hertz) {
+			this.enabled = enabled;
+			this.hertz = hertz;
+		}
+		
+		public boolean getEnabled() {
+			return enabled;
+		}
+		
+		public int getHertz() {
+			return hertz;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			
+			if (!(o instanceof EnabledInfo)) {
+				return false;
+			}
+			
+			EnabledInfo e = (EnabledInfo)o;
+			
+			return enabled == e.enabled && hertz == e.hertz;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(enabled, hertz);
+		}
+	}
+	
+	/**
+	 * The outcome of a batch of clock cycles run by {@link #runCycles} or {@link #runUntil}.
+	 */
+	public static class RunInfo {
+		private final long cycles;
+		private final long nanos;
+		private final boolean conditionMet;
+		
+		public RunInfo(long cycles, long nanos, boolean conditionMet) {
+			this.cycles = cycles;
+			this.nanos = nanos;
+			this.conditionMet = conditionMet;
+		}
+		
+		/**
+		 * @return The number of full clock cycles run.
+		 */
+		public long getCycles() {
+			return cycles;
+		}
+		
+		/**
+		 * @return The wall-clock time spent running the cycles, in nanoseconds.
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+		
+		/**
+		 * @return Whether the condition of runUntil was met, always true for runCycles.
+		 */
+		public boolean isConditionMet() {
+			return conditionMet;
+		}
+		
+		public double getCyclesPerSecond() {
+			return nanos == 0 ? 0 : cycles * 1e9 / nanos;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%d cycles in %.3f ms (%.0f cycles/s)", cycles, nanos / 1e6, getCyclesPerSecond());
+		}
+	}
+	
+	/**
+	 * The Clocks of a domain tick together, at the frequency and phase of the domain.
+	 */
+	private static class ClockDomain {
+		private final Map<Clock, Object> clocks = new ConcurrentHashMap<>();
+		
+		// 0 follows the frequency of the main domain
+		private int hertz;
+		// The fraction of a period by which the ticks are delayed
+		private double phase;
+		private boolean clock;
+		
+		// Tick i happens at offset + i half periods, in nanoseconds of clock time
+		private long offset;
+		private long tickIndex;
+		
+		// The number of ticks since the domain was scheduled, which can be stepped back
+		private long ticks;
+		
+		private int getHertz(int mainHertz) {
+			return hertz > 0 ? hertz : mainHertz;
+		}
+		
+		long getNextTickTime(int mainHertz) {
+			return offset + tickIndex * 1_000_000_000L / (2L * getHertz(mainHertz));
+		}
+		
+		void schedule(long time, int mainHertz) {
+			offset = time + (long)(phase * 1e9 / getHertz(mainHertz));
+			tickIndex = 0;
+			ticks = 0;
+		}
+		
+		/**
+		 * @return The time of the last tick since the domain was scheduled, or Long.MIN_VALUE if there is none.
+		 */
+		long getPreviousTickTime(int mainHertz) {
+			if (ticks == 0) {
+				return Long.MIN_VALUE;
+			}
+			
+			int ticksPerSecond = 2 * getHertz(mainHertz);
+			if (tickIndex == 0) {
+				return offset - 1_000_000_000L + (ticksPerSecond - 1) * 1_000_000_000L / ticksPerSecond;
+			}
+			return offset + (tickIndex - 1) * 1_000_000_000L / ticksPerSecond;
+		}
+		
+		void tick(int mainHertz) {
+			clock = !clock;
+			tickIndex++;
+			ticks++;
+			
+			// Every second of ticks is folded into the offset, so the index never overflows
+			int ticksPerSecond = 2 * getHertz(mainHertz);
+			if (tickIndex == ticksPerSecond) {
+				offset += 1_000_000_000L;
+				tickIndex = 0;
+			}
+		}
+		
+		void untick(int mainHertz) {
+			clock = !clock;
+			ticks--;
+			
+			if (tickIndex == 0) {
+				offset -= 1_000_000_000L;
+				tickIndex = 2L * getHertz(mainHertz);
+			}
+			tickIndex--;
+		}
+	}
+	
+	/**
+	 * Every Clock domain of a Simulator, and the single scheduler that merges their ticks in time order.
+	 */
+	private static class ClockInfo {
+		private final Map<String, ClockDomain> domains = new ConcurrentHashMap<>();
+		private final ClockDomain mainDomain = new ClockDomain();
+		private final Map<ClockChangeListener, Object> clockChangeListeners = new ConcurrentHashMap<>();
+		private final Map<ClockEnabledListener, Object> clockEnabledListeners = new ConcurrentHashMap<>();
+		
+		private static class InternalClockInfo {
+			private final Thread thread;
+			private final AtomicBoolean enabled = new AtomicBoolean(true);
+			
+			InternalClockInfo(Thread thread) {
+				this.thread = thread;
+			}
+		}
+		
+		private final Simulator simulator;
+		
+		// Held while ticking and pushing the clock values, so they reach the Clocks in order. The monitor of this
+		// ClockInfo is taken under the Simulator's lock when Clocks are added, so it is never held while waiting for
+		// the Simulator's lock: the lock order is pushLock, then the Simulator's lock, then this ClockInfo.
+		private final Object pushLock = new Object();
+		
+		private InternalClockInfo currentClock;
+		private volatile EnabledInfo clockEnabled = new EnabledInfo(false, 0);
+		
+		// The frequency of the main domain, the clock time of the last tick, and the time the domains were scheduled
+		private int mainHertz = 1;
+		private long clockTime;
+		private long scheduleTime;
+		
+		private long lastTickTime;
+		private long lastPrintTime;
+		private int tickCount;
+		private volatile int lastTickCount;
+		
+		private ClockInfo(Simulator simulator) {
+			this.simulator = simulator;
+			domains.put(MAIN_DOMAIN, mainDomain);
+		}
+		
+		/**
+		 * Starts or stops the clock thread, then notifies the listeners, unless nothing changed.
+		 */
+		void setClockEnabled(EnabledInfo enabledInfo) {
+			if (enabledInfo.equals(clockEnabled)) {
+				return;
+			}
+			
+			clockEnabled = enabledInfo;
+			if (enabledInfo.enabled) {
+				startClock(enabledInfo.getHertz());
+			} else {
+				stopClock(/* waitForClockToStop= */ false);
+			}
+			
+			clockEnabledListeners.keySet().forEach(listener -> listener.enabledChanged(enabledInfo));
+		}
+		
+		ClockDomain getDomain(String name) {
+			// Looking up an existing domain does not lock, as it happens every time a Clock is initialized
+			ClockDomain domain = domains.get(name);
+			return domain != null ? domain : addDomain(name);
+		}
+		
+		private synchronized ClockDomain addDomain(String name) {
+			return domains.computeIfAbsent(name, n -> {
+				ClockDomain domain = new ClockDomain();
+				domain.schedule(clockTime, mainHertz);
+				return domain;
+			});
+		}
+		
+		/**
+		 * Restarts the schedule of every domain from the last tick, such as when a frequency changes. Each domain
+		 * ticks right away, unless delayed by its phase.
+		 */
+		synchronized void reschedule() {
+			scheduleTime = clockTime;
+			domains.values().forEach(domain -> domain.schedule(clockTime, mainHertz));
+		}
+		
+		/**
+		 * Toggles every domain due at the earliest next tick time.
+		 *
+		 * @return The domains that ticked.
+		 */
+		synchronized List<ClockDomain> advance() {
+			long next = Long.MAX_VALUE;
+			for (ClockDomain domain : domains.values()) {
+				next = Math.min(next, domain.getNextTickTime(mainHertz));
+			}
+			
+			List<ClockDomain> due = new ArrayList<>();
+			for (ClockDomain domain : domains.values()) {
+				if (domain.getNextTickTime(mainHertz) == next) {
+					domain.tick(mainHertz);
+					due.add(domain);
+				}
+			}
+			
+			clockTime = next;
+			return due;
+		}
+		
+		/**
+		 * Toggles back every domain that ticked at the latest tick time, undoing advance(), unless no domain ticked
+		 * since they were scheduled.
+		 *
+		 * @return The domains that were toggled back.
+		 */
+		synchronized List<ClockDomain> retreat() {
+			long last = Long.MIN_VALUE;
+			for (ClockDomain domain : domains.values()) {
+				last = Math.max(last, domain.getPreviousTickTime(mainHertz));
+			}
+			
+			List<ClockDomain> due = new ArrayList<>();
+			if (last == Long.MIN_VALUE) {
+				return due;
+			}
+			
+			long previous = scheduleTime;
+			for (ClockDomain domain : domains.values()) {
+				if (domain.getPreviousTickTime(mainHertz) == last) {
+					domain.untick(mainHertz);
+					due.add(domain);
+				}
+				previous = Math.max(previous, domain.getPreviousTickTime(mainHertz));
+			}
+			
+			clockTime = previous;
+			return due;
+		}
+		
+		synchronized long getNextTickTime() {
+			long next = Long.MAX_VALUE;
+			for (ClockDomain domain : domains.values()) {
+				next = Math.min(next, domain.getNextTickTime(mainHertz));
+			}
+			return next;
+		}
+		
+		void reset() {
+			stopClock(/* waitForClockToStop= */ true);
+			synchronized (pushLock) {
+				List<ClockDomain> high = new ArrayList<>();
+				synchronized (this) {
+					for (ClockDomain domain : domains.values()) {
+						if (domain.clock) {
+							domain.clock = false;
+							high.add(domain);
+						}
+					}
+					
+					clockTime = 0;
+					reschedule();
+				}
+				
+				if (!high.isEmpty()) {
+					push(high, /* newTick= */ false);
+				}
+			}
+		}
+		
+		/**
+		 * Ticks the domains due next.
+		 *
+		 * @return true if the main domain ticked.
+		 */
+		boolean tick() {
+			synchronized (pushLock) {
+				List<ClockDomain> due = advance();
+				push(due, /* newTick= */ true);
+				return due.contains(mainDomain);
+			}
+		}
+		
+		/**
+		 * Pushes the current value of the domains into all their Clocks, then notifies the listeners.
+		 *
+		 * @param newTick Whether the push starts a new tick of the Simulator's journal.
+		 */
+		private void push(List<ClockDomain> domains, boolean newTick) {
+			WireValue[] clockValues = new WireValue[domains.size()];
+			for (int i = 0; i < clockValues.length; i++) {
+				clockValues[i] = WireValue.of(domains.get(i).clock ? 1 : 0, 1);
+			}
+			
+			// With a SimulationThread running this is queued, so the clock thread never waits on the simulation
+			simulator.submit(() -> {
+				if (newTick) {
+					simulator.beginTick();
+				}
+				for (int i = 0; i < clockValues.length; i++) {
+					WireValue clockValue = clockValues[i];
+					domains.get(i).clocks.forEach((clock, o) -> {
+						Circuit circuit = clock.getCircuit();
+						if (circuit != null) {
+							circuit.forEachState(state -> state.pushValue(clock.getPort(PORT), clockValue));
+						}
+					});
+				}
+			});
+			
+			WireValue mainValue = WireValue.of(mainDomain.clock ? 1 : 0, 1);
+			clockChangeListeners.forEach((listener, o) -> listener.valueChanged(mainValue));
+		}
+		
+		/**
+		 * Runs main domain cycles as fast as possible, ticking every domain in time order and settling the Simulator
+		 * after every tick, all while holding the Simulator's lock, until the condition holds after a cycle or
+		 * maxCycles have run. Listeners are only notified of the final clock value.
+		 */
+		RunInfo run(long maxCycles, BooleanSupplier condition) {
+			if (maxCycles < 0) {
+				throw new IllegalArgumentException("Number of cycles cannot be negative, found " + maxCycles);
+			}
+			
+			AtomicReference<RunInfo> result = new AtomicReference<>();
+			
+			synchronized (pushLock) {
+				checkNotRunning("Cannot run cycles while the clock is running.");
+				
+				WireValue[] clockValues = { WireValue.of(0, 1), WireValue.of(1, 1) };
+				
+				try {
+					simulator.runSync(() -> {
+						// The Clocks and their states cannot change while the lock is held
+						Map<ClockDomain, List<CircuitState>> states = new IdentityHashMap<>();
+						Map<ClockDomain, List<Port>> ports = new IdentityHashMap<>();
+						domains.values().forEach(domain -> {
+							List<CircuitState> domainStates = new ArrayList<>();
+							List<Port> domainPorts = new ArrayList<>();
+							domain.clocks.forEach((clock, o) -> {
+								Circuit circuit = clock.getCircuit();
+								if (circuit != null) {
+									circuit.forEachState(state -> {
+										domainStates.add(state);
+										domainPorts.add(clock.getPort(PORT));
+									});
+								}
+							});
+							states.put(domain, domainStates);
+							ports.put(domain, domainPorts);
+						});
+						
+						long start = System.nanoTime();
+						
+						long cycles = 0;
+						boolean conditionMet = condition != null && condition.getAsBoolean();
+						while (!conditionMet && cycles < maxCycles) {
+							int mainTicks = 0;
+							while (mainTicks < 2) {
+								simulator.beginTick();
+								for (ClockDomain domain : advance()) {
+									WireValue clockValue = clockValues[domain.clock ? 1 : 0];
+									List<CircuitState> domainStates = states.get(domain);
+									List<Port> domainPorts = ports.get(domain);
+									for (int i = 0; i < domainStates.size(); i++) {
+										domainStates.get(i).pushValue(domainPorts.get(i), clockValue);
+									}
+									
+									if (domain == mainDomain) {
+										mainTicks++;
+									}
+								}
+								simulator.stepAll();
+							}
+							
+							cycles++;
+							conditionMet = condition != null && condition.getAsBoolean();
+						}
+						
+						result.set(new RunInfo(cycles, System.nanoTime() - start, condition == null || conditionMet));
+					});
+				} finally {
+					WireValue clockValue = WireValue.of(mainDomain.clock ? 1 : 0, 1);
+					clockChangeListeners.forEach((listener, o) -> listener.valueChanged(clockValue));
+				}
+			}
+			
+			return result.get();
+		}
+		
+		/**
+		 * Steps back the journal of the Simulator and the domains together, one tick at a time.
+		 *
+		 * @return The number of ticks stepped back.
+		 */
+		int stepBack(int ticks) {
+			int[] undone = new int[1];
+			
+			synchronized (pushLock) {
+				checkNotRunning("Cannot step back while the clock is running.");
+				
+				simulator.runSync(() -> {
+					while (undone[0] < ticks && simulator.stepBack()) {
+						retreat();
+						undone[0]++;
+					}
+				});
+			}
+			
+			WireValue clockValue = WireValue.of(mainDomain.clock ? 1 : 0, 1);
+			clockChangeListeners.forEach((listener, o) -> listener.valueChanged(clockValue));
+			return undone[0];
+		}
+		
+		private synchronized void checkNotRunning(String message) {
+			if (currentClock != null) {
+				throw new IllegalStateException(message);
+			}
+		}
+		
+		synchronized void startClock(int hertz) {
+			if (currentClock != null) {
+				stopClock(/* waitForClockToStop= */ false);
+			}
+			
+			mainHertz = hertz;
+			reschedule();
+			
+			lastTickTime = lastPrintTime = System.nanoTime();
+			lastTickCount = tickCount = 0;
+			
+			// Clock time is mapped to wall time from the first tick
+			final long startTime = lastTickTime;
+			final long startClockTime = clockTime;
+			
+			Thread clockThread = new Thread(() -> {
+				InternalClockInfo currentClock = this.currentClock;
+				if (currentClock == null || !Thread.currentThread().equals(currentClock.thread)) {
+					return;
+				}
+				
+				while (currentClock.enabled.get()) {
+					long now = System.nanoTime();
+					if (now - lastPrintTime >= 1e9) {
+						lastTickCount = tickCount;
+						tickCount = 0;
+						lastPrintTime = now;
+					}
+					
+					if (tick()) {
+						tickCount++;
+					}
+					
+					lastTickTime = startTime + (getNextTickTime() - startClockTime);
+					
+					long diff = lastTickTime - System.nanoTime();
+					if (diff >= 1e6 || (tickCount >> 1) >= hertz) {
+						try {
+							Thread.sleep(Math.max(1, (long)(diff / 1e6)));
+						} catch (InterruptedException exc) {
+							break;
+						}
+					}
+				}
+			});
+			
+			clockThread.setName("Clock thread");
+			clockThread.setDaemon(true);
+			
+			currentClock = new InternalClockInfo(clockThread);
+			clockThread.start();
+		}
+		
+		void stopClock(boolean waitForClockToStop) {
+			if (currentClock != null) {
+				InternalClockInfo clock = null;
+				synchronized (this) {
+					if (currentClock != null) {
+						clock = currentClock;
+						currentClock = null;
+						clock.enabled.set(false);
+					}
+				}
+				
+				if (clock != null && waitForClockToStop) {
+					boolean isClockThread = Thread.currentThread().equals(clock.thread);
+					// Wait for the clock thread to die if we're not already in the clock thread.
+					while (clock.thread.isAlive() && !isClockThread) {
+						Thread.yield();
+					}
+				}
+			}
+		}
+	}
+	
+	private static final Map<Simulator, ClockInfo> simulatorClocks = new ConcurrentHashMap<>();
+	
+	public static final int PORT = 0;
+	
+	/**
+	 * The domain of Clocks that follow the clock speed of the Simulator.
+	 */
+	public static final String MAIN_DOMAIN = "";
+	
+	private final String domain;
+	private final int domainHertz;
+	private final double domainPhase;
+	
+	public Clock(String name) {
+		this(name, MAIN_DOMAIN);
+	}
+	
+	public Clock(String name, String domain) {
+		this(name, domain, 0, 0);
+	}
+	
+	/**
+	 * Creates a Clock that also sets the frequency and phase of its domain once added to a Circuit, see
+	 * {@link #setDomainFrequency} and {@link #setDomainPhase}. The main domain cannot be configured this way.
+	 *
+	 * @param name        The name of the Clock.
+	 * @param domain      The name of the domain of the Clock.
+	 * @param domainHertz The frequency of the domain, or 0 to leave it unchanged.
+	 * @param domainPhase The phase of the domain, as a fraction of its period.
+	 */
+	public Clock(String name, String domain, int domainHertz, double domainPhase) {
+		super(name, Utils.getFilledArray(1, 1));
+		
+		if (domain == null) {
+			throw new NullPointerException("Domain cannot be null.");
+		}
+		
+		this.domain = domain;
+		this.domainHertz = domainHertz;
+		this.domainPhase = domainPhase;
+	}
+	
+	public String getDomain() {
+		return domain;
+	}
+	
+	@Override
+	public void setCircuit(Circuit circuit) {
+		Circuit old = getCircuit();
+		super.setCircuit(circuit);
+		
+		if (old != null) {
+			ClockInfo clock = simulatorClocks.get(old.getSimulator());
+			if (clock != null) {
+				clock.getDomain(domain).clocks.remove(this);
+			}
+		}
+		
+		if (circuit != null) {
+			ClockInfo clock = get(circuit.getSimulator());
+			clock.getDomain(domain).clocks.put(this, this);
+			
+			if (!domain.equals(MAIN_DOMAIN) && domainHertz > 0) {
+				setDomainFrequency(circuit.getSimulator(), domain, domainHertz);
+				setDomainPhase(circuit.getSimulator(), domain, domainPhase);
+			}
+		}
+	}
+	
+	@Override
+	public void init(CircuitState circuitState, Object lastProperty) {
+		ClockInfo clock = get(getCircuit().getSimulator());
+		circuitState.pushValue(getPort(PORT), WireValue.of(clock.getDomain(domain).clock ? 1 : 0, 1));
+	}
+	
+	@Override
+	public void valueChanged(CircuitState state, WireValue value, int portIndex) {}
+	
+	private static ClockInfo get(Simulator simulator) {
+		return simulatorClocks.computeIfAbsent(simulator, ClockInfo::new);
+	}
+	
+	/**
+	 * Ticks the Clocks of every domain due next, which is every Clock when there is only the main domain.
+	 */
+	public static void tick(Simulator simulator) {
+		ClockInfo clock = get(simulator);
+		clock.tick();
+	}
+	
+	/**
+	 * Runs the given number of full cycles of the main domain as fast as possible, ticking the other domains in time
+	 * order along the way and settling the Simulator after every tick. The real-time clock must not be running.
+	 *
+	 * @param simulator The Simulator whose Clocks are ticked.
+	 * @param cycles    The number of cycles, each being two ticks.
+	 * @return The number of cycles run and how fast.
+	 */
+	public static RunInfo runCycles(Simulator simulator, long cycles) {
+		return get(simulator).run(cycles, null);
+	}
+	
+	/**
+	 * Runs full cycles of the main domain as fast as possible, ticking the other domains in time order along the way
+	 * and settling the Simulator after every tick, until the condition holds or maxCycles have run. The condition is
+	 * checked before the first cycle and after every cycle, while holding the Simulator's lock. The real-time clock
+	 * must not be running.
+	 *
+	 * @param simulator The Simulator whose Clocks are ticked.
+	 * @param condition The condition to stop at, such as a halt Pin being set.
+	 * @param maxCycles The maximum number of cycles, each being two ticks.
+	 * @return The number of cycles run and how fast, and whether the condition was met.
+	 */
+	public static RunInfo runUntil(Simulator simulator, BooleanSupplier condition, long maxCycles) {
+		if (condition == null) {
+			throw new NullPointerException("Condition cannot be null.");
+		}
+		
+		return get(simulator).run(maxCycles, condition);
+	}
+	
+	/**
+	 * Undoes the last ticks of every domain along with all their effects, which requires the journal of the Simulator
+	 * to be enabled, see {@link Simulator#setJournalCapacity(int)}. Every tick of the Clock starts a new tick of the
+	 * journal. The real-time clock must not be running.
+	 *
+	 * @param simulator The Simulator whose Clocks are stepped back.
+	 * @param ticks     The number of ticks to step back.
+	 * @return The number of ticks stepped back, which is less than requested once the journal runs out.
+	 */
+	public static int stepBack(Simulator simulator, int ticks) {
+		return get(simulator).stepBack(ticks);
+	}
+	
+	/**
+	 * Sets the frequency of a domain. Ticks of every domain are merged in time order by a single scheduler, and all
+	 * domains are realigned when a frequency or phase changes.
+	 *
+	 * @param simulator The Simulator of the domain.
+	 * @param domain    The name of the domain, which cannot be the main domain.
+	 * @param hertz     The frequency in Hz, or 0 to follow the clock speed of the main domain.
+	 */
+	public static void setDomainFrequency(Simulator simulator, String domain, int hertz) {
+		if (domain.equals(MAIN_DOMAIN)) {
+			throw new IllegalArgumentException("The frequency of the main domain is the clock speed.");
+		}
+		if (hertz < 0) {
+			throw new IllegalArgumentException("Frequency cannot be negative, found " + hertz);
+		}
+		
+		ClockInfo clock = get(simulator);
+		synchronized (clock) {
+			clock.getDomain(domain).hertz = hertz;
+			clock.reschedule();
+		}
+	}
+	
+	/**
+	 * @return The frequency of the domain in Hz, or 0 if it follows the clock speed of the main domain.
+	 */
+	public static int getDomainFrequency(Simulator simulator, String domain) {
+		return get(simulator).getDomain(domain).hertz;
+	}
+	
+	/**
+	 * Sets how long the ticks of a domain are delayed after the ticks of the other domains, as a fraction of the
+	 * domain's period.
+	 *
+	 * @param simulator The Simulator of the domain.
+	 * @param domain    The name of the domain.
+	 * @param phase     The phase, from 0 inclusive to 1 exclusive.
+	 */
+	public static void setDomainPhase(Simulator simulator, String domain, double phase) {
+		if (phase < 0 || phase >= 1) {
+			throw new IllegalArgumentException("Phase must be in [0, 1), found " + phase);
+		}
+		
+		ClockInfo clock = get(simulator);
+		synchronized (clock) {
+			clock.getDomain(domain).phase = phase;
+			clock.reschedule();
+		}
+	}
+	
+	public static double getDomainPhase(Simulator simulator, String domain) {
+		return get(simulator).getDomain(domain).phase;
+	}
+	
+	public static boolean getTickState(Simulator simulator) {
+		return getTickState(simulator, MAIN_DOMAIN);
+	}
+	
+	public static boolean getTickState(Simulator simulator, String domain) {
+		ClockInfo clock = get(simulator);
+		return clock.getDomain(domain).clock;
+	}
+	
+	public static int getLastTickCount(Simulator simulator) {
+		ClockInfo clock = get(simulator);
+		return clock.lastTickCount;
+	}
+	
+	public static void reset(Simulator simulator) {
+		ClockInfo clock = get(simulator);
+		clock.reset();
+	}
+	
+	/**
+	 * Stops the real-time clock of the Simulator and forgets its Clocks. The Clocks of every Simulator are kept until
+	 * it is disposed, so tools that create many Simulators should dispose each once done with it.
+	 */
+	public static void dispose(Simulator simulator) {
+		ClockInfo clock = simulatorClocks.remove(simulator);
+		if (clock != null) {
+			clock.setClockEnabled(new EnabledInfo(false, 0));
+		}
+	}
+	
+	public static void startClock(Simulator simulator, int hertz) {
+		ClockInfo clock = get(simulator);
+		clock.setClockEnabled(new EnabledInfo(true, hertz));
+	}
+	
+	public static boolean isRunning(Simulator simulator) {
+		ClockInfo clock = get(simulator);
+		return clock.clockEnabled.enabled;
+	}
+	
+	public static EnabledInfo getClockEnabled(Simulator simulator) {
+		ClockInfo clock = get(simulator);
+		return clock.clockEnabled;
+	}
+	
+	public static void setClockEnabled(Simulator simulator, EnabledInfo enabledInfo) {
+		ClockInfo clock = get(simulator);
+		clock.setClockEnabled(enabledInfo);
+	}
+	
+	public static void stopClock(Simulator simulator) {
+		ClockInfo clock = get(simulator);
+		clock.setClockEnabled(new EnabledInfo(false, 0));
+	}
+	
+	public static void addChangeListener(Simulator simulator, ClockChangeListener listener) {
+		ClockInfo clock = get(simulator);
+		clock.clockChangeListeners.put(listener, listener);
+	}
+	
+	public static void removeChangeListener(Simulator simulator, ClockChangeListener listener) {
+		ClockInfo clock = get(simulator);
+		clock.clockChangeListeners.remove(listener);
+	}
+	
+	public static void addEnabledListener(Simulator simulator, ClockEnabledListener listener) {
+		ClockInfo clock = get(simulator);
+		clock.clockEnabledListeners.put(listener, listener);
+	}
+	
+	public static void removeEnabledListener(Simulator simulator, ClockEnabledListener listener) {
+		ClockInfo clock = get(simulator);
+		clock.clockEnabledListeners.remove(listener);
+	}
+	
+	public interface ClockChangeListener {
+		void valueChanged(WireValue value);
+	}
+	
+	public interface ClockEnabledListener {
+		void enabledChanged(EnabledInfo enabledInfo);
+	}
+}
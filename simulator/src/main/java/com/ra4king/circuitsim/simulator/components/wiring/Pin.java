@@ -23,6 +23,7 @@ public class Pin extends Component {
 	
 	public Pin(String name, int bitSize, boolean isInput) {
 		super(name, Utils.getFilledArray(1, bitSize));
+		setPropagationDelay(0);
 		pinChangeListeners = new HashMap<>();
 		this.bitSize = bitSize;
 		this.isInput = isInput;
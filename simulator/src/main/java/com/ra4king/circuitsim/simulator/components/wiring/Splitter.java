@@ -18,6 +18,7 @@ public class Splitter extends Component {
 	
 	public Splitter(String name, int[] bitFanIndices) {
 		super(name, setupPortBitsizes(bitFanIndices));
+		setPropagationDelay(0);
 		
 		this.bitFanIndices = bitFanIndices;
 		
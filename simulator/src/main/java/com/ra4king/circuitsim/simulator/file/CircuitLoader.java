@@ -0,0 +1,384 @@
+package com.ra4king.circuitsim.simulator.file;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.Port;
+import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.file.Placement.Direction;
+import com.ra4king.circuitsim.simulator.jfr.LoadPhaseEvent;
+
+/**
+ * Loads the circuits of a .sim file straight into a Simulator, without the GUI: no peers, no CircuitBoards and no
+ * JavaFX, for graders and other tools that only need to simulate.
+ * <p>
+ * The Components are created by a ComponentFactory registered for each peer class name written in the file. Every
+ * built-in peer has one, which places the Ports the same way the peer does. The wires then connect Ports the same way
+ * a CircuitBoard does: everything touching a Port or the end of a wire is connected, but two wires crossing in their
+ * middles are not. Tunnels of the same label and bit size are connected directly, and display-only components, such
+ * as Probes and LEDs, are not created at all.
+ *
+ * @author Roi Atalla
+ */
+public class CircuitLoader {
+	private static final Gson GSON = new Gson();
+	
+	private final Map<String, ComponentFactory> factories = new ConcurrentHashMap<>();
+	
+	public CircuitLoader() {
+		ComponentFactories.registerAll(this);
+	}
+	
+	/**
+	 * Registers the factory of a peer class, such as the peer of a library component, replacing any previous one.
+	 *
+	 * @param peerClassName The fully qualified class name of the peer, as written in .sim files.
+	 */
+	public void registerFactory(String peerClassName, ComponentFactory factory) {
+		factories.put(peerClassName, factory);
+	}
+	
+	public LoadedCircuits load(File file) throws IOException {
+		return load(file, new Simulator());
+	}
+	
+	public LoadedCircuits load(File file, Simulator simulator) throws IOException {
+		try (Reader reader = new BufferedReader(new FileReader(file))) {
+			return load(reader, simulator, file.getName());
+		}
+	}
+	
+	public LoadedCircuits parse(String contents) {
+		return load(new StringReader(contents), new Simulator());
+	}
+	
+	/**
+	 * Loads every circuit of the file into new Circuits of the given Simulator.
+	 *
+	 * @throws SimulationException if the file is malformed, has an unknown component or a missing subcircuit.
+	 */
+	public LoadedCircuits load(Reader reader, Simulator simulator) {
+		return load(reader, simulator, null);
+	}
+	
+	/**
+	 * @param fileName The name of the file recorded in the LoadPhaseEvents, if known.
+	 */
+	private LoadedCircuits load(Reader reader, Simulator simulator, String fileName) {
+		LoadPhaseEvent parseEvent = new LoadPhaseEvent(fileName, LoadPhaseEvent.PARSE);
+		parseEvent.begin();
+		
+		CircuitFile file;
+		try {
+			file = GSON.fromJson(reader, CircuitFile.class);
+		} catch (JsonParseException exc) {
+			throw new SimulationException("Malformed circuit file: " + exc.getMessage(), exc);
+		}
+		
+		if (file == null || file.circuits == null) {
+			throw new SimulationException("Malformed circuit file: no circuits.");
+		}
+		
+		parseEvent.count = file.circuits.size();
+		parseEvent.commit();
+		
+		LoadPhaseEvent circuitsEvent = new LoadPhaseEvent(fileName, LoadPhaseEvent.CREATE_CIRCUITS);
+		circuitsEvent.begin();
+		LoadContext context = new LoadContext(file, simulator, fileName);
+		circuitsEvent.count = file.circuits.size();
+		circuitsEvent.commit();
+		
+		simulator.runSync(() -> {
+			for (CircuitInfo circuit : file.circuits) {
+				context.getCircuit(circuit.name);
+			}
+		});
+		
+		return new LoadedCircuits(simulator,
+		                          file.version,
+		                          file.globalBitSize,
+		                          file.clockSpeed,
+		                          context.circuits,
+		                          context.errors);
+	}
+	
+	/**
+	 * The state of a single load. Circuits are built on demand, so every subcircuit is complete before its
+	 * Subcircuit components are created.
+	 */
+	class LoadContext {
+		private final String version;
+		private final String fileName;
+		private final Map<String, CircuitInfo> infos = new HashMap<>();
+		private final Map<String, Circuit> circuits = new LinkedHashMap<>();
+		private final Set<String> built = new HashSet<>();
+		private final Set<String> building = new HashSet<>();
+		private final Map<Circuit, List<PinInfo>> pins = new HashMap<>();
+		private final List<SimulationException> errors = new ArrayList<>();
+		
+		LoadContext(CircuitFile file, Simulator simulator, String fileName) {
+			this.version = file.version == null ? "1.0.0" : file.version;
+			this.fileName = fileName;
+			
+			for (CircuitInfo circuit : file.circuits) {
+				if (infos.putIfAbsent(circuit.name, circuit) != null) {
+					throw new SimulationException("Duplicate circuit name: " + circuit.name);
+				}
+				circuits.put(circuit.name, new Circuit(circuit.name, simulator));
+			}
+		}
+		
+		Circuit getCircuit(String name) {
+			Circuit circuit = circuits.get(name);
+			if (circuit == null) {
+				throw new SimulationException("Circuit does not exist: " + name);
+			}
+			
+			if (!built.contains(name)) {
+				if (!building.add(name)) {
+					throw new SimulationException("Circuit includes itself: " + name);
+				}
+				build(circuit, infos.get(name));
+				building.remove(name);
+				built.add(name);
+			}
+			
+			return circuit;
+		}
+		
+		/**
+		 * @return The Pins of the Circuit with the direction they face and their location.
+		 */
+		List<PinInfo> getPins(Circuit circuit) {
+			return pins.getOrDefault(circuit, List.of());
+		}
+		
+		private void build(Circuit circuit, CircuitInfo info) {
+			List<PinInfo> circuitPins = new ArrayList<>();
+			pins.put(circuit, circuitPins);
+			
+			Connections connections = new Connections();
+			List<Placement> placements = new ArrayList<>();
+			List<int[]> locations = new ArrayList<>();
+			
+			// Subcircuits are built while creating their Subcircuit components, so these events may nest
+			LoadPhaseEvent componentsEvent =
+				new LoadPhaseEvent(fileName, LoadPhaseEvent.CREATE_COMPONENTS, circuit.getName());
+			componentsEvent.begin();
+			
+			for (ComponentInfo component : info.components == null ? List.<ComponentInfo>of() : info.components) {
+				ComponentFactory factory = factories.get(component.name);
+				if (factory == null) {
+					throw new SimulationException("Unknown component: " + component.name);
+				}
+				
+				FileProperties properties =
+					new FileProperties(this, version, component.properties == null ? Map.of() : component.properties);
+				Placement placement = factory.create(properties);
+				if (placement.getComponent() != null) {
+					circuit.addComponent(placement.getComponent());
+					if (placement.getComponent() instanceof Pin) {
+						circuitPins.add(new PinInfo((Pin)placement.getComponent(),
+						                            properties.getDirection(),
+						                            component.x,
+						                            component.y));
+					}
+				}
+				
+				int[] componentLocations = new int[placement.getPortCount()];
+				for (int i = 0; i < componentLocations.length; i++) {
+					componentLocations[i] = connections.addPoint(component.x + placement.getX(i),
+					                                             component.y + placement.getY(i));
+				}
+				placements.add(placement);
+				locations.add(componentLocations);
+			}
+			
+			componentsEvent.count = placements.size();
+			componentsEvent.commit();
+			
+			LoadPhaseEvent wiresEvent = new LoadPhaseEvent(fileName, LoadPhaseEvent.ADD_WIRES, circuit.getName());
+			wiresEvent.begin();
+			
+			List<WireInfo> wires = info.wires == null ? List.of() : info.wires;
+			for (WireInfo wire : wires) {
+				connections.addPoint(wire.x, wire.y);
+				connections.addPoint(wire.isHorizontal ? wire.x + wire.length : wire.x,
+				                     wire.isHorizontal ? wire.y : wire.y + wire.length);
+			}
+			
+			// The middle of a wire only connects to the Ports and the ends of wires lying on it
+			for (WireInfo wire : wires) {
+				int start = connections.getPoint(wire.x, wire.y);
+				for (int i = 1; i <= wire.length; i++) {
+					int point = wire.isHorizontal ? connections.getPoint(wire.x + i, wire.y)
+					                              : connections.getPoint(wire.x, wire.y + i);
+					if (point != -1) {
+						connections.union(start, point);
+					}
+				}
+			}
+			
+			Map<String, Integer> tunnels = new HashMap<>();
+			for (int i = 0; i < placements.size(); i++) {
+				String label = placements.get(i).getTunnelLabel();
+				if (label != null && !label.isEmpty()) {
+					int point = locations.get(i)[0];
+					Integer other = tunnels.putIfAbsent(label + '\0' + placements.get(i).getTunnelBitSize(), point);
+					if (other != null) {
+						connections.union(other, point);
+					}
+				}
+			}
+			
+			// Every Port is linked to the first Port of its net
+			Port[] firstPorts = new Port[connections.size()];
+			for (int i = 0; i < placements.size(); i++) {
+				Placement placement = placements.get(i);
+				for (int j = 0; j < placement.getPortCount(); j++) {
+					Port port = placement.getPort(j);
+					if (port == null) {
+						continue;
+					}
+					
+					int net = connections.find(locations.get(i)[j]);
+					if (firstPorts[net] == null) {
+						firstPorts[net] = port;
+					} else {
+						try {
+							firstPorts[net].linkPort(port);
+						} catch (RuntimeException exc) {
+							errors.add(new SimulationException(
+								circuit.getName() + ": cannot connect " + port + " at (" +
+								connections.getX(locations.get(i)[j]) + ", " + connections.getY(locations.get(i)[j]) +
+								"): " + exc.getMessage(), exc));
+						}
+					}
+				}
+			}
+			
+			wiresEvent.count = wires.size();
+			wiresEvent.commit();
+		}
+	}
+	
+	static class PinInfo {
+		final Pin pin;
+		final Direction direction;
+		final int x;
+		final int y;
+		
+		PinInfo(Pin pin, Direction direction, int x, int y) {
+			this.pin = pin;
+			this.direction = direction;
+			this.x = x;
+			this.y = y;
+		}
+	}
+	
+	/**
+	 * The grid points of a circuit where something connects, and a union-find of which ones are connected.
+	 */
+	private static class Connections {
+		private final Map<Long, Integer> points = new HashMap<>();
+		private long[] locations = new long[64];
+		private int[] parents = new int[64];
+		private int size;
+		
+		int size() {
+			return size;
+		}
+		
+		int addPoint(int x, int y) {
+			long location = ((long)x << 32) | (y & 0xFFFFFFFFL);
+			Integer point = points.get(location);
+			if (point != null) {
+				return point;
+			}
+			
+			if (size == parents.length) {
+				parents = Arrays.copyOf(parents, size * 2);
+				locations = Arrays.copyOf(locations, size * 2);
+			}
+			parents[size] = size;
+			locations[size] = location;
+			points.put(location, size);
+			return size++;
+		}
+		
+		int getPoint(int x, int y) {
+			return points.getOrDefault(((long)x << 32) | (y & 0xFFFFFFFFL), -1);
+		}
+		
+		int getX(int point) {
+			return (int)(locations[point] >> 32);
+		}
+		
+		int getY(int point) {
+			return (int)locations[point];
+		}
+		
+		int find(int point) {
+			while (parents[point] != point) {
+				parents[point] = parents[parents[point]];
+				point = parents[point];
+			}
+			return point;
+		}
+		
+		void union(int a, int b) {
+			a = find(a);
+			b = find(b);
+			if (a != b) {
+				parents[Math.max(a, b)] = Math.min(a, b);
+			}
+		}
+	}
+	
+	// The layout of .sim files, as written by the GUI's FileFormat
+	
+	static class CircuitFile {
+		String version;
+		int globalBitSize;
+		int clockSpeed;
+		List<CircuitInfo> circuits;
+	}
+	
+	static class CircuitInfo {
+		String name;
+		List<ComponentInfo> components;
+		List<WireInfo> wires;
+	}
+	
+	static class ComponentInfo {
+		String name;
+		int x;
+		int y;
+		Map<String, String> properties;
+	}
+	
+	static class WireInfo {
+		int x;
+		int y;
+		int length;
+		boolean isHorizontal;
+	}
+}
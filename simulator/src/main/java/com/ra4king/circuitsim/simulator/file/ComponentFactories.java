@@ -0,0 +1,744 @@
+package com.ra4king.circuitsim.simulator.file;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Port;
+import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.arithmetic.BitExtender;
+import com.ra4king.circuitsim.simulator.components.arithmetic.BitExtender.ExtensionType;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Comparator;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Divider;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Multiplier;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Negator;
+import com.ra4king.circuitsim.simulator.components.arithmetic.RandomGenerator;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Shifter;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Shifter.ShiftType;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Subtractor;
+import com.ra4king.circuitsim.simulator.components.debugging.Breakpoint;
+import com.ra4king.circuitsim.simulator.components.gates.AndGate;
+import com.ra4king.circuitsim.simulator.components.gates.ControlledBuffer;
+import com.ra4king.circuitsim.simulator.components.gates.Gate;
+import com.ra4king.circuitsim.simulator.components.gates.NandGate;
+import com.ra4king.circuitsim.simulator.components.gates.NorGate;
+import com.ra4king.circuitsim.simulator.components.gates.NotGate;
+import com.ra4king.circuitsim.simulator.components.gates.OrGate;
+import com.ra4king.circuitsim.simulator.components.gates.XnorGate;
+import com.ra4king.circuitsim.simulator.components.gates.XorGate;
+import com.ra4king.circuitsim.simulator.components.memory.DFlipFlop;
+import com.ra4king.circuitsim.simulator.components.memory.RAM;
+import com.ra4king.circuitsim.simulator.components.memory.ROM;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.memory.SRFlipFlop;
+import com.ra4king.circuitsim.simulator.components.plexers.Decoder;
+import com.ra4king.circuitsim.simulator.components.plexers.Demultiplexer;
+import com.ra4king.circuitsim.simulator.components.plexers.Multiplexer;
+import com.ra4king.circuitsim.simulator.components.plexers.PriorityEncoder;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Constant;
+import com.ra4king.circuitsim.simulator.components.wiring.Ground;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.components.wiring.Power;
+import com.ra4king.circuitsim.simulator.components.wiring.SimpleTransistor;
+import com.ra4king.circuitsim.simulator.components.wiring.Splitter;
+import com.ra4king.circuitsim.simulator.components.wiring.Transistor;
+import com.ra4king.circuitsim.simulator.file.CircuitLoader.PinInfo;
+import com.ra4king.circuitsim.simulator.file.Placement.Direction;
+
+/**
+ * The factories of the built-in peers. Each one creates the same Component as its peer, and places its Ports at the
+ * same offsets, after the same rotations.
+ *
+ * @author Roi Atalla
+ */
+final class ComponentFactories {
+	private static final String PEERS = "com.ra4king.circuitsim.gui.peers.";
+	
+	// The advance of every glyph of DejaVu Sans Mono, the font of Tunnel labels, in units of its em square
+	private static final double TUNNEL_FONT_SIZE = 13;
+	private static final double TUNNEL_GLYPH_ADVANCE = 1233.0 / 2048.0;
+	private static final int BLOCK_SIZE = 10;
+	
+	private ComponentFactories() {}
+	
+	static void registerAll(CircuitLoader loader) {
+		loader.registerFactory(PEERS + "SubcircuitPeer", ComponentFactories::subcircuit);
+		
+		loader.registerFactory(PEERS + "wiring.PinPeer", properties -> {
+			int bitSize = properties.getBitSize();
+			Pin pin = new Pin(properties.getLabel(), bitSize, properties.getYesNo("Is input?", true));
+			Placement placement = new Placement(pin, Math.max(2, Math.min(8, bitSize)), binaryHeight(bitSize));
+			return addEdgePort(placement, pin.getPort(Pin.PORT), properties.getDirection());
+		});
+		loader.registerFactory(PEERS + "wiring.ConstantPeer", properties -> {
+			int bitSize = properties.getBitSize();
+			Constant constant =
+				new Constant(properties.getLabel(), bitSize, properties.getIntegerString("Value", 0));
+			Placement placement = valuePlacement(constant, bitSize, properties.getString("Base", "BINARY"));
+			return addEdgePort(placement, constant.getPort(Constant.PORT), properties.getDirection());
+		});
+		loader.registerFactory(PEERS + "wiring.Probe", properties -> {
+			Placement placement =
+				valuePlacement(null, properties.getBitSize(), properties.getString("Base", "BINARY"));
+			return addEdgePort(placement, null, properties.getEnum("Direction", Direction.class, Direction.SOUTH));
+		});
+		loader.registerFactory(PEERS + "wiring.ClockPeer", properties -> {
+			String frequency = properties.getString("Domain frequency", "Main");
+			String phase = properties.getString("Domain phase", "0 degrees");
+			Clock clock = new Clock(properties.getLabel(),
+			                        properties.getString("Clock domain", ""),
+			                        frequency.endsWith(" Hz") ? parseInt(frequency.replace(" Hz", ""), 0) : 0,
+			                        parseInt(phase.replace(" degrees", ""), 0) / 360.0);
+			return addEdgePort(new Placement(clock, 2, 2), clock.getPort(Clock.PORT), properties.getDirection());
+		});
+		loader.registerFactory(PEERS + "wiring.PowerPeer", properties -> {
+			Power power = new Power(properties.getLabel());
+			return new Placement(power, 2, 3).addPort(power.getPort(Power.PORT), 1, 3);
+		});
+		loader.registerFactory(PEERS + "wiring.GroundPeer", properties -> {
+			Ground ground = new Ground(properties.getLabel());
+			return new Placement(ground, 2, 3).addPort(ground.getPort(Ground.PORT), 1, 0);
+		});
+		loader.registerFactory(PEERS + "wiring.Tunnel", ComponentFactories::tunnel);
+		loader.registerFactory(PEERS + "wiring.SplitterPeer", ComponentFactories::splitter);
+		loader.registerFactory(PEERS + "wiring.TransistorPeer", properties -> {
+			Transistor transistor =
+				new Transistor(properties.getLabel(), properties.getBoolean("Type", "P-Type", "N-Type", true));
+			return transistor(transistor,
+			                  properties.getDirection(),
+			                  properties.getLocation("Gate Location", true),
+			                  Transistor.PORT_IN,
+			                  Transistor.PORT_GATE,
+			                  Transistor.PORT_OUT);
+		});
+		loader.registerFactory(PEERS + "wiring.SimpleTransistorPeer", properties -> {
+			boolean isPType = properties.getBoolean("Type", "P-Type", "N-Type", true);
+			SimpleTransistor transistor = new SimpleTransistor(properties.getLabel(), isPType);
+			return transistor(transistor,
+			                  isPType ? Direction.SOUTH : Direction.NORTH,
+			                  properties.getLocation("Gate Location", true),
+			                  SimpleTransistor.PORT_SOURCE,
+			                  SimpleTransistor.PORT_GATE,
+			                  SimpleTransistor.PORT_DRAIN);
+		});
+		
+		registerGate(loader, "AndGatePeer", p -> new AndGate(p.getLabel(), p.getBitSize(), numInputs(p), negated(p)));
+		registerGate(loader, "NandGatePeer", p -> new NandGate(p.getLabel(), p.getBitSize(), numInputs(p), negated(p)));
+		registerGate(loader, "OrGatePeer", p -> new OrGate(p.getLabel(), p.getBitSize(), numInputs(p), negated(p)));
+		registerGate(loader, "NorGatePeer", p -> new NorGate(p.getLabel(), p.getBitSize(), numInputs(p), negated(p)));
+		registerGate(loader, "XorGatePeer", p -> new XorGate(p.getLabel(), p.getBitSize(), numInputs(p), negated(p)));
+		registerGate(loader, "XnorGatePeer", p -> new XnorGate(p.getLabel(), p.getBitSize(), numInputs(p), negated(p)));
+		loader.registerFactory(PEERS + "gates.NotGatePeer",
+		                       properties -> gate(properties,
+		                                          new NotGate(properties.getLabel(), properties.getBitSize()),
+		                                          3,
+		                                          2,
+		                                          /* hasNegatedInput= */ false));
+		loader.registerFactory(PEERS + "gates.ControlledBufferPeer", properties -> {
+			ControlledBuffer buffer = new ControlledBuffer(properties.getLabel(), properties.getBitSize());
+			return new Placement(buffer, 2, 2)
+				.addPort(buffer.getPort(ControlledBuffer.PORT_IN), 0, 1)
+				.addPort(buffer.getPort(ControlledBuffer.PORT_ENABLE), 1, 2)
+				.addPort(buffer.getPort(ControlledBuffer.PORT_OUT), 2, 1)
+				.rotatePorts(properties.getDirection());
+		});
+		
+		loader.registerFactory(PEERS + "arithmetic.AdderPeer", properties -> {
+			Adder adder = new Adder(properties.getLabel(), properties.getBitSize());
+			return new Placement(adder, 4, 4)
+				.addPort(adder.getPort(Adder.PORT_A), 0, 1)
+				.addPort(adder.getPort(Adder.PORT_B), 0, 3)
+				.addPort(adder.getPort(Adder.PORT_CARRY_IN), 2, 0)
+				.addPort(adder.getPort(Adder.PORT_OUT), 4, 2)
+				.addPort(adder.getPort(Adder.PORT_CARRY_OUT), 2, 4);
+		});
+		loader.registerFactory(PEERS + "arithmetic.SubtractorPeer", properties -> {
+			Subtractor subtractor = new Subtractor(properties.getLabel(), properties.getBitSize());
+			return new Placement(subtractor, 4, 4)
+				.addPort(subtractor.getPort(Subtractor.PORT_A), 0, 1)
+				.addPort(subtractor.getPort(Subtractor.PORT_B), 0, 3)
+				.addPort(subtractor.getPort(Subtractor.PORT_CARRY_IN), 2, 0)
+				.addPort(subtractor.getPort(Subtractor.PORT_OUT), 4, 2)
+				.addPort(subtractor.getPort(Subtractor.PORT_CARRY_OUT), 2, 4);
+		});
+		loader.registerFactory(PEERS + "arithmetic.MultiplierPeer", properties -> {
+			Multiplier multiplier = new Multiplier(properties.getLabel(), properties.getBitSize());
+			return new Placement(multiplier, 4, 4)
+				.addPort(multiplier.getPort(Multiplier.PORT_A), 0, 1)
+				.addPort(multiplier.getPort(Multiplier.PORT_B), 0, 3)
+				.addPort(multiplier.getPort(Multiplier.PORT_CARRY_IN), 2, 0)
+				.addPort(multiplier.getPort(Multiplier.PORT_OUT_LOWER), 4, 2)
+				.addPort(multiplier.getPort(Multiplier.PORT_OUT_UPPER), 2, 4);
+		});
+		loader.registerFactory(PEERS + "arithmetic.DividerPeer", properties -> {
+			Divider divider = new Divider(properties.getLabel(), properties.getBitSize());
+			return new Placement(divider, 4, 4)
+				.addPort(divider.getPort(Divider.PORT_DIVIDEND), 0, 1)
+				.addPort(divider.getPort(Divider.PORT_DIVISOR), 0, 3)
+				.addPort(divider.getPort(Divider.PORT_QUOTIENT), 4, 2)
+				.addPort(divider.getPort(Divider.PORT_REMAINDER), 2, 4);
+		});
+		loader.registerFactory(PEERS + "arithmetic.NegatorPeer", properties -> {
+			Negator negator = new Negator(properties.getLabel(), properties.getBitSize());
+			return new Placement(negator, 4, 4)
+				.addPort(negator.getPort(Negator.PORT_IN), 0, 2)
+				.addPort(negator.getPort(Negator.PORT_OUT), 4, 2);
+		});
+		loader.registerFactory(PEERS + "arithmetic.ShifterPeer", properties -> {
+			String shiftType = properties.getString("Shift Type", "");
+			ShiftType type = Arrays
+				.stream(ShiftType.values())
+				.filter(t -> t.toString().replace('_', ' ').equals(shiftType))
+				.findFirst()
+				.orElse(ShiftType.LOGICAL_LEFT);
+			Shifter shifter = new Shifter(properties.getLabel(), properties.getBitSize(), type);
+			return new Placement(shifter, 4, 4)
+				.addPort(shifter.getPort(Shifter.PORT_IN), 0, 1)
+				.addPort(shifter.getPort(Shifter.PORT_SHIFT), 0, 3)
+				.addPort(shifter.getPort(Shifter.PORT_OUT), 4, 2);
+		});
+		loader.registerFactory(PEERS + "arithmetic.ComparatorPeer", properties -> {
+			Comparator comparator = new Comparator(properties.getLabel(),
+			                                       properties.getBitSize(),
+			                                       properties.getBoolean("Comparison Type",
+			                                                             "2's complement",
+			                                                             "Unsigned",
+			                                                             true));
+			return new Placement(comparator, 4, 4)
+				.addPort(comparator.getPort(Comparator.PORT_A), 0, 1)
+				.addPort(comparator.getPort(Comparator.PORT_B), 0, 3)
+				.addPort(comparator.getPort(Comparator.PORT_LT), 4, 1)
+				.addPort(comparator.getPort(Comparator.PORT_EQ), 4, 2)
+				.addPort(comparator.getPort(Comparator.PORT_GT), 4, 3);
+		});
+		loader.registerFactory(PEERS + "arithmetic.BitExtenderPeer", properties -> {
+			BitExtender extender = new BitExtender(properties.getLabel(),
+			                                       properties.getInt("Input Bitsize", 1, 32, 1),
+			                                       properties.getInt("Output Bitsize", 1, 32, 1),
+			                                       properties.getEnum("Extension Type",
+			                                                          ExtensionType.class,
+			                                                          ExtensionType.ZERO));
+			return new Placement(extender, 4, 4)
+				.addPort(extender.getPort(BitExtender.PORT_IN), 0, 2)
+				.addPort(extender.getPort(BitExtender.PORT_OUT), 4, 2);
+		});
+		loader.registerFactory(PEERS + "arithmetic.RandomGeneratorPeer", properties -> {
+			RandomGenerator generator = new RandomGenerator(properties.getLabel(), properties.getBitSize());
+			return new Placement(generator, 4, 4)
+				.addPort(generator.getPort(RandomGenerator.PORT_CLK), 2, 4)
+				.addPort(generator.getPort(RandomGenerator.PORT_OUT), 4, 2);
+		});
+		
+		loader.registerFactory(PEERS + "plexers.MultiplexerPeer", properties -> {
+			Multiplexer mux = new Multiplexer(properties.getLabel(),
+			                                  properties.getBitSize(),
+			                                  properties.getInt("Selector bits", 1, 8, 1));
+			return plexer(properties,
+			              mux,
+			              mux.getNumInputs(),
+			              mux::getInputPort,
+			              mux.getSelectorPort(),
+			              mux.getOutPort(),
+			              /* flippedDirections= */ Direction.WEST,
+			              Direction.NORTH);
+		});
+		loader.registerFactory(PEERS + "plexers.DemultiplexerPeer", properties -> {
+			Demultiplexer demux = new Demultiplexer(properties.getLabel(),
+			                                        properties.getBitSize(),
+			                                        properties.getInt("Selector bits", 1, 8, 1));
+			return plexer(properties,
+			              demux,
+			              demux.getNumOutputs(),
+			              demux::getOutputPort,
+			              demux.getSelectorPort(),
+			              demux.getInputPort(),
+			              /* flippedDirections= */ Direction.EAST,
+			              Direction.SOUTH);
+		});
+		loader.registerFactory(PEERS + "plexers.DecoderPeer", properties -> {
+			Decoder decoder = new Decoder(properties.getLabel(), properties.getInt("Selector bits", 1, 8, 1));
+			return plexer(properties,
+			              decoder,
+			              decoder.getNumOutputs(),
+			              decoder::getOutputPort,
+			              decoder.getSelectorPort(),
+			              null,
+			              /* flippedDirections= */ Direction.EAST,
+			              Direction.SOUTH);
+		});
+		loader.registerFactory(PEERS + "plexers.PriorityEncoderPeer", ComponentFactories::priorityEncoder);
+		
+		loader.registerFactory(PEERS + "memory.RegisterPeer", properties -> {
+			Register register = new Register(properties.getLabel(), properties.getBitSize());
+			return new Placement(register, 4, 4)
+				.addPort(register.getPort(Register.PORT_IN), 0, 2)
+				.addPort(register.getPort(Register.PORT_ENABLE), 0, 3)
+				.addPort(register.getPort(Register.PORT_CLK), 1, 4)
+				.addPort(register.getPort(Register.PORT_ZERO), 3, 4)
+				.addPort(register.getPort(Register.PORT_OUT), 4, 2);
+		});
+		loader.registerFactory(PEERS + "memory.DFlipFlopPeer", properties -> {
+			DFlipFlop flipFlop = new DFlipFlop(properties.getLabel());
+			return new Placement(flipFlop, 4, 4)
+				.addPort(flipFlop.getPort(DFlipFlop.PORT_CLOCK), 0, 1)
+				.addPort(flipFlop.getPort(DFlipFlop.PORT_D), 0, 3)
+				.addPort(flipFlop.getPort(DFlipFlop.PORT_PRESET), 1, 4)
+				.addPort(flipFlop.getPort(DFlipFlop.PORT_ENABLE), 2, 4)
+				.addPort(flipFlop.getPort(DFlipFlop.PORT_CLEAR), 3, 4)
+				.addPort(flipFlop.getPort(DFlipFlop.PORT_Q), 4, 1)
+				.addPort(flipFlop.getPort(DFlipFlop.PORT_QN), 4, 3);
+		});
+		loader.registerFactory(PEERS + "memory.SRFlipFlopPeer", properties -> {
+			SRFlipFlop flipFlop = new SRFlipFlop(properties.getLabel());
+			return new Placement(flipFlop, 4, 4)
+				.addPort(flipFlop.getPort(SRFlipFlop.PORT_S), 0, 1)
+				.addPort(flipFlop.getPort(SRFlipFlop.PORT_CLOCK), 0, 2)
+				.addPort(flipFlop.getPort(SRFlipFlop.PORT_R), 0, 3)
+				.addPort(flipFlop.getPort(SRFlipFlop.PORT_PRESET), 1, 4)
+				.addPort(flipFlop.getPort(SRFlipFlop.PORT_ENABLE), 2, 4)
+				.addPort(flipFlop.getPort(SRFlipFlop.PORT_CLEAR), 3, 4)
+				.addPort(flipFlop.getPort(SRFlipFlop.PORT_Q), 4, 1)
+				.addPort(flipFlop.getPort(SRFlipFlop.PORT_QN), 4, 3);
+		});
+		loader.registerFactory(PEERS + "memory.RAMPeer", properties -> {
+			boolean separate = properties.getYesNo("Separate Load/Store Ports?", false);
+			RAM ram = new RAM(properties.getLabel(),
+			                  properties.getBitSize(),
+			                  properties.getInt("Address bits", 1, 16, 8),
+			                  separate);
+			Placement placement = new Placement(ram, 9, 5)
+				.addPort(ram.getPort(RAM.PORT_ADDRESS), 0, 2)
+				.addPort(ram.getPort(RAM.PORT_CLK), 3, 5)
+				.addPort(ram.getPort(RAM.PORT_ENABLE), 4, 5)
+				.addPort(ram.getPort(RAM.PORT_LOAD), 5, 5)
+				.addPort(ram.getPort(RAM.PORT_DATA), 9, 2);
+			if (separate) {
+				return placement
+					.addPort(ram.getPort(RAM.PORT_DATA_IN), 0, 4)
+					.addPort(ram.getPort(RAM.PORT_STORE), 6, 5)
+					.addPort(ram.getPort(RAM.PORT_CLEAR), 7, 5);
+			}
+			return placement.addPort(ram.getPort(RAM.PORT_CLEAR), 6, 5);
+		});
+		loader.registerFactory(PEERS + "memory.ROMPeer", properties -> {
+			int dataBits = properties.getBitSize();
+			int addressBits = properties.getInt("Address bits", 1, 16, 8);
+			ROM rom = new ROM(properties.getLabel(),
+			                  dataBits,
+			                  addressBits,
+			                  parseMemory(properties.getString("Contents", ""), addressBits, dataBits));
+			return new Placement(rom, 9, 5)
+				.addPort(rom.getPort(ROM.PORT_ADDRESS), 0, 2)
+				.addPort(rom.getPort(ROM.PORT_ENABLE), 4, 5)
+				.addPort(rom.getPort(ROM.PORT_DATA), 9, 2);
+		});
+		
+		loader.registerFactory(PEERS + "debugging.BreakpointPeer", properties -> {
+			Breakpoint breakpoint = new Breakpoint(properties.getLabel(),
+			                                       properties.getBitSize(),
+			                                       properties.getIntegerString("Value", 0));
+			return new Placement(breakpoint, 4, 4)
+				.addPort(breakpoint.getPort(Breakpoint.PORT_ENABLE), 0, 1)
+				.addPort(breakpoint.getPort(Breakpoint.PORT_DATA), 2, 4);
+		});
+		
+		// Buttons drive their wire low until pressed, the displays only read their wires
+		loader.registerFactory(PEERS + "io.Button", properties -> {
+			Component button = new Component(properties.getLabel(), new int[] { 1 }) {
+				@Override
+				public void init(CircuitState state, Object lastProperty) {
+					state.pushValue(getPort(0), WireValue.of(0, 1));
+				}
+				
+				@Override
+				public void valueChanged(CircuitState state, WireValue value, int portIndex) {}
+			};
+			return new Placement(button, 2, 2).addPort(button.getPort(0), 2, 1).rotatePorts(properties.getDirection());
+		});
+		loader.registerFactory(PEERS + "io.LED",
+		                       properties -> new Placement(null, 2, 2)
+			                       .addPort(null, 0, 1)
+			                       .rotatePorts(properties.getDirection()));
+		loader.registerFactory(PEERS + "io.HexDisplay", properties -> new Placement(null, 4, 6).addPort(null, 2, 6));
+		loader.registerFactory(PEERS + "io.SevenSegmentDisplay",
+		                       properties -> new Placement(null, 4, 6).addPort(null, 2, 6));
+		loader.registerFactory(PEERS + "io.LEDMatrix", properties -> {
+			int rows = properties.getInt("Row count", 1, 32, 7);
+			Placement placement = new Placement(null, properties.getInt("Column count", 1, 32, 5), rows);
+			for (int i = 0; i < rows; i++) {
+				placement.addPort(null, 0, i);
+			}
+			return placement;
+		});
+		loader.registerFactory(PEERS + "misc.Text", properties -> new Placement(null, 0, 0));
+	}
+	
+	private static int parseInt(String value, int defaultValue) {
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException exc) {
+			return defaultValue;
+		}
+	}
+	
+	private static int binaryHeight(int bitSize) {
+		return (int)Math.round((1 + (bitSize - 1) / 8) * 1.5);
+	}
+	
+	/**
+	 * The size of a Constant or Probe, which fits its value in the given base.
+	 */
+	private static Placement valuePlacement(Component component, int bitSize, String base) {
+		switch (base) {
+			case "HEXADECIMAL":
+				return new Placement(component, Math.max(2, 1 + (bitSize - 1) / 4), 2);
+			case "DECIMAL":
+				// 3.322 ~ log_2(10)
+				int width = Math.max(2, (int)Math.ceil(bitSize / 3.322)) + (bitSize == 32 ? 1 : 0);
+				return new Placement(component, width, 2);
+			default:
+				return new Placement(component, Math.max(2, Math.min(8, bitSize)), binaryHeight(bitSize));
+		}
+	}
+	
+	/**
+	 * Adds a Port in the middle of the side the component faces.
+	 */
+	private static Placement addEdgePort(Placement placement, Port port, Direction direction) {
+		int width = placement.getWidth();
+		int height = placement.getHeight();
+		return switch (direction) {
+			case EAST -> placement.addPort(port, width, height / 2);
+			case WEST -> placement.addPort(port, 0, height / 2);
+			case NORTH -> placement.addPort(port, width / 2, 0);
+			case SOUTH -> placement.addPort(port, width / 2, height);
+		};
+	}
+	
+	private static Placement tunnel(FileProperties properties) {
+		String label = properties.getLabel();
+		
+		// The width is saved along with the label it was measured for, otherwise it is the width of the label
+		int width;
+		if (properties.containsProperty("Width") &&
+		    properties.getString("Previous text", label).equals(label)) {
+			width = properties.getIntegerString("Width", 0);
+		} else {
+			double labelWidth = label.length() * TUNNEL_FONT_SIZE * TUNNEL_GLYPH_ADVANCE;
+			width = Math.max((int)Math.ceil(labelWidth / BLOCK_SIZE), 1);
+		}
+		
+		int bitSize = properties.getBitSize();
+		return switch (properties.getDirection()) {
+			case EAST -> Placement.tunnel(label, bitSize, width + 2, 1);
+			case WEST -> Placement.tunnel(label, bitSize, 0, 1);
+			case NORTH -> Placement.tunnel(label, bitSize, Math.max(((width - 1) / 2) * 2 + 2, 2) / 2, 0);
+			case SOUTH -> Placement.tunnel(label, bitSize, Math.max(((width - 1) / 2) * 2 + 2, 2) / 2, 3);
+		};
+	}
+	
+	private static Placement splitter(FileProperties properties) {
+		int bitSize = properties.getBitSize();
+		int fanouts = properties.getInt("Fanouts", 1, 32, 2);
+		
+		int availableBits = 0;
+		while (properties.containsProperty("Bit " + availableBits)) {
+			availableBits++;
+		}
+		
+		Splitter splitter;
+		if (availableBits == bitSize) {
+			int[] bitFanIndices = new int[bitSize];
+			for (int i = 0; i < bitSize; i++) {
+				String value = properties.getString("Bit " + i, "");
+				int index = value.equals("None") ? -1 : parseInt(value, Integer.MIN_VALUE);
+				if (index < -1 || index >= fanouts) {
+					throw new IllegalArgumentException("Value not found: " + value);
+				}
+				bitFanIndices[i] = Math.min(fanouts - 1, index);
+			}
+			splitter = new Splitter(properties.getLabel(), bitFanIndices);
+		} else {
+			splitter = new Splitter(properties.getLabel(), bitSize, fanouts);
+		}
+		
+		Direction direction = properties.getDirection();
+		boolean inputOnTopLeft = properties.getLocation("Input location", true);
+		
+		int numPorts = splitter.getNumPorts();
+		Placement placement = new Placement(splitter, 2, Math.max(2, numPorts)).rotateSize(direction);
+		int width = placement.getWidth();
+		int height = placement.getHeight();
+		
+		for (int i = 0; i < numPorts - 1; i++) {
+			Port port = splitter.getPort(numPorts - 2 - i);
+			int y = inputOnTopLeft ? i + 2 : height - i - 2;
+			int x = inputOnTopLeft ? i + 2 : width - i - 2;
+			switch (direction) {
+				case EAST -> placement.addPort(port, width, y);
+				case WEST -> placement.addPort(port, 0, y);
+				case SOUTH -> placement.addPort(port, x, height);
+				case NORTH -> placement.addPort(port, x, 0);
+			}
+		}
+		
+		Port joined = splitter.getPort(splitter.PORT_JOINED);
+		return switch (direction) {
+			case EAST -> placement.addPort(joined, 0, inputOnTopLeft ? 0 : height);
+			case WEST -> placement.addPort(joined, width, inputOnTopLeft ? 0 : height);
+			case SOUTH -> placement.addPort(joined, inputOnTopLeft ? 0 : width, 0);
+			case NORTH -> placement.addPort(joined, inputOnTopLeft ? 0 : width, height);
+		};
+	}
+	
+	private static Placement transistor(
+		Component transistor, Direction direction, boolean gateOnTopLeft, int in, int gate, int out) {
+		Placement placement = new Placement(transistor, 4, 2);
+		int yOffset = switch (direction) {
+			case EAST, NORTH -> gateOnTopLeft ? 0 : 2;
+			case WEST, SOUTH -> gateOnTopLeft ? 2 : 0;
+		};
+		return placement
+			.addPort(transistor.getPort(in), 0, 2 - yOffset)
+			.addPort(transistor.getPort(gate), 2, yOffset)
+			.addPort(transistor.getPort(out), 4, 2 - yOffset)
+			.rotatePorts(direction)
+			.rotateSize(direction);
+	}
+	
+	private static void registerGate(CircuitLoader loader, String peer, Function<FileProperties, Gate> gate) {
+		loader.registerFactory(PEERS + "gates." + peer, properties -> {
+			Gate built = gate.apply(properties);
+			boolean hasNegatedInput = false;
+			for (int i = 0; i < built.getNumInputs(); i++) {
+				hasNegatedInput |= properties.getYesNo("Negate " + i, false);
+			}
+			return gate(properties, built, 4, 4, hasNegatedInput);
+		});
+	}
+	
+	private static int numInputs(FileProperties properties) {
+		return properties.getInt("Number of Inputs", 2, 32, 2);
+	}
+	
+	private static boolean[] negated(FileProperties properties) {
+		boolean[] negated = new boolean[numInputs(properties)];
+		for (int i = 0; i < negated.length; i++) {
+			negated[i] = properties.getYesNo("Negate " + i, false);
+		}
+		return negated;
+	}
+	
+	private static Placement gate(FileProperties properties, Gate gate, int width, int height, boolean negated) {
+		gate.setPropagationDelay(properties.getString("Propagation delay", "Default").equals("Default") ?
+		                         -1 :
+		                         properties.getInt("Propagation delay", 0, 32, -1));
+		
+		int inputs = gate.getNumInputs();
+		boolean legacyPlacement =
+			properties.compareVersion("1.8.5") <= 0 || properties.getYesNo("Legacy Gate Input Placement", false);
+		
+		// Negated inputs, and more than five inputs in the current placement, widen the gate by one
+		if (negated || (inputs > 5 && !legacyPlacement)) {
+			width++;
+		}
+		
+		Direction direction = properties.getDirection();
+		Placement placement = new Placement(gate, width, height).rotateSize(direction);
+		width = placement.getWidth();
+		height = placement.getHeight();
+		
+		for (int i = 0; i < inputs; i++) {
+			int add = (inputs % 2 == 0 && i >= inputs / 2) ? 3 : 2;
+			int position = i + add - inputs / 2 - (inputs == 1 ? 1 : 0);
+			switch (direction) {
+				case EAST -> placement.addPort(gate.getPort(i), 0, position);
+				case WEST -> placement.addPort(gate.getPort(i), width, position);
+				case SOUTH -> placement.addPort(gate.getPort(i), position, 0);
+				case NORTH -> placement.addPort(gate.getPort(i), position, height);
+			}
+		}
+		
+		return switch (direction) {
+			case EAST -> placement.addPort(gate.getOutPort(), width, height / 2);
+			case WEST -> placement.addPort(gate.getOutPort(), 0, height / 2);
+			case SOUTH -> placement.addPort(gate.getOutPort(), width / 2, height);
+			case NORTH -> placement.addPort(gate.getOutPort(), width / 2, 0);
+		};
+	}
+	
+	/**
+	 * The shared layout of Multiplexers, Demultiplexers and Decoders: a column of ports on one side, the selector at
+	 * the bottom or top, and the single port on the opposite side. The flipped directions, one per axis, move the
+	 * column to the far side and the selector over by one.
+	 */
+	private static Placement plexer(FileProperties properties,
+	                                Component component,
+	                                int count,
+	                                Function<Integer, Port> ports,
+	                                Port selector,
+	                                Port single,
+	                                Direction flippedHorizontal,
+	                                Direction flippedVertical) {
+		Direction direction = properties.getDirection();
+		boolean selectorOnTopLeft = properties.getLocation("Selector location", false);
+		
+		Placement placement = new Placement(component, 3, count + 2).rotateSize(direction);
+		int width = placement.getWidth();
+		int height = placement.getHeight();
+		
+		boolean flipped = direction == flippedHorizontal || direction == flippedVertical;
+		int selectorOffset = flipped ? 1 : 0;
+		
+		if (direction == Direction.EAST || direction == Direction.WEST) {
+			int columnOffset = flipped ? width : 0;
+			for (int i = 0; i < count; i++) {
+				placement.addPort(ports.apply(i), columnOffset, i + 1);
+			}
+			placement.addPort(selector, width / 2 + selectorOffset, selectorOnTopLeft ? 0 : height);
+			if (single != null) {
+				placement.addPort(single, width - columnOffset, height / 2);
+			}
+		} else {
+			int columnOffset = flipped ? height : 0;
+			for (int i = 0; i < count; i++) {
+				placement.addPort(ports.apply(i), i + 1, columnOffset);
+			}
+			placement.addPort(selector, selectorOnTopLeft ? 0 : width, height / 2 + selectorOffset);
+			if (single != null) {
+				placement.addPort(single, width / 2, height - columnOffset);
+			}
+		}
+		return placement;
+	}
+	
+	private static Placement priorityEncoder(FileProperties properties) {
+		PriorityEncoder encoder = new PriorityEncoder(properties.getLabel(), properties.getInt("Selector bits", 1, 8, 3));
+		int inputs = 1 << encoder.getNumSelectBits();
+		int side = inputs + 1;
+		
+		Direction direction = properties.getDirection();
+		Placement placement = new Placement(encoder, 4, side).rotateSize(direction);
+		switch (direction) {
+			case EAST -> {
+				for (int i = 0; i < inputs; i++) {
+					placement.addPort(encoder.getPort(i), 0, i + 1);
+				}
+				placement
+					.addPort(encoder.getEnabledInPort(), 2, side)
+					.addPort(encoder.getEnabledOutPort(), 2, 0)
+					.addPort(encoder.getGroupSignalPort(), 4, side / 2 + 1)
+					.addPort(encoder.getOutputPort(), 4, side / 2);
+			}
+			case WEST -> {
+				for (int i = 0; i < inputs; i++) {
+					placement.addPort(encoder.getPort(i), 4, i + 1);
+				}
+				placement
+					.addPort(encoder.getEnabledInPort(), 2, side)
+					.addPort(encoder.getEnabledOutPort(), 2, 0)
+					.addPort(encoder.getGroupSignalPort(), 0, side / 2 + 1)
+					.addPort(encoder.getOutputPort(), 0, side / 2);
+			}
+			case SOUTH -> {
+				for (int i = 0; i < inputs; i++) {
+					placement.addPort(encoder.getPort(i), i + 1, 0);
+				}
+				placement
+					.addPort(encoder.getEnabledInPort(), 0, 2)
+					.addPort(encoder.getEnabledOutPort(), side, 2)
+					.addPort(encoder.getGroupSignalPort(), side / 2, 4)
+					.addPort(encoder.getOutputPort(), side / 2 + 1, 4);
+			}
+			case NORTH -> {
+				for (int i = 0; i < inputs; i++) {
+					placement.addPort(encoder.getPort(i), i + 1, 4);
+				}
+				placement
+					.addPort(encoder.getEnabledInPort(), side, 2)
+					.addPort(encoder.getEnabledOutPort(), 0, 2)
+					.addPort(encoder.getGroupSignalPort(), side / 2 + 1, 0)
+					.addPort(encoder.getOutputPort(), side / 2, 0);
+			}
+		}
+		return placement;
+	}
+	
+	/**
+	 * Parses ROM contents the same way as the memory property: hexadecimal values separated by whitespace, where
+	 * "count-value" repeats a value.
+	 */
+	static int[] parseMemory(String contents, int addressBits, int dataBits) {
+		int[] memory = new int[1 << addressBits];
+		int mask = dataBits < 32 ? (1 << dataBits) - 1 : -1;
+		
+		Scanner scanner = new Scanner(contents);
+		int length = 0;
+		while (length < memory.length && scanner.hasNext()) {
+			String piece = scanner.next();
+			int count = 1;
+			if (piece.matches("^\\d+-[\\da-fA-F]+$")) {
+				count = Integer.parseInt(piece.substring(0, piece.indexOf('-')));
+				piece = piece.substring(piece.indexOf('-') + 1);
+			}
+			
+			int value;
+			try {
+				value = Integer.parseUnsignedInt(piece, 16) & mask;
+			} catch (NumberFormatException exc) {
+				throw new SimulationException("Cannot parse invalid hex value: " + piece);
+			}
+			
+			for (int i = 0; i < count && length < memory.length; i++) {
+				memory[length++] = value;
+			}
+		}
+		return memory;
+	}
+	
+	private static Placement subcircuit(FileProperties properties) {
+		Circuit circuit = properties.getCircuit(properties.getString("Subcircuit", ""));
+		Subcircuit subcircuit = new Subcircuit(properties.getLabel(), circuit);
+		List<PinInfo> pins = properties.getContext().getPins(circuit);
+		
+		java.util.Comparator<PinInfo> byRow =
+			java.util.Comparator.<PinInfo>comparingInt(pin -> pin.y).thenComparingInt(pin -> pin.x);
+		java.util.Comparator<PinInfo> byColumn =
+			java.util.Comparator.<PinInfo>comparingInt(pin -> pin.x).thenComparingInt(pin -> pin.y);
+		List<PinInfo> east = facing(pins, Direction.EAST, byRow);
+		List<PinInfo> west = facing(pins, Direction.WEST, byRow);
+		List<PinInfo> north = facing(pins, Direction.NORTH, byColumn);
+		List<PinInfo> south = facing(pins, Direction.SOUTH, byColumn);
+		
+		int width = Math.max(3, Math.max(north.size(), south.size()) + 1);
+		int height = Math.max(3, Math.max(east.size(), west.size()) + 1);
+		Placement placement = new Placement(subcircuit, width, height);
+		for (int i = 0; i < east.size(); i++) {
+			placement.addPort(subcircuit.getPort(east.get(i).pin), 0, i + 1);
+		}
+		for (int i = 0; i < west.size(); i++) {
+			placement.addPort(subcircuit.getPort(west.get(i).pin), width, i + 1);
+		}
+		for (int i = 0; i < north.size(); i++) {
+			placement.addPort(subcircuit.getPort(north.get(i).pin), i + 1, height);
+		}
+		for (int i = 0; i < south.size(); i++) {
+			placement.addPort(subcircuit.getPort(south.get(i).pin), i + 1, 0);
+		}
+		return placement;
+	}
+	
+	private static List<PinInfo> facing(
+		List<PinInfo> pins, Direction direction, java.util.Comparator<PinInfo> order) {
+		return pins.stream().filter(pin -> pin.direction == direction).sorted(order).collect(Collectors.toList());
+	}
+}
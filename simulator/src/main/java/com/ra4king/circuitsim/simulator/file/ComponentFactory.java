@@ -0,0 +1,14 @@
+package com.ra4king.circuitsim.simulator.file;
+
+/**
+ * Creates the Component of a peer class found in a .sim file, see {@link CircuitLoader#registerFactory}.
+ *
+ * @author Roi Atalla
+ */
+public interface ComponentFactory {
+	/**
+	 * @return The Component and the offsets of its Ports, which must match those of the GUI peer so the wires of the
+	 * file connect to the right Ports.
+	 */
+	Placement create(FileProperties properties);
+}
@@ -0,0 +1,177 @@
+package com.ra4king.circuitsim.simulator.file;
+
+import java.util.Map;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.file.Placement.Direction;
+
+/**
+ * The properties of a component in a .sim file, as the strings written by the GUI, parsed the same way its property
+ * validators do. A missing property or a value that does not parse falls back to the given default.
+ *
+ * @author Roi Atalla
+ */
+public class FileProperties {
+	private final CircuitLoader.LoadContext context;
+	private final String version;
+	private final Map<String, String> properties;
+	
+	FileProperties(CircuitLoader.LoadContext context, String version, Map<String, String> properties) {
+		this.context = context;
+		this.version = version;
+		this.properties = properties;
+	}
+	
+	/**
+	 * @return The version of CircuitSim that saved the file.
+	 */
+	public String getVersion() {
+		return version;
+	}
+	
+	public boolean containsProperty(String name) {
+		return properties.containsKey(name);
+	}
+	
+	public String getString(String name, String defaultValue) {
+		String value = properties.get(name);
+		return value == null ? defaultValue : value;
+	}
+	
+	/**
+	 * An integer out of a list of valid values from min to max.
+	 */
+	public int getInt(String name, int min, int max, int defaultValue) {
+		String value = properties.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		
+		try {
+			int parsed = Integer.parseInt(value.trim());
+			return parsed < min || parsed > max ? defaultValue : parsed;
+		} catch (NumberFormatException exc) {
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * A boolean out of a list of two valid values, such as "Yes" and "No".
+	 */
+	public boolean getBoolean(String name, String trueValue, String falseValue, boolean defaultValue) {
+		String value = properties.get(name);
+		if (trueValue.equals(value)) {
+			return true;
+		}
+		if (falseValue.equals(value)) {
+			return false;
+		}
+		return defaultValue;
+	}
+	
+	public boolean getYesNo(String name, boolean defaultValue) {
+		return getBoolean(name, "Yes", "No", defaultValue);
+	}
+	
+	/**
+	 * A location, where "Left/Top" is true and "Right/Down" is false.
+	 */
+	public boolean getLocation(String name, boolean defaultValue) {
+		return getBoolean(name, "Left/Top", "Right/Down", defaultValue);
+	}
+	
+	public <E extends Enum<E>> E getEnum(String name, Class<E> type, E defaultValue) {
+		String value = properties.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		
+		for (E constant : type.getEnumConstants()) {
+			if (constant.toString().equals(value)) {
+				return constant;
+			}
+		}
+		return defaultValue;
+	}
+	
+	/**
+	 * An integer in decimal, in hexadecimal with a 0x prefix or in binary with a 0b prefix.
+	 */
+	public int getIntegerString(String name, int defaultValue) {
+		String value = properties.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		
+		int base = 10;
+		String valueToParse = value;
+		if (value.startsWith("0x") || value.startsWith("x")) {
+			base = 16;
+			valueToParse = value.substring(value.indexOf('x') + 1);
+		} else if (value.startsWith("0b") || value.startsWith("b")) {
+			base = 2;
+			valueToParse = value.substring(value.indexOf('b') + 1);
+		}
+		
+		try {
+			return (int)Long.parseLong(valueToParse, base);
+		} catch (NumberFormatException exc) {
+			throw new SimulationException(value + " is not a valid value of base " + base);
+		}
+	}
+	
+	public String getLabel() {
+		return getString("Label", "");
+	}
+	
+	public Direction getDirection() {
+		return getEnum("Direction", Direction.class, Direction.EAST);
+	}
+	
+	public int getBitSize() {
+		return getInt("Bitsize", 1, 32, 1);
+	}
+	
+	/**
+	 * @return The Circuit of the given name in the file being loaded, its own components already placed.
+	 * @throws SimulationException if there is no such Circuit, or if it includes itself.
+	 */
+	public Circuit getCircuit(String name) {
+		return context.getCircuit(name);
+	}
+	
+	CircuitLoader.LoadContext getContext() {
+		return context;
+	}
+	
+	/**
+	 * Compares the version of the file to the given version, the same way as CircuitSimVersion.
+	 */
+	public int compareVersion(String other) {
+		int[] a = parseVersion(version);
+		int[] b = parseVersion(other);
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] != b[i]) {
+				return Integer.compare(a[i], b[i]);
+			}
+		}
+		return 0;
+	}
+	
+	// A beta is older than its release
+	private static int[] parseVersion(String version) {
+		String[] parts = version.split("\\.");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Invalid version string: " + version);
+		}
+		
+		boolean beta = parts[2].endsWith("b");
+		return new int[] {
+			Integer.parseInt(parts[0]),
+			Integer.parseInt(parts[1]),
+			Integer.parseInt(beta ? parts[2].substring(0, parts[2].length() - 1) : parts[2]),
+			beta ? 0 : 1
+		};
+	}
+}
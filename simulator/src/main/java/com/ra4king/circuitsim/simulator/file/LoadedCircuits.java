@@ -0,0 +1,93 @@
+package com.ra4king.circuitsim.simulator.file;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.SimulationException;
+
+/**
+ * The circuits of a .sim file, as loaded by {@link CircuitLoader}.
+ *
+ * @author Roi Atalla
+ */
+public class LoadedCircuits {
+	private final Simulator simulator;
+	private final String version;
+	private final int globalBitSize;
+	private final int clockSpeed;
+	private final Map<String, Circuit> circuits;
+	private final List<SimulationException> errors;
+	
+	LoadedCircuits(Simulator simulator,
+	               String version,
+	               int globalBitSize,
+	               int clockSpeed,
+	               Map<String, Circuit> circuits,
+	               List<SimulationException> errors) {
+		this.simulator = simulator;
+		this.version = version;
+		this.globalBitSize = globalBitSize;
+		this.clockSpeed = clockSpeed;
+		this.circuits = Collections.unmodifiableMap(circuits);
+		this.errors = Collections.unmodifiableList(errors);
+	}
+	
+	public Simulator getSimulator() {
+		return simulator;
+	}
+	
+	public String getVersion() {
+		return version;
+	}
+	
+	public int getGlobalBitSize() {
+		return globalBitSize;
+	}
+	
+	public int getClockSpeed() {
+		return clockSpeed;
+	}
+	
+	/**
+	 * @return The Circuits by name, in the order of the file.
+	 */
+	public Map<String, Circuit> getCircuits() {
+		return circuits;
+	}
+	
+	/**
+	 * @return The Circuit of the given name, or null if there is none.
+	 */
+	public Circuit getCircuit(String name) {
+		return circuits.get(name);
+	}
+	
+	/**
+	 * @return A Component of the given type and name in the Circuit, or null if there is none.
+	 */
+	public <T extends Component> T getComponent(String circuitName, Class<T> type, String name) {
+		Circuit circuit = circuits.get(circuitName);
+		if (circuit == null) {
+			return null;
+		}
+		
+		for (Component component : circuit.getComponents()) {
+			if (type.isInstance(component) && component.getName().equals(name)) {
+				return type.cast(component);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @return The Ports that could not be connected, such as because of mismatched bit sizes. The GUI shows these
+	 * as errors on the wires, and leaves those Ports unconnected the same way.
+	 */
+	public List<SimulationException> getErrors() {
+		return errors;
+	}
+}
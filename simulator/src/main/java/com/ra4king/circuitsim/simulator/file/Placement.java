@@ -0,0 +1,129 @@
+package com.ra4king.circuitsim.simulator.file;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Port;
+
+/**
+ * A Component as placed in a circuit by a .sim file: its size in grid units and where each of its Ports connects,
+ * relative to the top-left corner of the component. These are the same offsets the GUI peers use, without their
+ * graphics.
+ * <p>
+ * A Placement without a Component, such as of a display-only peer, still connects the wires at its Port locations.
+ *
+ * @author Roi Atalla
+ */
+public class Placement {
+	public enum Direction {
+		EAST, NORTH, WEST, SOUTH
+	}
+
+	private final Component component;
+	private int width;
+	private int height;
+
+	private final List<Port> ports = new ArrayList<>();
+	private final List<int[]> offsets = new ArrayList<>();
+
+	private String tunnelLabel;
+	private int tunnelBitSize;
+
+	public Placement(Component component, int width, int height) {
+		this.component = component;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * A Tunnel, which connects its location to every other Tunnel of the same label and bit size in the circuit.
+	 */
+	public static Placement tunnel(String label, int bitSize, int x, int y) {
+		Placement placement = new Placement(null, 0, 0);
+		placement.tunnelLabel = label;
+		placement.tunnelBitSize = bitSize;
+		placement.addPort(null, x, y);
+		return placement;
+	}
+
+	public Component getComponent() {
+		return component;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @param port The Port connected at the given offset, or null for a location without a Port.
+	 */
+	public Placement addPort(Port port, int x, int y) {
+		ports.add(port);
+		offsets.add(new int[] { x, y });
+		return this;
+	}
+
+	public int getPortCount() {
+		return ports.size();
+	}
+
+	public Port getPort(int index) {
+		return ports.get(index);
+	}
+
+	public int getX(int index) {
+		return offsets.get(index)[0];
+	}
+
+	public int getY(int index) {
+		return offsets.get(index)[1];
+	}
+
+	/**
+	 * @return The label of this Tunnel, or null if this is not a Tunnel.
+	 */
+	String getTunnelLabel() {
+		return tunnelLabel;
+	}
+	
+	int getTunnelBitSize() {
+		return tunnelBitSize;
+	}
+
+	/**
+	 * Rotates the Port offsets counter-clockwise from EAST to the given direction, using the current size.
+	 */
+	public Placement rotatePorts(Direction direction) {
+		boolean useWidth = true;
+		for (int i = 0; i < direction.ordinal(); i++) {
+			int size = useWidth ? width : height;
+			for (int[] offset : offsets) {
+				int x = offset[0];
+				offset[0] = offset[1];
+				offset[1] = size - x;
+			}
+			useWidth = !useWidth;
+		}
+		return this;
+	}
+
+	/**
+	 * Swaps the width and height once for every quarter turn from EAST to the given direction.
+	 */
+	public Placement rotateSize(Direction direction) {
+		if (direction.ordinal() % 2 == 1) {
+			setSize(height, width);
+		}
+		return this;
+	}
+}
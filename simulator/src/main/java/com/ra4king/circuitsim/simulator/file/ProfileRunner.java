@@ -0,0 +1,63 @@
+package com.ra4king.circuitsim.simulator.file;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import com.ra4king.circuitsim.simulator.Profiler;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock.RunInfo;
+
+/**
+ * Runs a circuit file headless for a number of clock cycles under a Profiler, and reports its hottest Components.
+ * <p>
+ * Usage: {@code ProfileRunner <file.sim> <cycles> [report.json|report.txt]}, or {@code gradle :simulator:profile}.
+ * The top of the report is printed, and the whole report is written to the given file, as JSON if it ends in .json.
+ *
+ * @author Roi Atalla
+ */
+public class ProfileRunner {
+	private static final int PRINTED_ROWS = 20;
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: ProfileRunner <file.sim> <cycles> [report.json|report.txt]");
+			System.exit(1);
+		}
+		
+		LoadedCircuits circuits = new CircuitLoader().load(new File(args[0]));
+		circuits.getErrors().forEach(error -> System.err.println("Warning: " + error.getMessage()));
+		
+		Simulator simulator = circuits.getSimulator();
+		try {
+			simulator.stepAll();
+			
+			Profiler profiler = new Profiler(simulator);
+			profiler.start();
+			RunInfo run = Clock.runCycles(simulator, Long.parseLong(args[1]));
+			profiler.stop();
+			
+			System.out.printf("%d cycles in %.3f s, %.0f cycles/s%n%n",
+			                  run.getCycles(),
+			                  run.getNanos() / 1e9,
+			                  run.getCyclesPerSecond());
+			profiler.writeText(System.out, PRINTED_ROWS);
+			
+			if (args.length == 3) {
+				try (Writer writer = new BufferedWriter(new FileWriter(args[2]))) {
+					if (args[2].endsWith(".json")) {
+						profiler.writeJson(writer);
+					} else {
+						profiler.writeText(writer, Integer.MAX_VALUE);
+					}
+				}
+				System.out.println("\nReport written to " + args[2]);
+			}
+		} finally {
+			Clock.dispose(simulator);
+		}
+	}
+}
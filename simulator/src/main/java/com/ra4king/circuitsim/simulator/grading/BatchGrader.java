@@ -0,0 +1,237 @@
+package com.ra4king.circuitsim.simulator.grading;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.file.CircuitLoader;
+import com.ra4king.circuitsim.simulator.file.LoadedCircuits;
+import com.ra4king.circuitsim.simulator.grading.GradingSpec.TestCase;
+
+/**
+ * Grades many .sim files in parallel against a {@link GradingSpec}. Every file is loaded headless by a
+ * {@link CircuitLoader} into its own Simulator, which is disposed afterwards, so files share no state and a file that
+ * short circuits or oscillates only fails itself.
+ * <p>
+ * Run from the command line with: {@code BatchGrader <spec.json> <directory> [results.jsonl]}, which grades every
+ * .sim file under the directory and writes one {@link GradingResult} per line, in the order of the file paths.
+ *
+ * @author Roi Atalla
+ */
+public class BatchGrader {
+	private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+	
+	private final GradingSpec spec;
+	private final CircuitLoader loader;
+	private final int threads;
+	
+	public BatchGrader(GradingSpec spec) {
+		this(spec, new CircuitLoader(), Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * @param loader  The loader of every file, which may have factories registered for library components.
+	 * @param threads The number of files graded at the same time.
+	 */
+	public BatchGrader(GradingSpec spec, CircuitLoader loader, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Threads must be at least 1.");
+		}
+		
+		this.spec = spec;
+		this.loader = loader;
+		this.threads = threads;
+	}
+	
+	/**
+	 * @return Every .sim file under the directory, sorted by path.
+	 */
+	public static List<File> findFiles(File directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			return paths.filter(path -> path.toString().endsWith(".sim") && Files.isRegularFile(path))
+			            .sorted()
+			            .map(Path::toFile)
+			            .collect(Collectors.toList());
+		}
+	}
+	
+	public List<GradingResult> grade(List<File> files) throws InterruptedException {
+		List<GradingResult> results = new ArrayList<>();
+		grade(files, results::add);
+		return results;
+	}
+	
+	/**
+	 * Grades the files on a pool of worker threads, passing each result to the consumer in the order of the files as
+	 * soon as it and every file before it are graded.
+	 */
+	public void grade(List<File> files, Consumer<GradingResult> consumer) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(files.size(), 1)), r -> {
+			Thread thread = new Thread(r, "BatchGrader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		try {
+			List<Future<GradingResult>> futures = new ArrayList<>();
+			for (File file : files) {
+				futures.add(executor.submit(() -> grade(file)));
+			}
+			
+			for (Future<GradingResult> future : futures) {
+				try {
+					consumer.accept(future.get());
+				} catch (ExecutionException exc) {
+					throw new IllegalStateException(exc.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Grades a single file on the calling thread.
+	 */
+	public GradingResult grade(File file) {
+		GradingResult result = new GradingResult(file.getPath());
+		Simulator simulator = new Simulator();
+		
+		try {
+			long start = System.nanoTime();
+			LoadedCircuits circuits = loader.load(file, simulator);
+			result.setLoadNanos(System.nanoTime() - start);
+			circuits.getErrors().forEach(error -> result.addWarning(error.getMessage()));
+			
+			Circuit circuit = circuits.getCircuit(spec.getCircuit());
+			if (circuit == null) {
+				throw new SimulationException("Missing circuit named '" + spec.getCircuit() + "'");
+			}
+			
+			Map<String, Pin> pins = new HashMap<>();
+			for (Component component : circuit.getComponents()) {
+				if (component instanceof Pin) {
+					pins.putIfAbsent(component.getName(), (Pin)component);
+				}
+			}
+			for (TestCase test : spec.getTests()) {
+				test.getInputs().keySet().forEach(name -> getPin(pins, name, /* isInput= */ true));
+				test.getOutputs().keySet().forEach(name -> getPin(pins, name, /* isInput= */ false));
+			}
+			
+			start = System.nanoTime();
+			CircuitState state = circuit.getTopLevelState();
+			for (TestCase test : spec.getTests()) {
+				result.addTest(runTest(test, simulator, state, pins, result));
+			}
+			result.setRunNanos(System.nanoTime() - start);
+			result.setPassed(result.getTestsPassed() == result.getTestsRun());
+		} catch (IOException | RuntimeException | StackOverflowError exc) {
+			result.setError(exc);
+		} finally {
+			Clock.dispose(simulator);
+		}
+		
+		return result;
+	}
+	
+	private static boolean runTest(TestCase test,
+	                               Simulator simulator,
+	                               CircuitState state,
+	                               Map<String, Pin> pins,
+	                               GradingResult result) {
+		try {
+			test.getInputs().forEach((name, value) -> {
+				Pin pin = getPin(pins, name, /* isInput= */ true);
+				pin.setValue(state, WireValue.of(value, pin.getBitSize()));
+			});
+			simulator.stepAll();
+			
+			if (test.getCycles() > 0) {
+				result.addCycles(Clock.runCycles(simulator, test.getCycles()).getCycles());
+			}
+		} catch (RuntimeException exc) {
+			result.addFailure(new GradingResult.Failure(test.getName(), exc));
+			return false;
+		}
+		
+		boolean passed = true;
+		for (Map.Entry<String, Long> output : test.getOutputs().entrySet()) {
+			Pin pin = getPin(pins, output.getKey(), /* isInput= */ false);
+			WireValue expected = WireValue.of(output.getValue(), pin.getBitSize());
+			WireValue actual = state.getLastReceived(pin.getPort(Pin.PORT));
+			if (!expected.equals(actual)) {
+				result.addFailure(new GradingResult.Failure(test.getName(),
+				                                            output.getKey(),
+				                                            expected.toString(),
+				                                            actual.toString()));
+				passed = false;
+			}
+		}
+		return passed;
+	}
+	
+	private static Pin getPin(Map<String, Pin> pins, String name, boolean isInput) {
+		Pin pin = pins.get(name);
+		if (pin == null || pin.isInput() != isInput) {
+			throw new SimulationException("Missing " + (isInput ? "input" : "output") + " pin labeled '" + name + "'");
+		}
+		return pin;
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: BatchGrader <spec.json> <directory> [results.jsonl]");
+			System.exit(1);
+		}
+		
+		GradingSpec spec = GradingSpec.parse(new File(args[0]));
+		List<File> files = findFiles(new File(args[1]));
+		
+		try (Writer writer = new BufferedWriter(args.length == 3 ? new FileWriter(args[2])
+		                                                         : new OutputStreamWriter(System.out))) {
+			int[] passed = new int[1];
+			new BatchGrader(spec).grade(files, result -> {
+				try {
+					writer.write(GSON.toJson(result));
+					writer.write('\n');
+					writer.flush();
+				} catch (IOException exc) {
+					throw new IllegalStateException(exc);
+				}
+				
+				if (result.isPassed()) {
+					passed[0]++;
+				}
+			});
+			
+			System.err.println(passed[0] + "/" + files.size() + " files passed.");
+		}
+	}
+}
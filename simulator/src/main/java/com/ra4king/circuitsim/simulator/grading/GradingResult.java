@@ -0,0 +1,189 @@
+package com.ra4king.circuitsim.simulator.grading;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of grading a single file, written by {@link BatchGrader} as one line of JSON. Fields that do not apply,
+ * such as the error of a file that loaded, are left out.
+ *
+ * @author Roi Atalla
+ */
+public class GradingResult {
+	private final String file;
+	private boolean passed;
+	private int testsRun;
+	private int testsPassed;
+	private long cycles;
+	private double loadMillis;
+	private double runMillis;
+	private final List<String> warnings = new ArrayList<>();
+	private final List<Failure> failures = new ArrayList<>();
+	private ErrorInfo error;
+	
+	GradingResult(String file) {
+		this.file = file;
+	}
+	
+	public String getFile() {
+		return file;
+	}
+	
+	/**
+	 * @return Whether the file loaded and every test passed.
+	 */
+	public boolean isPassed() {
+		return passed;
+	}
+	
+	public int getTestsRun() {
+		return testsRun;
+	}
+	
+	public int getTestsPassed() {
+		return testsPassed;
+	}
+	
+	/**
+	 * @return The number of clock cycles run over all tests.
+	 */
+	public long getCycles() {
+		return cycles;
+	}
+	
+	public double getLoadMillis() {
+		return loadMillis;
+	}
+	
+	public double getRunMillis() {
+		return runMillis;
+	}
+	
+	/**
+	 * @return The problems found while loading that did not stop the tests, such as wires of mismatched bit sizes.
+	 */
+	public List<String> getWarnings() {
+		return warnings;
+	}
+	
+	public List<Failure> getFailures() {
+		return failures;
+	}
+	
+	/**
+	 * @return The reason the file could not be tested at all, or null if it was.
+	 */
+	public ErrorInfo getError() {
+		return error;
+	}
+	
+	void setPassed(boolean passed) {
+		this.passed = passed;
+	}
+	
+	void addTest(boolean passed) {
+		testsRun++;
+		if (passed) {
+			testsPassed++;
+		}
+	}
+	
+	void addCycles(long cycles) {
+		this.cycles += cycles;
+	}
+	
+	void setLoadNanos(long nanos) {
+		loadMillis = nanos / 1e6;
+	}
+	
+	void setRunNanos(long nanos) {
+		runMillis = nanos / 1e6;
+	}
+	
+	void addWarning(String warning) {
+		warnings.add(warning);
+	}
+	
+	void addFailure(Failure failure) {
+		failures.add(failure);
+	}
+	
+	void setError(Throwable throwable) {
+		error = new ErrorInfo(throwable);
+	}
+	
+	/**
+	 * A test that failed, either on a wrong output or on an exception such as a ShortCircuitException or an
+	 * OscillationException.
+	 */
+	public static class Failure {
+		private final String test;
+		private final String pin;
+		private final String expected;
+		private final String actual;
+		private final ErrorInfo error;
+		
+		Failure(String test, String pin, String expected, String actual) {
+			this.test = test;
+			this.pin = pin;
+			this.expected = expected;
+			this.actual = actual;
+			this.error = null;
+		}
+		
+		Failure(String test, Throwable throwable) {
+			this.test = test;
+			this.pin = null;
+			this.expected = null;
+			this.actual = null;
+			this.error = new ErrorInfo(throwable);
+		}
+		
+		public String getTest() {
+			return test;
+		}
+		
+		/**
+		 * @return The output Pin with the wrong value, or null if the test threw.
+		 */
+		public String getPin() {
+			return pin;
+		}
+		
+		public String getExpected() {
+			return expected;
+		}
+		
+		public String getActual() {
+			return actual;
+		}
+		
+		/**
+		 * @return The exception thrown by the test, or null if it ran.
+		 */
+		public ErrorInfo getError() {
+			return error;
+		}
+	}
+	
+	public static class ErrorInfo {
+		private final String type;
+		private final String message;
+		
+		ErrorInfo(Throwable throwable) {
+			this.type = throwable.getClass().getSimpleName();
+			this.message = throwable.getMessage();
+		}
+		
+		/**
+		 * @return The simple class name of the exception, such as ShortCircuitException.
+		 */
+		public String getType() {
+			return type;
+		}
+		
+		public String getMessage() {
+			return message;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.ra4king.circuitsim.simulator.grading;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.ra4king.circuitsim.simulator.SimulationException;
+
+/**
+ * The tests run by {@link BatchGrader} on the circuit of every file, usually read from a JSON file such as:
+ * <pre>
+ * {
+ *   "circuit": "16-bit adder",
+ *   "tests": [
+ *     { "name": "1 + 2", "inputs": { "A": 1, "B": 2, "C": 0 }, "outputs": { "Out": 3, "Carry": 0 } },
+ *     { "name": "count", "inputs": { "Reset": 0 }, "cycles": 4, "outputs": { "Count": 4 } }
+ *   ]
+ * }
+ * </pre>
+ * Every test sets the input Pins, settles the circuit, runs the given number of clock cycles and then checks the
+ * output Pins. The tests run in order on the same state, so a test starts from the state the previous one left.
+ *
+ * @author Roi Atalla
+ */
+public class GradingSpec {
+	private static final Gson GSON = new Gson();
+	
+	private String circuit;
+	private List<TestCase> tests = new ArrayList<>();
+	
+	public GradingSpec(String circuit) {
+		this.circuit = circuit;
+	}
+	
+	public static GradingSpec parse(File file) throws IOException {
+		try (Reader reader = new BufferedReader(new FileReader(file))) {
+			return parse(reader);
+		}
+	}
+	
+	/**
+	 * @throws SimulationException if the spec is malformed or names no circuit.
+	 */
+	public static GradingSpec parse(Reader reader) {
+		GradingSpec spec;
+		try {
+			spec = GSON.fromJson(reader, GradingSpec.class);
+		} catch (JsonParseException exc) {
+			throw new SimulationException("Malformed grading spec: " + exc.getMessage(), exc);
+		}
+		
+		if (spec == null || spec.circuit == null) {
+			throw new SimulationException("Malformed grading spec: no circuit.");
+		}
+		if (spec.tests == null) {
+			spec.tests = new ArrayList<>();
+		}
+		for (TestCase test : spec.tests) {
+			if (test.inputs == null) {
+				test.inputs = new LinkedHashMap<>();
+			}
+			if (test.outputs == null) {
+				test.outputs = new LinkedHashMap<>();
+			}
+		}
+		return spec;
+	}
+	
+	/**
+	 * @return The name of the circuit tested in every file.
+	 */
+	public String getCircuit() {
+		return circuit;
+	}
+	
+	public List<TestCase> getTests() {
+		return tests;
+	}
+	
+	public GradingSpec addTest(TestCase test) {
+		tests.add(test);
+		return this;
+	}
+	
+	public static class TestCase {
+		private String name;
+		private Map<String, Long> inputs = new LinkedHashMap<>();
+		private long cycles;
+		private Map<String, Long> outputs = new LinkedHashMap<>();
+		
+		public TestCase(String name) {
+			this.name = name;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * @return The values of the input Pins by name.
+		 */
+		public Map<String, Long> getInputs() {
+			return inputs;
+		}
+		
+		/**
+		 * @return The number of full clock cycles run after setting the inputs.
+		 */
+		public long getCycles() {
+			return cycles;
+		}
+		
+		/**
+		 * @return The expected values of the output Pins by name.
+		 */
+		public Map<String, Long> getOutputs() {
+			return outputs;
+		}
+		
+		public TestCase setInput(String pin, long value) {
+			inputs.put(pin, value);
+			return this;
+		}
+		
+		public TestCase setCycles(long cycles) {
+			this.cycles = cycles;
+			return this;
+		}
+		
+		public TestCase expectOutput(String pin, long value) {
+			outputs.put(pin, value);
+			return this;
+		}
+	}
+}
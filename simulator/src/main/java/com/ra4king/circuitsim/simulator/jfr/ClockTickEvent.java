@@ -0,0 +1,31 @@
+package com.ra4king.circuitsim.simulator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every clock tick, from Simulator.beginTick() until the Simulator settled after the new clock values.
+ *
+ * @author Roi Atalla
+ */
+@Name("com.ra4king.circuitsim.ClockTick")
+@Label("Clock Tick")
+@Category({ "CircuitSim", "Simulation" })
+@Description("A clock tick, from pushing the new clock values until the Simulator settled")
+@StackTrace(false)
+public class ClockTickEvent extends Event {
+	@Label("Tick")
+	@Description("The number of ticks settled by the Simulator before this one")
+	public long tick;
+	
+	@Label("Rounds")
+	@Description("The number of propagation steps until the Simulator settled")
+	public int rounds;
+	
+	@Label("Links Propagated")
+	public long linksPropagated;
+}
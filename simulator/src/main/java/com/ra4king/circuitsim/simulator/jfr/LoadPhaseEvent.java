@@ -0,0 +1,50 @@
+package com.ra4king.circuitsim.simulator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every phase of loading a circuit file, headless or in the GUI: parsing the file, creating the
+ * circuits, then creating the components and adding the wires of each circuit.
+ *
+ * @author Roi Atalla
+ */
+@Name("com.ra4king.circuitsim.LoadPhase")
+@Label("Load Phase")
+@Category({ "CircuitSim", "Loading" })
+@Description("A phase of loading a circuit file")
+@StackTrace(false)
+public class LoadPhaseEvent extends Event {
+	public static final String PARSE = "parse";
+	public static final String CREATE_CIRCUITS = "create circuits";
+	public static final String CREATE_COMPONENTS = "create components";
+	public static final String ADD_WIRES = "add wires";
+	
+	@Label("File")
+	public String file;
+	
+	@Label("Phase")
+	public String phase;
+	
+	@Label("Circuit")
+	@Description("The circuit of a per-circuit phase, otherwise null")
+	public String circuit;
+	
+	@Label("Count")
+	@Description("The number of circuits, components or wires handled")
+	public int count;
+	
+	public LoadPhaseEvent(String file, String phase) {
+		this(file, phase, null);
+	}
+	
+	public LoadPhaseEvent(String file, String phase, String circuit) {
+		this.file = file;
+		this.phase = phase;
+		this.circuit = circuit;
+	}
+}
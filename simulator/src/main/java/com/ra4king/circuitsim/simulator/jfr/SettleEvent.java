@@ -0,0 +1,36 @@
+package com.ra4king.circuitsim.simulator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by every Simulator.stepAll() that propagated anything, from its start until the Simulator settled or
+ * failed to.
+ *
+ * @author Roi Atalla
+ */
+@Name("com.ra4king.circuitsim.Settle")
+@Label("Settle")
+@Category({ "CircuitSim", "Simulation" })
+@Description("A Simulator propagating until every Link settled")
+@StackTrace(false)
+public class SettleEvent extends Event {
+	@Label("Rounds")
+	@Description("The number of propagation steps")
+	public int rounds;
+	
+	@Label("Links Propagated")
+	public long linksPropagated;
+	
+	@Label("Clock Tick")
+	@Description("Whether this settled a clock tick")
+	public boolean clockTick;
+	
+	@Label("Settled")
+	@Description("False if the Simulator stopped on an oscillation or an error")
+	public boolean settled;
+}
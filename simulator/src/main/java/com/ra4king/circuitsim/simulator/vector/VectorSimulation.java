@@ -0,0 +1,602 @@
+package com.ra4king.circuitsim.simulator.vector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Port;
+import com.ra4king.circuitsim.simulator.Port.Link;
+import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.WireValue.State;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.arithmetic.RandomGenerator;
+import com.ra4king.circuitsim.simulator.components.debugging.Breakpoint;
+import com.ra4king.circuitsim.simulator.components.gates.Gate;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.BitwiseOperation;
+import com.ra4king.circuitsim.simulator.components.memory.DFlipFlop;
+import com.ra4king.circuitsim.simulator.components.memory.RAM;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.memory.SRFlipFlop;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Constant;
+import com.ra4king.circuitsim.simulator.components.wiring.Ground;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.components.wiring.Power;
+import com.ra4king.circuitsim.simulator.components.wiring.Splitter;
+
+/**
+ * Simulates a combinational Circuit on many input vectors at once, for test harnesses that check a Circuit against
+ * a large number of input combinations.
+ * <p>
+ * The top-level input Pins are bound to arrays of values with {@link #setInput}, {@link #run} simulates every
+ * vector, and the output Pins are read back as arrays with {@link #getOutput}.
+ * <p>
+ * Whenever possible, the whole hierarchy is inlined into a netlist where every bit of every wire is a net carrying
+ * {@link #LANES} vectors at once, one per bit of a long, so that each evaluation of a Component checks 64 vectors.
+ * Splitters and Subcircuit pins merely connect nets. This needs every Component to be a Gate, Adder, Constant, Power,
+ * Ground, Splitter, Subcircuit or Pin, every net to have at most one driver, and no combinational loops. Otherwise,
+ * the vectors are serialized through the Simulator instead, one at a time on the Circuit's top-level state.
+ * <p>
+ * Circuits with sequential Components, such as Registers, RAMs, flip-flops and Clocks, are rejected since their
+ * outputs do not only depend on the current inputs.
+ * <p>
+ * The Circuit must not be modified after the VectorSimulation is created.
+ *
+ * @author Roi Atalla
+ */
+public class VectorSimulation {
+	public static final int LANES = Long.SIZE;
+	
+	private final Circuit circuit;
+	private final List<Pin> pins = new ArrayList<>();
+	
+	private final Map<Pin, long[]> inputs = new HashMap<>();
+	private final Map<Pin, WireValue[]> outputs = new HashMap<>();
+	
+	// The bit-parallel netlist, or null if the vectors are serialized
+	private final Operation[] operations;
+	private final Map<Pin, int[]> pinNets = new HashMap<>();
+	private long[] values;
+	private long[] defined;
+	
+	/**
+	 * @param circuit The Circuit to simulate.
+	 * @throws SimulationException If the Circuit or any of its Subcircuits has a sequential Component.
+	 */
+	public VectorSimulation(Circuit circuit) {
+		this.circuit = circuit;
+		
+		Operation[][] result = new Operation[1][];
+		circuit.getSimulator().runSync(() -> {
+			for (Component component : circuit.getComponents()) {
+				if (component instanceof Pin) {
+					pins.add((Pin)component);
+				}
+			}
+			
+			result[0] = compile();
+		});
+		operations = result[0];
+	}
+	
+	public Circuit getCircuit() {
+		return circuit;
+	}
+	
+	/**
+	 * @return true if the vectors are simulated in parallel, false if they are serialized through the Simulator.
+	 */
+	public boolean isBitParallel() {
+		return operations != null;
+	}
+	
+	/**
+	 * Binds the top-level input Pin to one value per vector. Every bound Pin must have the same number of values,
+	 * which is the number of vectors simulated. Unbound input Pins are 0.
+	 *
+	 * @param pin     A top-level input Pin of the Circuit.
+	 * @param vectors The value of the Pin in every vector. Bits above the Pin's bit size are ignored.
+	 */
+	public void setInput(Pin pin, long... vectors) {
+		if (!pins.contains(pin) || !pin.isInput()) {
+			throw new IllegalArgumentException(pin + " is not an input Pin of " + circuit);
+		}
+		
+		inputs.put(pin, vectors.clone());
+	}
+	
+	/**
+	 * @param pin A top-level output Pin of the Circuit.
+	 * @return The value of the Pin in every vector after the last run.
+	 */
+	public WireValue[] getOutput(Pin pin) {
+		if (!pins.contains(pin) || pin.isInput()) {
+			throw new IllegalArgumentException(pin + " is not an output Pin of " + circuit);
+		}
+		
+		WireValue[] values = outputs.get(pin);
+		if (values == null) {
+			throw new IllegalStateException("Not run yet");
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * @return The number of vectors given to setInput, or 1 if no input is bound.
+	 */
+	public int getVectorCount() {
+		int vectorCount = -1;
+		for (long[] vectors : inputs.values()) {
+			if (vectorCount != -1 && vectorCount != vectors.length) {
+				throw new IllegalStateException("Every input must have the same number of vectors");
+			}
+			vectorCount = vectors.length;
+		}
+		
+		return vectorCount == -1 ? 1 : vectorCount;
+	}
+	
+	/**
+	 * Simulates every vector, the results are then available from getOutput.
+	 */
+	public void run() {
+		int vectorCount = getVectorCount();
+		
+		outputs.clear();
+		for (Pin pin : pins) {
+			if (!pin.isInput()) {
+				outputs.put(pin, new WireValue[vectorCount]);
+			}
+		}
+		
+		if (operations == null) {
+			runSerially(vectorCount);
+		} else {
+			for (int offset = 0; offset < vectorCount; offset += LANES) {
+				runParallel(offset, Math.min(LANES, vectorCount - offset));
+			}
+		}
+	}
+	
+	private void runParallel(int offset, int count) {
+		long laneMask = count == LANES ? -1L : (1L << count) - 1;
+		
+		// Nets without a driver are X
+		Arrays.fill(values, 0);
+		Arrays.fill(defined, 0);
+		
+		for (Pin pin : pins) {
+			if (!pin.isInput()) {
+				continue;
+			}
+			
+			long[] vectors = inputs.get(pin);
+			int[] nets = pinNets.get(pin);
+			for (int bit = 0; bit < nets.length; bit++) {
+				long lanes = 0;
+				if (vectors != null) {
+					for (int lane = 0; lane < count; lane++) {
+						lanes |= ((vectors[offset + lane] >>> bit) & 1) << lane;
+					}
+				}
+				
+				values[nets[bit]] = lanes;
+				defined[nets[bit]] = laneMask;
+			}
+		}
+		
+		for (Operation operation : operations) {
+			operation.evaluate(values, defined);
+		}
+		
+		for (Map.Entry<Pin, WireValue[]> entry : outputs.entrySet()) {
+			int[] nets = pinNets.get(entry.getKey());
+			WireValue[] results = entry.getValue();
+			for (int lane = 0; lane < count; lane++) {
+				WireValue result = new WireValue(nets.length);
+				for (int bit = 0; bit < nets.length; bit++) {
+					long laneBit = 1L << lane;
+					if ((defined[nets[bit]] & laneBit) != 0) {
+						result.setBit(bit, (values[nets[bit]] & laneBit) != 0 ? State.ONE : State.ZERO);
+					}
+				}
+				results[offset + lane] = result;
+			}
+		}
+	}
+	
+	private void runSerially(int vectorCount) {
+		Simulator simulator = circuit.getSimulator();
+		CircuitState state = circuit.getTopLevelState();
+		
+		for (int vector = 0; vector < vectorCount; vector++) {
+			int index = vector;
+			simulator.runSync(() -> {
+				for (Pin pin : pins) {
+					if (pin.isInput()) {
+						long[] vectors = inputs.get(pin);
+						pin.setValue(state, WireValue.of(vectors == null ? 0 : vectors[index], pin.getBitSize()));
+					}
+				}
+				
+				simulator.stepAll();
+				
+				for (Map.Entry<Pin, WireValue[]> entry : outputs.entrySet()) {
+					entry.getValue()[index] = state.getLastReceived(entry.getKey().getPort());
+				}
+			});
+		}
+	}
+	
+	/**
+	 * @return The operations in topological order, or null if the Circuit cannot be simulated bit-parallel.
+	 */
+	private Operation[] compile() {
+		Nets nets = new Nets();
+		List<Operation> operations = new ArrayList<>();
+		Map<Link, int[]> topLevelNets = new IdentityHashMap<>();
+		
+		boolean supported = inline(circuit, topLevelNets, nets, operations);
+		for (Pin pin : pins) {
+			getNets(pin.getPort(), topLevelNets, nets);
+		}
+		
+		// Number the merged nets densely
+		int[] indices = new int[nets.count];
+		Arrays.fill(indices, -1);
+		int netCount = 0;
+		for (int net = 0; net < nets.count; net++) {
+			int root = nets.find(net);
+			if (indices[root] == -1) {
+				indices[root] = netCount++;
+			}
+			indices[net] = indices[root];
+		}
+		
+		for (Pin pin : pins) {
+			int[] pinNets = topLevelNets.get(pin.getPort().getLink()).clone();
+			for (int bit = 0; bit < pinNets.length; bit++) {
+				pinNets[bit] = indices[pinNets[bit]];
+			}
+			this.pinNets.put(pin, pinNets);
+		}
+		
+		values = new long[netCount];
+		defined = new long[netCount];
+		
+		if (!supported) {
+			return null;
+		}
+		
+		// Every net may only have one driver
+		int[] drivers = new int[netCount];
+		Arrays.fill(drivers, -1);
+		for (Pin pin : pins) {
+			if (pin.isInput()) {
+				for (int net : pinNets.get(pin)) {
+					if (drivers[net] != -1) {
+						return null;
+					}
+					drivers[net] = operations.size();
+				}
+			}
+		}
+		
+		for (int i = 0; i < operations.size(); i++) {
+			Operation operation = operations.get(i);
+			operation.renumber(indices);
+			
+			for (int net : operation.outputs) {
+				if (drivers[net] != -1) {
+					return null;
+				}
+				drivers[net] = i;
+			}
+		}
+		
+		return sort(operations, drivers);
+	}
+	
+	/**
+	 * Kahn's algorithm from the drivers of the nets to their readers.
+	 *
+	 * @return The operations in topological order, or null if there is a loop.
+	 */
+	private static Operation[] sort(List<Operation> operations, int[] drivers) {
+		int count = operations.size();
+		
+		List<List<Integer>> readers = new ArrayList<>(count);
+		int[] degrees = new int[count];
+		for (int i = 0; i < count; i++) {
+			readers.add(new ArrayList<>());
+		}
+		
+		for (int i = 0; i < count; i++) {
+			for (int net : operations.get(i).inputs) {
+				int driver = drivers[net];
+				if (driver >= 0 && driver < count) {
+					readers.get(driver).add(i);
+					degrees[i]++;
+				}
+			}
+		}
+		
+		Queue<Integer> ready = new ArrayDeque<>();
+		for (int i = 0; i < count; i++) {
+			if (degrees[i] == 0) {
+				ready.add(i);
+			}
+		}
+		
+		Operation[] sorted = new Operation[count];
+		int sortedCount = 0;
+		while (!ready.isEmpty()) {
+			int operation = ready.poll();
+			sorted[sortedCount++] = operations.get(operation);
+			
+			for (int reader : readers.get(operation)) {
+				if (--degrees[reader] == 0) {
+					ready.add(reader);
+				}
+			}
+		}
+		
+		return sortedCount == count ? sorted : null;
+	}
+	
+	/**
+	 * Adds the nets and operations of one instance of the Circuit.
+	 *
+	 * @return false if some Component cannot be simulated bit-parallel.
+	 */
+	private static boolean inline(Circuit circuit, Map<Link, int[]> linkNets, Nets nets, List<Operation> operations) {
+		boolean supported = true;
+		
+		for (Component component : circuit.getComponents()) {
+			if (component instanceof Register || component instanceof RAM || component instanceof DFlipFlop ||
+			    component instanceof SRFlipFlop || component instanceof Clock || component instanceof RandomGenerator) {
+				throw new SimulationException(
+					component + " in " + circuit + " is sequential and cannot be simulated on vectors.");
+			}
+			
+			if (component instanceof Pin || component instanceof Breakpoint) {
+				// Pins only connect nets, see Subcircuit below
+			} else if (component instanceof Subcircuit) {
+				Subcircuit subcircuit = (Subcircuit)component;
+				Map<Link, int[]> subcircuitNets = new IdentityHashMap<>();
+				supported &= inline(subcircuit.getSubcircuit(), subcircuitNets, nets, operations);
+				
+				List<Pin> pins = subcircuit.getPins();
+				for (int i = 0; i < pins.size(); i++) {
+					int[] outer = getNets(subcircuit.getPort(i), linkNets, nets);
+					int[] inner = getNets(pins.get(i).getPort(), subcircuitNets, nets);
+					for (int bit = 0; bit < outer.length; bit++) {
+						nets.union(outer[bit], inner[bit]);
+					}
+				}
+			} else if (component instanceof Splitter) {
+				Splitter splitter = (Splitter)component;
+				int[] joined = getNets(splitter.getPort(splitter.PORT_JOINED), linkNets, nets);
+				int[] fanBits = new int[splitter.getNumPorts() - 1];
+				int[] bitFanIndices = splitter.getBitFanIndices();
+				for (int bit = 0; bit < bitFanIndices.length; bit++) {
+					int fan = bitFanIndices[bit];
+					if (fan >= 0) {
+						nets.union(joined[bit], getNets(splitter.getPort(fan), linkNets, nets)[fanBits[fan]++]);
+					}
+				}
+			} else if (component instanceof Gate &&
+			           (((Gate)component).getBitwiseOperation() != null || ((Gate)component).getNumInputs() == 1)) {
+				operations.add(new GateOperation((Gate)component, linkNets, nets));
+			} else if (component instanceof Adder) {
+				operations.add(new AdderOperation((Adder)component, linkNets, nets));
+			} else if (component instanceof Constant) {
+				Constant constant = (Constant)component;
+				operations.add(new ConstantOperation(WireValue.of(constant.getValue(), constant.getBitSize()),
+				                                     getNets(constant.getPort(Constant.PORT), linkNets, nets)));
+			} else if (component instanceof Power) {
+				operations.add(new ConstantOperation(new WireValue(1, State.ONE),
+				                                     getNets(component.getPort(Power.PORT), linkNets, nets)));
+			} else if (component instanceof Ground) {
+				operations.add(new ConstantOperation(new WireValue(1, State.ZERO),
+				                                     getNets(component.getPort(Ground.PORT), linkNets, nets)));
+			} else {
+				supported = false;
+			}
+		}
+		
+		return supported;
+	}
+	
+	/**
+	 * @return The nets of every bit of the Port's Link in the current instance.
+	 */
+	private static int[] getNets(Port port, Map<Link, int[]> linkNets, Nets nets) {
+		return linkNets.computeIfAbsent(port.getLink(), link -> {
+			int[] bits = new int[link.getBitSize()];
+			for (int bit = 0; bit < bits.length; bit++) {
+				bits[bit] = nets.add();
+			}
+			return bits;
+		});
+	}
+	
+	private static int[] concat(int[]... arrays) {
+		return Arrays.stream(arrays).flatMapToInt(Arrays::stream).toArray();
+	}
+	
+	/**
+	 * A union-find of the nets, which are merged when connected through Splitters and Subcircuit pins.
+	 */
+	private static class Nets {
+		private int[] parents = new int[64];
+		private int count;
+		
+		int add() {
+			if (count == parents.length) {
+				parents = Arrays.copyOf(parents, count * 2);
+			}
+			parents[count] = count;
+			return count++;
+		}
+		
+		int find(int net) {
+			while (parents[net] != net) {
+				parents[net] = parents[parents[net]];
+				net = parents[net];
+			}
+			return net;
+		}
+		
+		void union(int net1, int net2) {
+			parents[find(net1)] = find(net2);
+		}
+	}
+	
+	/**
+	 * A Component evaluated on every lane at once. The values of its input and output nets are packed masks as
+	 * described in {@link WireValue}, with one lane per bit.
+	 */
+	private abstract static class Operation {
+		final int[] inputs;
+		final int[] outputs;
+		
+		Operation(int[] inputs, int[] outputs) {
+			this.inputs = inputs;
+			this.outputs = outputs;
+		}
+		
+		void renumber(int[] indices) {
+			for (int i = 0; i < inputs.length; i++) {
+				inputs[i] = indices[inputs[i]];
+			}
+			for (int i = 0; i < outputs.length; i++) {
+				outputs[i] = indices[outputs[i]];
+			}
+		}
+		
+		abstract void evaluate(long[] values, long[] defined);
+	}
+	
+	/**
+	 * The same evaluation as Gate.compile, with the bits of a wire in separate nets.
+	 */
+	private static class GateOperation extends Operation {
+		private final BitwiseOperation operation;
+		private final long[] negateMasks;
+		private final boolean negateOutput;
+		
+		GateOperation(Gate gate, Map<Link, int[]> linkNets, Nets nets) {
+			super(getInputNets(gate, linkNets, nets), getNets(gate.getOutPort(), linkNets, nets).clone());
+			
+			operation = gate.getBitwiseOperation();
+			negateMasks = new long[gate.getNumInputs()];
+			for (int i = 0; i < negateMasks.length; i++) {
+				negateMasks[i] = gate.getNegateInputs()[i] ? -1L : 0L;
+			}
+			negateOutput = gate.getNegateOutput();
+		}
+		
+		private static int[] getInputNets(Gate gate, Map<Link, int[]> linkNets, Nets nets) {
+			int[][] inputs = new int[gate.getNumInputs()][];
+			for (int i = 0; i < inputs.length; i++) {
+				inputs[i] = getNets(gate.getPort(i), linkNets, nets);
+			}
+			return concat(inputs);
+		}
+		
+		@Override
+		void evaluate(long[] values, long[] defined) {
+			int bitSize = outputs.length;
+			for (int bit = 0; bit < bitSize; bit++) {
+				long accDefined = defined[inputs[bit]];
+				long accValue = (values[inputs[bit]] ^ negateMasks[0]) & accDefined;
+				long allX = ~accDefined;
+				
+				for (int i = 1; i < negateMasks.length; i++) {
+					int net = inputs[i * bitSize + bit];
+					long inputDefined = defined[net];
+					long inputValue = (values[net] ^ negateMasks[i]) & inputDefined;
+					
+					accValue = operation.operate(accValue, accDefined, inputValue, inputDefined);
+					accDefined = -1L;
+					allX &= ~inputDefined;
+				}
+				
+				if (negateOutput) {
+					accValue = ~accValue & accDefined;
+				}
+				
+				long outputDefined = accDefined & ~allX;
+				values[outputs[bit]] = accValue & outputDefined;
+				defined[outputs[bit]] = outputDefined;
+			}
+		}
+	}
+	
+	/**
+	 * A ripple-carry adder on every lane at once. Like the Adder, lanes where A or B has an X bit are all X.
+	 */
+	private static class AdderOperation extends Operation {
+		private final int bitSize;
+		
+		AdderOperation(Adder adder, Map<Link, int[]> linkNets, Nets nets) {
+			super(concat(getNets(adder.getPort(Adder.PORT_A), linkNets, nets),
+			             getNets(adder.getPort(Adder.PORT_B), linkNets, nets),
+			             getNets(adder.getPort(Adder.PORT_CARRY_IN), linkNets, nets)),
+			      concat(getNets(adder.getPort(Adder.PORT_OUT), linkNets, nets),
+			             getNets(adder.getPort(Adder.PORT_CARRY_OUT), linkNets, nets)));
+			bitSize = adder.getBitSize();
+		}
+		
+		@Override
+		void evaluate(long[] values, long[] defined) {
+			long valid = -1L;
+			for (int bit = 0; bit < 2 * bitSize; bit++) {
+				valid &= defined[inputs[bit]];
+			}
+			
+			long carry = values[inputs[2 * bitSize]];
+			for (int bit = 0; bit < bitSize; bit++) {
+				long a = values[inputs[bit]];
+				long b = values[inputs[bitSize + bit]];
+				
+				values[outputs[bit]] = (a ^ b ^ carry) & valid;
+				defined[outputs[bit]] = valid;
+				carry = (a & b) | ((a | b) & carry);
+			}
+			
+			values[outputs[bitSize]] = carry & valid;
+			defined[outputs[bitSize]] = valid;
+		}
+	}
+	
+	private static class ConstantOperation extends Operation {
+		private final WireValue value;
+		
+		ConstantOperation(WireValue value, int[] outputs) {
+			super(new int[0], outputs.clone());
+			this.value = value;
+		}
+		
+		@Override
+		void evaluate(long[] values, long[] defined) {
+			for (int bit = 0; bit < outputs.length; bit++) {
+				values[outputs[bit]] = value.getBit(bit) == State.ONE ? -1L : 0L;
+				defined[outputs[bit]] = -1L;
+			}
+		}
+	}
+}
@@ -0,0 +1,465 @@
+package com.ra4king.circuitsim.simulator.waveform;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Port;
+import com.ra4king.circuitsim.simulator.Port.Link;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.Simulator.SettleListener;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * Records the values of selected nets into a Value Change Dump (IEEE 1364) as the simulation runs, so the traces of two
+ * designs can be compared with any waveform viewer or diff tool.
+ * <p>
+ * Signals are added with {@link #addSignal} or by walking the hierarchy with {@link #addNamedSignals}, then
+ * {@link #start()} writes the header and the initial values. From then on, the values of all signals are sampled every
+ * time the Simulator settles, and only the ones that changed are written. Each Subcircuit is its own scope.
+ * <p>
+ * The dump is streamed through a fixed buffer into the channel, so memory use does not grow with the length of the
+ * simulation. Times are the simulated time in timed mode, otherwise the number of times the Simulator settled since
+ * the recording started, unless another source is set with {@link #setTimeSource}. VCD requires a timescale, so
+ * 1ns stands for one unit of time either way, and a comment in the header says what that unit is when the recording
+ * starts. Settle counts are not nanoseconds, they only order the changes. Undefined bits and the bits of short
+ * circuited nets are written as x.
+ * <p>
+ * If writing fails, for example because the disk is full, the recording stops without interrupting the simulation and
+ * the error is thrown by {@link #close()}.
+ *
+ * @author Roi Atalla
+ */
+public class WaveformRecorder implements SettleListener, AutoCloseable {
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	// The longest value change is a 'b', 64 bits, a space, an identifier and a newline
+	private static final int MAX_CHANGE_LENGTH = 80;
+	
+	// Identifiers are written in base 94, using the printable ASCII characters
+	private static final char FIRST_ID_CHAR = '!';
+	private static final int ID_CHARS = '~' - '!' + 1;
+	
+	private final Simulator simulator;
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	
+	private final Scope root = new Scope();
+	private final List<Signal> signals = new ArrayList<>();
+	
+	private LongSupplier timeSource;
+	private long settleCount;
+	private long lastTime;
+	
+	private boolean started;
+	private boolean closed;
+	
+	// The write error that stopped the recording, thrown by close()
+	private IOException error;
+	
+	/**
+	 * Creates a recorder that writes to the file, replacing it if it exists.
+	 */
+	public WaveformRecorder(Simulator simulator, Path file) throws IOException {
+		this(simulator,
+		     FileChannel.open(file,
+		                      StandardOpenOption.CREATE,
+		                      StandardOpenOption.TRUNCATE_EXISTING,
+		                      StandardOpenOption.WRITE));
+	}
+	
+	/**
+	 * Creates a recorder that writes to the channel, which is closed along with the recorder.
+	 */
+	public WaveformRecorder(Simulator simulator, WritableByteChannel channel) {
+		this.simulator = simulator;
+		this.channel = channel;
+	}
+	
+	/**
+	 * Sets the source of the time of every sample, which must never decrease. Each unit is written as 1ns.
+	 *
+	 * @param timeSource The source of times, or null for the default.
+	 */
+	public void setTimeSource(LongSupplier timeSource) {
+		this.timeSource = timeSource;
+	}
+	
+	/**
+	 * Adds the net the Port is linked to in the given state. The Port's Link is looked up on every sample, so the
+	 * signal follows the net if the circuit is rewired.
+	 *
+	 * @param scope The scope of the signal, with nested scopes separated by dots, or an empty String for the top.
+	 * @param name  The name of the signal, which must be unique in its scope.
+	 * @param state The CircuitState to read the net from.
+	 * @param port  The Port linked to the net.
+	 */
+	public void addSignal(String scope, String name, CircuitState state, Port port) {
+		if (started) {
+			throw new IllegalStateException("Cannot add signals once the recording started.");
+		}
+		
+		Scope current = root;
+		if (!scope.isEmpty()) {
+			for (String part : scope.split("\\.")) {
+				current = current.children.computeIfAbsent(sanitize(part), s -> new Scope());
+			}
+		}
+		
+		String sanitized = sanitize(name);
+		for (Signal signal : current.signals) {
+			if (signal.name.equals(sanitized)) {
+				throw new IllegalArgumentException("Signal " + name + " already exists in scope '" + scope + "'.");
+			}
+		}
+		
+		Signal signal = new Signal(sanitized, state, port, getId(signals.size()));
+		current.signals.add(signal);
+		signals.add(signal);
+	}
+	
+	/**
+	 * Adds the input and output Pins of the state and of all its Subcircuits.
+	 */
+	public void addPins(CircuitState state) {
+		addNamedSignals(state, component -> component instanceof Pin);
+	}
+	
+	/**
+	 * Adds the nets of the named Components accepted by the filter, in the state and all its Subcircuits, such as Pins,
+	 * Probes and Tunnels. The net of a Component is the one linked to its first Port. Components are added by name,
+	 * so Components sharing a name in the same scope, such as Tunnels with the same label, are recorded once.
+	 *
+	 * @param state  The top-level CircuitState.
+	 * @param filter Which Components to record.
+	 */
+	public void addNamedSignals(CircuitState state, Predicate<Component> filter) {
+		simulator.runSync(() -> addNamedSignals("", state, filter));
+	}
+	
+	private void addNamedSignals(String scope, CircuitState state, Predicate<Component> filter) {
+		List<Component> components = new ArrayList<>(state.getCircuit().getComponents());
+		components.sort(Comparator.comparing(Component::getName));
+		
+		Set<String> names = new HashSet<>();
+		Map<String, Integer> subcircuitCounts = new LinkedHashMap<>();
+		for (Component component : components) {
+			if (component instanceof Subcircuit) {
+				Subcircuit subcircuit = (Subcircuit)component;
+				String name = subcircuit.getName().isEmpty() ? subcircuit.getSubcircuit().getName()
+				                                              : subcircuit.getName();
+				int count = subcircuitCounts.merge(name, 1, Integer::sum);
+				if (count > 1) {
+					name += "_" + count;
+				}
+				
+				String child = scope.isEmpty() ? sanitize(name) : scope + "." + sanitize(name);
+				addNamedSignals(child, subcircuit.getSubcircuitState(state), filter);
+			} else if (!component.getName().isEmpty() &&
+			           component.getNumPorts() > 0 &&
+			           filter.test(component) &&
+			           names.add(sanitize(component.getName()))) {
+				addSignal(scope, component.getName(), state, component.getPort(0));
+			}
+		}
+	}
+	
+	/**
+	 * Writes the header and the current values of all signals, then records every time the Simulator settles.
+	 */
+	public void start() {
+		simulator.runSync(() -> {
+			if (started) {
+				throw new IllegalStateException("The recording already started.");
+			}
+			started = true;
+			
+			if (timeSource == null) {
+				write(simulator.isTimed() ? "$comment 1ns is one unit of propagation delay $end\n"
+				                          : "$comment Times count the settles of the simulation, not ns $end\n");
+			}
+			write("$timescale 1ns $end\n");
+			writeScope("top", root);
+			write("$enddefinitions $end\n");
+			
+			lastTime = getTime();
+			write("#");
+			write(Long.toString(lastTime));
+			write("\n$dumpvars\n");
+			for (Signal signal : signals) {
+				signal.sample();
+				writeChange(signal);
+			}
+			write("$end\n");
+			
+			simulator.addSettleListener(this);
+		});
+	}
+	
+	@Override
+	public void settled(Simulator simulator) {
+		settleCount++;
+		
+		try {
+			boolean timeWritten = false;
+			for (Signal signal : signals) {
+				if (signal.sample()) {
+					if (!timeWritten) {
+						timeWritten = true;
+						
+						// Times must increase, changes after stepping back or resetting are written at the last time
+						long time = getTime();
+						if (time > lastTime) {
+							lastTime = time;
+							write("#");
+							write(Long.toString(time));
+							write("\n");
+						}
+					}
+					
+					writeChange(signal);
+				}
+			}
+		} catch (UncheckedIOException exc) {
+			// Failing here would break the simulation, stop recording instead
+			stop(exc.getCause());
+		}
+	}
+	
+	/**
+	 * Writes out the buffered changes.
+	 *
+	 * @throws UncheckedIOException If writing fails or failed earlier, which stops the recording.
+	 */
+	public void flush() {
+		simulator.runSync(() -> {
+			if (error == null) {
+				try {
+					flushBuffer();
+				} catch (IOException exc) {
+					stop(exc);
+				}
+			}
+			
+			if (error != null) {
+				throw new UncheckedIOException(error);
+			}
+		});
+	}
+	
+	/**
+	 * Stops recording, writes out the buffered changes and closes the channel.
+	 *
+	 * @throws IOException If writing fails, or the write error that stopped the recording earlier.
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException[] exception = new IOException[1];
+		simulator.runSync(() -> {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			
+			simulator.removeSettleListener(this);
+			if (error != null) {
+				exception[0] = error;
+				return;
+			}
+			
+			try {
+				flushBuffer();
+			} catch (IOException exc) {
+				exception[0] = exc;
+			}
+		});
+		
+		try {
+			channel.close();
+		} catch (IOException exc) {
+			if (exception[0] == null) {
+				exception[0] = exc;
+			} else {
+				exception[0].addSuppressed(exc);
+			}
+		}
+		
+		if (exception[0] != null) {
+			throw exception[0];
+		}
+	}
+	
+	private void stop(IOException exc) {
+		error = exc;
+		simulator.removeSettleListener(this);
+		buffer.clear();
+	}
+	
+	private long getTime() {
+		if (timeSource != null) {
+			return timeSource.getAsLong();
+		}
+		
+		return simulator.isTimed() ? simulator.getTime() : settleCount;
+	}
+	
+	private void writeScope(String name, Scope scope) {
+		write("$scope module ");
+		write(name);
+		write(" $end\n");
+		
+		for (Signal signal : scope.signals) {
+			write("$var wire ");
+			write(Integer.toString(signal.bitSize));
+			write(" ");
+			write(signal.id);
+			write(" ");
+			write(signal.name);
+			if (signal.bitSize > 1) {
+				write(" [");
+				write(Integer.toString(signal.bitSize - 1));
+				write(":0]");
+			}
+			write(" $end\n");
+		}
+		
+		scope.children.forEach(this::writeScope);
+		write("$upscope $end\n");
+	}
+	
+	private void writeChange(Signal signal) {
+		ensureRemaining(MAX_CHANGE_LENGTH);
+		
+		if (signal.bitSize > 1) {
+			buffer.put((byte)'b');
+		}
+		for (int bit = signal.bitSize - 1; bit >= 0; bit--) {
+			if ((signal.defined & (1L << bit)) == 0) {
+				buffer.put((byte)'x');
+			} else {
+				buffer.put((signal.value & (1L << bit)) == 0 ? (byte)'0' : (byte)'1');
+			}
+		}
+		if (signal.bitSize > 1) {
+			buffer.put((byte)' ');
+		}
+		write(signal.id);
+		buffer.put((byte)'\n');
+	}
+	
+	/**
+	 * Writes the ASCII characters of the String.
+	 */
+	private void write(String string) {
+		for (int i = 0; i < string.length(); i++) {
+			ensureRemaining(1);
+			buffer.put((byte)string.charAt(i));
+		}
+	}
+	
+	private void ensureRemaining(int length) {
+		if (buffer.remaining() < length) {
+			try {
+				flushBuffer();
+			} catch (IOException exc) {
+				throw new UncheckedIOException(exc);
+			}
+		}
+	}
+	
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	private static String getId(int index) {
+		StringBuilder id = new StringBuilder();
+		do {
+			id.append((char)(FIRST_ID_CHAR + index % ID_CHARS));
+			index /= ID_CHARS;
+		} while (index > 0);
+		return id.toString();
+	}
+	
+	/**
+	 * VCD identifiers cannot contain whitespace, nor dots which would be mistaken for scopes.
+	 */
+	private static String sanitize(String name) {
+		StringBuilder sanitized = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			sanitized.append(c > ' ' && c <= '~' && c != '.' ? c : '_');
+		}
+		return sanitized.length() == 0 ? "_" : sanitized.toString();
+	}
+	
+	private static class Scope {
+		private final List<Signal> signals = new ArrayList<>();
+		private final Map<String, Scope> children = new LinkedHashMap<>();
+	}
+	
+	private static class Signal {
+		private final String name;
+		private final CircuitState state;
+		private final Port port;
+		private final String id;
+		private final int bitSize;
+		
+		private long value;
+		private long defined;
+		
+		Signal(String name, CircuitState state, Port port, String id) {
+			this.name = name;
+			this.state = state;
+			this.port = port;
+			this.id = id;
+			this.bitSize = port.getLink().getBitSize();
+		}
+		
+		/**
+		 * Reads the current value of the net.
+		 *
+		 * @return Whether it changed since the last sample.
+		 */
+		boolean sample() {
+			long newValue = 0;
+			long newDefined = 0;
+			
+			Link link = port.getLink();
+			try {
+				if (!state.isShortCircuited(link)) {
+					WireValue merged = state.getMergedValue(link);
+					newValue = merged.getValueBits() & merged.getDefinedBits();
+					newDefined = merged.getDefinedBits();
+				}
+			} catch (IllegalArgumentException exc) {
+				// The Component was removed from the circuit, its net is undefined
+			}
+			
+			boolean changed = newValue != value || newDefined != defined;
+			value = newValue;
+			defined = newDefined;
+			return changed;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+module Project.com.ra4king.circuitsim.simulator {
+	requires com.google.gson;
+	requires jdk.jfr;
+	exports com.ra4king.circuitsim.simulator;
+	exports com.ra4king.circuitsim.simulator.components;
+	exports com.ra4king.circuitsim.simulator.components.arithmetic;
+	exports com.ra4king.circuitsim.simulator.components.debugging;
+	exports com.ra4king.circuitsim.simulator.components.gates;
+	exports com.ra4king.circuitsim.simulator.components.memory;
+	exports com.ra4king.circuitsim.simulator.components.plexers;
+	exports com.ra4king.circuitsim.simulator.components.wiring;
+	exports com.ra4king.circuitsim.simulator.file;
+	exports com.ra4king.circuitsim.simulator.grading;
+	exports com.ra4king.circuitsim.simulator.jfr;
+	exports com.ra4king.circuitsim.simulator.vector;
+	exports com.ra4king.circuitsim.simulator.waveform;
+	opens com.ra4king.circuitsim.simulator.file to com.google.gson;
+	opens com.ra4king.circuitsim.simulator.grading to com.google.gson;
+}
@@ -0,0 +1,146 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Checkpoint;
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.gates.NotGate;
+import com.ra4king.circuitsim.simulator.components.memory.RAM;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.wiring.Constant;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class CheckpointTest {
+	private final Simulator simulator = new Simulator();
+	private final Circuit counter = new Circuit("Counter", simulator);
+	private final Circuit top = new Circuit("Top", simulator);
+	
+	private final Pin clock;
+	private final Pin address;
+	private final Pin out;
+	private final RAM ram;
+	private final CircuitState state;
+	
+	/**
+	 * A counter in a Subcircuit, whose values are stored into a RAM.
+	 */
+	public CheckpointTest() {
+		Pin counterClock = counter.addComponent(new Pin("Clk", 1, true));
+		Pin counterOut = counter.addComponent(new Pin("Out", 8, false));
+		Register register = counter.addComponent(new Register("", 8));
+		Adder adder = counter.addComponent(new Adder("", 8));
+		Constant one = counter.addComponent(new Constant("", 8, 1));
+		register.getPort(Register.PORT_IN).linkPort(adder.getPort(Adder.PORT_OUT));
+		register.getPort(Register.PORT_CLK).linkPort(counterClock.getPort(Pin.PORT));
+		register.getPort(Register.PORT_OUT)
+		        .linkPort(adder.getPort(Adder.PORT_A))
+		        .linkPort(counterOut.getPort(Pin.PORT));
+		adder.getPort(Adder.PORT_B).linkPort(one.getPort(Constant.PORT));
+		
+		clock = top.addComponent(new Pin("Clk", 1, true));
+		address = top.addComponent(new Pin("Address", 4, true));
+		out = top.addComponent(new Pin("Out", 8, false));
+		Subcircuit subcircuit = top.addComponent(new Subcircuit("", counter));
+		ram = top.addComponent(new RAM("", 8, 4, true));
+		Constant store = top.addComponent(new Constant("", 1, 1));
+		subcircuit.getPort(counterClock).linkPort(clock.getPort(Pin.PORT)).linkPort(ram.getPort(RAM.PORT_CLK));
+		subcircuit.getPort(counterOut).linkPort(out.getPort(Pin.PORT)).linkPort(ram.getPort(RAM.PORT_DATA_IN));
+		ram.getPort(RAM.PORT_ADDRESS).linkPort(address.getPort(Pin.PORT));
+		ram.getPort(RAM.PORT_STORE).linkPort(store.getPort(Constant.PORT));
+		
+		state = top.getTopLevelState();
+		clock.setValue(state, WireValue.of(0, 1));
+		address.setValue(state, WireValue.of(3, 4));
+		simulator.stepAll();
+	}
+	
+	private void runCycles(int cycles) {
+		for (int i = 0; i < cycles; i++) {
+			clock.setValue(state, WireValue.of(1, 1));
+			simulator.stepAll();
+			clock.setValue(state, WireValue.of(0, 1));
+			simulator.stepAll();
+		}
+	}
+	
+	@Test
+	public void testRestore() {
+		Checkpoint checkpoint = state.checkpoint();
+		int[] checkpointMemory = ram.getMemoryContents(state);
+		
+		runCycles(5);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(5, 8));
+		int stored = ram.load(state, 3);
+		assertThat(stored).isNotEqualTo(0);
+		
+		// The memory was copied on its first write, the Checkpoint still has the original contents
+		assertThat(ram.getMemoryContents(state)).isNotSameInstanceAs(checkpointMemory);
+		assertThat(checkpointMemory[3]).isEqualTo(0);
+		
+		// The same Checkpoint can be restored any number of times, and the circuit runs the same way every time
+		for (int i = 0; i < 3; i++) {
+			state.restore(checkpoint);
+			assertThat(simulator.hasLinksToUpdate()).isFalse();
+			assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(0, 8));
+			assertThat(ram.getMemoryContents(state)).isSameInstanceAs(checkpointMemory);
+			
+			runCycles(5);
+			assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(5, 8));
+			assertThat(ram.load(state, 3)).isEqualTo(stored);
+		}
+	}
+	
+	@Test
+	public void testRestoreOlderCheckpoint() {
+		Checkpoint first = state.checkpoint();
+		runCycles(2);
+		Checkpoint second = state.checkpoint();
+		runCycles(2);
+		
+		state.restore(first);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(0, 8));
+		
+		state.restore(second);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(2, 8));
+		runCycles(1);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(3, 8));
+	}
+	
+	@Test
+	public void testRestorePendingLinks() {
+		// The rising edge has not been propagated yet when captured
+		clock.setValue(state, WireValue.of(1, 1));
+		Checkpoint checkpoint = state.checkpoint();
+		simulator.stepAll();
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(1, 8));
+		
+		state.restore(checkpoint);
+		assertThat(simulator.hasLinksToUpdate()).isTrue();
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(0, 8));
+		simulator.stepAll();
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(1, 8));
+	}
+	
+	@Test
+	public void testModifiedCircuit() {
+		Checkpoint checkpoint = state.checkpoint();
+		runCycles(1);
+		
+		counter.addComponent(new NotGate("", 1));
+		assertThrows(IllegalStateException.class, () -> state.restore(checkpoint));
+		
+		// Nothing was restored
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(1, 8));
+	}
+}
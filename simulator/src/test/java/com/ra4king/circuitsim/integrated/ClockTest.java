@@ -0,0 +1,190 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock.RunInfo;
+import com.ra4king.circuitsim.simulator.components.wiring.Constant;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class ClockTest {
+	@Test
+	public void testClock() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Clock Test", simulator);
+		
+		Clock clock = circuit.addComponent(new Clock("Clock"));
+		Register register = circuit.addComponent(new Register("Register", 32));
+		Adder adder = circuit.addComponent(new Adder("Adder", 32));
+		Pin din = circuit.addComponent(new Pin("Din", 32, true));
+		Pin cin = circuit.addComponent(new Pin("Cin", 1, true));
+		Pin out = circuit.addComponent(new Pin("Out", 32, false));
+		
+		register.getPort(Register.PORT_IN).linkPort(adder.getPort(Adder.PORT_OUT));
+		register.getPort(Register.PORT_CLK).linkPort(clock.getPort(Clock.PORT));
+		adder.getPort(Adder.PORT_A).linkPort(register.getPort(Register.PORT_OUT)).linkPort(out.getPort(Pin.PORT));
+		adder.getPort(Adder.PORT_B).linkPort(din.getPort(Pin.PORT));
+		adder.getPort(Adder.PORT_CARRY_IN).linkPort(cin.getPort(Pin.PORT));
+		
+		out.addChangeListener(circuit.getTopLevelState(), (pin, state, value) -> {
+			int v = value.getValue();
+			if (v % 100000 == 0) {
+				System.out.println(
+					value + " - " + value.getValue() + " - " + Clock.getLastTickCount(simulator) + " Hz");
+			}
+		});
+		
+		din.setValue(circuit.getTopLevelState(), WireValue.of(1, 32));
+		cin.setValue(circuit.getTopLevelState(), WireValue.of(0, 1));
+		simulator.stepAll();
+		
+		Clock.addChangeListener(simulator, value -> simulator.stepAll());
+		Clock.startClock(simulator, 1000000);
+	}
+	
+	@Test
+	public void testRunCycles() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Counter", simulator);
+		
+		Clock clock = circuit.addComponent(new Clock("Clock"));
+		Register register = circuit.addComponent(new Register("Register", 32));
+		Adder adder = circuit.addComponent(new Adder("Adder", 32));
+		Pin din = circuit.addComponent(new Pin("Din", 32, true));
+		Pin out = circuit.addComponent(new Pin("Out", 32, false));
+		
+		register.getPort(Register.PORT_IN).linkPort(adder.getPort(Adder.PORT_OUT));
+		register.getPort(Register.PORT_CLK).linkPort(clock.getPort(Clock.PORT));
+		adder.getPort(Adder.PORT_A).linkPort(register.getPort(Register.PORT_OUT)).linkPort(out.getPort(Pin.PORT));
+		adder.getPort(Adder.PORT_B).linkPort(din.getPort(Pin.PORT));
+		
+		CircuitState state = circuit.getTopLevelState();
+		din.setValue(state, WireValue.of(1, 32));
+		simulator.stepAll();
+		
+		int[] listenerCalls = new int[1];
+		Clock.addChangeListener(simulator, value -> listenerCalls[0]++);
+		
+		// Every cycle has exactly one rising edge
+		RunInfo info = Clock.runCycles(simulator, 1000);
+		assertThat(info.getCycles()).isEqualTo(1000L);
+		assertThat(info.isConditionMet()).isTrue();
+		assertThat(info.getCyclesPerSecond()).isGreaterThan(0.0);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(1000, 32));
+		assertThat(Clock.getTickState(simulator)).isFalse();
+		assertThat(listenerCalls[0]).isEqualTo(1);
+		
+		info = Clock.runUntil(simulator, () -> state.getLastReceived(out.getPort()).getValue() == 1500, 10000);
+		assertThat(info.getCycles()).isEqualTo(500L);
+		assertThat(info.isConditionMet()).isTrue();
+		
+		// The condition is checked before the first cycle
+		info = Clock.runUntil(simulator, () -> true, 10000);
+		assertThat(info.getCycles()).isEqualTo(0L);
+		
+		info = Clock.runUntil(simulator, () -> false, 20);
+		assertThat(info.getCycles()).isEqualTo(20L);
+		assertThat(info.isConditionMet()).isFalse();
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(1520, 32));
+	}
+	
+	@Test
+	public void testClockDomains() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Counters", simulator);
+		
+		Pin main = addCounter(circuit, new Clock("Main"));
+		Pin fast = addCounter(circuit, new Clock("Fast", "fast", 4, 0));
+		Pin late = addCounter(circuit, new Clock("Late", "late", 1, 0.25));
+		assertThat(Clock.getDomainFrequency(simulator, "fast")).isEqualTo(4);
+		assertThat(Clock.getDomainPhase(simulator, "late")).isEqualTo(0.25);
+		
+		CircuitState state = circuit.getTopLevelState();
+		simulator.stepAll();
+		
+		// The main domain runs at 1 Hz, so 10 cycles span 9.5 seconds of clock time
+		Clock.runCycles(simulator, 10);
+		assertThat(state.getLastReceived(main.getPort())).isEqualTo(WireValue.of(10, 32));
+		assertThat(state.getLastReceived(fast.getPort())).isEqualTo(WireValue.of(39, 32));
+		assertThat(state.getLastReceived(late.getPort())).isEqualTo(WireValue.of(10, 32));
+		assertThat(Clock.getTickState(simulator)).isFalse();
+		assertThat(Clock.getTickState(simulator, "late")).isTrue();
+		
+		assertThat(Clock.getTickState(simulator, "fast")).isTrue();
+		
+		// Single ticks go through the same schedule, the next being the fast domain at 9.625 seconds
+		Clock.tick(simulator);
+		simulator.stepAll();
+		assertThat(Clock.getTickState(simulator, "fast")).isFalse();
+		assertThat(Clock.getTickState(simulator, "late")).isTrue();
+		
+		// Then the fast domain rises again at 9.75 seconds, as the late domain falls
+		Clock.tick(simulator);
+		simulator.stepAll();
+		assertThat(Clock.getTickState(simulator, "late")).isFalse();
+		assertThat(state.getLastReceived(fast.getPort())).isEqualTo(WireValue.of(40, 32));
+		assertThat(state.getLastReceived(main.getPort())).isEqualTo(WireValue.of(10, 32));
+		
+		Clock.reset(simulator);
+		simulator.stepAll();
+		assertThat(Clock.getTickState(simulator, "fast")).isFalse();
+		assertThat(Clock.getTickState(simulator, "late")).isFalse();
+	}
+	
+	@Test
+	public void testAddDomainsWhileRunning() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Domains", simulator);
+		addCounter(circuit, new Clock("Main"));
+		
+		Clock.startClock(simulator, 1 << 14);
+		try {
+			// Clocks are added under the Simulator's lock, while the clock thread ticks and waits for it
+			assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+				for (int i = 0; i < 200; i++) {
+					int domain = i;
+					simulator.runSync(() -> {
+						circuit.addComponent(new Clock("", "domain " + domain, 2, 0.5));
+						Thread.yield();
+						circuit.addComponent(new Clock("", "domain " + domain));
+					});
+				}
+			});
+			
+			assertThat(Clock.getDomainFrequency(simulator, "domain 199")).isEqualTo(2);
+		} finally {
+			Clock.dispose(simulator);
+		}
+	}
+	
+	/**
+	 * @return The output Pin of a counter incremented on every rising edge of the Clock.
+	 */
+	private static Pin addCounter(Circuit circuit, Clock clock) {
+		circuit.addComponent(clock);
+		Register register = circuit.addComponent(new Register("", 32));
+		Adder adder = circuit.addComponent(new Adder("", 32));
+		Constant one = circuit.addComponent(new Constant("", 32, 1));
+		Pin out = circuit.addComponent(new Pin("", 32, false));
+		
+		register.getPort(Register.PORT_IN).linkPort(adder.getPort(Adder.PORT_OUT));
+		register.getPort(Register.PORT_CLK).linkPort(clock.getPort(Clock.PORT));
+		adder.getPort(Adder.PORT_A).linkPort(register.getPort(Register.PORT_OUT)).linkPort(out.getPort(Pin.PORT));
+		adder.getPort(Adder.PORT_B).linkPort(one.getPort(Constant.PORT));
+		return out;
+	}
+}
@@ -0,0 +1,167 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.WireValue.State;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.arithmetic.BitExtender;
+import com.ra4king.circuitsim.simulator.components.arithmetic.BitExtender.ExtensionType;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Negator;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Subtractor;
+import com.ra4king.circuitsim.simulator.components.gates.AndGate;
+import com.ra4king.circuitsim.simulator.components.gates.Gate;
+import com.ra4king.circuitsim.simulator.components.gates.NandGate;
+import com.ra4king.circuitsim.simulator.components.gates.NorGate;
+import com.ra4king.circuitsim.simulator.components.gates.NotGate;
+import com.ra4king.circuitsim.simulator.components.gates.OrGate;
+import com.ra4king.circuitsim.simulator.components.gates.XnorGate;
+import com.ra4king.circuitsim.simulator.components.gates.XorGate;
+import com.ra4king.circuitsim.simulator.components.plexers.Decoder;
+import com.ra4king.circuitsim.simulator.components.plexers.Multiplexer;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class CompiledEvaluationTest {
+	private static final int[] BIT_SIZES = { 1, 7, 32, 64 };
+	private static final int ROUNDS = 200;
+	
+	@Test
+	public void testCompiledMatchesInterpreted() {
+		List<List<WireValue>> interpreted = simulate(false);
+		List<List<WireValue>> compiled = simulate(true);
+		
+		assertThat(compiled).hasSize(ROUNDS);
+		assertThat(compiled).isEqualTo(interpreted);
+	}
+	
+	/**
+	 * Drives chains of every compiled Component type with the same random inputs, including X bits, and records the
+	 * values received by every Port after each round.
+	 */
+	private static List<List<WireValue>> simulate(boolean compiledEvaluation) {
+		Simulator simulator = new Simulator();
+		simulator.setCompiledEvaluation(compiledEvaluation);
+		Circuit circuit = new Circuit("Compiled", simulator);
+		
+		List<Pin> inputs = new ArrayList<>();
+		List<Component> components = new ArrayList<>();
+		
+		for (int bitSize : BIT_SIZES) {
+			Pin a = circuit.addComponent(new Pin("A", bitSize, true));
+			Pin b = circuit.addComponent(new Pin("B", bitSize, true));
+			Pin carry = circuit.addComponent(new Pin("C", 1, true));
+			Pin select = circuit.addComponent(new Pin("S", 2, true));
+			inputs.add(a);
+			inputs.add(b);
+			inputs.add(carry);
+			inputs.add(select);
+			
+			Gate[] gates = {
+				new AndGate("", bitSize, 3, new boolean[] { true, false, false }),
+				new OrGate("", bitSize, 2),
+				new XorGate("", bitSize, 3),
+				new NandGate("", bitSize, 2, new boolean[] { false, true }),
+				new NorGate("", bitSize, 2),
+				new XnorGate("", bitSize, 2),
+				new NotGate("", bitSize),
+			};
+			
+			// Each gate reads the previous gate and the B input, so every link between them is internal
+			Gate last = null;
+			for (Gate gate : gates) {
+				circuit.addComponent(gate);
+				components.add(gate);
+				gate.getPort(0).linkPort(last == null ? a.getPort(Pin.PORT) : last.getOutPort());
+				for (int i = 1; i < gate.getNumInputs(); i++) {
+					gate.getPort(i).linkPort(b.getPort(Pin.PORT));
+				}
+				last = gate;
+			}
+			
+			Adder adder = circuit.addComponent(new Adder("", bitSize));
+			adder.getPort(Adder.PORT_A).linkPort(last.getOutPort());
+			adder.getPort(Adder.PORT_B).linkPort(b.getPort(Pin.PORT));
+			adder.getPort(Adder.PORT_CARRY_IN).linkPort(carry.getPort(Pin.PORT));
+			
+			Subtractor subtractor = circuit.addComponent(new Subtractor("", bitSize));
+			subtractor.getPort(Subtractor.PORT_A).linkPort(adder.getPort(Adder.PORT_OUT));
+			subtractor.getPort(Subtractor.PORT_B).linkPort(a.getPort(Pin.PORT));
+			subtractor.getPort(Subtractor.PORT_CARRY_IN).linkPort(adder.getPort(Adder.PORT_CARRY_OUT));
+			
+			Negator negator = circuit.addComponent(new Negator("", bitSize));
+			negator.getPort(Negator.PORT_IN).linkPort(subtractor.getPort(Subtractor.PORT_OUT));
+			
+			components.add(adder);
+			components.add(subtractor);
+			components.add(negator);
+			
+			for (ExtensionType type : ExtensionType.values()) {
+				BitExtender extender = circuit.addComponent(new BitExtender("", bitSize, 64 - bitSize / 2, type));
+				extender.getPort(BitExtender.PORT_IN).linkPort(negator.getPort(Negator.PORT_OUT));
+				components.add(extender);
+			}
+			
+			Multiplexer mux = circuit.addComponent(new Multiplexer("", bitSize, 2));
+			mux.getInputPort(0).linkPort(last.getOutPort());
+			mux.getInputPort(1).linkPort(adder.getPort(Adder.PORT_OUT));
+			mux.getInputPort(2).linkPort(negator.getPort(Negator.PORT_OUT));
+			mux.getInputPort(3).linkPort(a.getPort(Pin.PORT));
+			mux.getSelectorPort().linkPort(select.getPort(Pin.PORT));
+			components.add(mux);
+			
+			Decoder decoder = circuit.addComponent(new Decoder("", 2));
+			decoder.getSelectorPort().linkPort(select.getPort(Pin.PORT));
+			components.add(decoder);
+		}
+		
+		CircuitState state = circuit.getTopLevelState();
+		Random random = new Random(42);
+		
+		List<List<WireValue>> results = new ArrayList<>();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (Pin input : inputs) {
+				input.setValue(state, randomValue(random, input.getBitSize()));
+			}
+			simulator.stepAll();
+			
+			List<WireValue> received = new ArrayList<>();
+			for (Component component : components) {
+				for (int i = 0; i < component.getNumPorts(); i++) {
+					received.add(state.getLastReceived(component.getPort(i)));
+					received.add(state.getLastPushed(component.getPort(i)));
+				}
+			}
+			results.add(received);
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * @return A random value, mostly fully defined and otherwise with some random X bits.
+	 */
+	private static WireValue randomValue(Random random, int bitSize) {
+		WireValue value = WireValue.of(random.nextLong(), bitSize);
+		if (random.nextInt(4) == 0) {
+			for (int bit = 0; bit < bitSize; bit++) {
+				if (random.nextBoolean()) {
+					value.setBit(bit, State.X);
+				}
+			}
+		}
+		return value;
+	}
+}
@@ -0,0 +1,82 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.file.CircuitLoader;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * @author Roi Atalla
+ */
+public class FlightRecorderTest {
+	@Test
+	public void testEvents() throws IOException {
+		Path dump = Files.createTempFile("circuitsim", ".jfr");
+		Simulator simulator = null;
+		try (Recording recording = new Recording()) {
+			recording.enable("com.ra4king.circuitsim.Settle");
+			recording.enable("com.ra4king.circuitsim.ClockTick");
+			recording.enable("com.ra4king.circuitsim.LoadPhase");
+			recording.start();
+			
+			simulator = new CircuitLoader().load(new File("examples/State-Machine.sim")).getSimulator();
+			simulator.stepAll();
+			Clock.runCycles(simulator, 3);
+			
+			recording.stop();
+			recording.dump(dump);
+			
+			List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+			
+			List<RecordedEvent> phases = filter(events, "com.ra4king.circuitsim.LoadPhase");
+			assertThat(phases.stream().map(event -> event.getString("phase")).collect(Collectors.toSet()))
+				.containsExactly("parse", "create circuits", "create components", "add wires");
+			assertThat(phases.get(0).getString("file")).isEqualTo("State-Machine.sim");
+			
+			// Every cycle is two ticks, each settled by its own stepAll
+			List<RecordedEvent> ticks = filter(events, "com.ra4king.circuitsim.ClockTick");
+			assertThat(ticks).hasSize(6);
+			assertThat(ticks.get(5).getLong("tick")).isEqualTo(ticks.get(0).getLong("tick") + 5);
+			
+			List<RecordedEvent> settles = filter(events, "com.ra4king.circuitsim.Settle");
+			assertThat(settles.stream().filter(event -> event.getBoolean("clockTick")).count()).isEqualTo(6);
+			for (RecordedEvent settle : settles) {
+				assertThat(settle.getBoolean("settled")).isTrue();
+				assertThat(settle.getInt("rounds")).isGreaterThan(0);
+			}
+		} finally {
+			if (simulator != null) {
+				Clock.dispose(simulator);
+			}
+			Files.deleteIfExists(dump);
+		}
+	}
+	
+	/**
+	 * Recordings are JVM-wide, so only the events of this thread are kept, not those of Clocks left running.
+	 */
+	private static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+		long threadId = Thread.currentThread().getId();
+		return events
+			.stream()
+			.filter(event -> event.getEventType().getName().equals(name))
+			.filter(event -> event.getThread() != null && event.getThread().getJavaThreadId() == threadId)
+			.sorted(Comparator.comparing(RecordedEvent::getStartTime))
+			.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,131 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.gates.NotGate;
+import com.ra4king.circuitsim.simulator.components.memory.RAM;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Constant;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class JournalTest {
+	private final Simulator simulator = new Simulator();
+	private final Circuit circuit = new Circuit("Counter", simulator);
+	private final Pin out;
+	private final RAM ram;
+	private final CircuitState state;
+	
+	/**
+	 * A counter whose value is stored into a RAM at the address of its low bits on every rising edge.
+	 */
+	public JournalTest() {
+		Clock clock = circuit.addComponent(new Clock("Clock"));
+		Register register = circuit.addComponent(new Register("", 4));
+		Adder adder = circuit.addComponent(new Adder("", 4));
+		Constant one = circuit.addComponent(new Constant("", 4, 1));
+		Constant store = circuit.addComponent(new Constant("", 1, 1));
+		ram = circuit.addComponent(new RAM("", 4, 4, true));
+		out = circuit.addComponent(new Pin("Out", 4, false));
+		
+		register.getPort(Register.PORT_IN).linkPort(adder.getPort(Adder.PORT_OUT));
+		register.getPort(Register.PORT_CLK).linkPort(clock.getPort(Clock.PORT)).linkPort(ram.getPort(RAM.PORT_CLK));
+		register.getPort(Register.PORT_OUT)
+		        .linkPort(adder.getPort(Adder.PORT_A))
+		        .linkPort(out.getPort(Pin.PORT))
+		        .linkPort(ram.getPort(RAM.PORT_ADDRESS))
+		        .linkPort(ram.getPort(RAM.PORT_DATA_IN));
+		adder.getPort(Adder.PORT_B).linkPort(one.getPort(Constant.PORT));
+		ram.getPort(RAM.PORT_STORE).linkPort(store.getPort(Constant.PORT));
+		
+		state = circuit.getTopLevelState();
+		simulator.stepAll();
+	}
+	
+	private int getCount() {
+		return (int)state.getLastReceived(out.getPort()).getValue();
+	}
+	
+	@Test
+	public void testStepBack() {
+		simulator.setJournalCapacity(100);
+		
+		Clock.runCycles(simulator, 10);
+		assertThat(simulator.getTick()).isEqualTo(20L);
+		assertThat(getCount()).isEqualTo(10);
+		int[] memory = ram.getMemoryContents(state).clone();
+		assertThat(memory[9]).isEqualTo(9);
+		
+		// The falling edge changed nothing but the Clock
+		assertThat(Clock.stepBack(simulator, 1)).isEqualTo(1);
+		assertThat(Clock.getTickState(simulator)).isTrue();
+		assertThat(getCount()).isEqualTo(10);
+		
+		// The rising edge incremented the counter and stored 9 at address 9
+		assertThat(Clock.stepBack(simulator, 1)).isEqualTo(1);
+		assertThat(Clock.getTickState(simulator)).isFalse();
+		assertThat(getCount()).isEqualTo(9);
+		assertThat(ram.load(state, 9)).isEqualTo(0);
+		assertThat(simulator.getTick()).isEqualTo(18L);
+		
+		// Running again from there ends up in the same state
+		Clock.runCycles(simulator, 1);
+		assertThat(getCount()).isEqualTo(10);
+		assertThat(ram.getMemoryContents(state)).isEqualTo(memory);
+		
+		// Single ticks are journaled too
+		Clock.tick(simulator);
+		simulator.stepAll();
+		assertThat(getCount()).isEqualTo(11);
+		assertThat(Clock.stepBack(simulator, 3)).isEqualTo(3);
+		assertThat(simulator.getTick()).isEqualTo(18L);
+		assertThat(getCount()).isEqualTo(9);
+		assertThat(Clock.getTickState(simulator)).isFalse();
+	}
+	
+	@Test
+	public void testBoundedCapacity() {
+		simulator.setJournalCapacity(4);
+		
+		Clock.runCycles(simulator, 10);
+		assertThrows(IllegalArgumentException.class, () -> simulator.stepBackTo(15));
+		
+		assertThat(Clock.stepBack(simulator, 100)).isEqualTo(4);
+		assertThat(simulator.getTick()).isEqualTo(16L);
+		assertThat(simulator.getOldestTick()).isEqualTo(16L);
+		assertThat(getCount()).isEqualTo(8);
+		assertThat(simulator.stepBack()).isFalse();
+	}
+	
+	@Test
+	public void testDisabled() {
+		Clock.runCycles(simulator, 3);
+		assertThat(simulator.getJournalCapacity()).isEqualTo(0);
+		assertThat(Clock.stepBack(simulator, 1)).isEqualTo(0);
+		assertThat(getCount()).isEqualTo(3);
+	}
+	
+	@Test
+	public void testModifiedCircuit() {
+		simulator.setJournalCapacity(100);
+		
+		Clock.runCycles(simulator, 2);
+		circuit.addComponent(new NotGate("", 1));
+		assertThrows(IllegalStateException.class, simulator::stepBack);
+		
+		// The journal was dropped
+		assertThat(simulator.getOldestTick()).isEqualTo(simulator.getTick());
+		assertThat(getCount()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,83 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.gates.NotGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class ParallelSimulationTest {
+	private static final int INSTANCES = 100;
+	private static final int CHAIN_LENGTH = 7;
+	
+	@Test
+	public void testParallelMatchesSerial() {
+		List<List<WireValue>> serial = simulate(1);
+		List<List<WireValue>> parallel = simulate(4);
+		
+		assertThat(parallel).isEqualTo(serial);
+		
+		// An odd chain of NOT gates inverts the input
+		for (List<WireValue> outputs : parallel) {
+			assertThat(outputs).hasSize(INSTANCES);
+		}
+		assertThat(parallel.get(0).get(0)).isEqualTo(WireValue.of(~5, 8));
+		assertThat(parallel.get(1).get(INSTANCES - 1)).isEqualTo(WireValue.of(~200, 8));
+	}
+	
+	private static List<List<WireValue>> simulate(int parallelism) {
+		Simulator simulator = new Simulator();
+		simulator.setParallelism(parallelism);
+		
+		Circuit chain = new Circuit("Chain", simulator);
+		Pin in = chain.addComponent(new Pin("In", 8, true));
+		Pin out = chain.addComponent(new Pin("Out", 8, false));
+		
+		NotGate last = null;
+		for (int i = 0; i < CHAIN_LENGTH; i++) {
+			NotGate not = chain.addComponent(new NotGate("", 8));
+			not.getPort(0).linkPort(last == null ? in.getPort(Pin.PORT) : last.getOutPort());
+			last = not;
+		}
+		last.getOutPort().linkPort(out.getPort(Pin.PORT));
+		
+		Circuit top = new Circuit("Top", simulator);
+		Pin topIn = top.addComponent(new Pin("In", 8, true));
+		List<Pin> topOuts = new ArrayList<>();
+		for (int i = 0; i < INSTANCES; i++) {
+			Subcircuit subcircuit = top.addComponent(new Subcircuit("", chain));
+			Pin topOut = top.addComponent(new Pin("Out" + i, 8, false));
+			subcircuit.getPort(in).linkPort(topIn.getPort(Pin.PORT));
+			subcircuit.getPort(out).linkPort(topOut.getPort(Pin.PORT));
+			topOuts.add(topOut);
+		}
+		
+		CircuitState state = top.getTopLevelState();
+		
+		List<List<WireValue>> results = new ArrayList<>();
+		for (int value : new int[] { 5, 200 }) {
+			topIn.setValue(state, WireValue.of(value, 8));
+			simulator.stepAll();
+			
+			List<WireValue> outputs = new ArrayList<>();
+			for (Pin topOut : topOuts) {
+				outputs.add(state.getLastReceived(topOut.getPort(Pin.PORT)));
+			}
+			results.add(outputs);
+		}
+		
+		return results;
+	}
+}
@@ -0,0 +1,127 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.Profiler;
+import com.ra4king.circuitsim.simulator.Profiler.ProfileEntry;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Constant;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class ProfilerTest {
+	private final Simulator simulator = new Simulator();
+	private final Profiler profiler = new Profiler(simulator);
+	
+	@BeforeEach
+	public void setup() {
+		Circuit counter = new Circuit("Counter", simulator);
+		Pin counterClock = counter.addComponent(new Pin("Clk", 1, true));
+		Pin counterOut = counter.addComponent(new Pin("Out", 2, false));
+		Register register = counter.addComponent(new Register("", 2));
+		Adder adder = counter.addComponent(new Adder("", 2));
+		Constant one = counter.addComponent(new Constant("", 2, 1));
+		register.getPort(Register.PORT_IN).linkPort(adder.getPort(Adder.PORT_OUT));
+		register.getPort(Register.PORT_CLK).linkPort(counterClock.getPort(Pin.PORT));
+		register.getPort(Register.PORT_OUT)
+		        .linkPort(adder.getPort(Adder.PORT_A))
+		        .linkPort(counterOut.getPort(Pin.PORT));
+		adder.getPort(Adder.PORT_B).linkPort(one.getPort(Constant.PORT));
+		
+		Circuit top = new Circuit("Top", simulator);
+		Clock clock = top.addComponent(new Clock("Clock"));
+		Subcircuit first = top.addComponent(new Subcircuit("", counter));
+		Subcircuit second = top.addComponent(new Subcircuit("", counter));
+		first.getPort(counterClock).linkPort(clock.getPort(Clock.PORT));
+		second.getPort(counterClock).linkPort(clock.getPort(Clock.PORT));
+		simulator.stepAll();
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		Clock.dispose(simulator);
+	}
+	
+	@Test
+	public void testByTypeAndInstance() {
+		assertThat(profiler.isRunning()).isFalse();
+		Clock.runCycles(simulator, 1);
+		assertThat(profiler.getByType()).isEmpty();
+		
+		profiler.start();
+		assertThat(profiler.isRunning()).isTrue();
+		Clock.runCycles(simulator, 4);
+		profiler.stop();
+		assertThat(profiler.isRunning()).isFalse();
+		
+		Map<String, ProfileEntry> byType = toMap(profiler.getByType());
+		assertThat(byType).containsKey("Subcircuit");
+		assertThat(byType).containsKey("Adder");
+		
+		// Every cycle, each Register sees both clock edges and its incremented input
+		assertThat(byType.get("Register").getCalls()).isEqualTo(2 * 4 * 3);
+		
+		Map<String, ProfileEntry> byInstance = toMap(profiler.getByInstance());
+		assertThat(byInstance).containsKey("Top/Counter/Register");
+		assertThat(byInstance).containsKey("Top/Counter_2/Register");
+		assertThat(byInstance.get("Top/Counter/Register").getCalls()).isEqualTo(4 * 3);
+		
+		for (ProfileEntry entry : byInstance.values()) {
+			assertThat(entry.getSelfNanos()).isAtMost(entry.getNanos());
+		}
+		
+		// Stopped, nothing else is recorded
+		Clock.runCycles(simulator, 2);
+		assertThat(toMap(profiler.getByType()).get("Register").getCalls()).isEqualTo(2 * 4 * 3);
+		
+		profiler.reset();
+		assertThat(profiler.getByType()).isEmpty();
+		assertThat(profiler.getByInstance()).isEmpty();
+	}
+	
+	@Test
+	public void testReports() throws IOException {
+		profiler.start();
+		Clock.runCycles(simulator, 2);
+		profiler.stop();
+		
+		StringBuilder text = new StringBuilder();
+		profiler.writeText(text, 3);
+		assertThat(text.toString()).contains("Hot component types:");
+		assertThat(text.toString()).contains("Hot component instances:");
+		assertThat(text.toString()).contains("more");
+		
+		StringWriter json = new StringWriter();
+		profiler.writeJson(json);
+		JsonObject report = JsonParser.parseString(json.toString()).getAsJsonObject();
+		assertThat(report.getAsJsonArray("types").size()).isEqualTo(profiler.getByType().size());
+		assertThat(report.getAsJsonArray("instances").size()).isEqualTo(profiler.getByInstance().size());
+		
+		JsonObject hottest = report.getAsJsonArray("types").get(0).getAsJsonObject();
+		assertThat(hottest.get("name").getAsString()).isEqualTo(profiler.getByType().get(0).getName());
+		assertThat(hottest.has("selfNanos")).isTrue();
+	}
+	
+	private static Map<String, ProfileEntry> toMap(List<ProfileEntry> entries) {
+		return entries.stream().collect(Collectors.toMap(ProfileEntry::getName, entry -> entry));
+	}
+}
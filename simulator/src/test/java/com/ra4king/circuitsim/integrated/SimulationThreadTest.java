@@ -0,0 +1,121 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.ShortCircuitException;
+import com.ra4king.circuitsim.simulator.SimulationThread;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.AndGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class SimulationThreadTest {
+	@Test
+	public void testPushAndSnapshot() throws InterruptedException {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Thread Test", simulator);
+		
+		AndGate andGate = circuit.addComponent(new AndGate("", 1, 2));
+		Pin in1 = circuit.addComponent(new Pin("A", 1, true));
+		Pin in2 = circuit.addComponent(new Pin("B", 1, true));
+		Pin out = circuit.addComponent(new Pin("Out", 1, false));
+		
+		andGate.getPort(0).linkPort(in1.getPort(Pin.PORT));
+		andGate.getPort(1).linkPort(in2.getPort(Pin.PORT));
+		andGate.getOutPort().linkPort(out.getPort(Pin.PORT));
+		
+		CircuitState state = circuit.getTopLevelState();
+		
+		SimulationThread thread = new SimulationThread(simulator, null);
+		thread.start();
+		try {
+			assertThat(simulator.getSimulationThread()).isSameInstanceAs(thread);
+			
+			thread.watch(state);
+			thread.pushValue(state, in1.getPort(Pin.PORT), WireValue.of(1, 1));
+			thread.pushValue(state, in2.getPort(Pin.PORT), WireValue.of(1, 1));
+			thread.awaitProcessed();
+			
+			CircuitState snapshot = thread.getSnapshot(state);
+			assertThat(snapshot).isNotNull();
+			assertThat(snapshot.getLastReceived(out.getPort(Pin.PORT))).isEqualTo(WireValue.of(1, 1));
+			
+			long generation = thread.getGeneration();
+			simulator.submit(() -> state.pushValue(in2.getPort(Pin.PORT), WireValue.of(0, 1)));
+			thread.awaitProcessed();
+			
+			assertThat(thread.getGeneration()).isGreaterThan(generation);
+			assertThat(thread.getSnapshot(state).getLastReceived(out.getPort(Pin.PORT))).isEqualTo(WireValue.of(0, 1));
+			
+			// The previous snapshot is not affected
+			assertThat(snapshot.getLastReceived(out.getPort(Pin.PORT))).isEqualTo(WireValue.of(1, 1));
+		} finally {
+			thread.stop();
+		}
+		
+		assertThat(simulator.getSimulationThread()).isNull();
+	}
+	
+	@Test
+	public void testStaleSnapshot() throws InterruptedException {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Thread Test", simulator);
+		Pin in = circuit.addComponent(new Pin("A", 1, true));
+		CircuitState state = circuit.getTopLevelState();
+		
+		SimulationThread thread = new SimulationThread(simulator, null);
+		thread.start();
+		try {
+			thread.watch(state);
+			thread.awaitProcessed();
+			assertThat(thread.getSnapshot(state)).isNotNull();
+			
+			// Its values are indexed by the Ports and Links of the circuit before the edit
+			Pin out = circuit.addComponent(new Pin("Out", 1, false));
+			assertThat(thread.getSnapshot(state)).isNull();
+			
+			out.getPort(Pin.PORT).linkPort(in.getPort(Pin.PORT));
+			thread.pushValue(state, in.getPort(Pin.PORT), WireValue.of(1, 1));
+			thread.awaitProcessed();
+			assertThat(thread.getSnapshot(state).getLastReceived(out.getPort(Pin.PORT))).isEqualTo(WireValue.of(1, 1));
+		} finally {
+			thread.stop();
+		}
+	}
+	
+	@Test
+	public void testExceptionHandler() throws InterruptedException {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Thread Test", simulator);
+		
+		Pin in1 = circuit.addComponent(new Pin("A", 1, true));
+		Pin in2 = circuit.addComponent(new Pin("B", 1, true));
+		in1.getPort(Pin.PORT).linkPort(in2.getPort(Pin.PORT));
+		
+		CircuitState state = circuit.getTopLevelState();
+		
+		List<RuntimeException> exceptions = new ArrayList<>();
+		SimulationThread thread = new SimulationThread(simulator, exceptions::add);
+		thread.start();
+		try {
+			thread.pushValue(state, in1.getPort(Pin.PORT), WireValue.of(1, 1));
+			thread.pushValue(state, in2.getPort(Pin.PORT), WireValue.of(0, 1));
+			thread.awaitProcessed();
+		} finally {
+			thread.stop();
+		}
+		
+		assertThat(thread.getLastException()).isInstanceOf(ShortCircuitException.class);
+		assertThat(exceptions).contains(thread.getLastException());
+	}
+}
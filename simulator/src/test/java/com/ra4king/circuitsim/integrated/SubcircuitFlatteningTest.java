@@ -0,0 +1,119 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.gates.NotGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class SubcircuitFlatteningTest {
+	private static final int DEPTH = 5;
+	
+	@Test
+	public void testFlatteningMatchesHierarchy() {
+		Hierarchy hierarchical = new Hierarchy(false);
+		Hierarchy flattened = new Hierarchy(true);
+		
+		for (int value : new int[] { 0x12, 0xff, 0x00, 0xa5 }) {
+			int hierarchicalSteps = hierarchical.run(value);
+			int flattenedSteps = flattened.run(value);
+			
+			// Every level inverts the value once
+			WireValue expected = WireValue.of(DEPTH % 2 == 0 ? value : ~value, 8);
+			assertThat(hierarchical.getOutput()).isEqualTo(expected);
+			assertThat(flattened.getOutput()).isEqualTo(expected);
+			
+			// The values inside every level resolve the same way
+			for (int level = 0; level < DEPTH; level++) {
+				assertThat(flattened.getLevelInput(level)).isEqualTo(hierarchical.getLevelInput(level));
+			}
+			
+			// Crossing the boundaries does not take extra steps
+			assertThat(flattenedSteps).isLessThan(hierarchicalSteps);
+		}
+	}
+	
+	/**
+	 * DEPTH levels of nested circuits, each with a NOT gate between its input and the Subcircuit of the next level.
+	 */
+	private static class Hierarchy {
+		private final Simulator simulator = new Simulator();
+		private final Pin[] inputs = new Pin[DEPTH];
+		private final Subcircuit[] subcircuits = new Subcircuit[DEPTH];
+		private final Pin topOutput;
+		private final CircuitState topState;
+		
+		Hierarchy(boolean flatten) {
+			simulator.setFlattenSubcircuits(flatten);
+			
+			Circuit inner = null;
+			for (int level = DEPTH - 1; level >= 0; level--) {
+				Circuit circuit = new Circuit("Level " + level, simulator);
+				Pin in = circuit.addComponent(new Pin("In", 8, true));
+				Pin out = circuit.addComponent(new Pin("Out", 8, false));
+				NotGate not = circuit.addComponent(new NotGate("", 8));
+				not.getPort(0).linkPort(in.getPort());
+				
+				if (inner == null) {
+					not.getOutPort().linkPort(out.getPort());
+				} else {
+					Subcircuit subcircuit = circuit.addComponent(new Subcircuit("", inner));
+					subcircuit.getPort(inputs[level + 1]).linkPort(not.getOutPort());
+					subcircuit.getPort(getOutput(inner)).linkPort(out.getPort());
+					subcircuits[level + 1] = subcircuit;
+				}
+				
+				inputs[level] = in;
+				inner = circuit;
+			}
+			
+			topOutput = getOutput(inner);
+			topState = inner.getTopLevelState();
+		}
+		
+		private static Pin getOutput(Circuit circuit) {
+			return circuit
+				.getComponents()
+				.stream()
+				.filter(component -> component instanceof Pin && !((Pin)component).isInput())
+				.map(component -> (Pin)component)
+				.findFirst()
+				.orElseThrow();
+		}
+		
+		/**
+		 * @return The number of steps needed to settle.
+		 */
+		int run(int value) {
+			inputs[0].setValue(topState, WireValue.of(value, 8));
+			
+			int steps = 0;
+			while (simulator.hasLinksToUpdate()) {
+				simulator.step();
+				steps++;
+			}
+			return steps;
+		}
+		
+		WireValue getOutput() {
+			return topState.getLastReceived(topOutput.getPort());
+		}
+		
+		WireValue getLevelInput(int level) {
+			CircuitState state = topState;
+			for (int i = 1; i <= level; i++) {
+				state = subcircuits[i].getSubcircuitState(state);
+			}
+			return state.getLastReceived(inputs[level].getPort());
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.AndGate;
+import com.ra4king.circuitsim.simulator.components.gates.Gate;
+import com.ra4king.circuitsim.simulator.components.gates.NotGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class TimedSimulationTest {
+	@Test
+	public void testGlitch() {
+		Simulator simulator = new Simulator();
+		simulator.setLevelizedEvaluation(true);
+		Circuit circuit = new Circuit("Glitch", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		Pin out = circuit.addComponent(new Pin("Out", 1, false));
+		NotGate not = circuit.addComponent(new NotGate("", 1));
+		AndGate and = circuit.addComponent(new AndGate("", 1, 2));
+		not.getPort(0).linkPort(in.getPort());
+		and.getPort(0).linkPort(in.getPort());
+		and.getPort(1).linkPort(not.getOutPort());
+		and.getOutPort().linkPort(out.getPort());
+		
+		CircuitState state = circuit.getTopLevelState();
+		in.setValue(state, WireValue.of(0, 1));
+		simulator.stepAll();
+		
+		List<String> changes = new ArrayList<>();
+		out.addChangeListener(state, (pin, s, value) -> changes.add(simulator.getTime() + ": " + value));
+		
+		// Without delays, levelized evaluation sees A and NOT A settle together, so A AND NOT A is always 0
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+		in.setValue(state, WireValue.of(0, 1));
+		simulator.stepAll();
+		assertThat(changes).isEmpty();
+		
+		// With delays, the NOT gate lags behind the input by 1, so the AND gate sees both at 1 for one unit of time
+		simulator.setTimed(true);
+		simulator.setPropagationDelay(Gate.class, 2);
+		not.setPropagationDelay(3);
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.advanceTimeTo(100);
+		
+		assertThat(changes).containsExactly("2: 1", "5: 0").inOrder();
+		assertThat(simulator.getTime()).isEqualTo(100);
+		assertThat(simulator.getPendingEventCount()).isEqualTo(0);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(0, 1));
+	}
+	
+	@Test
+	public void testCriticalPath() {
+		Simulator simulator = new Simulator();
+		simulator.setTimed(true);
+		simulator.setDefaultPropagationDelay(4);
+		
+		Circuit circuit = new Circuit("Chain", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 8, true));
+		Pin out = circuit.addComponent(new Pin("Out", 8, false));
+		
+		int length = 10;
+		NotGate last = null;
+		for (int i = 0; i < length; i++) {
+			NotGate not = circuit.addComponent(new NotGate("", 8));
+			not.getPort(0).linkPort(last == null ? in.getPort() : last.getOutPort());
+			last = not;
+		}
+		last.getOutPort().linkPort(out.getPort());
+		
+		CircuitState state = circuit.getTopLevelState();
+		in.setValue(state, WireValue.of(0x5a, 8));
+		
+		// Every value arrives one delay further down the chain
+		long lastTime = 0;
+		long time;
+		while ((time = simulator.advanceTime()) >= 0) {
+			lastTime = time;
+		}
+		assertThat(lastTime).isEqualTo(4L * length);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(0x5a, 8));
+		
+		// A pulse shorter than the delays still goes through the whole chain
+		List<Long> times = new ArrayList<>();
+		out.addChangeListener(state, (pin, s, value) -> times.add(simulator.getTime()));
+		long start = simulator.getTime();
+		in.setValue(state, WireValue.of(0xa5, 8));
+		simulator.advanceTimeTo(start + 1);
+		in.setValue(state, WireValue.of(0x5a, 8));
+		simulator.advanceTimeTo(start + 1000);
+		assertThat(times).containsExactly(start + 4L * length, start + 4L * length + 1).inOrder();
+		
+		// Turning off timed mode applies the pending values right away
+		in.setValue(state, WireValue.of(0xff, 8));
+		simulator.advanceTimeTo(simulator.getTime() + 1);
+		assertThat(simulator.getPendingEventCount()).isGreaterThan(0);
+		simulator.setTimed(false);
+		simulator.stepAll();
+		assertThat(simulator.getPendingEventCount()).isEqualTo(0);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(0xff, 8));
+	}
+	
+	@Test
+	public void testChangeDefaultDelay() {
+		Simulator simulator = new Simulator();
+		simulator.setTimed(true);
+		
+		Circuit circuit = new Circuit("Not", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		Pin out = circuit.addComponent(new Pin("Out", 1, false));
+		NotGate not = circuit.addComponent(new NotGate("", 1));
+		not.getPort(0).linkPort(in.getPort());
+		not.getOutPort().linkPort(out.getPort());
+		
+		CircuitState state = circuit.getTopLevelState();
+		in.setValue(state, WireValue.of(0, 1));
+		simulator.advanceTimeTo(10);
+		assertThat(simulator.getPropagationDelay(not)).isEqualTo(1);
+		assertThat(state.getLastReceived(out.getPort())).isEqualTo(WireValue.of(1, 1));
+		
+		// The delays already looked up must follow the new default
+		simulator.setDefaultPropagationDelay(5);
+		assertThat(simulator.getPropagationDelay(not)).isEqualTo(5);
+		
+		long start = simulator.getTime();
+		List<Long> times = new ArrayList<>();
+		out.addChangeListener(state, (pin, s, value) -> times.add(simulator.getTime()));
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.advanceTimeTo(start + 100);
+		assertThat(times).containsExactly(start + 5);
+	}
+}
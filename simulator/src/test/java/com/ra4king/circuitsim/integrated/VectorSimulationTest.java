@@ -0,0 +1,150 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.gates.AndGate;
+import com.ra4king.circuitsim.simulator.components.gates.OrGate;
+import com.ra4king.circuitsim.simulator.components.gates.XorGate;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.plexers.Multiplexer;
+import com.ra4king.circuitsim.simulator.components.wiring.Ground;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.components.wiring.Splitter;
+import com.ra4king.circuitsim.simulator.vector.VectorSimulation;
+
+/**
+ * @author Roi Atalla
+ */
+public class VectorSimulationTest {
+	private static final int BITS = 8;
+	private static final int VECTORS = 1000;
+	
+	@Test
+	public void testRippleCarryAdder() {
+		Simulator simulator = new Simulator();
+		
+		// A full adder out of gates
+		Circuit fullAdder = new Circuit("Full Adder", simulator);
+		Pin a = fullAdder.addComponent(new Pin("A", 1, true));
+		Pin b = fullAdder.addComponent(new Pin("B", 1, true));
+		Pin carryIn = fullAdder.addComponent(new Pin("Cin", 1, true));
+		Pin sum = fullAdder.addComponent(new Pin("Sum", 1, false));
+		Pin carryOut = fullAdder.addComponent(new Pin("Cout", 1, false));
+		XorGate xor = fullAdder.addComponent(new XorGate("", 1, 3));
+		AndGate and1 = fullAdder.addComponent(new AndGate("", 1, 2));
+		AndGate and2 = fullAdder.addComponent(new AndGate("", 1, 2));
+		AndGate and3 = fullAdder.addComponent(new AndGate("", 1, 2));
+		OrGate or = fullAdder.addComponent(new OrGate("", 1, 3));
+		xor.getPort(0).linkPort(a.getPort()).linkPort(and1.getPort(0)).linkPort(and2.getPort(0));
+		xor.getPort(1).linkPort(b.getPort()).linkPort(and1.getPort(1)).linkPort(and3.getPort(0));
+		xor.getPort(2).linkPort(carryIn.getPort()).linkPort(and2.getPort(1)).linkPort(and3.getPort(1));
+		xor.getOutPort().linkPort(sum.getPort());
+		or.getPort(0).linkPort(and1.getOutPort());
+		or.getPort(1).linkPort(and2.getOutPort());
+		or.getPort(2).linkPort(and3.getOutPort());
+		or.getOutPort().linkPort(carryOut.getPort());
+		
+		// BITS full adders chained through splitters
+		Circuit adder = new Circuit("Adder", simulator);
+		Pin inA = adder.addComponent(new Pin("A", BITS, true));
+		Pin inB = adder.addComponent(new Pin("B", BITS, true));
+		Pin out = adder.addComponent(new Pin("Out", BITS, false));
+		Pin outCarry = adder.addComponent(new Pin("Carry", 1, false));
+		Ground ground = adder.addComponent(new Ground(""));
+		Splitter splitA = adder.addComponent(new Splitter("", BITS, BITS));
+		Splitter splitB = adder.addComponent(new Splitter("", BITS, BITS));
+		Splitter splitOut = adder.addComponent(new Splitter("", BITS, BITS));
+		splitA.getPort(splitA.PORT_JOINED).linkPort(inA.getPort());
+		splitB.getPort(splitB.PORT_JOINED).linkPort(inB.getPort());
+		splitOut.getPort(splitOut.PORT_JOINED).linkPort(out.getPort());
+		
+		Subcircuit last = null;
+		for (int bit = 0; bit < BITS; bit++) {
+			Subcircuit subcircuit = adder.addComponent(new Subcircuit("", fullAdder));
+			subcircuit.getPort(a).linkPort(splitA.getPort(bit));
+			subcircuit.getPort(b).linkPort(splitB.getPort(bit));
+			subcircuit.getPort(sum).linkPort(splitOut.getPort(bit));
+			subcircuit.getPort(carryIn).linkPort(last == null ? ground.getPort(Ground.PORT) : last.getPort(carryOut));
+			last = subcircuit;
+		}
+		last.getPort(carryOut).linkPort(outCarry.getPort());
+		
+		VectorSimulation simulation = new VectorSimulation(adder);
+		assertThat(simulation.isBitParallel()).isTrue();
+		
+		Random random = new Random(7);
+		long[] as = new long[VECTORS];
+		long[] bs = new long[VECTORS];
+		for (int i = 0; i < VECTORS; i++) {
+			as[i] = random.nextInt(1 << BITS);
+			bs[i] = random.nextInt(1 << BITS);
+		}
+		
+		simulation.setInput(inA, as);
+		simulation.setInput(inB, bs);
+		simulation.run();
+		
+		WireValue[] outs = simulation.getOutput(out);
+		WireValue[] carries = simulation.getOutput(outCarry);
+		assertThat(outs).hasLength(VECTORS);
+		for (int i = 0; i < VECTORS; i++) {
+			long total = as[i] + bs[i];
+			assertThat(outs[i]).isEqualTo(WireValue.of(total, BITS));
+			assertThat(carries[i]).isEqualTo(WireValue.of(total >>> BITS, 1));
+		}
+	}
+	
+	@Test
+	public void testSerializedThroughUnsupportedComponents() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Mux", simulator);
+		Pin select = circuit.addComponent(new Pin("Sel", 1, true));
+		Pin a = circuit.addComponent(new Pin("A", 4, true));
+		Pin b = circuit.addComponent(new Pin("B", 4, true));
+		Pin out = circuit.addComponent(new Pin("Out", 4, false));
+		Multiplexer mux = circuit.addComponent(new Multiplexer("", 4, 1));
+		Adder adder = circuit.addComponent(new Adder("", 4));
+		mux.getSelectorPort().linkPort(select.getPort());
+		mux.getPort(0).linkPort(a.getPort()).linkPort(adder.getPort(Adder.PORT_A));
+		mux.getPort(1).linkPort(adder.getPort(Adder.PORT_OUT));
+		adder.getPort(Adder.PORT_B).linkPort(b.getPort());
+		mux.getOutPort().linkPort(out.getPort());
+		
+		VectorSimulation simulation = new VectorSimulation(circuit);
+		assertThat(simulation.isBitParallel()).isFalse();
+		
+		simulation.setInput(select, 0, 1, 1);
+		simulation.setInput(a, 3, 3, 9);
+		simulation.setInput(b, 5, 5, 9);
+		simulation.run();
+		
+		assertThat(simulation.getOutput(out)).asList()
+		                                     .containsExactly(WireValue.of(3, 4),
+		                                                      WireValue.of(8, 4),
+		                                                      WireValue.of(18, 4))
+		                                     .inOrder();
+	}
+	
+	@Test
+	public void testSequentialRejected() {
+		Simulator simulator = new Simulator();
+		Circuit inner = new Circuit("Inner", simulator);
+		inner.addComponent(new Register("", 4));
+		
+		Circuit circuit = new Circuit("Outer", simulator);
+		circuit.addComponent(new Subcircuit("", inner));
+		
+		assertThrows(SimulationException.class, () -> new VectorSimulation(circuit));
+	}
+}
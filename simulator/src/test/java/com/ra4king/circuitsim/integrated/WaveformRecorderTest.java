@@ -0,0 +1,205 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.WireValue.State;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Constant;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.waveform.WaveformRecorder;
+
+/**
+ * @author Roi Atalla
+ */
+public class WaveformRecorderTest {
+	private final Simulator simulator = new Simulator();
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final WaveformRecorder recorder = new WaveformRecorder(simulator, Channels.newChannel(bytes));
+	
+	@Test
+	public void testCounter() throws IOException {
+		Circuit counter = new Circuit("Counter", simulator);
+		Pin counterClock = counter.addComponent(new Pin("Clk", 1, true));
+		Pin counterOut = counter.addComponent(new Pin("Out", 2, false));
+		Register register = counter.addComponent(new Register("", 2));
+		Adder adder = counter.addComponent(new Adder("", 2));
+		Constant one = counter.addComponent(new Constant("", 2, 1));
+		register.getPort(Register.PORT_IN).linkPort(adder.getPort(Adder.PORT_OUT));
+		register.getPort(Register.PORT_CLK).linkPort(counterClock.getPort(Pin.PORT));
+		register.getPort(Register.PORT_OUT)
+		        .linkPort(adder.getPort(Adder.PORT_A))
+		        .linkPort(counterOut.getPort(Pin.PORT));
+		adder.getPort(Adder.PORT_B).linkPort(one.getPort(Constant.PORT));
+		
+		Circuit top = new Circuit("Top", simulator);
+		Clock clock = top.addComponent(new Clock("Clock"));
+		Subcircuit subcircuit = top.addComponent(new Subcircuit("", counter));
+		Pin count = top.addComponent(new Pin("Count", 2, false));
+		subcircuit.getPort(counterClock).linkPort(clock.getPort(Clock.PORT));
+		subcircuit.getPort(counterOut).linkPort(count.getPort(Pin.PORT));
+		simulator.stepAll();
+		
+		recorder.addPins(top.getTopLevelState());
+		recorder.start();
+		assertThrows(IllegalStateException.class, recorder::start);
+		
+		Clock.runCycles(simulator, 2);
+		recorder.close();
+		
+		// Every tick settles once, only the changed signals are written
+		assertThat(bytes.toString()).isEqualTo(String.join("\n",
+		                                                   "$comment Times count the settles of the simulation, " +
+		                                                   "not ns $end",
+		                                                   "$timescale 1ns $end",
+		                                                   "$scope module top $end",
+		                                                   "$var wire 2 # Count [1:0] $end",
+		                                                   "$scope module Counter $end",
+		                                                   "$var wire 1 ! Clk $end",
+		                                                   "$var wire 2 \" Out [1:0] $end",
+		                                                   "$upscope $end",
+		                                                   "$upscope $end",
+		                                                   "$enddefinitions $end",
+		                                                   "#0",
+		                                                   "$dumpvars",
+		                                                   "0!",
+		                                                   "b00 \"",
+		                                                   "b00 #",
+		                                                   "$end",
+		                                                   "#1",
+		                                                   "1!",
+		                                                   "b01 \"",
+		                                                   "b01 #",
+		                                                   "#2",
+		                                                   "0!",
+		                                                   "#3",
+		                                                   "1!",
+		                                                   "b10 \"",
+		                                                   "b10 #",
+		                                                   "#4",
+		                                                   "0!",
+		                                                   ""));
+	}
+	
+	@Test
+	public void testUndefinedBits() throws IOException {
+		Circuit circuit = new Circuit("Circuit", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 3, true));
+		CircuitState state = circuit.getTopLevelState();
+		in.setValue(state, WireValue.of(5, 3));
+		simulator.stepAll();
+		
+		long[] time = { 10 };
+		recorder.setTimeSource(() -> time[0]);
+		recorder.addSignal("a.b", "In value", state, in.getPort(Pin.PORT));
+		recorder.start();
+		
+		// Unchanged values are not written
+		in.setValue(state, WireValue.of(5, 3));
+		simulator.stepAll();
+		
+		time[0] = 20;
+		WireValue value = WireValue.of(1, 3);
+		value.setBit(2, State.X);
+		in.setValue(state, value);
+		simulator.stepAll();
+		recorder.close();
+		
+		assertThat(bytes.toString()).isEqualTo(String.join("\n",
+		                                                   "$timescale 1ns $end",
+		                                                   "$scope module top $end",
+		                                                   "$scope module a $end",
+		                                                   "$scope module b $end",
+		                                                   "$var wire 3 ! In_value [2:0] $end",
+		                                                   "$upscope $end",
+		                                                   "$upscope $end",
+		                                                   "$upscope $end",
+		                                                   "$enddefinitions $end",
+		                                                   "#10",
+		                                                   "$dumpvars",
+		                                                   "b101 !",
+		                                                   "$end",
+		                                                   "#20",
+		                                                   "bx01 !",
+		                                                   ""));
+	}
+	
+	@Test
+	public void testTimedHeader() throws IOException {
+		simulator.setTimed(true);
+		Circuit circuit = new Circuit("Circuit", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		recorder.addSignal("", "In", circuit.getTopLevelState(), in.getPort(Pin.PORT));
+		recorder.start();
+		recorder.close();
+		
+		// Simulated time is counted in propagation delays
+		assertThat(bytes.toString()).startsWith("$comment 1ns is one unit of propagation delay $end\n" +
+		                                        "$timescale 1ns $end\n");
+	}
+	
+	@Test
+	public void testWriteError() {
+		Circuit circuit = new Circuit("Circuit", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 64, true));
+		CircuitState state = circuit.getTopLevelState();
+		in.setValue(state, WireValue.of(0, 64));
+		simulator.stepAll();
+		
+		IOException diskFull = new IOException("Disk full");
+		int[] failedWrites = { -1 };
+		WritableByteChannel channel = new WritableByteChannel() {
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				if (failedWrites[0] >= 0) {
+					failedWrites[0]++;
+					throw diskFull;
+				}
+				int length = src.remaining();
+				src.position(src.limit());
+				return length;
+			}
+			
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+			
+			@Override
+			public void close() {}
+		};
+		
+		// Enough 64-bit signals for a single settle to overflow the buffer
+		WaveformRecorder recorder = new WaveformRecorder(simulator, channel);
+		for (int i = 0; i < 1000; i++) {
+			recorder.addSignal("", "In " + i, state, in.getPort(Pin.PORT));
+		}
+		recorder.start();
+		
+		failedWrites[0] = 0;
+		for (int i = 1; i <= 3; i++) {
+			in.setValue(state, WireValue.of(-i, 64));
+			simulator.stepAll();
+			assertThat(state.getMergedValue(in.getPort(Pin.PORT).getLink())).isEqualTo(WireValue.of(-i, 64));
+		}
+		
+		// The recording stopped after the first error, the simulation went on
+		assertThat(failedWrites[0]).isEqualTo(1);
+		assertThat(assertThrows(IOException.class, recorder::close)).isSameInstanceAs(diskFull);
+	}
+}
@@ -0,0 +1,164 @@
+package com.ra4king.circuitsim.simulator;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Port.Link;
+import com.ra4king.circuitsim.simulator.WireValue.State;
+
+/**
+ * @author Roi Atalla
+ */
+public class CircuitStateTest {
+	private static final int BITSIZE = 3;
+	
+	private final Simulator simulator = mock(Simulator.class);
+	private Circuit circuit;
+	private CircuitState state;
+	
+	@BeforeEach
+	public void setup() {
+		doAnswer(invocationOnMock -> {
+			Runnable r = invocationOnMock.getArgument(0, Runnable.class);
+			r.run();
+			return null;
+		}).when(simulator).runSync(any());
+		
+		circuit = new Circuit("", simulator);
+		state = circuit.getTopLevelState();
+	}
+	
+	@Test
+	public void testLinkInit() {
+		Port port1 = addComponent().getPort(0);
+		Port port2 = addComponent().getPort(0);
+		port1.linkPort(port2);
+		
+		Link link = port1.getLink();
+		assertThat(port2.getLink()).isEqualTo(link);
+		assertThat(state.getLastPushed(port1).getBitSize()).isEqualTo(BITSIZE);
+		assertThat(state.getLastReceived(port2).getBitSize()).isEqualTo(BITSIZE);
+		assertThat(state.getMergedValue(link).getBitSize()).isEqualTo(BITSIZE);
+		assertThat(WireValueUtils.allBitsEqualTo(state.getMergedValue(link), State.X)).isTrue();
+	}
+	
+	@Test
+	public void testLinkUnlink() {
+		Port port1 = addComponent().getPort(0);
+		Port port2 = addComponent().getPort(0);
+		Link link1 = port1.getLink();
+		
+		port1.linkPort(port2);
+		link1.unlinkPort(port2);
+		
+		verify(simulator, times(2)).valueChanged(state, link1);
+	}
+	
+	@Test
+	public void testPushValue() {
+		Port port = addComponent().getPort(0);
+		
+		state.pushValue(port, new WireValue(BITSIZE, State.ONE));
+		
+		verify(simulator).valueChanged(state, port);
+		assertThat(state.getLastPushed(port)).isEqualTo(new WireValue(BITSIZE, State.ONE));
+	}
+	
+	@Test
+	public void testPropagateSignal() {
+		Port port1 = addComponent().getPort(0);
+		Port port2 = addComponent().getPort(0);
+		port1.linkPort(port2);
+		
+		WireValue value = WireValue.of(5, BITSIZE);
+		state.pushValue(port1, value);
+		state.propagateSignal(port1.getLink());
+		
+		assertThat(state.getLastReceived(port2)).isEqualTo(value);
+		assertThat(state.getMergedValue(port1.getLink())).isEqualTo(value);
+		assertThat(state.isShortCircuited(port1.getLink())).isFalse();
+	}
+	
+	@Test
+	public void testShortCircuit() {
+		Port port1 = addComponent().getPort(0);
+		Port port2 = addComponent().getPort(0);
+		port1.linkPort(port2);
+		
+		state.pushValue(port1, WireValue.of(5, BITSIZE));
+		state.pushValue(port2, WireValue.of(2, BITSIZE));
+		
+		assertThrows(ShortCircuitException.class, () -> state.propagateSignal(port1.getLink()));
+		assertThat(state.isShortCircuited(port1.getLink())).isTrue();
+	}
+	
+	@Test
+	public void testSharedBus() {
+		Port[] ports = new Port[8];
+		for (int i = 0; i < ports.length; i++) {
+			ports[i] = addComponent().getPort(0);
+			if (i > 0) {
+				ports[0].linkPort(ports[i]);
+			}
+		}
+		Link link = ports[0].getLink();
+		
+		// A single driver is received by every other participant, but not by itself
+		state.pushValue(ports[3], WireValue.of(5, BITSIZE));
+		state.propagateSignal(link);
+		for (int i = 0; i < ports.length; i++) {
+			assertThat(state.getLastReceived(ports[i])).isEqualTo(i == 3 ? new WireValue(BITSIZE)
+			                                                             : WireValue.of(5, BITSIZE));
+		}
+		
+		// A second driver agreeing with the first
+		state.pushValue(ports[6], WireValue.of(5, BITSIZE));
+		state.propagateSignal(link);
+		for (Port port : ports) {
+			assertThat(state.getLastReceived(port)).isEqualTo(WireValue.of(5, BITSIZE));
+		}
+		assertThat(state.isShortCircuited(link)).isFalse();
+		
+		// The drivers disagree on one bit, which only they do not see
+		state.pushValue(ports[6], WireValue.of(4, BITSIZE));
+		assertThrows(ShortCircuitException.class, () -> state.propagateSignal(link));
+		assertThat(state.isShortCircuited(link)).isTrue();
+		assertThat(state.getLastReceived(ports[3])).isEqualTo(WireValue.of(4, BITSIZE));
+		assertThat(state.getLastReceived(ports[6])).isEqualTo(WireValue.of(5, BITSIZE));
+		
+		// Releasing a driver clears the short circuit
+		state.pushValue(ports[6], new WireValue(BITSIZE));
+		state.propagateSignal(link);
+		assertThat(state.isShortCircuited(link)).isFalse();
+		assertThat(state.getMergedValue(link)).isEqualTo(WireValue.of(5, BITSIZE));
+		assertThat(state.getLastReceived(ports[6])).isEqualTo(WireValue.of(5, BITSIZE));
+	}
+	
+	@Test
+	public void testPortFromOtherCircuit() {
+		Port port = new Circuit("other", simulator).addComponent(new TestComponent()).getPort(0);
+		
+		assertThrows(IllegalArgumentException.class, () -> state.getLastReceived(port));
+	}
+	
+	private Component addComponent() {
+		return circuit.addComponent(new TestComponent());
+	}
+	
+	private static class TestComponent extends Component {
+		TestComponent() {
+			super("", new int[] { BITSIZE });
+		}
+		
+		@Override
+		public void valueChanged(CircuitState state, WireValue value, int portIndex) {}
+	}
+}
@@ -0,0 +1,236 @@
+package com.ra4king.circuitsim.simulator;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.components.plexers.Decoder;
+import com.ra4king.circuitsim.simulator.components.plexers.Demultiplexer;
+import com.ra4king.circuitsim.simulator.components.plexers.Multiplexer;
+import com.ra4king.circuitsim.simulator.components.plexers.PriorityEncoder;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.file.CircuitLoader;
+import com.ra4king.circuitsim.simulator.file.LoadedCircuits;
+
+/**
+ * @author Roi Atalla
+ */
+public class LevelizationTest {
+	private Simulator simulator;
+	private Circuit circuit;
+	private CircuitState state;
+	
+	@BeforeEach
+	public void setup() {
+		simulator = new Simulator();
+		simulator.setLevelizedEvaluation(true);
+		circuit = new Circuit("", simulator);
+		state = circuit.getTopLevelState();
+	}
+	
+	@Test
+	public void testEvaluatedOncePerStep() {
+		TestSource source = circuit.addComponent(new TestSource());
+		TestGate a = circuit.addComponent(new TestGate(1));
+		TestGate b = circuit.addComponent(new TestGate(1));
+		TestGate c = circuit.addComponent(new TestGate(2));
+		
+		// source -> a -> b -> c, and source -> c directly
+		source.getPort(0).linkPort(a.getPort(0)).linkPort(c.getPort(1));
+		a.getOutPort().linkPort(b.getPort(0));
+		b.getOutPort().linkPort(c.getPort(0));
+		
+		Levelization levelization = circuit.getNetlist().getLevelization();
+		assertThat(levelization.getComponentCount()).isEqualTo(3);
+		assertThat(levelization.getInputOrder(a.getPort(0))).isLessThan(levelization.getInputOrder(b.getPort(0)));
+		assertThat(levelization.getInputOrder(b.getPort(0))).isLessThan(levelization.getInputOrder(c.getPort(0)));
+		assertThat(levelization.isInternal(a.getOutPort().getLink())).isTrue();
+		assertThat(levelization.isInternal(source.getPort(0).getLink())).isFalse();
+		
+		state.pushValue(source.getPort(0), WireValue.of(1, 1));
+		simulator.step();
+		
+		// c sees the source change and b's output in the same step, but is only evaluated once
+		assertThat(a.evaluations).isEqualTo(1);
+		assertThat(b.evaluations).isEqualTo(1);
+		assertThat(c.evaluations).isEqualTo(1);
+		assertThat(state.getLastPushed(c.getOutPort())).isEqualTo(WireValue.of(1, 1));
+		
+		simulator.stepAll();
+		assertThat(c.evaluations).isEqualTo(1);
+	}
+	
+	@Test
+	public void testFeedbackIsNotLevelized() {
+		TestSource source = circuit.addComponent(new TestSource());
+		TestGate a = circuit.addComponent(new TestGate(2));
+		TestGate b = circuit.addComponent(new TestGate(1));
+		TestGate after = circuit.addComponent(new TestGate(1));
+		
+		// a and b form a loop, which feeds after
+		source.getPort(0).linkPort(a.getPort(0));
+		a.getOutPort().linkPort(b.getPort(0));
+		b.getOutPort().linkPort(a.getPort(1)).linkPort(after.getPort(0));
+		
+		Levelization levelization = circuit.getNetlist().getLevelization();
+		assertThat(levelization.getInputOrder(a.getPort(0))).isEqualTo(-1);
+		assertThat(levelization.getInputOrder(b.getPort(0))).isEqualTo(-1);
+		assertThat(levelization.getInputOrder(after.getPort(0))).isEqualTo(0);
+		assertThat(levelization.isInternal(b.getOutPort().getLink())).isFalse();
+		
+		state.pushValue(source.getPort(0), WireValue.of(1, 1));
+		simulator.stepAll();
+		
+		assertThat(state.getLastReceived(after.getPort(0))).isEqualTo(WireValue.of(1, 1));
+	}
+	
+	@Test
+	public void testRecompiledAfterChange() {
+		TestGate a = circuit.addComponent(new TestGate(1));
+		TestGate b = circuit.addComponent(new TestGate(1));
+		
+		Levelization levelization = circuit.getNetlist().getLevelization();
+		assertThat(circuit.getNetlist().getLevelization()).isSameInstanceAs(levelization);
+		assertThat(levelization.isInternal(a.getOutPort().getLink())).isTrue();
+		
+		a.getOutPort().linkPort(b.getOutPort());
+		
+		// Two drivers on the same Link
+		assertThat(circuit.getNetlist().getLevelization()).isNotSameInstanceAs(levelization);
+		assertThat(circuit.getNetlist().getLevelization().isInternal(a.getOutPort().getLink())).isFalse();
+	}
+	
+	@Test
+	public void testPlexers() {
+		Pin a = circuit.addComponent(new Pin("A", 4, true));
+		Pin b = circuit.addComponent(new Pin("B", 4, true));
+		Pin sel = circuit.addComponent(new Pin("Sel", 1, true));
+		Pin enable = circuit.addComponent(new Pin("Enable", 1, true));
+		Multiplexer mux = circuit.addComponent(new Multiplexer("", 4, 1));
+		Demultiplexer demux = circuit.addComponent(new Demultiplexer("", 4, 1));
+		Decoder decoder = circuit.addComponent(new Decoder("", 1));
+		PriorityEncoder encoder = circuit.addComponent(new PriorityEncoder("", 1));
+		
+		// The mux feeds the demux, the decoder feeds the encoder
+		mux.getInputPort(0).linkPort(a.getPort(Pin.PORT));
+		mux.getInputPort(1).linkPort(b.getPort(Pin.PORT));
+		mux.getOutPort().linkPort(demux.getInputPort());
+		decoder.getOutputPort(0).linkPort(encoder.getPort(0));
+		decoder.getOutputPort(1).linkPort(encoder.getPort(1));
+		encoder.getEnabledInPort().linkPort(enable.getPort(Pin.PORT));
+		sel.getPort(Pin.PORT)
+		   .linkPort(mux.getSelectorPort())
+		   .linkPort(demux.getSelectorPort())
+		   .linkPort(decoder.getSelectorPort());
+		
+		Levelization levelization = circuit.getNetlist().getLevelization();
+		assertThat(levelization.getComponentCount()).isEqualTo(4);
+		assertThat(levelization.isInternal(mux.getOutPort().getLink())).isTrue();
+		assertThat(levelization.isInternal(decoder.getOutputPort(1).getLink())).isTrue();
+		
+		a.setValue(state, WireValue.of(5, 4));
+		b.setValue(state, WireValue.of(9, 4));
+		enable.setValue(state, WireValue.of(1, 1));
+		for (int select = 0; select < 2; select++) {
+			sel.setValue(state, WireValue.of(select, 1));
+			simulator.stepAll();
+			
+			assertThat(state.getLastPushed(demux.getOutputPort(select)))
+				.isEqualTo(WireValue.of(select == 0 ? 5 : 9, 4));
+			assertThat(state.getLastPushed(demux.getOutputPort(1 - select))).isEqualTo(WireValue.of(0, 4));
+			assertThat(state.getLastPushed(encoder.getOutputPort())).isEqualTo(WireValue.of(select, 1));
+			assertThat(state.getLastPushed(encoder.getGroupSignalPort())).isEqualTo(WireValue.of(1, 1));
+		}
+		
+		enable.setValue(state, WireValue.of(0, 1));
+		simulator.stepAll();
+		assertThat(state.getLastPushed(encoder.getGroupSignalPort())).isEqualTo(WireValue.of(0, 1));
+	}
+	
+	@Test
+	public void testDisabledByDefault() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("", simulator);
+		TestSource source = circuit.addComponent(new TestSource());
+		TestGate a = circuit.addComponent(new TestGate(1));
+		TestGate c = circuit.addComponent(new TestGate(2));
+		
+		source.getPort(0).linkPort(a.getPort(0)).linkPort(c.getPort(1));
+		a.getOutPort().linkPort(c.getPort(0));
+		
+		circuit.getTopLevelState().pushValue(source.getPort(0), WireValue.of(1, 1));
+		simulator.stepAll();
+		
+		// c is notified of the source change, then of a's output
+		assertThat(c.evaluations).isEqualTo(2);
+	}
+	
+	@Test
+	public void testDFlipFlopExampleSettles() throws IOException {
+		LoadedCircuits circuits = new CircuitLoader().load(new File("examples/DFlipFlop.sim"));
+		assertThat(circuits.getErrors()).isEmpty();
+		
+		// Its gates race into cross-coupled latches, which only resolve without levelized evaluation
+		circuits.getSimulator().stepAll();
+		
+		CircuitState state = circuits.getCircuit("D Flip-Flop").getTopLevelState();
+		Pin q = circuits.getComponent("D Flip-Flop", Pin.class, "Q");
+		Pin qBar = circuits.getComponent("D Flip-Flop", Pin.class, "Q'");
+		assertThat(state.getLastReceived(q.getPort(Pin.PORT))).isEqualTo(WireValue.of(0, 1));
+		assertThat(state.getLastReceived(qBar.getPort(Pin.PORT))).isEqualTo(WireValue.of(1, 1));
+		
+		// Every clock edge settles too
+		Pin clk = circuits.getComponent("D Flip-Flop", Pin.class, "CLK");
+		for (int i = 0; i < 4; i++) {
+			clk.setValue(state, WireValue.of(i % 2 == 0 ? 1 : 0, 1));
+			circuits.getSimulator().stepAll();
+			assertThat(state.getLastReceived(qBar.getPort(Pin.PORT)))
+				.isNotEqualTo(state.getLastReceived(q.getPort(Pin.PORT)));
+		}
+	}
+	
+	private static class TestSource extends Component {
+		TestSource() {
+			super("", new int[] { 1 });
+		}
+		
+		@Override
+		public void valueChanged(CircuitState state, WireValue value, int portIndex) {}
+	}
+	
+	/**
+	 * Outputs its first input, and counts how many times it was evaluated.
+	 */
+	private static class TestGate extends Component implements CombinationalComponent {
+		private final int numInputs;
+		private int evaluations;
+		
+		TestGate(int numInputs) {
+			super("", Utils.getFilledArray(numInputs + 1, 1));
+			this.numInputs = numInputs;
+		}
+		
+		Port getOutPort() {
+			return getPort(numInputs);
+		}
+		
+		@Override
+		public boolean isOutputPort(int portIndex) {
+			return portIndex == numInputs;
+		}
+		
+		@Override
+		public void valueChanged(CircuitState state, WireValue value, int portIndex) {
+			if (portIndex == numInputs) {
+				return;
+			}
+			
+			evaluations++;
+			state.pushValue(getOutPort(), state.getLastReceived(getPort(0)));
+		}
+	}
+}
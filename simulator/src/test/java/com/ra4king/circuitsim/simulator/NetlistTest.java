@@ -0,0 +1,88 @@
+package com.ra4king.circuitsim.simulator;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Port.Link;
+
+/**
+ * @author Roi Atalla
+ */
+public class NetlistTest {
+	private final Simulator simulator = mock(Simulator.class);
+	private Circuit circuit;
+	private Netlist netlist;
+	
+	@BeforeEach
+	public void setup() {
+		doAnswer(invocationOnMock -> {
+			Runnable r = invocationOnMock.getArgument(0, Runnable.class);
+			r.run();
+			return null;
+		}).when(simulator).runSync(any());
+		
+		circuit = new Circuit("", simulator);
+		netlist = circuit.getNetlist();
+	}
+	
+	@Test
+	public void testAddRemoveComponent() {
+		Component component1 = circuit.addComponent(new TestComponent(2));
+		Component component2 = circuit.addComponent(new TestComponent(1));
+		
+		assertThat(netlist.getPortCount()).isEqualTo(3);
+		assertThat(netlist.getLinkCount()).isEqualTo(3);
+		assertThat(component1.getPort(0).getId()).isEqualTo(0);
+		assertThat(component1.getPort(1).getId()).isEqualTo(1);
+		assertThat(component2.getPort(0).getId()).isEqualTo(2);
+		assertThat(netlist.getPort(2)).isEqualTo(component2.getPort(0));
+		assertThat(component2.getPort(0).getLink().getCircuit()).isEqualTo(circuit);
+		
+		circuit.removeComponent(component1);
+		
+		assertThat(netlist.getPortCount()).isEqualTo(1);
+		assertThat(netlist.getLinkCount()).isEqualTo(1);
+		assertThat(component1.getPort(0).getId()).isEqualTo(-1);
+		assertThat(component1.getPort(0).getLink().getCircuit()).isNull();
+		
+		// Freed IDs are reused
+		Component component3 = circuit.addComponent(new TestComponent(1));
+		assertThat(component3.getPort(0).getId()).isEqualTo(0);
+	}
+	
+	@Test
+	public void testLinkUnlink() {
+		Port port1 = circuit.addComponent(new TestComponent(1)).getPort(0);
+		Port port2 = circuit.addComponent(new TestComponent(1)).getPort(0);
+		Port port3 = circuit.addComponent(new TestComponent(1)).getPort(0);
+		
+		port1.linkPort(port2).linkPort(port3);
+		
+		Link link = port1.getLink();
+		assertThat(netlist.getLinkCount()).isEqualTo(1);
+		assertThat(netlist.getLink(link.getId())).isEqualTo(link);
+		assertThat(netlist.getParticipantCount(link.getId())).isEqualTo(3);
+		assertThat(netlist.getParticipant(link.getId(), 0)).isEqualTo(port1);
+		
+		link.unlinkPort(port2);
+		
+		assertThat(netlist.getLinkCount()).isEqualTo(2);
+		assertThat(netlist.getParticipantCount(link.getId())).isEqualTo(2);
+		assertThat(netlist.getParticipantCount(port2.getLink().getId())).isEqualTo(1);
+		assertThat(netlist.containsLink(port2.getLink())).isTrue();
+	}
+	
+	private static class TestComponent extends Component {
+		TestComponent(int numPorts) {
+			super("", Utils.getFilledArray(numPorts, 1));
+		}
+		
+		@Override
+		public void valueChanged(CircuitState state, WireValue value, int portIndex) {}
+	}
+}
@@ -0,0 +1,228 @@
+package com.ra4king.circuitsim.simulator;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Port.Link;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class SimulatorTest {
+	private final Simulator simulator = new Simulator();
+	private Circuit circuit;
+	
+	@BeforeEach
+	public void setup() {
+		circuit = mock(Circuit.class);
+	}
+	
+	@Test
+	public void testAddRemoveCircuit() {
+		simulator.addCircuit(circuit);
+		assertThat(simulator.getCircuits()).contains(circuit);
+		
+		simulator.removeCircuit(circuit);
+		assertThat(simulator.getCircuits()).isEmpty();
+	}
+	
+	@Test
+	public void testValueChangedAndStep() {
+		CircuitState state = mockCircuitState();
+		Link link = mockLink();
+		
+		simulator.valueChanged(state, link);
+		
+		assertThat(simulator.getLinksToUpdate()).contains(Map.entry(state, link));
+		
+		simulator.step();
+		
+		verify(state).propagateSignal(link);
+		assertThat(simulator.hasLinksToUpdate()).isFalse();
+	}
+	
+	@Test
+	public void testValueChangedTwiceQueuesOnce() {
+		Circuit circuit = new Circuit("", simulator);
+		CircuitState state = circuit.getTopLevelState();
+		Link link = circuit.addComponent(new Component("", new int[] { 1 }) {
+			@Override
+			public void valueChanged(CircuitState state, WireValue value, int portIndex) {}
+		}).getPort(0).getLink();
+		
+		simulator.valueChanged(state, link);
+		simulator.valueChanged(state, link);
+		assertThat(simulator.getLinksToUpdate()).containsExactly(Map.entry(state, link));
+		
+		simulator.linkRemoved(state, link);
+		assertThat(simulator.hasLinksToUpdate()).isTrue();
+		assertThat(simulator.getLinksToUpdate()).isEmpty();
+		
+		simulator.valueChanged(state, link);
+		assertThat(simulator.getLinksToUpdate()).containsExactly(Map.entry(state, link));
+		
+		simulator.step();
+		assertThat(simulator.hasLinksToUpdate()).isFalse();
+		
+		// The entry left behind by linkRemoved is dropped, not propagated
+		assertThat(simulator.getPropagatedLinkCount()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testStepAndShortCircuit() {
+		CircuitState state = mockCircuitState();
+		Link link = mockLink();
+		
+		simulator.valueChanged(state, link);
+		
+		ShortCircuitException shortCircuitException = new ShortCircuitException(new WireValue(), new WireValue());
+		doThrow(shortCircuitException).when(state).propagateSignal(link);
+		doThrow(shortCircuitException).when(state).getMergedValue(link);
+		when(state.isShortCircuited(link)).thenReturn(true);
+		
+		ShortCircuitException exception = assertThrows(ShortCircuitException.class, simulator::step);
+		assertThat(exception).isEqualTo(shortCircuitException);
+	}
+	
+	@Test
+	public void testStepAll() {
+		CircuitState state1 = mockCircuitState();
+		Link link1 = mockLink();
+		
+		CircuitState state2 = mockCircuitState();
+		Link link2 = mockLink();
+		
+		simulator.valueChanged(state1, link1);
+		
+		doAnswer(invocationOnMock -> {
+			simulator.valueChanged(state2, link2);
+			return null;
+		}).when(state1).propagateSignal(link1);
+		
+		simulator.stepAll();
+		
+		verify(state2).propagateSignal(link2);
+		assertThat(simulator.getPropagatedLinkCount()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testStepAllOscillation() {
+		CircuitState state1 = mockCircuitState();
+		Link link1 = mockLink();
+		
+		CircuitState state2 = mockCircuitState();
+		Link link2 = mockLink();
+		
+		simulator.valueChanged(state1, link1);
+		
+		doAnswer(invocationOnMock -> {
+			simulator.valueChanged(state2, link2);
+			return null;
+		}).when(state1).propagateSignal(link1);
+		
+		doAnswer(invocationOnMock -> {
+			simulator.valueChanged(state1, link1);
+			return null;
+		}).when(state2).propagateSignal(link2);
+		
+		OscillationException exception = assertThrows(OscillationException.class, simulator::stepAll);
+		assertThat(exception.getLinks()).isNotEmpty();
+		assertThat(link1).isIn(exception.getLinks());
+	}
+	
+	@Test
+	public void testStepAllOscillationTimeout() {
+		CircuitState state1 = mockCircuitState();
+		Link link1 = mockLink();
+		
+		CircuitState state2 = mockCircuitState();
+		Link link2 = mockLink();
+		
+		simulator.valueChanged(state1, link1);
+		
+		doAnswer(invocationOnMock -> {
+			simulator.valueChanged(state2, link2);
+			return null;
+		}).when(state1).propagateSignal(link1);
+		
+		doAnswer(invocationOnMock -> {
+			simulator.valueChanged(state1, link1);
+			return null;
+		}).when(state2).propagateSignal(link2);
+		
+		// A window of 1 round never sees this 2 round cycle repeat, so only the timeout can stop it
+		simulator.setOscillationWindow(1);
+		simulator.setOscillationTimeout(10, TimeUnit.MILLISECONDS);
+		
+		assertThrows(OscillationException.class, simulator::stepAll);
+	}
+	
+	@Test
+	public void testMetrics() {
+		Circuit circuit = new Circuit("", simulator);
+		Pin input = circuit.addComponent(new Pin("In", 1, true));
+		Pin output = circuit.addComponent(new Pin("Out", 1, false));
+		input.getPort(Pin.PORT).linkPort(output.getPort(Pin.PORT));
+		simulator.stepAll();
+		
+		SimulatorMetrics before = simulator.getMetrics();
+		
+		simulator.beginTick();
+		circuit.getTopLevelState().pushValue(input.getPort(Pin.PORT), WireValue.of(1, 1));
+		simulator.stepAll();
+		
+		SimulatorMetrics metrics = simulator.getMetrics().since(before);
+		assertThat(metrics.getSettles()).isEqualTo(1);
+		assertThat(metrics.getSteps()).isEqualTo(1);
+		assertThat(metrics.getPropagatedLinks()).isEqualTo(1);
+		assertThat(metrics.getComponentEvaluations()).isAtLeast(1);
+		assertThat(metrics.getQueueHighWaterMark()).isEqualTo(1);
+		assertThat(metrics.getShortCircuitRetries()).isEqualTo(0);
+		assertThat(metrics.getTicks()).isEqualTo(1);
+		assertThat(metrics.getTickSettleNanos()).isEqualTo(metrics.getLastTickSettleNanos());
+		
+		// Settling without a tick is not counted as one
+		circuit.getTopLevelState().pushValue(input.getPort(Pin.PORT), WireValue.of(0, 1));
+		simulator.stepAll();
+		assertThat(simulator.getMetrics().since(before).getTicks()).isEqualTo(1);
+		
+		simulator.resetMetrics();
+		metrics = simulator.getMetrics();
+		assertThat(metrics.getSteps()).isEqualTo(0);
+		assertThat(metrics.getSettles()).isEqualTo(0);
+		assertThat(metrics.getPropagatedLinks()).isEqualTo(0);
+		assertThat(metrics.getComponentEvaluations()).isEqualTo(0);
+		assertThat(metrics.getQueueHighWaterMark()).isEqualTo(0);
+		assertThat(metrics.getTicks()).isEqualTo(0);
+	}
+	
+	private CircuitState mockCircuitState() {
+		CircuitState state = mock(CircuitState.class);
+		when(state.getCircuit()).thenReturn(circuit);
+		when(circuit.containsState(state)).thenReturn(true);
+		// The mock has no link arrays, so every link is treated as not yet queued
+		when(state.markQueued(any())).thenReturn(true);
+		when(state.unmarkQueued(any())).thenReturn(true);
+		when(state.isQueued(any())).thenReturn(true);
+		return state;
+	}
+	
+	private Link mockLink() {
+		Link link = mock(Link.class);
+		when(link.getCircuit()).thenReturn(circuit);
+		return link;
+	}
+}
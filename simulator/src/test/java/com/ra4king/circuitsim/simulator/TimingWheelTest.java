@@ -0,0 +1,87 @@
+package com.ra4king.circuitsim.simulator;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Roi Atalla
+ */
+public class TimingWheelTest {
+	@Test
+	public void testEventsFireInTimeOrder() {
+		TimingWheel wheel = new TimingWheel();
+		Random random = new Random(3);
+		
+		// Event i is scheduled at times[i], and carries i as its value
+		List<Long> times = new ArrayList<>();
+		List<Long> fired = new ArrayList<>();
+		
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < 1000; i++) {
+				// Mostly near events, with some far enough ahead to land in every level
+				long delay = random.nextInt(4) == 0 ? random.nextLong() >>> (random.nextInt(56) + 8)
+				                                    : random.nextInt(300);
+				wheel.schedule(wheel.getTime() + delay, null, null, times.size(), 0);
+				times.add(wheel.getTime() + delay);
+			}
+			
+			// Fire about half of the events
+			for (int i = 0; i < 500 && wheel.size() > 0; i++) {
+				long time = wheel.advance(Long.MAX_VALUE);
+				assertThat(time).isEqualTo(wheel.getTime());
+				wheel.fire((state, port, value, defined) -> {
+					assertThat(times.get((int)value)).isEqualTo(time);
+					fired.add(value);
+				});
+			}
+		}
+		
+		while (wheel.advance(Long.MAX_VALUE) >= 0) {
+			wheel.fire((state, port, value, defined) -> fired.add(value));
+		}
+		
+		assertThat(wheel.size()).isEqualTo(0);
+		assertThat(fired).hasSize(times.size());
+		
+		// In time order, and in scheduling order for the same time
+		for (int i = 1; i < fired.size(); i++) {
+			long previous = fired.get(i - 1);
+			long current = fired.get(i);
+			long previousTime = times.get((int)previous);
+			long currentTime = times.get((int)current);
+			assertThat(currentTime).isAtLeast(previousTime);
+			if (previousTime == currentTime) {
+				assertThat(current).isGreaterThan(previous);
+			}
+		}
+	}
+	
+	@Test
+	public void testAdvanceStopsAtLimit() {
+		TimingWheel wheel = new TimingWheel();
+		wheel.schedule(5, null, null, 0, 0);
+		wheel.schedule(70000, null, null, 1, 0);
+		
+		assertThat(wheel.advance(4)).isEqualTo(-1);
+		assertThat(wheel.advance(5)).isEqualTo(5);
+		wheel.fire((state, port, value, defined) -> assertThat(value).isEqualTo(0));
+		
+		assertThat(wheel.advance(69999)).isEqualTo(-1);
+		assertThat(wheel.getTime()).isAtMost(69999);
+		assertThat(wheel.size()).isEqualTo(1);
+		
+		// Scheduling up to the limit still works after advancing part of the way
+		wheel.schedule(69999, null, null, 2, 0);
+		assertThat(wheel.advance(Long.MAX_VALUE)).isEqualTo(69999);
+		wheel.fire((state, port, value, defined) -> assertThat(value).isEqualTo(2));
+		assertThat(wheel.advance(Long.MAX_VALUE)).isEqualTo(70000);
+		
+		assertThrows(IllegalArgumentException.class, () -> wheel.schedule(10, null, null, 3, 0));
+	}
+}
@@ -79,4 +79,61 @@ public class WireValueTest {
 		
 		assertThrows(IllegalStateException.class, value::getValue);
 	}
+	
+	@Test
+	public void testEquals() {
+		WireValue value1 = WireValue.of(0b101, 3);
+		WireValue value2 = new WireValue(State.ONE, State.ZERO, State.ONE);
+		assertThat(value1).isEqualTo(value2);
+		assertThat(value1.hashCode()).isEqualTo(value2.hashCode());
+		
+		value2.setBit(1, State.X);
+		assertThat(value1).isNotEqualTo(value2);
+		
+		value2.setBit(1, State.ZERO);
+		assertThat(value1).isEqualTo(value2);
+		
+		assertThat(WireValue.of(0b101, 4)).isNotEqualTo(value1);
+	}
+	
+	@Test
+	public void testConflicts() {
+		WireValue value1 = new WireValue(State.ONE, State.X, State.ZERO);
+		WireValue value2 = new WireValue(State.X, State.ONE, State.ZERO);
+		assertThat(value1.conflicts(value2)).isFalse();
+		
+		value2.setBit(0, State.ZERO);
+		assertThat(value1.conflicts(value2)).isTrue();
+	}
+	
+	@Test
+	public void testResize() {
+		WireValue value = new WireValue(State.ONE, State.X, State.ZERO, State.ONE);
+		
+		WireValue extended = new WireValue(value, 6);
+		assertThat(WireValueUtils.allBitsEqualTo(extended,
+		                                         State.ONE,
+		                                         State.X,
+		                                         State.ZERO,
+		                                         State.ONE,
+		                                         State.ZERO,
+		                                         State.ZERO)).isTrue();
+		
+		WireValue truncated = new WireValue(value, 2);
+		assertThat(WireValueUtils.allBitsEqualTo(truncated, State.ONE, State.X)).isTrue();
+		
+		value.setBitSize(2);
+		assertThat(value).isEqualTo(truncated);
+		
+		value.setBitSize(3);
+		assertThat(WireValueUtils.allBitsEqualTo(value, State.ONE, State.X, State.X)).isTrue();
+	}
+	
+	@Test
+	public void testMaxBitSize() {
+		WireValue value = WireValue.of(-1L, WireValue.MAX_BIT_SIZE);
+		assertThat(WireValueUtils.allBitsEqualTo(value, State.ONE)).isTrue();
+		
+		assertThrows(IllegalArgumentException.class, () -> new WireValue(WireValue.MAX_BIT_SIZE + 1));
+	}
 }
@@ -0,0 +1,141 @@
+package com.ra4king.circuitsim.simulator.file;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * @author Roi Atalla
+ */
+public class CircuitLoaderTest {
+	private static final String PIN = "com.ra4king.circuitsim.gui.peers.wiring.PinPeer";
+	private static final String TUNNEL = "com.ra4king.circuitsim.gui.peers.wiring.Tunnel";
+	
+	@Test
+	public void testAdder() throws IOException {
+		LoadedCircuits circuits = new CircuitLoader().load(new File("examples/Adder.sim"));
+		assertThat(circuits.getErrors()).isEmpty();
+		assertThat(circuits.getCircuits().keySet())
+			.containsExactly("1-bit adder", "4-bit adder", "16-bit adder", "32-bit adder")
+			.inOrder();
+		
+		Pin pinA = circuits.getComponent("16-bit adder", Pin.class, "A");
+		Pin pinB = circuits.getComponent("16-bit adder", Pin.class, "B");
+		Pin pinC = circuits.getComponent("16-bit adder", Pin.class, "C");
+		Pin pinOut = circuits.getComponent("16-bit adder", Pin.class, "Out");
+		Pin pinCarry = circuits.getComponent("16-bit adder", Pin.class, "Carry");
+		assertThat(pinA.getBitSize()).isEqualTo(16);
+		assertThat(pinOut.isInput()).isFalse();
+		
+		Simulator simulator = circuits.getSimulator();
+		CircuitState state = circuits.getCircuit("16-bit adder").getTopLevelState();
+		for (int a = 0; a < (1 << 16); a += 4099) {
+			for (int b = 0; b < (1 << 16); b += 6151) {
+				for (int c = 0; c < 2; c++) {
+					state.pushValue(pinA.getPort(Pin.PORT), WireValue.of(a, 16));
+					state.pushValue(pinB.getPort(Pin.PORT), WireValue.of(b, 16));
+					state.pushValue(pinC.getPort(Pin.PORT), WireValue.of(c, 1));
+					simulator.stepAll();
+					
+					String inputs = "For inputs a=" + a + ", b=" + b + ", c=" + c;
+					assertWithMessage(inputs)
+						.that(state.getLastReceived(pinOut.getPort(Pin.PORT)).getValue())
+						.isEqualTo((a + b + c) & 0xFFFF);
+					assertWithMessage(inputs)
+						.that(state.getLastReceived(pinCarry.getPort(Pin.PORT)).getValue())
+						.isEqualTo((a + b + c) >> 16);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testExamples() throws IOException {
+		File[] files = new File("examples").listFiles((dir, name) -> name.endsWith(".sim"));
+		assertThat(files).isNotEmpty();
+		Arrays.sort(files);
+		
+		for (File file : files) {
+			LoadedCircuits circuits = new CircuitLoader().load(file);
+			assertWithMessage(file.getName()).that(circuits.getErrors()).isEmpty();
+			assertWithMessage(file.getName()).that(circuits.getCircuits()).isNotEmpty();
+			
+			// The CPUs and state machines must run without oscillating or short circuiting
+			boolean clocked = circuits.getCircuits()
+			                          .values()
+			                          .stream()
+			                          .anyMatch(circuit -> circuit.getComponents()
+			                                                      .stream()
+			                                                      .anyMatch(component -> component instanceof Clock));
+			if (clocked) {
+				Simulator simulator = circuits.getSimulator();
+				try {
+					Clock.RunInfo runInfo = Clock.runCycles(simulator, 1000);
+					assertWithMessage(file.getName()).that(runInfo.getCycles()).isEqualTo(1000);
+				} finally {
+					Clock.dispose(simulator);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testWiresAndTunnels() {
+		LoadedCircuits circuits = new CircuitLoader().parse(
+			"{\"version\": \"1.9.0\", \"circuits\": [{\"name\": \"main\", \"components\": [" +
+			pin("A", true, "EAST", 0, 0) + ", " + pin("X", false, "WEST", 10, 0) + ", " +
+			pin("B", true, "SOUTH", 5, -5) + ", " + pin("Y", false, "NORTH", 5, 5) + ", " +
+			pin("C", true, "EAST", 0, 10) + ", " + tunnel("WEST", 2, 10) + ", " +
+			tunnel("EAST", 17, 10) + ", " + pin("Z", false, "WEST", 20, 10) + "], \"wires\": [" +
+			"{\"x\": 2, \"y\": 1, \"length\": 8, \"isHorizontal\": true}, " +
+			"{\"x\": 6, \"y\": -3, \"length\": 8, \"isHorizontal\": false}]}]}");
+		assertThat(circuits.getErrors()).isEmpty();
+		
+		CircuitState state = circuits.getCircuit("main").getTopLevelState();
+		state.pushValue(circuits.getComponent("main", Pin.class, "A").getPort(Pin.PORT), WireValue.of(1, 1));
+		state.pushValue(circuits.getComponent("main", Pin.class, "B").getPort(Pin.PORT), WireValue.of(0, 1));
+		state.pushValue(circuits.getComponent("main", Pin.class, "C").getPort(Pin.PORT), WireValue.of(1, 1));
+		circuits.getSimulator().stepAll();
+		
+		// The two wires cross in their middles, which does not connect them
+		assertThat(state.getLastReceived(circuits.getComponent("main", Pin.class, "X").getPort(Pin.PORT)))
+			.isEqualTo(WireValue.of(1, 1));
+		assertThat(state.getLastReceived(circuits.getComponent("main", Pin.class, "Y").getPort(Pin.PORT)))
+			.isEqualTo(WireValue.of(0, 1));
+		assertThat(state.getLastReceived(circuits.getComponent("main", Pin.class, "Z").getPort(Pin.PORT)))
+			.isEqualTo(WireValue.of(1, 1));
+	}
+	
+	@Test
+	public void testUnknownComponent() {
+		CircuitLoader loader = new CircuitLoader();
+		SimulationException exception = assertThrows(SimulationException.class,
+		                                             () -> loader.parse("{\"circuits\": [{\"name\": \"main\", " +
+		                                                                "\"components\": [{\"name\": \"Foo\"}]}]}"));
+		assertThat(exception).hasMessageThat().contains("Foo");
+	}
+	
+	private static String pin(String label, boolean isInput, String direction, int x, int y) {
+		return "{\"name\": \"" + PIN + "\", \"x\": " + x + ", \"y\": " + y + ", \"properties\": {\"Label\": \"" +
+		       label + "\", \"Is input?\": \"" + (isInput ? "Yes" : "No") + "\", \"Direction\": \"" + direction +
+		       "\", \"Bitsize\": \"1\"}}";
+	}
+	
+	private static String tunnel(String direction, int x, int y) {
+		return "{\"name\": \"" + TUNNEL + "\", \"x\": " + x + ", \"y\": " + y +
+		       ", \"properties\": {\"Label\": \"T\", \"Direction\": \"" + direction + "\", \"Bitsize\": \"1\"}}";
+	}
+}
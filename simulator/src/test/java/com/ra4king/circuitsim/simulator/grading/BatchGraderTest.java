@@ -0,0 +1,81 @@
+package com.ra4king.circuitsim.simulator.grading;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.ra4king.circuitsim.simulator.file.CircuitLoader;
+import com.ra4king.circuitsim.simulator.grading.GradingSpec.TestCase;
+
+/**
+ * @author Roi Atalla
+ */
+public class BatchGraderTest {
+	@TempDir
+	Path directory;
+	
+	@Test
+	public void testGradeDirectory() throws IOException, InterruptedException {
+		Files.createDirectory(directory.resolve("student1"));
+		Files.copy(new File("examples/Adder.sim").toPath(), directory.resolve("student1/Adder.sim"));
+		Files.copy(new File("examples/Adder.sim").toPath(), directory.resolve("student2.sim"));
+		Files.copy(new File("examples/Xor.sim").toPath(), directory.resolve("student3.sim"));
+		Files.writeString(directory.resolve("student4.sim"), "{ not json");
+		Files.writeString(directory.resolve("notes.txt"), "ignored");
+		
+		GradingSpec spec = GradingSpec.parse(new StringReader(
+			"{\"circuit\": \"16-bit adder\", \"tests\": [" +
+			"{\"name\": \"1 + 2\", \"inputs\": {\"A\": 1, \"B\": 2, \"C\": 0}, " +
+			"\"outputs\": {\"Out\": 3, \"Carry\": 0}}, " +
+			"{\"name\": \"overflow\", \"inputs\": {\"A\": 65535, \"B\": 1, \"C\": 1}, " +
+			"\"outputs\": {\"Out\": 1, \"Carry\": 1}}]}"));
+		List<File> files = BatchGrader.findFiles(directory.toFile());
+		assertThat(files).hasSize(4);
+		
+		List<GradingResult> results = new BatchGrader(spec, new CircuitLoader(), 3).grade(files);
+		assertThat(results).hasSize(4);
+		
+		GradingResult adder = results.get(0);
+		assertThat(adder.getFile()).endsWith("student1" + File.separator + "Adder.sim");
+		assertThat(adder.isPassed()).isTrue();
+		assertThat(adder.getTestsRun()).isEqualTo(2);
+		assertThat(adder.getTestsPassed()).isEqualTo(2);
+		assertThat(adder.getError()).isNull();
+		assertThat(results.get(1).isPassed()).isTrue();
+		
+		GradingResult xor = results.get(2);
+		assertThat(xor.isPassed()).isFalse();
+		assertThat(xor.getError().getMessage()).contains("Missing circuit named '16-bit adder'");
+		
+		GradingResult malformed = results.get(3);
+		assertThat(malformed.isPassed()).isFalse();
+		assertThat(malformed.getError().getType()).isEqualTo("SimulationException");
+	}
+	
+	@Test
+	public void testWrongOutput() {
+		GradingSpec spec = new GradingSpec("xor")
+			.addTest(new TestCase("0 ^ 1").setInput("a", 0).setInput("b", 1).expectOutput("c", 1))
+			.addTest(new TestCase("1 ^ 1").setInput("a", 1).setInput("b", 1).expectOutput("c", 1));
+		
+		GradingResult result = new BatchGrader(spec).grade(new File("examples/Xor.sim"));
+		assertThat(result.getError()).isNull();
+		assertThat(result.isPassed()).isFalse();
+		assertThat(result.getTestsPassed()).isEqualTo(1);
+		assertThat(result.getFailures()).hasSize(1);
+		
+		GradingResult.Failure failure = result.getFailures().get(0);
+		assertThat(failure.getTest()).isEqualTo("1 ^ 1");
+		assertThat(failure.getPin()).isEqualTo("c");
+		assertThat(failure.getExpected()).isEqualTo("1");
+		assertThat(failure.getActual()).isEqualTo("0");
+	}
+}
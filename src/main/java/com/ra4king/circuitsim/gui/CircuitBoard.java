@@ -1173,15 +1173,22 @@ public class CircuitBoard {
 	}
 	
 	public void paint(GraphicsContext graphics, LinkWires highlightLinkWires) {
+		paint(graphics, currentState, highlightLinkWires);
+	}
+	
+	/**
+	 * Paints the circuit with the values of the given state, such as a snapshot of the current state.
+	 */
+	public void paint(GraphicsContext graphics, CircuitState state, LinkWires highlightLinkWires) {
 		components.forEach(component -> {
 			if (moveElements == null || !moveElements.contains(component)) {
-				paintComponent(graphics, currentState, component);
+				paintComponent(graphics, state, component);
 			}
 		});
 		
 		for (LinkWires linkWires : links) {
 			for (Wire wire : linkWires.getWires()) {
-				paintWire(graphics, currentState, wire, linkWires == highlightLinkWires);
+				paintWire(graphics, state, wire, linkWires == highlightLinkWires);
 			}
 		}
 		
@@ -1210,9 +1217,9 @@ public class CircuitBoard {
 				
 				for (GuiElement element : moveElements) {
 					if (element instanceof ComponentPeer<?>) {
-						paintComponent(graphics, currentState, (ComponentPeer<?>)element);
+						paintComponent(graphics, state, (ComponentPeer<?>)element);
 					} else if (element instanceof Wire) {
-						paintWire(graphics, currentState, (Wire)element, false);
+						paintWire(graphics, state, (Wire)element, false);
 					}
 				}
 				
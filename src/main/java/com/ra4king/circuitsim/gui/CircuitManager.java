@@ -36,7 +36,6 @@ import javafx.scene.input.ScrollEvent;
 import javafx.scene.paint.Color;
 import javafx.scene.text.FontSmoothingType;
 import javafx.scene.text.Text;
-import javafx.util.Pair;
 
 /**
  * @author Roi Atalla
@@ -355,8 +354,19 @@ public class CircuitManager {
 	}
 	
 	public void paint() {
+		paint(circuitBoard.getCurrentState());
+	}
+	
+	/**
+	 * Paints the circuit with the values of the given state, such as a snapshot published by the SimulationThread,
+	 * which can be read without holding the Simulator lock.
+	 */
+	public void paint(CircuitState state) {
 		needsRepaint = false;
 		
+		PaintEvent event = new PaintEvent();
+		event.begin();
+		
 		GraphicsContext graphics = getCanvas().getGraphicsContext2D();
 		
 		graphics.save();
@@ -381,7 +391,7 @@ public class CircuitManager {
 			}
 			
 			try {
-				circuitBoard.paint(graphics, inspectLinkWires);
+				circuitBoard.paint(graphics, state, inspectLinkWires);
 			} catch (Exception exc) {
 				getSimulatorWindow().getDebugUtil().logException(exc);
 			}
@@ -407,7 +417,7 @@ public class CircuitManager {
 					graphics.setStroke(Color.RED);
 					
 					simulatorWindow.getSimulator().runSync(() -> {
-						for (Pair<CircuitState, Link> linkToUpdate : simulatorWindow
+						for (Map.Entry<CircuitState, Link> linkToUpdate : simulatorWindow
 							.getSimulator()
 							.getLinksToUpdate()) {
 							for (Port port : linkToUpdate.getValue().getParticipants()) {
@@ -434,7 +444,7 @@ public class CircuitManager {
 			if (inspectLinkWires != null && inspectLinkWires.getLink() != null && inspectLinkWires.isLinkValid()) {
 				String value;
 				try {
-					value = circuitBoard.getCurrentState().getMergedValue(inspectLinkWires.getLink()).toString();
+					value = state.getMergedValue(inspectLinkWires.getLink()).toString();
 				} catch (Exception exc) {
 					value = "Error";
 				}
@@ -569,6 +579,14 @@ public class CircuitManager {
 			}
 		} finally {
 			graphics.restore();
+			
+			event.end();
+			if (event.shouldCommit()) {
+				event.circuit = getName();
+				event.components = circuitBoard.getComponents().size();
+				event.wires = circuitBoard.getLinks().stream().mapToInt(link -> link.getWires().size()).sum();
+				event.commit();
+			}
 		}
 	}
 	
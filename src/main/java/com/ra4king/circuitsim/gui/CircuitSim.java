@@ -50,16 +50,22 @@ import com.ra4king.circuitsim.gui.file.FileFormat.CircuitInfo;
 import com.ra4king.circuitsim.gui.file.FileFormat.ComponentInfo;
 import com.ra4king.circuitsim.gui.file.FileFormat.WireInfo;
 import com.ra4king.circuitsim.gui.peers.SubcircuitPeer;
+import com.ra4king.circuitsim.gui.peers.wiring.Probe;
+import com.ra4king.circuitsim.gui.peers.wiring.Tunnel;
 import com.ra4king.circuitsim.gui.properties.PropertyCircuitValidator;
 import com.ra4king.circuitsim.simulator.Circuit;
 import com.ra4king.circuitsim.simulator.CircuitState;
 import com.ra4king.circuitsim.simulator.Component;
 import com.ra4king.circuitsim.simulator.ShortCircuitException;
 import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.SimulationThread;
 import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.SimulatorMetrics;
 import com.ra4king.circuitsim.simulator.components.Subcircuit;
 import com.ra4king.circuitsim.simulator.components.wiring.Clock;
 import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.jfr.LoadPhaseEvent;
+import com.ra4king.circuitsim.simulator.waveform.WaveformRecorder;
 
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
@@ -157,6 +163,12 @@ public class CircuitSim extends Application {
 	private Simulator simulator;
 	private CheckMenuItem simulationEnabled;
 	
+	// Owns the Simulator while enabled, the current circuit is then painted from its snapshots
+	private CheckMenuItem simulationThreadEnabled;
+	private SimulationThread simulationThread;
+	private CircuitState watchedState;
+	private long paintedGeneration;
+	
 	private BooleanProperty showGridProp;
 	private MenuItem undo, redo;
 	private CheckMenuItem clockEnabled;
@@ -177,6 +189,7 @@ public class CircuitSim extends Application {
 	private ComboBox<Double> scaleFactorSelect;
 	private Label fpsLabel;
 	private Label clockLabel;
+	private Label metricsLabel;
 	private Label messageLabel;
 	
 	private GridPane propertiesTable;
@@ -200,6 +213,12 @@ public class CircuitSim extends Application {
 	private long lastExceptionTime;
 	private static final long SHOW_ERROR_DURATION = 3000;
 	
+	// The number of clock ticks that can be stepped back while recording history
+	private static final int CLOCK_HISTORY_TICKS = 1024;
+	
+	private WaveformRecorder waveformRecorder;
+	private ProfilerWindow profilerWindow;
+	
 	private volatile boolean needsRepaint = true;
 	
 	/**
@@ -416,8 +435,22 @@ public class CircuitSim extends Application {
 	}
 	
 	private void runSim() {
+		// In timed mode, every run moves to the next scheduled values, so their propagation delays can be watched
+		boolean advanceTime = isSimulationEnabled() && simulator.isTimed() && simulator.getPendingEventCount() > 0;
+		
+		// The simulation thread steps after every batch of commands by itself
+		if (simulationThread != null) {
+			if (advanceTime) {
+				simulationThread.submit(simulator::advanceTime);
+			}
+			return;
+		}
+		
 		try {
-			if (isSimulationEnabled() && simulator.hasLinksToUpdate()) {
+			if (advanceTime) {
+				needsRepaint = true;
+				simulator.advanceTime();
+			} else if (isSimulationEnabled() && simulator.hasLinksToUpdate()) {
 				needsRepaint = true;
 				simulator.stepAll();
 			}
@@ -429,6 +462,54 @@ public class CircuitSim extends Application {
 		}
 	}
 	
+	/**
+	 * Starts the simulation thread if enabled while the simulation is enabled, and stops it otherwise.
+	 */
+	private void updateSimulationThread() {
+		boolean enabled = simulationThreadEnabled.isSelected() && isSimulationEnabled();
+		if (enabled && simulationThread == null) {
+			simulationThread = new SimulationThread(simulator, exc -> {
+				setLastException(exc);
+				if (!(exc instanceof SimulationException)) {
+					getDebugUtil().logException(exc);
+				}
+			});
+			simulationThread.start();
+		} else if (!enabled && simulationThread != null) {
+			simulationThread.stop();
+			simulationThread = null;
+			watchedState = null;
+		}
+		
+		needsRepaint = true;
+	}
+	
+	/**
+	 * Paints the circuit from the latest snapshot of the simulation thread if it is running, without waiting on the
+	 * Simulator lock. Otherwise, or if there is no up-to-date snapshot yet, the circuit is painted under the lock.
+	 */
+	private void paintCircuit(CircuitManager manager) {
+		if (simulationThread != null) {
+			CircuitState state = manager.getCircuitBoard().getCurrentState();
+			if (state != watchedState) {
+				if (watchedState != null) {
+					simulationThread.unwatch(watchedState);
+				}
+				simulationThread.watch(state);
+				watchedState = state;
+			}
+			
+			paintedGeneration = simulationThread.getGeneration();
+			CircuitState snapshot = simulationThread.getSnapshot(state);
+			if (snapshot != null) {
+				manager.paint(snapshot);
+				return;
+			}
+		}
+		
+		simulator.runSync(manager::paint);
+	}
+	
 	private String getCurrentError() {
 		CircuitManager manager = getCurrentCircuit();
 		
@@ -443,6 +524,71 @@ public class CircuitSim extends Application {
 		       (exc instanceof ShortCircuitException ? "Short circuit detected" : exc.getMessage());
 	}
 	
+	/**
+	 * Records the Pins, Probes and Tunnels of the current circuit and of its Subcircuits into a VCD file, until
+	 * stopWaveformRecording() is called.
+	 *
+	 * @return Whether the recording started.
+	 */
+	private boolean startWaveformRecording() {
+		CircuitManager currentCircuit = getCurrentCircuit();
+		if (currentCircuit == null) {
+			return false;
+		}
+		
+		FileChooser fileChooser = new FileChooser();
+		fileChooser.setTitle("Choose waveform file");
+		fileChooser.setInitialDirectory(lastSaveFile == null || lastSaveFile.getParentFile() == null ||
+		                                !lastSaveFile.getParentFile().isDirectory() ?
+		                                new File(System.getProperty("user.dir")) :
+		                                lastSaveFile.getParentFile());
+		fileChooser.getExtensionFilters().add(new ExtensionFilter("Value Change Dump", "*.vcd"));
+		File file = fileChooser.showSaveDialog(stage);
+		if (file == null) {
+			return false;
+		}
+		
+		Set<Component> labeled = new HashSet<>();
+		for (Pair<ComponentLauncherInfo, CircuitManager> pair : circuitManagers.values()) {
+			for (ComponentPeer<?> peer : pair.getValue().getCircuitBoard().getComponents()) {
+				if (peer instanceof Probe || peer instanceof Tunnel) {
+					labeled.add(peer.getComponent());
+				}
+			}
+		}
+		
+		try {
+			waveformRecorder = new WaveformRecorder(simulator, file.toPath());
+			waveformRecorder.addNamedSignals(currentCircuit.getCircuitBoard().getCurrentState(),
+			                                 component -> component instanceof Pin || labeled.contains(component));
+			waveformRecorder.start();
+			return true;
+		} catch (Exception exc) {
+			exc.printStackTrace();
+			stopWaveformRecording();
+			
+			Alert alert = new Alert(AlertType.ERROR);
+			alert.initOwner(stage);
+			alert.initModality(Modality.WINDOW_MODAL);
+			alert.setTitle("Error");
+			alert.setHeaderText("Error recording waveform.");
+			alert.setContentText("Error when recording the waveform: " + exc.getMessage());
+			alert.showAndWait();
+			return false;
+		}
+	}
+	
+	private void stopWaveformRecording() {
+		if (waveformRecorder != null) {
+			try {
+				waveformRecorder.close();
+			} catch (Exception exc) {
+				exc.printStackTrace();
+			}
+			waveformRecorder = null;
+		}
+	}
+	
 	private void setLastException(Exception lastException) {
 		this.lastException = lastException;
 		this.lastExceptionTime = System.currentTimeMillis();
@@ -1463,35 +1609,17 @@ public class CircuitSim extends Application {
 						
 						editHistory.disable();
 						
-						CircuitFile circuitFile = FileFormat.load(lastSaveFile);
-						
-						if (circuitFile.circuits == null) {
-							throw new NullPointerException("File missing circuits");
-						}
-						
 						clearCircuits();
 						
-						if (circuitFile.libraryPaths != null) {
-							for (String libraryPath : circuitFile.libraryPaths) {
-								File libraryFile = new File(libraryPath);
-								if (libraryFile.isFile()) {
-									Platform.runLater(() -> dialog.setContentText(
-										"Loading library " + libraryFile.getName()));
-									runFxSync(() -> loadLibrary(libraryFile));
-								} else {
-									throw new IllegalArgumentException("Library does not exist: " + libraryPath);
-								}
-							}
-						}
-						
-						Platform.runLater(() -> {
-							bar.setProgress(0.1);
-							dialog.setContentText("Creating circuits...");
-						});
+						String fileName = lastSaveFile.getName();
+						LoadPhaseEvent circuitsEvent = new LoadPhaseEvent(fileName, LoadPhaseEvent.CREATE_CIRCUITS);
+						circuitsEvent.begin();
 						
-						int totalComponents = 0;
+						int[] totalComponents = new int[1];
 						
-						for (CircuitInfo circuit : circuitFile.circuits) {
+						// Circuits are created as soon as they are parsed, but their components wait for the whole
+						// file since subcircuits may refer to circuits further down
+						CircuitFile circuitFile = FileFormat.load(lastSaveFile, circuit -> {
 							if (circuitManagers.containsKey(circuit.name)) {
 								throw new IllegalStateException("Duplicate circuit names not allowed.");
 							}
@@ -1506,20 +1634,48 @@ public class CircuitSim extends Application {
 								throw new NullPointerException("Circuit " + circuit.name + " missing wires");
 							}
 							
-							totalComponents += circuit.components.size() + circuit.wires.size();
+							totalComponents[0] += circuit.components.size() + circuit.wires.size();
+						});
+						
+						if (circuitFile == null || circuitFile.circuits == null) {
+							throw new NullPointerException("File missing circuits");
 						}
 						
+						circuitsEvent.count = circuitManagers.size();
+						circuitsEvent.commit();
+						
+						if (circuitFile.libraryPaths != null) {
+							for (String libraryPath : circuitFile.libraryPaths) {
+								File libraryFile = new File(libraryPath);
+								if (libraryFile.isFile()) {
+									Platform.runLater(() -> dialog.setContentText(
+										"Loading library " + libraryFile.getName()));
+									runFxSync(() -> loadLibrary(libraryFile));
+								} else {
+									throw new IllegalArgumentException("Library does not exist: " + libraryPath);
+								}
+							}
+						}
+						
+						Platform.runLater(() -> bar.setProgress(0.1));
+						
 						Platform.runLater(() -> dialog.setContentText("Creating components..."));
 						
 						Queue<Runnable> runnables = new ArrayDeque<>();
 						
-						final CountDownLatch latch = new CountDownLatch(totalComponents + 1);
+						final CountDownLatch latch = new CountDownLatch(totalComponents[0] + 1);
 						
-						double increment = (1.0 - bar.getProgress()) / totalComponents;
+						double increment = (1.0 - bar.getProgress()) / totalComponents[0];
 						
 						for (CircuitInfo circuit : circuitFile.circuits) {
 							CircuitManager manager = getCircuitManager(circuit.name);
 							
+							// Components and wires are added on the FX thread, so their phases are timed there
+							LoadPhaseEvent componentsEvent =
+								new LoadPhaseEvent(fileName, LoadPhaseEvent.CREATE_COMPONENTS, circuit.name);
+							componentsEvent.count = circuit.components.size();
+							runnables.add(componentsEvent::begin);
+							
 							for (ComponentInfo component : circuit.components) {
 								try {
 									@SuppressWarnings("unchecked")
@@ -1562,6 +1718,13 @@ public class CircuitSim extends Application {
 								}
 							}
 							
+							runnables.add(componentsEvent::commit);
+							
+							LoadPhaseEvent wiresEvent =
+								new LoadPhaseEvent(fileName, LoadPhaseEvent.ADD_WIRES, circuit.name);
+							wiresEvent.count = circuit.wires.size();
+							runnables.add(wiresEvent::begin);
+							
 							for (WireInfo wire : circuit.wires) {
 								runnables.add(() -> {
 									manager.mayThrow(() -> manager
@@ -1571,9 +1734,11 @@ public class CircuitSim extends Application {
 									latch.countDown();
 								});
 							}
+							
+							runnables.add(wiresEvent::commit);
 						}
 						
-						int comps = totalComponents;
+						int comps = totalComponents[0];
 						Thread tasksThread = new Thread(() -> {
 							final int maxRunLater = Math.max(comps / 20, 50);
 							
@@ -2351,8 +2516,15 @@ public class CircuitSim extends Application {
 			needsRepaint = true;
 		});
 		
+		CheckMenuItem showMetrics = new CheckMenuItem("Show performance metrics");
+		showMetrics.selectedProperty().addListener((observable, oldValue, newValue) -> {
+			metricsLabel.setText("");
+			metricsLabel.setVisible(newValue);
+			metricsLabel.setManaged(newValue);
+		});
+		
 		Menu viewMenu = new Menu("View");
-		viewMenu.getItems().addAll(showGrid);
+		viewMenu.getItems().addAll(showGrid, showMetrics);
 		
 		// COMPONENTS Menu
 		MenuItem loadLibrary = new MenuItem("Load library");
@@ -2393,7 +2565,11 @@ public class CircuitSim extends Application {
 		stepSimulation.setAccelerator(new KeyCodeCombination(KeyCode.I, KeyCombination.SHORTCUT_DOWN));
 		stepSimulation.setOnAction(event -> {
 			try {
-				simulator.step();
+				if (simulator.isTimed()) {
+					simulator.advanceTime();
+				} else {
+					simulator.step();
+				}
 			} catch (Exception exc) {
 				setLastException(exc);
 			} finally {
@@ -2405,6 +2581,7 @@ public class CircuitSim extends Application {
 		simulationEnabled.setSelected(true);
 		simulationEnabled.setAccelerator(new KeyCodeCombination(KeyCode.E, KeyCombination.SHORTCUT_DOWN));
 		simulationEnabled.selectedProperty().addListener((observable, oldValue, newValue) -> {
+			updateSimulationThread();
 			runSim();
 			
 			stepSimulation.setDisable(newValue);
@@ -2412,6 +2589,19 @@ public class CircuitSim extends Application {
 			clockEnabled.setSelected(false);
 		});
 		
+		simulationThreadEnabled = new CheckMenuItem("Dedicated simulation thread");
+		simulationThreadEnabled.selectedProperty().addListener((observable, oldValue, newValue) -> {
+			updateSimulationThread();
+			runSim();
+		});
+		
+		CheckMenuItem timedSimulation = new CheckMenuItem("Timed simulation");
+		timedSimulation.selectedProperty().addListener((observable, oldValue, newValue) -> {
+			simulator.setTimed(newValue);
+			needsRepaint = true;
+			runSim();
+		});
+		
 		MenuItem reset = new MenuItem("Reset simulation");
 		reset.setAccelerator(new KeyCodeCombination(KeyCode.R, KeyCombination.SHORTCUT_DOWN));
 		reset.setOnAction(event -> {
@@ -2430,16 +2620,59 @@ public class CircuitSim extends Application {
 		tickClock.setAccelerator(new KeyCodeCombination(KeyCode.J, KeyCombination.SHORTCUT_DOWN));
 		tickClock.setOnAction(event -> Clock.tick(simulator));
 		
+		MenuItem stepBackClock = new MenuItem("Step clock back");
+		stepBackClock.setAccelerator(new KeyCodeCombination(KeyCode.J,
+		                                                    KeyCombination.SHORTCUT_DOWN,
+		                                                    KeyCombination.SHIFT_DOWN));
+		stepBackClock.setDisable(true);
+		stepBackClock.setOnAction(event -> {
+			try {
+				Clock.stepBack(simulator, 1);
+			} catch (IllegalStateException exc) {
+				// The circuits were edited since the last tick
+				setLastException(exc);
+				needsRepaint = true;
+			}
+		});
+		
+		CheckMenuItem recordHistory = new CheckMenuItem("Record clock history");
+		recordHistory.selectedProperty().addListener((observable, oldValue, newValue) -> {
+			simulator.setJournalCapacity(newValue ? CLOCK_HISTORY_TICKS : 0);
+			stepBackClock.setDisable(!newValue || clockEnabled.isSelected());
+		});
+		
+		CheckMenuItem recordWaveform = new CheckMenuItem("Record waveform...");
+		recordWaveform.selectedProperty().addListener((observable, oldValue, newValue) -> {
+			if (newValue) {
+				if (!startWaveformRecording()) {
+					recordWaveform.setSelected(false);
+				}
+			} else {
+				stopWaveformRecording();
+			}
+		});
+		
+		CheckMenuItem profileComponents = new CheckMenuItem("Profile components...");
+		profileComponents.selectedProperty().addListener((observable, oldValue, newValue) -> {
+			if (newValue) {
+				profilerWindow = new ProfilerWindow(stage, simulator, () -> profileComponents.setSelected(false));
+				profilerWindow.show();
+			} else if (profilerWindow != null) {
+				ProfilerWindow window = profilerWindow;
+				profilerWindow = null;
+				window.close();
+			}
+		});
+		
 		clockEnabled = new CheckMenuItem("Clock Enabled");
 		clockEnabled.setAccelerator(new KeyCodeCombination(KeyCode.K, KeyCombination.SHORTCUT_DOWN));
 		clockEnabled.selectedProperty().addListener((observable, oldValue, newValue) -> {
 			tickClock.setDisable(newValue);
-			Clock.clockEnabledProperty(simulator).set(new Clock.EnabledInfo(newValue, getCurrentClockSpeed()));
+			stepBackClock.setDisable(newValue || !recordHistory.isSelected());
+			Clock.setClockEnabled(simulator, new Clock.EnabledInfo(newValue, getCurrentClockSpeed()));
 		});
 		
-		Clock
-			.clockEnabledProperty(simulator)
-			.addListener((observable, oldValue, newValue) -> clockEnabled.setSelected(newValue.getEnabled()));
+		Clock.addEnabledListener(simulator, enabledInfo -> clockEnabled.setSelected(enabledInfo.getEnabled()));
 		
 		frequenciesMenu = new Menu("Frequency");
 		ToggleGroup freqToggleGroup = new ToggleGroup();
@@ -2458,12 +2691,19 @@ public class CircuitSim extends Application {
 		
 		Menu simulationMenu = new Menu("Simulation");
 		simulationMenu.getItems().addAll(simulationEnabled,
+		                                 simulationThreadEnabled,
+		                                 timedSimulation,
 		                                 stepSimulation,
 		                                 reset,
 		                                 new SeparatorMenuItem(),
 		                                 clockEnabled,
 		                                 tickClock,
-		                                 frequenciesMenu);
+		                                 stepBackClock,
+		                                 recordHistory,
+		                                 frequenciesMenu,
+		                                 new SeparatorMenuItem(),
+		                                 recordWaveform,
+		                                 profileComponents);
 		
 		// HELP Menu
 		Menu helpMenu = new Menu("Help");
@@ -2546,6 +2786,13 @@ public class CircuitSim extends Application {
 		clockLabel.setAlignment(Pos.CENTER_LEFT);
 		clockLabel.setFont(GuiUtils.getFont(13));
 		
+		// Shown from the View menu, updated every second with the activity of the Simulator
+		metricsLabel = new Label();
+		metricsLabel.setAlignment(Pos.CENTER_LEFT);
+		metricsLabel.setFont(GuiUtils.getFont(13));
+		metricsLabel.setVisible(false);
+		metricsLabel.setManaged(false);
+		
 		messageLabel = new Label();
 		messageLabel.setTextFill(Color.RED);
 		messageLabel.setFont(GuiUtils.getFont(20, true));
@@ -2556,7 +2803,7 @@ public class CircuitSim extends Application {
 		Pane blank2 = new Pane();
 		HBox.setHgrow(blank2, Priority.ALWAYS);
 		
-		HBox statusBar = new HBox(fpsLabel, clockLabel, blank1, messageLabel, blank2);
+		HBox statusBar = new HBox(fpsLabel, clockLabel, metricsLabel, blank1, messageLabel, blank2);
 		VBox canvasTabBox = new VBox(canvasTabPane, statusBar);
 		VBox.setVgrow(canvasTabPane, Priority.ALWAYS);
 		
@@ -2668,12 +2915,15 @@ public class CircuitSim extends Application {
 					event.consume();
 				} else {
 					saveConfFile();
+					stopWaveformRecording();
+					simulationThreadEnabled.setSelected(false);
 				}
 			});
 			
 			(currentTimer = new AnimationTimer() {
 				private long lastRepaint;
 				private int frameCount;
+				private SimulatorMetrics lastMetrics;
 				
 				@Override
 				public void handle(long now) {
@@ -2686,6 +2936,25 @@ public class CircuitSim extends Application {
 						clockLabel.setText(Clock.isRunning(simulator) ?
 						                   "Clock: " + (Clock.getLastTickCount(simulator) >> 1) + " Hz" :
 						                   "");
+						
+						SimulatorMetrics metrics = simulator.getMetrics();
+						if (metricsLabel.isVisible() && lastMetrics != null) {
+							SimulatorMetrics second = metrics.since(lastMetrics);
+							metricsLabel.setText(String.format(
+								"Settles/s: %d   Steps/settle: %.1f (max %d)   Links/s: %d   Evaluations/s: %d   " +
+								"Queue max: %d   Short circuit retries/s: %d   Lock wait: %.1f ms/s   " +
+								"Tick settle: %.2f ms",
+								second.getSettles(),
+								second.getStepsPerSettle(),
+								second.getMaxStepsPerSettle(),
+								second.getPropagatedLinks(),
+								second.getComponentEvaluations(),
+								second.getQueueHighWaterMark(),
+								second.getShortCircuitRetries(),
+								second.getLockWaitNanos() / 1e6,
+								second.getAverageTickSettleNanos() / 1e6));
+						}
+						lastMetrics = metrics;
 					}
 					
 					frameCount++;
@@ -2694,9 +2963,20 @@ public class CircuitSim extends Application {
 					
 					CircuitManager manager = getCurrentCircuit();
 					if (manager != null) {
+						if (simulationThread != null) {
+							// Values pushed by the GUI are stepped with the next batch
+							if (manager.needsRepaint()) {
+								simulationThread.submit(() -> {});
+							}
+							
+							if (simulationThread.getGeneration() != paintedGeneration) {
+								needsRepaint = true;
+							}
+						}
+						
 						if ((needsRepaint || manager.needsRepaint())) {
 							needsRepaint = false;
-							simulator.runSync(manager::paint);
+							paintCircuit(manager);
 						}
 						
 						if (!loadingFile) {
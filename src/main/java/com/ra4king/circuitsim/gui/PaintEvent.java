@@ -0,0 +1,29 @@
+package com.ra4king.circuitsim.gui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by every CircuitManager.paint().
+ *
+ * @author Roi Atalla
+ */
+@Name("com.ra4king.circuitsim.Paint")
+@Label("Paint")
+@Category({ "CircuitSim", "Rendering" })
+@Description("A circuit painted on its canvas")
+@StackTrace(false)
+class PaintEvent extends Event {
+	@Label("Circuit")
+	String circuit;
+	
+	@Label("Components")
+	int components;
+	
+	@Label("Wires")
+	int wires;
+}
@@ -25,6 +25,26 @@ public class PathFinding {
 	private static final Cost INFINITY = new Cost(Integer.MAX_VALUE, Integer.MAX_VALUE);
 	
 	public static Pair<Set<Wire>, Set<Point>> bestPath(int sx, int sy, int dx, int dy, ValidWireLocation valid) {
+		PathFindingEvent event = new PathFindingEvent();
+		event.begin();
+		
+		Pair<Set<Wire>, Set<Point>> path = findPath(sx, sy, dx, dy, valid);
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.sourceX = sx;
+			event.sourceY = sy;
+			event.destinationX = dx;
+			event.destinationY = dy;
+			event.wires = path == null ? 0 : path.getKey().size();
+			event.explored = path == null ? 0 : path.getValue().size();
+			event.commit();
+		}
+		
+		return path;
+	}
+	
+	private static Pair<Set<Wire>, Set<Point>> findPath(int sx, int sy, int dx, int dy, ValidWireLocation valid) {
 		if (dx < 0 || dy < 0) {
 			return new Pair<>(Collections.emptySet(), Collections.emptySet());
 		}
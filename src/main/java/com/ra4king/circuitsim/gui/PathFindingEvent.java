@@ -0,0 +1,40 @@
+package com.ra4king.circuitsim.gui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by every PathFinding.bestPath() search for the route of a new wire.
+ *
+ * @author Roi Atalla
+ */
+@Name("com.ra4king.circuitsim.PathFinding")
+@Label("Path Finding")
+@Category({ "CircuitSim", "Rendering" })
+@Description("A search for the best route of a wire")
+@StackTrace(false)
+class PathFindingEvent extends Event {
+	@Label("Source X")
+	int sourceX;
+	
+	@Label("Source Y")
+	int sourceY;
+	
+	@Label("Destination X")
+	int destinationX;
+	
+	@Label("Destination Y")
+	int destinationY;
+	
+	@Label("Wires")
+	@Description("The number of wires of the path found, 0 if none")
+	int wires;
+	
+	@Label("Explored")
+	@Description("The number of grid points explored")
+	int explored;
+}
@@ -0,0 +1,168 @@
+package com.ra4king.circuitsim.gui;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import com.ra4king.circuitsim.simulator.Profiler;
+import com.ra4king.circuitsim.simulator.Profiler.ProfileEntry;
+import com.ra4king.circuitsim.simulator.Simulator;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TabPane.TabClosingPolicy;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumn.SortType;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
+import javafx.stage.FileChooser.ExtensionFilter;
+import javafx.stage.Stage;
+
+/**
+ * Shows the hottest Component types and instances recorded by a Profiler, in sortable tables refreshed on demand.
+ * Closing the window stops the Profiler.
+ *
+ * @author Roi Atalla
+ */
+public class ProfilerWindow {
+	private final Profiler profiler;
+	private final Stage stage;
+	
+	private final TableView<ProfileEntry> typesTable = createTable();
+	private final TableView<ProfileEntry> instancesTable = createTable();
+	private final Label totalLabel = new Label();
+	
+	public ProfilerWindow(Stage owner, Simulator simulator, Runnable onClose) {
+		profiler = new Profiler(simulator);
+		
+		Button refresh = new Button("Refresh");
+		refresh.setOnAction(event -> refresh());
+		
+		Button reset = new Button("Reset");
+		reset.setOnAction(event -> {
+			profiler.reset();
+			refresh();
+		});
+		
+		Button save = new Button("Save report...");
+		save.setOnAction(event -> saveReport());
+		
+		HBox buttons = new HBox(10, refresh, reset, save, totalLabel);
+		buttons.setPadding(new Insets(10));
+		
+		TabPane tabs = new TabPane(new Tab("By type", typesTable), new Tab("By instance", instancesTable));
+		tabs.setTabClosingPolicy(TabClosingPolicy.UNAVAILABLE);
+		
+		stage = new Stage();
+		stage.initOwner(owner);
+		stage.setTitle("Hot components");
+		stage.getIcons().addAll(owner.getIcons());
+		stage.setScene(new Scene(new BorderPane(tabs, buttons, null, null, null), 800, 500));
+		stage.setOnHidden(event -> {
+			profiler.stop();
+			onClose.run();
+		});
+	}
+	
+	public void show() {
+		profiler.start();
+		refresh();
+		stage.show();
+	}
+	
+	public void close() {
+		stage.close();
+	}
+	
+	private void refresh() {
+		List<ProfileEntry> byType = profiler.getByType();
+		long totalSelfNanos = byType.stream().mapToLong(ProfileEntry::getSelfNanos).sum();
+		long totalCalls = byType.stream().mapToLong(ProfileEntry::getCalls).sum();
+		
+		typesTable.getItems().setAll(byType);
+		instancesTable.getItems().setAll(profiler.getByInstance());
+		typesTable.sort();
+		instancesTable.sort();
+		totalLabel.setText(String.format("%d evaluations in %.3f ms", totalCalls, totalSelfNanos / 1e6));
+	}
+	
+	private void saveReport() {
+		FileChooser fileChooser = new FileChooser();
+		fileChooser.setTitle("Save profile report");
+		fileChooser.getExtensionFilters().addAll(new ExtensionFilter("JSON", "*.json"),
+		                                         new ExtensionFilter("Text", "*.txt"));
+		File file = fileChooser.showSaveDialog(stage);
+		if (file == null) {
+			return;
+		}
+		
+		try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+			if (file.getName().endsWith(".json")) {
+				profiler.writeJson(writer);
+			} else {
+				profiler.writeText(writer, Integer.MAX_VALUE);
+			}
+		} catch (IOException exc) {
+			Alert alert = new Alert(AlertType.ERROR);
+			alert.initOwner(stage);
+			alert.setTitle("Error");
+			alert.setHeaderText("Error saving report.");
+			alert.setContentText("Error when saving the report: " + exc.getMessage());
+			alert.showAndWait();
+		}
+	}
+	
+	private static TableView<ProfileEntry> createTable() {
+		TableColumn<ProfileEntry, String> name = column("Name", ProfileEntry::getName);
+		name.setPrefWidth(400);
+		
+		TableColumn<ProfileEntry, Long> calls = column("Calls", ProfileEntry::getCalls);
+		TableColumn<ProfileEntry, Double> total = timeColumn("Total ms", ProfileEntry::getNanos, 1e6);
+		TableColumn<ProfileEntry, Double> self = timeColumn("Self ms", ProfileEntry::getSelfNanos, 1e6);
+		TableColumn<ProfileEntry, Double> perCall =
+			timeColumn("Self µs/call", entry -> entry.getSelfNanos() / Math.max(1, entry.getCalls()), 1e3);
+		
+		// Hottest first, like the text report
+		self.setSortType(SortType.DESCENDING);
+		
+		TableView<ProfileEntry> table = new TableView<>();
+		table.getColumns().addAll(List.of(name, calls, total, self, perCall));
+		table.getSortOrder().add(self);
+		return table;
+	}
+	
+	private static <T> TableColumn<ProfileEntry, T> column(String title, Function<ProfileEntry, T> getter) {
+		TableColumn<ProfileEntry, T> column = new TableColumn<>(title);
+		column.setCellValueFactory(features -> new ReadOnlyObjectWrapper<>(getter.apply(features.getValue())));
+		return column;
+	}
+	
+	private static TableColumn<ProfileEntry, Double> timeColumn(String title,
+	                                                            ToLongFunction<ProfileEntry> nanos,
+	                                                            double unitNanos) {
+		TableColumn<ProfileEntry, Double> column = column(title, entry -> nanos.applyAsLong(entry) / unitNanos);
+		column.setCellFactory(col -> new TableCell<>() {
+			@Override
+			protected void updateItem(Double item, boolean empty) {
+				super.updateItem(item, empty);
+				setText(empty || item == null ? null : String.format("%.3f", item));
+			}
+		});
+		return column;
+	}
+}
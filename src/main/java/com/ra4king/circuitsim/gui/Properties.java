@@ -219,6 +219,7 @@ public class Properties {
 	public static final Property<Boolean> SELECTOR_LOCATION;
 	public static final Property<Base> BASE;
 	public static final Property<IntegerString> VALUE;
+	public static final Property<Integer> PROPAGATION_DELAY;
 	
 	public enum Direction {
 		NORTH, SOUTH, EAST, WEST
@@ -270,6 +271,21 @@ public class Properties {
 			"Three input formats supported: decimal, hexadecimal (with 0x prefix), and binary " + "(with 0b prefix).",
 			PropertyValidators.INTEGER_VALIDATOR,
 			new IntegerString(0));
+		
+		List<Integer> delays = new ArrayList<>();
+		for (int i = -1; i <= 32; i++) {
+			delays.add(i);
+		}
+		// The default delay is left out of files, so they only change once timed simulation is actually used
+		PROPAGATION_DELAY = new Property<>(
+			"Propagation delay",
+			"Propagation delay",
+			"The delay of the component in timed simulation. Default uses the delay of the component type.",
+			new PropertyListValidator<>(delays, delay -> delay < 0 ? "Default" : delay.toString()),
+			false,
+			false,
+			true,
+			-1);
 	}
 	
 	public static class Property<T> {
@@ -279,7 +295,9 @@ public class Properties {
 		public final PropertyValidator<T> validator;
 		public final boolean hidden; // hidden in the UI
 		public final boolean ephemeral; // won't be written to disk
+		public final boolean omitDefault; // won't be written to disk while it has its default value
 		public final T value;
+		private final T defaultValue;
 		
 		public Property(Property<T> property) {
 			this(property, property.value);
@@ -297,7 +315,9 @@ public class Properties {
 				validator,
 				property.hidden,
 				property.ephemeral,
-				value);
+				property.omitDefault,
+				value,
+				property.defaultValue);
 		}
 		
 		public Property(String name, PropertyValidator<T> validator, T value) {
@@ -320,13 +340,47 @@ public class Properties {
 			boolean hidden,
 			boolean ephemeral,
 			T value) {
+			this(name, displayName, helpText, validator, hidden, ephemeral, false, value);
+		}
+		
+		public Property(
+			String name,
+			String displayName,
+			String helpText,
+			PropertyValidator<T> validator,
+			boolean hidden,
+			boolean ephemeral,
+			boolean omitDefault,
+			T value) {
+			this(name, displayName, helpText, validator, hidden, ephemeral, omitDefault, value, value);
+		}
+		
+		private Property(
+			String name,
+			String displayName,
+			String helpText,
+			PropertyValidator<T> validator,
+			boolean hidden,
+			boolean ephemeral,
+			boolean omitDefault,
+			T value,
+			T defaultValue) {
 			this.name = name;
 			this.display = displayName;
 			this.helpText = helpText;
 			this.validator = validator;
 			this.hidden = hidden;
 			this.ephemeral = ephemeral;
+			this.omitDefault = omitDefault;
 			this.value = value;
+			this.defaultValue = defaultValue;
+		}
+		
+		/**
+		 * @return Whether the property is written to disk.
+		 */
+		public boolean isSaved() {
+			return !ephemeral && !(omitDefault && Objects.equals(value, defaultValue));
 		}
 		
 		public String getStringValue() {
@@ -1,27 +1,50 @@
 package com.ra4king.circuitsim.gui.file;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 import com.ra4king.circuitsim.gui.CircuitSim;
 import com.ra4king.circuitsim.gui.Properties;
+import com.ra4king.circuitsim.simulator.jfr.LoadPhaseEvent;
 
 /**
  * @author Roi Atalla
  */
 public class FileFormat {
 	private static final Gson GSON;
+	private static final Type LIBRARY_PATHS_TYPE = new TypeToken<Set<String>>() {}.getType();
 	
 	static {
 		GSON = new GsonBuilder().setPrettyPrinting().create();
@@ -99,7 +122,7 @@ public class FileFormat {
 		public ComponentInfo(String name, int x, int y, Properties properties) {
 			this(name, x, y, new HashMap<>());
 			properties.forEach(prop -> {
-				if (!prop.ephemeral) {
+				if (prop.isSaved()) {
 					this.properties.put(prop.name, prop.getStringValue());
 				}
 			});
@@ -152,19 +175,173 @@ public class FileFormat {
 		}
 	}
 	
+	/**
+	 * Writes the file one circuit at a time, straight to the file instead of into a String first.
+	 */
 	public static void save(File file, CircuitFile circuitFile) throws IOException {
-		writeFile(file, stringify(circuitFile));
+		FileChannel channel = FileChannel.open(file.toPath(),
+		                                       StandardOpenOption.CREATE,
+		                                       StandardOpenOption.TRUNCATE_EXISTING,
+		                                       StandardOpenOption.WRITE);
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+		                                                               Charset.defaultCharset()))) {
+			write(writer, circuitFile);
+			writer.write('\n');
+		}
 	}
 	
 	public static String stringify(CircuitFile circuitFile) {
-		return GSON.toJson(circuitFile);
+		StringWriter writer = new StringWriter();
+		try {
+			write(writer, circuitFile);
+		} catch (IOException exc) {
+			throw new JsonIOException(exc);
+		}
+		return writer.toString();
+	}
+	
+	/**
+	 * Writes the CircuitFile exactly as Gson would, but one circuit at a time.
+	 */
+	public static void write(Writer out, CircuitFile circuitFile) throws IOException {
+		JsonWriter writer = GSON.newJsonWriter(out);
+		writer.beginObject();
+		writer.name("version").value(circuitFile.version);
+		writer.name("globalBitSize").value(circuitFile.globalBitSize);
+		writer.name("clockSpeed").value(circuitFile.clockSpeed);
+		writer.name("libraryPaths");
+		GSON.toJson(circuitFile.libraryPaths, LIBRARY_PATHS_TYPE, writer);
+		writer.name("circuits");
+		if (circuitFile.circuits == null) {
+			writer.nullValue();
+		} else {
+			writer.beginArray();
+			for (CircuitInfo circuit : circuitFile.circuits) {
+				GSON.toJson(circuit, CircuitInfo.class, writer);
+			}
+			writer.endArray();
+		}
+		writer.endObject();
+		writer.flush();
 	}
 	
 	public static CircuitFile load(File file) throws IOException {
-		return parse(readFile(file));
+		return load(file, circuit -> {});
+	}
+	
+	/**
+	 * Reads the file incrementally, handing every circuit to the consumer as soon as it is parsed, so the circuits
+	 * can be built before the rest of the file is read.
+	 *
+	 * @return The CircuitFile, whose circuits are the ones handed to the consumer, or null if the file is empty.
+	 */
+	public static CircuitFile load(File file, Consumer<CircuitInfo> circuitConsumer) throws IOException {
+		LoadPhaseEvent event = new LoadPhaseEvent(file.getName(), LoadPhaseEvent.PARSE);
+		event.begin();
+		
+		CircuitFile circuitFile;
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try (Reader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+		                                                              Charset.defaultCharset()))) {
+			circuitFile = read(reader, circuitConsumer);
+		}
+		
+		event.count = circuitFile == null || circuitFile.circuits == null ? 0 : circuitFile.circuits.size();
+		event.commit();
+		return circuitFile;
 	}
 	
 	public static CircuitFile parse(String contents) {
-		return GSON.fromJson(contents, CircuitFile.class);
+		try {
+			return read(new StringReader(contents), circuit -> {});
+		} catch (IOException exc) {
+			throw new JsonIOException(exc);
+		}
+	}
+	
+	/**
+	 * Reads a CircuitFile as leniently as Gson would, but one circuit at a time. Malformed files throw a
+	 * JsonSyntaxException, like Gson, while exceptions thrown by the consumer are passed through as they are.
+	 */
+	private static CircuitFile read(Reader in, Consumer<CircuitInfo> circuitConsumer) throws IOException {
+		JsonReader reader = GSON.newJsonReader(in);
+		reader.setLenient(true);
+		
+		try {
+			reader.peek();
+		} catch (EOFException exc) {
+			// An empty file, which Gson reads as null
+			return null;
+		}
+		
+		try {
+			String version = null;
+			int globalBitSize = 0;
+			int clockSpeed = 0;
+			Set<String> libraryPaths = null;
+			List<CircuitInfo> circuits = null;
+			
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (reader.peek() == JsonToken.NULL) {
+					reader.nextNull();
+					continue;
+				}
+				
+				switch (name) {
+					case "version":
+						version = reader.nextString();
+						break;
+					case "globalBitSize":
+						globalBitSize = reader.nextInt();
+						break;
+					case "clockSpeed":
+						clockSpeed = reader.nextInt();
+						break;
+					case "libraryPaths":
+						libraryPaths = GSON.fromJson(reader, LIBRARY_PATHS_TYPE);
+						break;
+					case "circuits":
+						circuits = new ArrayList<>();
+						reader.beginArray();
+						while (reader.hasNext()) {
+							CircuitInfo circuit = GSON.fromJson(reader, CircuitInfo.class);
+							circuits.add(circuit);
+							if (circuit != null) {
+								try {
+									circuitConsumer.accept(circuit);
+								} catch (RuntimeException exc) {
+									throw new ConsumerException(exc);
+								}
+							}
+						}
+						reader.endArray();
+						break;
+					default:
+						reader.skipValue();
+						break;
+				}
+			}
+			reader.endObject();
+			
+			return new CircuitFile(version, globalBitSize, clockSpeed, libraryPaths, circuits);
+		} catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException exc) {
+			throw new JsonSyntaxException(exc);
+		} catch (ConsumerException exc) {
+			throw exc.cause;
+		}
+	}
+	
+	/**
+	 * Carries an exception thrown by the circuit consumer past the handling of malformed files.
+	 */
+	private static class ConsumerException extends RuntimeException {
+		private final RuntimeException cause;
+		
+		ConsumerException(RuntimeException cause) {
+			super(cause);
+			this.cause = cause;
+		}
 	}
 }
@@ -43,6 +43,7 @@ public abstract class GatePeer<T extends Gate> extends ComponentPeer<T> {
 		properties.ensureProperty(Properties.LABEL);
 		properties.ensureProperty(Properties.LABEL_LOCATION);
 		properties.ensureProperty(Properties.DIRECTION);
+		properties.ensureProperty(Properties.PROPAGATION_DELAY);
 		ensureProperties(properties);
 		properties.mergeIfExists(props);
 		
@@ -61,6 +62,7 @@ public abstract class GatePeer<T extends Gate> extends ComponentPeer<T> {
 		}
 		
 		T gate = buildGate(properties);
+		gate.setPropagationDelay(properties.getValue(Properties.PROPAGATION_DELAY));
 		int gateNum = gate.getNumInputs();
 		
 		boolean hasNegatedInput = false;
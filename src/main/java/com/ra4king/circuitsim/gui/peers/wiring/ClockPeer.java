@@ -1,6 +1,7 @@
 package com.ra4king.circuitsim.gui.peers.wiring;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.ra4king.circuitsim.gui.CircuitManager;
@@ -9,6 +10,9 @@ import com.ra4king.circuitsim.gui.ComponentPeer;
 import com.ra4king.circuitsim.gui.Connection.PortConnection;
 import com.ra4king.circuitsim.gui.GuiUtils;
 import com.ra4king.circuitsim.gui.Properties;
+import com.ra4king.circuitsim.gui.Properties.Property;
+import com.ra4king.circuitsim.gui.properties.PropertyListValidator;
+import com.ra4king.circuitsim.gui.properties.PropertyValidators;
 import com.ra4king.circuitsim.simulator.CircuitState;
 import com.ra4king.circuitsim.simulator.Port;
 import com.ra4king.circuitsim.simulator.components.wiring.Clock;
@@ -22,6 +26,37 @@ import javafx.util.Pair;
  * @author Roi Atalla
  */
 public class ClockPeer extends ComponentPeer<Clock> {
+	private static final Property<String> DOMAIN;
+	private static final Property<Integer> DOMAIN_FREQUENCY;
+	private static final Property<Integer> DOMAIN_PHASE;
+	
+	static {
+		DOMAIN = new Property<>("Clock domain",
+		                        "Clock domain",
+		                        "Clocks of the same domain tick together. Empty is the main clock.",
+		                        PropertyValidators.ANY_STRING_VALIDATOR,
+		                        "");
+		
+		List<Integer> frequencies = new ArrayList<>();
+		frequencies.add(0);
+		for (int i = 0; i <= 20; i++) {
+			frequencies.add(1 << i);
+		}
+		DOMAIN_FREQUENCY = new Property<>("Domain frequency",
+		                                  "Domain frequency",
+		                                  "The frequency of the clock domain. Main follows the clock speed.",
+		                                  new PropertyListValidator<>(frequencies,
+		                                                              hz -> hz == 0 ? "Main" : hz + " Hz"),
+		                                  0);
+		
+		DOMAIN_PHASE = new Property<>("Domain phase",
+		                              "Domain phase",
+		                              "How far the ticks of the clock domain are delayed, in degrees of its period.",
+		                              new PropertyListValidator<>(Arrays.asList(0, 90, 180, 270),
+		                                                          degrees -> degrees + " degrees"),
+		                              0);
+	}
+	
 	public static void installComponent(ComponentManagerInterface manager) {
 		manager.addComponent(new Pair<>("Wiring", "Clock"),
 		                     new Image(ClockPeer.class.getResourceAsStream("/images/Clock.png")),
@@ -35,9 +70,15 @@ public class ClockPeer extends ComponentPeer<Clock> {
 		properties.ensureProperty(Properties.LABEL);
 		properties.ensureProperty(Properties.LABEL_LOCATION);
 		properties.ensureProperty(Properties.DIRECTION);
+		properties.ensureProperty(DOMAIN);
+		properties.ensureProperty(DOMAIN_FREQUENCY);
+		properties.ensureProperty(DOMAIN_PHASE);
 		properties.mergeIfExists(props);
 		
-		Clock clock = new Clock(properties.getValue(Properties.LABEL));
+		Clock clock = new Clock(properties.getValue(Properties.LABEL),
+		                        properties.getValue(DOMAIN),
+		                        properties.getValue(DOMAIN_FREQUENCY),
+		                        properties.getValue(DOMAIN_PHASE) / 360.0);
 		
 		List<PortConnection> connections = new ArrayList<>();
 		switch (properties.getValue(Properties.DIRECTION)) {
@@ -77,8 +118,9 @@ public class ClockPeer extends ComponentPeer<Clock> {
 		
 		graphics.setStroke(Color.WHITE);
 		graphics.setLineWidth(1.5);
-		double offset1 = Clock.getTickState(getComponent().getCircuit().getSimulator()) ? 0.3 : 0;
-		double offset2 = Clock.getTickState(getComponent().getCircuit().getSimulator()) ? 0.6 : 0;
+		boolean tickState = Clock.getTickState(getComponent().getCircuit().getSimulator(), getComponent().getDomain());
+		double offset1 = tickState ? 0.3 : 0;
+		double offset2 = tickState ? 0.6 : 0;
 		
 		// lower line
 		graphics.strokeLine(getScreenX() + getScreenWidth() * (0.2 + offset1),
@@ -6,6 +6,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ra4king.circuitsim.gui.ComponentManager.ComponentManagerInterface;
 import com.ra4king.circuitsim.gui.ComponentPeer;
@@ -32,7 +33,9 @@ import javafx.util.Pair;
  * @author Roi Atalla
  */
 public class Tunnel extends ComponentPeer<Component> {
-	private static final Map<Circuit, Map<String, Set<Tunnel>>> tunnels = new HashMap<>();
+	// Shared by every CircuitSim, which may load circuits concurrently. The Tunnels of a single Circuit are only
+	// changed while holding the lock of its Simulator.
+	private static final Map<Circuit, Map<String, Set<Tunnel>>> tunnels = new ConcurrentHashMap<>();
 	
 	private static final Property<IntegerString> WIDTH =
 		new Property<>("Width", "", "", PropertyValidators.INTEGER_VALIDATOR, true, false, new IntegerString(0));
@@ -206,6 +209,7 @@ public class Tunnel extends ComponentPeer<Component> {
 				}
 			}
 		};
+		tunnel.setPropagationDelay(0);
 		
 		List<PortConnection> connections = new ArrayList<>();
 		switch (properties.getValue(Properties.DIRECTION)) {
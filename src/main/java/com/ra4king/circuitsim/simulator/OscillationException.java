@@ -1,10 +0,0 @@
-package com.ra4king.circuitsim.simulator;
-
-/**
- * @author Roi Atalla
- */
-public class OscillationException extends SimulationException {
-	public OscillationException() {
-		super("Oscillation apparent");
-	}
-}
@@ -3,6 +3,7 @@ module Project.com.ra4king.circuitsim.gui {
 	requires javafx.controls;
 	requires javafx.swing;
 	requires com.google.gson;
+	requires jdk.jfr;
+	requires transitive Project.com.ra4king.circuitsim.simulator;
 	exports com.ra4king.circuitsim.gui;
-	exports com.ra4king.circuitsim.simulator;
 }
@@ -0,0 +1,95 @@
+package com.ra4king.circuitsim.gui.file;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.ra4king.circuitsim.gui.Properties;
+import com.ra4king.circuitsim.gui.Properties.Property;
+import com.ra4king.circuitsim.gui.file.FileFormat.CircuitFile;
+import com.ra4king.circuitsim.gui.file.FileFormat.CircuitInfo;
+import com.ra4king.circuitsim.gui.file.FileFormat.ComponentInfo;
+
+/**
+ * @author Roi Atalla
+ */
+public class FileFormatTest {
+	private static final File EXAMPLE = new File("examples/CPU.sim");
+	
+	@Test
+	public void testLoadHandsOverEveryCircuit() throws IOException {
+		List<String> parsed = new ArrayList<>();
+		CircuitFile circuitFile = FileFormat.load(EXAMPLE, circuit -> parsed.add(circuit.name));
+		
+		assertThat(parsed).isNotEmpty();
+		List<String> names = circuitFile.circuits.stream().map(circuit -> circuit.name).collect(Collectors.toList());
+		assertThat(parsed).containsExactlyElementsIn(names).inOrder();
+	}
+	
+	@Test
+	public void testConsumerExceptionsPassThrough() {
+		IllegalStateException exception = new IllegalStateException("Duplicate circuit names not allowed.");
+		assertThat(assertThrows(IllegalStateException.class, () -> FileFormat.load(EXAMPLE, circuit -> {
+			throw exception;
+		}))).isSameInstanceAs(exception);
+	}
+	
+	@Test
+	public void testSaveMatchesGson() throws IOException {
+		String contents = Files.readString(EXAMPLE.toPath(), Charset.defaultCharset());
+		CircuitFile circuitFile = FileFormat.parse(contents);
+		
+		File saved = File.createTempFile("circuitsim", ".sim");
+		try {
+			FileFormat.save(saved, circuitFile);
+			String expected = new GsonBuilder().setPrettyPrinting().create().toJson(circuitFile) + "\n";
+			assertThat(Files.readString(saved.toPath(), Charset.defaultCharset())).isEqualTo(expected);
+		} finally {
+			saved.delete();
+		}
+	}
+	
+	@Test
+	public void testNullsAndUnknownFields() {
+		String contents = "{\"version\": null, \"extra\": {\"a\": [1, 2]}, \"clockSpeed\": 5, " +
+		                  "\"circuits\": [{\"name\": \"A\", \"components\": [], \"wires\": []}]}";
+		CircuitFile circuitFile = FileFormat.parse(contents);
+		assertThat(circuitFile.version).isNull();
+		assertThat(circuitFile.clockSpeed).isEqualTo(5);
+		assertThat(circuitFile.libraryPaths).isNull();
+		
+		CircuitInfo circuit = circuitFile.circuits.get(0);
+		assertThat(circuit.name).isEqualTo("A");
+		assertThat(circuit.components).isEmpty();
+		
+		assertThat(FileFormat.parse("")).isNull();
+	}
+	
+	@Test
+	public void testDefaultPropagationDelayNotSaved() {
+		Properties properties = new Properties(new Property<>(Properties.LABEL, "A"));
+		properties.ensureProperty(Properties.PROPAGATION_DELAY);
+		assertThat(new ComponentInfo("Gate", 0, 0, properties).properties).containsExactly("Label", "A");
+		
+		properties.setProperty(new Property<>(Properties.PROPAGATION_DELAY, 3));
+		assertThat(new ComponentInfo("Gate", 0, 0, properties).properties).containsEntry("Propagation delay", "3");
+	}
+	
+	@Test
+	public void testMalformed() {
+		assertThrows(JsonSyntaxException.class, () -> FileFormat.parse("{\"circuits\": [{\"name\": \"A\", "));
+		assertThrows(JsonSyntaxException.class, () -> FileFormat.parse("{\"circuits\": 5}"));
+		assertThrows(JsonSyntaxException.class, () -> FileFormat.parse("{\"clockSpeed\": \"fast\"}"));
+	}
+}